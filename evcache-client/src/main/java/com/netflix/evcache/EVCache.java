@@ -60,7 +60,8 @@ import rx.Single;
 public interface EVCache {
 
     public static enum Call {
-        GET, GETL, GET_AND_TOUCH, ASYNC_GET, BULK, SET, DELETE, INCR, DECR, TOUCH, APPEND, PREPEND, REPLACE, ADD, APPEND_OR_ADD
+        GET, GETL, GET_AND_TOUCH, ASYNC_GET, BULK, SET, DELETE, INCR, DECR, TOUCH, APPEND, PREPEND, REPLACE, ADD, APPEND_OR_ADD,
+        SET_BULK, DELETE_BULK, TOUCH_BULK
     };
 
     /**
@@ -650,6 +651,24 @@ public interface EVCache {
      */
     <T> Map<String, T> getBulk(Collection<String> keys, Transcoder<T> tc) throws EVCacheException;
 
+    /**
+     * Retrieve the value for the collection of keys, using the specified
+     * Transcoder for deserialization. No thread is blocked while waiting for
+     * the primary server group or the zone fallbacks.
+     *
+     * @param keys
+     *            The collection of keys for which we need the values
+     * @param tc
+     *            the transcoder to use for deserialization
+     * @param scheduler
+     *            the {@link Scheduler} to perform subscription actions on
+     * @return a map of the values (for each value that exists). If the Returned
+     *         map contains the key but the value in null then the key does not
+     *         exist in the cache. if a key is missing then we were not able to
+     *         retrieve the data for that key due to some exception
+     */
+    <T> Single<Map<String, T>> getBulk(Collection<String> keys, Transcoder<T> tc, Scheduler scheduler);
+
     /**
      * Retrieve the value for the collection of keys, using the specified
      * Transcoder for deserialization.
@@ -713,6 +732,88 @@ public interface EVCache {
      */
     <T> Future<T> getAsynchronous(String key, Transcoder<T> tc) throws EVCacheException;
 
+    /**
+     * Set all the given key/value pairs in the EVCACHE (using the default
+     * Transcoder) regardless of any existing value. The keys are grouped by
+     * the node they map to and written to each node as a single pipelined
+     * batch.
+     *
+     * @param data
+     *            the key/value pairs to set. Ensure the keys are properly
+     *            encoded and do not contain whitespace or control characters.
+     * @param timeToLive
+     *            the expiration of these objects i.e. how long they should
+     *            live in the cache, in seconds
+     * @param policy
+     *            The Latch will be returned based on the Policy. The Latch can
+     *            then be used to await until the count down has reached to 0
+     *            or the specified time has elapsed.
+     * @return EVCacheLatch which will encompass the bulk write across all
+     *         replicas, one count per replica.
+     * @throws EVCacheException
+     *             in the rare circumstance where queue is too full to accept
+     *             any more requests or issues serializing the values or any IO
+     *             Related issues
+     */
+    <T> EVCacheLatch setBulk(Map<String, T> data, int timeToLive, EVCacheLatch.Policy policy) throws EVCacheException;
+
+    /**
+     * Set all the given key/value pairs in the EVCACHE using the given
+     * Transcoder regardless of any existing value.
+     *
+     * @param data
+     *            the key/value pairs to set. Ensure the keys are properly
+     *            encoded and do not contain whitespace or control characters.
+     * @param tc
+     *            the Transcoder to serialize the data
+     * @param timeToLive
+     *            the expiration of these objects i.e. how long they should
+     *            live in the cache, in seconds
+     * @param policy
+     *            The Latch will be returned based on the Policy.
+     * @return EVCacheLatch which will encompass the bulk write across all
+     *         replicas, one count per replica.
+     * @throws EVCacheException
+     *             in the rare circumstance where queue is too full to accept
+     *             any more requests or issues serializing the values or any IO
+     *             Related issues
+     */
+    <T> EVCacheLatch setBulk(Map<String, T> data, Transcoder<T> tc, int timeToLive, EVCacheLatch.Policy policy) throws EVCacheException;
+
+    /**
+     * Remove all the given keys from the EVCACHE. The deletes are sent
+     * pipelined, one batch per node.
+     *
+     * @param keys
+     *            the keys to delete
+     * @param policy
+     *            The Latch will be returned based on the Policy.
+     * @return EVCacheLatch which will encompass the bulk delete across all
+     *         replicas, one count per replica.
+     * @throws EVCacheException
+     *             in the rare circumstance where queue is too full to accept
+     *             any more requests or any IO Related issues
+     */
+    EVCacheLatch deleteBulk(Collection<String> keys, EVCacheLatch.Policy policy) throws EVCacheException;
+
+    /**
+     * Touch all the given keys and reset their expiration time to the given
+     * timeToLive. The touches are sent pipelined, one batch per node.
+     *
+     * @param keys
+     *            the keys to touch
+     * @param timeToLive
+     *            the new expiration of the keys, in seconds
+     * @param policy
+     *            The Latch will be returned based on the Policy.
+     * @return EVCacheLatch which will encompass the bulk touch across all
+     *         replicas, one count per replica.
+     * @throws EVCacheException
+     *             in the rare circumstance where queue is too full to accept
+     *             any more requests or any IO Related issues
+     */
+    EVCacheLatch touchBulk(Collection<String> keys, int timeToLive, EVCacheLatch.Policy policy) throws EVCacheException;
+
     /**
      * Increment the given counter, returning the new value.
      *
@@ -751,6 +852,44 @@ public interface EVCache {
      */
     public long decr(String key, long by, long def, int exp) throws EVCacheException;
 
+    /**
+     * Increment the given counter on all the replicas in parallel, emitting
+     * the new value once the replicas required by the counter policy have
+     * replied.
+     *
+     * @param key
+     *            the key
+     * @param by
+     *            the amount to increment
+     * @param def
+     *            the default value (if the counter does not exist)
+     * @param exp
+     *            the expiration of this object
+     * @param scheduler
+     *            the {@link Scheduler} to perform subscription actions on
+     * @return the new value, or -1 if we were unable to increment or add
+     */
+    public Single<Long> incr(String key, long by, long def, int exp, Scheduler scheduler);
+
+    /**
+     * Decrement the given counter on all the replicas in parallel, emitting
+     * the new value once the replicas required by the counter policy have
+     * replied.
+     *
+     * @param key
+     *            the key
+     * @param by
+     *            the amount to decrement
+     * @param def
+     *            the default value (if the counter does not exist)
+     * @param exp
+     *            the expiration of this object
+     * @param scheduler
+     *            the {@link Scheduler} to perform subscription actions on
+     * @return the new value, or -1 if we were unable to decrement or add
+     */
+    public Single<Long> decr(String key, long by, long def, int exp, Scheduler scheduler);
+
     /**
      * Append the given value to the existing value in EVCache. You cannot
      * append if the key does not exist in EVCache. If the value has not changed
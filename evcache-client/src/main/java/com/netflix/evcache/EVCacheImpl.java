@@ -6,26 +6,40 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.netflix.config.ChainedDynamicProperty;
 import com.netflix.config.DynamicBooleanProperty;
+import com.netflix.config.DynamicIntProperty;
 import com.netflix.evcache.EVCacheInMemoryCache.DataNotFoundException;
 import com.netflix.evcache.EVCacheLatch.Policy;
 import com.netflix.evcache.event.EVCacheEvent;
 import com.netflix.evcache.event.EVCacheEventListener;
+import com.netflix.evcache.event.EVCacheEventListeners;
+import com.netflix.evcache.event.hotkey.HotKeyDetector;
 import com.netflix.evcache.metrics.EVCacheMetricsFactory;
+import com.netflix.evcache.metrics.EVCacheServerGroupCounter;
 import com.netflix.evcache.metrics.Operation;
 import com.netflix.evcache.metrics.Stats;
+import com.netflix.evcache.operation.EVCacheBulkGetFuture;
 import com.netflix.evcache.operation.EVCacheFuture;
 import com.netflix.evcache.operation.EVCacheLatchImpl;
 import com.netflix.evcache.operation.EVCacheOperationFuture;
@@ -74,6 +88,8 @@ final public class EVCacheImpl implements EVCache {
     private final ChainedDynamicProperty.BooleanProperty _throwExceptionFP, _zoneFallbackFP, _useInMemoryCache;
     private final DynamicBooleanProperty _bulkZoneFallbackFP;
     private final DynamicBooleanProperty _bulkPartialZoneFallbackFP;
+    private final DynamicBooleanProperty _bulkPartialParallelFallbackFP;
+    private final DynamicIntProperty _maxRetriesFP;
     private final Stats stats;
     private EVCacheInMemoryCache<?> cache;
     private EVCacheClientUtil clientUtil = null;
@@ -82,6 +98,14 @@ final public class EVCacheImpl implements EVCache {
     private DistributionSummary setTTLSummary, replaceTTLSummary, touchTTLSummary, setDataSizeSummary, replaceDataSizeSummary, appendDataSizeSummary;
     private Counter touchCounter;
     private final ChainedDynamicProperty.BooleanProperty _eventsUsingLatchFP;
+    private final ChainedDynamicProperty.StringProperty _counterPolicyFP;
+    private final HedgedReadPolicy hedgePolicy;
+    private final HotKeyCache _hotKeyCache;
+    private volatile EVCacheEventListeners _eventListeners;
+    private final EVCacheServerGroupCounter _retryHitCounter, _retryMissCounter, _bulkGetCounter, _bulkHitCounter, _bulkMissCounter,
+            _bulkHitPartialCounter, _bulkPartialRetryHitCounter, _hedgeSentCounter, _hedgeWonCounter, _hedgeOverBudgetCounter;
+    // counters whose metric name starts with the name of the call
+    private final Map<Call, EVCacheServerGroupCounter> _bulkKeysCounters, _fixupCounters, _fixupFailCounters, _quorumTimeoutCounters;
 
     EVCacheImpl(String appName, String cacheName, int timeToLive, Transcoder<?> transcoder, boolean enableZoneFallback,
             boolean throwException, EVCacheClientPoolManager poolManager) {
@@ -95,6 +119,20 @@ final public class EVCacheImpl implements EVCache {
         stats = EVCacheMetricsFactory.getStats(appName, cacheName);
         _metricName = (_cacheName == null) ? _appName : _appName + "." + _cacheName;
         _metricPrefix = _appName + "-";
+        _retryHitCounter = new EVCacheServerGroupCounter(_appName, _cacheName, _metricPrefix + "RETRY_HIT");
+        _retryMissCounter = new EVCacheServerGroupCounter(_appName, _cacheName, _metricPrefix + "RETRY_MISS");
+        _bulkGetCounter = new EVCacheServerGroupCounter(_appName, _cacheName, _metricPrefix + "BULK_GET");
+        _bulkHitCounter = new EVCacheServerGroupCounter(_appName, _cacheName, _metricPrefix + "BULK_HIT");
+        _bulkMissCounter = new EVCacheServerGroupCounter(_appName, _cacheName, _metricPrefix + "BULK_MISS");
+        _bulkHitPartialCounter = new EVCacheServerGroupCounter(_appName, _cacheName, _metricPrefix + "BULK_HIT_PARTIAL");
+        _bulkPartialRetryHitCounter = new EVCacheServerGroupCounter(_appName, _cacheName, _metricPrefix + "BULK_GET-PARTIAL_RETRY-HIT");
+        _hedgeSentCounter = new EVCacheServerGroupCounter(_appName, _cacheName, _metricPrefix + "HEDGE_SENT");
+        _hedgeWonCounter = new EVCacheServerGroupCounter(_appName, _cacheName, _metricPrefix + "HEDGE_WON");
+        _hedgeOverBudgetCounter = new EVCacheServerGroupCounter(_appName, _cacheName, _metricPrefix + "HEDGE_OVER_BUDGET");
+        _bulkKeysCounters = getCallCounters(_cacheName, "-KEYS", Call.SET_BULK, Call.DELETE_BULK, Call.TOUCH_BULK);
+        _fixupCounters = getCallCounters(_cacheName, "-FIXUP", Call.INCR, Call.DECR);
+        _fixupFailCounters = getCallCounters(_cacheName, "-FIXUP_FAIL", Call.INCR, Call.DECR);
+        _quorumTimeoutCounters = getCallCounters(null, "-QUORUM_TIMEOUT", Call.INCR, Call.DECR);
         this._poolManager = poolManager;
         this._pool = poolManager.getEVCacheClientPool(_appName);
         final EVCacheConfig config = EVCacheConfig.getInstance();
@@ -102,12 +140,17 @@ final public class EVCacheImpl implements EVCache {
         _zoneFallbackFP = config.getChainedBooleanProperty(_metricName + ".fallback.zone", _appName + ".fallback.zone", Boolean.TRUE, null);
         _bulkZoneFallbackFP = config.getDynamicBooleanProperty(_appName + ".bulk.fallback.zone", Boolean.TRUE);
         _bulkPartialZoneFallbackFP = config.getDynamicBooleanProperty(_appName+ ".bulk.partial.fallback.zone", Boolean.TRUE);
+        _bulkPartialParallelFallbackFP = config.getDynamicBooleanProperty(_appName+ ".bulk.partial.fallback.parallel", Boolean.FALSE);
+        _maxRetriesFP = config.getDynamicIntProperty(_appName + ".max.retry.count", 1);
         _useInMemoryCache = config.getChainedBooleanProperty(_appName + ".use.inmemory.cache", "evcache.use.inmemory.cache", Boolean.FALSE, null);
         _eventsUsingLatchFP = config.getChainedBooleanProperty(_appName + ".events.using.latch", "evcache.events.using.latch", Boolean.FALSE, null);
+        _counterPolicyFP = config.getChainedStringProperty(_appName + ".counter.policy", "evcache.counter.policy", Policy.ALL.name(), null);
+        hedgePolicy = new HedgedReadPolicy(_appName);
+        _hotKeyCache = poolManager.getHotKeyCache(_appName, _cacheName);
         _pool.pingServers();
     }
 
-    private String getCanonicalizedKey(String key) {
+    String getCanonicalizedKey(String key) {
         final String cKey;
         if (this._cacheName == null) {
             cKey = key;
@@ -118,7 +161,7 @@ final public class EVCacheImpl implements EVCache {
         return  cKey;
     }
 
-    private String getKey(String canonicalizedKey) {
+    String getKey(String canonicalizedKey) {
         if (canonicalizedKey == null) return canonicalizedKey;
         if (_cacheName == null) return canonicalizedKey;
         final String _cacheNameDelimited = _cacheName + ':';
@@ -145,22 +188,53 @@ final public class EVCacheImpl implements EVCache {
         return (_throwException || _throwExceptionFP.get().booleanValue());
     }
 
-    private List<EVCacheEventListener> getEVCacheEventListeners() {
-        return _poolManager.getEVCacheEventListeners();
+    /*
+     * The resolved listeners are kept until the pool manager replaces them,
+     * so picking the listeners of an operation does not look up the app.
+     */
+    private EVCacheEventListener[] getEVCacheEventListeners(Call call) {
+        EVCacheEventListeners listeners = _eventListeners;
+        if (listeners == null || listeners.isStale()) {
+            listeners = _poolManager.getEVCacheEventListeners(_appName);
+            _eventListeners = listeners;
+        }
+        return listeners.select(call);
+    }
+
+    private EVCacheEvent createEVCacheEvent(EVCacheClient client, String key, Call call) {
+        final EVCacheEventListener[] listeners = getEVCacheEventListeners(call);
+        if (listeners == null) return null;
+        return createEVCacheEvent(listeners, Collections.singletonList(client), Collections.singletonList(key), call);
+    }
+
+    private EVCacheEvent createEVCacheEvent(EVCacheClient client, Collection<String> keys, Call call) {
+        final EVCacheEventListener[] listeners = getEVCacheEventListeners(call);
+        if (listeners == null) return null;
+        return createEVCacheEvent(listeners, Collections.singletonList(client), keys, call);
     }
 
-    private EVCacheEvent createEVCacheEvent(Collection<EVCacheClient> clients, Collection<String> keys, Call call) {
-        final List<EVCacheEventListener> evcacheEventListenerList = getEVCacheEventListeners();
-        if (evcacheEventListenerList == null || evcacheEventListenerList.size() == 0) return null;
+    private EVCacheEvent createEVCacheEvent(EVCacheClient[] clients, String key, Call call) {
+        final EVCacheEventListener[] listeners = getEVCacheEventListeners(call);
+        if (listeners == null) return null;
+        return createEVCacheEvent(listeners, Arrays.asList(clients), Collections.singletonList(key), call);
+    }
+
+    private EVCacheEvent createEVCacheEvent(EVCacheClient[] clients, Collection<String> keys, Call call) {
+        final EVCacheEventListener[] listeners = getEVCacheEventListeners(call);
+        if (listeners == null) return null;
+        return createEVCacheEvent(listeners, Arrays.asList(clients), keys, call);
+    }
 
+    private EVCacheEvent createEVCacheEvent(EVCacheEventListener[] listeners, Collection<EVCacheClient> clients, Collection<String> keys, Call call) {
         final EVCacheEvent event = new EVCacheEvent(call, _appName, _cacheName, _pool);
+        event.setListeners(listeners);
         event.setKeys(keys);
         event.setClients(clients);
         return event;
     }
 
     private boolean shouldThrottle(EVCacheEvent event) throws EVCacheException {
-        for (EVCacheEventListener evcacheEventListener : getEVCacheEventListeners()) {
+        for (EVCacheEventListener evcacheEventListener : event.getListeners()) {
             if (evcacheEventListener.onThrottle(event)) {
                 return true;
             }
@@ -169,22 +243,19 @@ final public class EVCacheImpl implements EVCache {
     }
 
     private void startEvent(EVCacheEvent event) {
-        final List<EVCacheEventListener> evcacheEventListenerList = getEVCacheEventListeners();
-        for (EVCacheEventListener evcacheEventListener : evcacheEventListenerList) {
+        for (EVCacheEventListener evcacheEventListener : event.getListeners()) {
             evcacheEventListener.onStart(event);
         }
     }
 
     private void endEvent(EVCacheEvent event) {
-        final List<EVCacheEventListener> evcacheEventListenerList = getEVCacheEventListeners();
-        for (EVCacheEventListener evcacheEventListener : evcacheEventListenerList) {
+        for (EVCacheEventListener evcacheEventListener : event.getListeners()) {
             evcacheEventListener.onComplete(event);
         }
     }
 
     private void eventError(EVCacheEvent event, Throwable t) {
-        final List<EVCacheEventListener> evcacheEventListenerList = getEVCacheEventListeners();
-        for (EVCacheEventListener evcacheEventListener : evcacheEventListenerList) {
+        for (EVCacheEventListener evcacheEventListener : event.getListeners()) {
             evcacheEventListener.onError(event, t);
         }
     }
@@ -194,6 +265,28 @@ final public class EVCacheImpl implements EVCache {
         return (EVCacheInMemoryCache<T>) cache;
     }
 
+    /**
+     * Stores a value that was just set in the in memory cache, if there is
+     * one, reusing the data that was sent to the server.
+     */
+    private <T> void writeThroughInMemoryCache(String canonicalKey, T value, CachedData cd, Transcoder<T> tc) {
+        _hotKeyCache.remove(canonicalKey);
+        final EVCacheInMemoryCache<T> inMemoryCache = (cache != null) ? (EVCacheInMemoryCache<T>) cache : _poolManager.getInMemoryCache(_appName);
+        if (inMemoryCache == null) return;
+        inMemoryCache.put(canonicalKey, value, cd, (tc != null) ? tc : getDefaultTranscoder());
+    }
+
+    /**
+     * Drops the key from the in memory cache, if there is one, after a write
+     * whose result can't be known locally.
+     */
+    private void invalidateInMemoryCache(String canonicalKey) {
+        _hotKeyCache.remove(canonicalKey);
+        final EVCacheInMemoryCache<?> inMemoryCache = (cache != null) ? cache : _poolManager.getInMemoryCache(_appName);
+        if (inMemoryCache == null) return;
+        inMemoryCache.delete(canonicalKey);
+    }
+
     public <T> T get(String key) throws EVCacheException {
         return this.get(key, (Transcoder<T>) _transcoder);
     }
@@ -206,13 +299,21 @@ final public class EVCacheImpl implements EVCache {
         EVCacheMetricsFactory.increment(_appName, cachePrefix, serverGroup, _metricPrefix + metric);
     }
 
+    private Map<Call, EVCacheServerGroupCounter> getCallCounters(String cacheName, String metric, Call... calls) {
+        final Map<Call, EVCacheServerGroupCounter> counters = new EnumMap<Call, EVCacheServerGroupCounter>(Call.class);
+        for (Call call : calls) {
+            counters.put(call, new EVCacheServerGroupCounter(_appName, cacheName, _metricPrefix + call.name() + metric));
+        }
+        return counters;
+    }
+
     public <T> T get(String key, Transcoder<T> tc) throws EVCacheException {
         if (null == key) throw new IllegalArgumentException("Key cannot be null");
         final String canonicalKey = getCanonicalizedKey(key);
         if (_useInMemoryCache.get()) {
             T value = null;
             try {
-                value = (T) getInMemoryCache(tc).get(canonicalKey);
+                value = getInMemoryCache(tc).get(canonicalKey);
             } catch (ExecutionException e) {
                 final boolean throwExc = doThrowException();
                 if(throwExc) {
@@ -228,21 +329,89 @@ final public class EVCacheImpl implements EVCache {
             }
             if (log.isDebugEnabled() && shouldLog()) log.debug("Value retrieved from inmemory cache for APP " + _appName + ", key : " + canonicalKey + (log.isTraceEnabled() ? "; value : " + value : ""));
             if (value != null) return value;
+        } else if (_hotKeyCache.isEnabled()) {
+            final T value = _hotKeyCache.get(canonicalKey, tc);
+            if (value != null) return value;
+            final T data = doGet(canonicalKey, tc, true);
+            _hotKeyCache.loaded(canonicalKey, data, tc);
+            return data;
         }
         return doGet(canonicalKey, tc);
     }
 
+    /**
+     * Puts the cached values of the given keys in hits.
+     *
+     * @return the keys that are not in the hot key cache
+     */
+    private <T> List<String> getFromHotKeyCache(Collection<String> keys, Transcoder<T> tc, Map<String, T> hits) {
+        final List<String> misses = new ArrayList<String>(keys.size());
+        for (String key : keys) {
+            final T value = _hotKeyCache.get(getCanonicalizedKey(key), tc);
+            if (value == null) {
+                misses.add(key);
+            } else {
+                hits.put(key, value);
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * Offers the values read from EVCache to the hot key cache and adds the
+     * values that were found there.
+     */
+    private <T> Map<String, T> promoteHotKeys(Map<String, T> loaded, Transcoder<T> tc, Map<String, T> hits) {
+        if (loaded != null) {
+            for (Map.Entry<String, T> entry : loaded.entrySet()) {
+                _hotKeyCache.loaded(getCanonicalizedKey(entry.getKey()), entry.getValue(), tc);
+            }
+        }
+        if (hits.isEmpty()) return loaded;
+        if (loaded != null) hits.putAll(loaded);
+        return hits;
+    }
+
+    /**
+     * The transcoder the clients use when the caller does not pass one.
+     */
+    Transcoder<Object> getDefaultTranscoder() {
+        if (_transcoder != null) return (Transcoder<Object>) _transcoder;
+        final EVCacheClient client = _pool.getEVCacheClientForRead();
+        return (client == null) ? null : client.getTranscoder();
+    }
+
+    /**
+     * Picks the client for a get of a single key. The HotKeyListener does not
+     * count gets when hot key reads are spread or the hot key cache is
+     * enabled, so the key is counted here unless the hot key cache already
+     * did. It did not if the get came through the in-memory cache.
+     *
+     * @param counted
+     *            true if the read was already counted by the hot key cache
+     */
+    private EVCacheClient getEVCacheClientForRead(String canonicalKey, boolean counted) {
+        final boolean spread = _pool.isHotKeySpreadEnabled();
+        if (!spread && (counted || !_hotKeyCache.isEnabled())) return _pool.getEVCacheClientForRead();
+        final HotKeyDetector detector = _poolManager.getHotKeyDetector(_appName, _cacheName);
+        if (!counted) detector.record(canonicalKey);
+        return spread ? _pool.getEVCacheClientForRead(canonicalKey, detector) : _pool.getEVCacheClientForRead();
+    }
 
     <T> T doGet(String canonicalKey , Transcoder<T> tc) throws EVCacheException {
+        return doGet(canonicalKey, tc, false);
+    }
+
+    private <T> T doGet(String canonicalKey , Transcoder<T> tc, boolean counted) throws EVCacheException {
         final boolean throwExc = doThrowException();
-        EVCacheClient client = _pool.getEVCacheClientForRead();
+        EVCacheClient client = getEVCacheClientForRead(canonicalKey, counted);
         if (client == null) {
             increment("NULL_CLIENT");
             if (throwExc) throw new EVCacheException("Could not find a client to get the data APP " + _appName);
             return null; // Fast failure
         }
 
-        final EVCacheEvent event = createEVCacheEvent(Collections.singletonList(client), Collections.singletonList(canonicalKey), Call.GET);
+        final EVCacheEvent event = createEVCacheEvent(client, canonicalKey, Call.GET);
         if (event != null) {
         	event.setCanonicalKeys(Arrays.asList(canonicalKey));
             try {
@@ -263,13 +432,22 @@ final public class EVCacheImpl implements EVCache {
         try {
             final boolean hasZF = hasZoneFallback();
             boolean throwEx = hasZF ? false : throwExc;
-            T data = getData(client, canonicalKey, tc, throwEx, hasZF);
+            final T data0;
+            final EVCacheClient[] hedged = new EVCacheClient[2];
+            if (hasZF && hedgePolicy.isEnabled()) {
+                data0 = getDataHedged(client, canonicalKey, tc, hedged);
+                if (data0 != null && hedged[1] != null) client = hedged[1];
+            } else {
+                data0 = getData(client, canonicalKey, tc, throwEx, hasZF);
+            }
+            T data = data0;
             if (data == null && hasZF) {
                 final List<EVCacheClient> fbClients = _pool.getEVCacheClientsForReadExcluding(client.getServerGroup());
                 if (fbClients != null && !fbClients.isEmpty()) {
                     for (int i = 0; i < fbClients.size(); i++) {
                         final EVCacheClient fbClient = fbClients.get(i);
                         if(i >= fbClients.size() - 1) throwEx = throwExc;
+                        if (hedged[0] != null && fbClient.getServerGroup().equals(hedged[0].getServerGroup())) continue; // already asked by the hedge
                         if (event != null) {
                             try {
                                 if (shouldThrottle(event)) {
@@ -290,7 +468,7 @@ final public class EVCacheImpl implements EVCache {
                             break;
                         }
                     }
-                    increment(client.getServerGroupName(), _cacheName, "RETRY_" + ((data == null) ? "MISS" : "HIT"));
+                    (data == null ? _retryMissCounter : _retryHitCounter).increment(client.getServerGroupName());
                 }
             }
             if (data != null) {
@@ -327,16 +505,29 @@ final public class EVCacheImpl implements EVCache {
 
     public <T> Single<T> get(String key, Transcoder<T> tc, Scheduler scheduler) {
         if (null == key) return Single.error(new IllegalArgumentException("Key cannot be null"));
+        if (!_hotKeyCache.isEnabled()) return doGet(key, tc, false, scheduler);
+
+        final String canonicalKey;
+        try {
+            canonicalKey = getCanonicalizedKey(key);
+        } catch (Exception ex) {
+            return Single.error(ex);
+        }
+        final T value = _hotKeyCache.get(canonicalKey, tc);
+        if (value != null) return Single.just(value);
+        return this.<T> doGet(key, tc, true, scheduler).doOnSuccess(data -> _hotKeyCache.loaded(canonicalKey, data, tc));
+    }
 
+    private <T> Single<T> doGet(String key, Transcoder<T> tc, boolean counted, Scheduler scheduler) {
         final boolean throwExc = doThrowException();
-        final EVCacheClient client = _pool.getEVCacheClientForRead();
+        final String canonicalKey = getCanonicalizedKey(key);
+        final EVCacheClient client = getEVCacheClientForRead(canonicalKey, counted);
         if (client == null) {
             increment("NULL_CLIENT");
             return Single.error(new EVCacheException("Could not find a client to get the data APP " + _appName));
         }
 
-        final String canonicalKey = getCanonicalizedKey(key);
-        final EVCacheEvent event = createEVCacheEvent(Collections.singletonList(client), Collections.singletonList(key), Call.GET);
+        final EVCacheEvent event = createEVCacheEvent(client, key, Call.GET);
         if (event != null) {
         	event.setCanonicalKeys(Arrays.asList(canonicalKey));
             try {
@@ -359,7 +550,7 @@ final public class EVCacheImpl implements EVCache {
                 if (fbClients != null && !fbClients.isEmpty()) {
                     return Observable.concat(Observable.from(fbClients).map(
                             fbClient -> getData(fbClients.indexOf(fbClient), fbClients.size(), fbClient, canonicalKey, tc, throwEx, throwExc, false, scheduler) //TODO : for the last one make sure to pass throwExc
-                            .doOnSuccess(fbData -> increment(fbClient.getServerGroupName(), _cacheName, "RETRY_" + ((fbData == null) ? "MISS" : "HIT")))
+                            .doOnSuccess(fbData -> (fbData == null ? _retryMissCounter : _retryHitCounter).increment(fbClient.getServerGroupName()))
                             .toObservable()))
                             .firstOrDefault(null, fbData -> (fbData != null)).toSingle();
                 }
@@ -421,6 +612,87 @@ final public class EVCacheImpl implements EVCache {
         }
     }
 
+    /**
+     * Sends the get to the client's server group and, if it has not answered
+     * within the hedge delay, to a second server group as well. The first one
+     * to return the data wins and the other get is cancelled.
+     *
+     * @param hedged
+     *            set to the client the hedge was sent to, if any, and the
+     *            client that returned the data if the hedge won
+     * @return the data or null if none of the server groups had it in time
+     */
+    private <T> T getDataHedged(EVCacheClient client, String canonicalKey, Transcoder<T> tc, EVCacheClient[] hedged) throws Exception {
+        if (tc == null && _transcoder != null) tc = (Transcoder<T>) _transcoder;
+        final BlockingQueue<EVCacheOperationFuture<T>> completed = new ArrayBlockingQueue<EVCacheOperationFuture<T>>(2);
+        final EVCacheOperationFuture<T> primary = asyncGetHedgeable(client, canonicalKey, tc, completed);
+        if (primary == null) return getData(client, canonicalKey, tc, false, true);
+        hedgePolicy.onRequest();
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(client.getReadTimeout().get().longValue());
+        EVCacheOperationFuture<T> hedge = null;
+        EVCacheOperationFuture<T> done = completed.poll(hedgePolicy.getDelayNanos(client.getServerGroup()), TimeUnit.NANOSECONDS);
+        if (done == null) {
+            final EVCacheClient hedgeClient = _pool.getEVCacheClientForReadExclude(client.getServerGroup());
+            if (hedgeClient != null && hedgeClient != client) {
+                if (hedgePolicy.tryAcquire()) {
+                    hedge = asyncGetHedgeable(hedgeClient, canonicalKey, tc, completed);
+                    if (hedge != null) {
+                        hedged[0] = hedgeClient;
+                        _hedgeSentCounter.increment(hedgeClient.getServerGroupName());
+                    }
+                } else {
+                    _hedgeOverBudgetCounter.increment(client.getServerGroupName());
+                }
+            }
+        }
+
+        T data = null;
+        EVCacheOperationFuture<T> winner = null;
+        for (int pending = (hedge == null) ? 1 : 2; pending > 0; pending--) {
+            if (done == null) done = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (done == null) break;
+            data = done.get(0, TimeUnit.MILLISECONDS, false, true);
+            if (data != null) {
+                winner = done;
+                break;
+            }
+            done = null;
+        }
+
+        if (winner != null) {
+            final EVCacheOperationFuture<T> loser = (winner == primary) ? hedge : primary;
+            if (loser != null && !loser.isDone()) loser.cancel();
+            if (winner == hedge) {
+                hedged[1] = hedged[0];
+                _hedgeWonCounter.increment(hedged[0].getServerGroupName());
+            }
+        } else {
+            // let the gets that did not answer time out as they would without hedging
+            if (!primary.isDone()) primary.get(0, TimeUnit.MILLISECONDS, false, true);
+            if (hedge != null && !hedge.isDone()) hedge.get(0, TimeUnit.MILLISECONDS, false, true);
+        }
+        return data;
+    }
+
+    private <T> EVCacheOperationFuture<T> asyncGetHedgeable(EVCacheClient client, String canonicalKey, Transcoder<T> tc, BlockingQueue<EVCacheOperationFuture<T>> completed) {
+        final long start = System.nanoTime();
+        final EVCacheOperationFuture<T> future;
+        try {
+            future = client.asyncGetUnshared(canonicalKey, tc);
+        } catch (Exception e) {
+            if (log.isDebugEnabled() && shouldLog()) log.debug("Exception while sending hedgeable get for APP " + _appName + ", key : " + canonicalKey, e);
+            return null;
+        }
+        if (future == null) return null;
+        future.addListener((EVCacheGetOperationListener<T>) f -> {
+            // a cancelled loser completes when it is cancelled, not when its server group answers
+            if (!f.isCancelled()) hedgePolicy.recordLatency(client.getServerGroup(), System.nanoTime() - start);
+            completed.offer(f);
+        });
+        return future;
+    }
+
     private <T> Single<T> getData(int index, int size, EVCacheClient client, String canonicalKey, Transcoder<T> tc, boolean throwEx, boolean throwExc, boolean hasZF, Scheduler scheduler) {
         if(index >= size -1) throwEx = throwExc; 
         return getData(client, canonicalKey, tc, throwEx, hasZF, scheduler);
@@ -466,7 +738,7 @@ final public class EVCacheImpl implements EVCache {
         }
 
         final String canonicalKey = getCanonicalizedKey(key);
-        final EVCacheEvent event = createEVCacheEvent(Collections.singletonList(client), Collections.singletonList(key), Call.GET_AND_TOUCH);
+        final EVCacheEvent event = createEVCacheEvent(client, key, Call.GET_AND_TOUCH);
         if (event != null) {
         	event.setCanonicalKeys(Arrays.asList(canonicalKey));
             try {
@@ -491,7 +763,7 @@ final public class EVCacheImpl implements EVCache {
                 if (fbClients != null && !fbClients.isEmpty()) {
                     return Observable.concat(Observable.from(fbClients).map(
                             fbClient -> getData(fbClients.indexOf(fbClient), fbClients.size(), fbClient, canonicalKey, tc, throwEx, throwExc, false, scheduler) //TODO : for the last one make sure to pass throwExc
-                            .doOnSuccess(fbData -> increment(fbClient.getServerGroupName(), _cacheName, "RETRY_" + ((fbData == null) ? "MISS" : "HIT")))
+                            .doOnSuccess(fbData -> (fbData == null ? _retryMissCounter : _retryHitCounter).increment(fbClient.getServerGroupName()))
                             .toObservable()))
                             .firstOrDefault(null, fbData -> (fbData != null)).toSingle();
                 }
@@ -540,7 +812,7 @@ final public class EVCacheImpl implements EVCache {
             final boolean throwExc = doThrowException();
             T value = null;
             try {
-                value = (T) getInMemoryCache(tc).get(canonicalKey);
+                value = getInMemoryCache(tc).get(canonicalKey);
             } catch (ExecutionException e) {
                 if(throwExc) {
                     if(e.getCause() instanceof DataNotFoundException) {
@@ -574,7 +846,7 @@ final public class EVCacheImpl implements EVCache {
             return null; // Fast failure
         }
 
-        final EVCacheEvent event = createEVCacheEvent(Collections.singletonList(client), Collections.singletonList(canonicalKey), Call.GET_AND_TOUCH);
+        final EVCacheEvent event = createEVCacheEvent(client, canonicalKey, Call.GET_AND_TOUCH);
         if (event != null) {
         	event.setCanonicalKeys(Arrays.asList(canonicalKey));
             try {
@@ -623,7 +895,7 @@ final public class EVCacheImpl implements EVCache {
                         break;
                     }
                 }
-                increment(client.getServerGroupName(), _cacheName, "RETRY_" + ((data == null) ? "MISS" : "HIT"));
+                (data == null ? _retryMissCounter : _retryHitCounter).increment(client.getServerGroupName());
             }
 
             if (data != null) {
@@ -690,7 +962,7 @@ final public class EVCacheImpl implements EVCache {
             return new EVCacheLatchImpl(policy, 0, _appName); // Fast failure
         }
 
-        final EVCacheEvent event = createEVCacheEvent(Arrays.asList(clients), Collections.singletonList(key), Call.TOUCH);
+        final EVCacheEvent event = createEVCacheEvent(clients, key, Call.TOUCH);
         if (event != null) {
             try {
                 if (shouldThrottle(event)) {
@@ -758,6 +1030,23 @@ final public class EVCacheImpl implements EVCache {
         return futures;
     }
 
+    /**
+     * Touches all the keys on every write replica. Each replica sends one
+     * pipelined touch per node instead of one touch per key.
+     */
+    private void touchBulkData(List<String> canonicalKeys, int timeToLive) throws Exception {
+        final EVCacheClient[] clients = _pool.getEVCacheClientForWrite();
+        for (EVCacheClient client : clients) {
+            if (client.isChunkingEnabled()) {
+                for (String canonicalKey : canonicalKeys) {
+                    client.touch(canonicalKey, timeToLive, null);
+                }
+            } else {
+                client.touchBulk(canonicalKeys, timeToLive, null);
+            }
+        }
+    }
+
     public <T> Future<T> getAsynchronous(String key) throws EVCacheException {
         return this.getAsynchronous(key, (Transcoder<T>) _transcoder);
     };
@@ -775,7 +1064,7 @@ final public class EVCacheImpl implements EVCache {
         }
 
         final String canonicalKey = getCanonicalizedKey(key);
-        final EVCacheEvent event = createEVCacheEvent(Collections.singletonList(client), Collections.singletonList(key),
+        final EVCacheEvent event = createEVCacheEvent(client, key,
                 Call.ASYNC_GET);
         if (event != null) {
         	event.setCanonicalKeys(Arrays.asList(canonicalKey));
@@ -824,6 +1113,58 @@ final public class EVCacheImpl implements EVCache {
         }
     }
 
+    /**
+     * Sends the keys that are still missing to the fallback server groups, at
+     * most <app>.max.retry.count of them, all at once and merges the values
+     * into retMap as they arrive. Returns once every key has been found, every
+     * server group has answered or the bulk read timeout has passed.
+     */
+    private <T> void getBulkDataInParallel(EVCacheClient client, List<EVCacheClient> fbClients, List<String> retryKeys, Transcoder<T> tc, Map<String, T> retMap) throws Exception {
+        if(tc == null && _transcoder != null) tc = (Transcoder<T>)_transcoder;
+        final int size = Math.min(fbClients.size(), Math.max(1, _maxRetriesFP.get()));
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(client.getBulkReadTimeout().get().longValue());
+        final BlockingQueue<EVCacheBulkGetFuture<T>> completed = new ArrayBlockingQueue<EVCacheBulkGetFuture<T>>(size);
+        final List<EVCacheBulkGetFuture<T>> futures = new ArrayList<EVCacheBulkGetFuture<T>>(size);
+        final List<EVCacheClient> chunkedClients = new ArrayList<EVCacheClient>(0);
+        for (int i = 0; i < size; i++) {
+            final EVCacheClient fbClient = fbClients.get(i);
+            final EVCacheBulkGetFuture<T> future = fbClient.asyncGetBulk(retryKeys, tc);
+            if (future == null) {
+                chunkedClients.add(fbClient);
+                continue;
+            }
+            future.addListener(f -> completed.offer(future));
+            futures.add(future);
+        }
+
+        final Set<String> missing = new HashSet<String>(retryKeys);
+        for (EVCacheClient fbClient : chunkedClients) {
+            final Map<String, T> fbRetMap = getBulkData(fbClient, retryKeys, tc, false, true);
+            if (fbRetMap != null) mergeMissing(fbRetMap, missing, retMap);
+        }
+        for (int pending = futures.size(); pending > 0 && !missing.isEmpty(); pending--) {
+            final EVCacheBulkGetFuture<T> future = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (future == null) break;
+            mergeMissing(future.getSome(0, TimeUnit.MILLISECONDS, false, true), missing, retMap);
+        }
+        for (EVCacheBulkGetFuture<T> future : futures) {
+            if (future.isDone()) continue;
+            if (missing.isEmpty()) {
+                future.cancel(true);
+            } else {
+                // timed out, keep whatever it has so far
+                mergeMissing(future.getSome(0, TimeUnit.MILLISECONDS, false, true), missing, retMap);
+            }
+        }
+        if (log.isDebugEnabled() && shouldLog()) log.debug("Parallel fallback for APP " + _appName + ", keys [" + retryKeys + "], still missing [" + missing + "]");
+    }
+
+    private static <T> void mergeMissing(Map<String, T> fbRetMap, Set<String> missing, Map<String, T> retMap) {
+        for (Map.Entry<String, T> entry : fbRetMap.entrySet()) {
+            if (entry.getValue() != null && missing.remove(entry.getKey())) retMap.put(entry.getKey(), entry.getValue());
+        }
+    }
+
     public <T> Map<String, T> getBulk(Collection<String> keys, Transcoder<T> tc) throws EVCacheException {
         return getBulk(keys, tc, false, 0);
     }
@@ -837,6 +1178,16 @@ final public class EVCacheImpl implements EVCache {
             throws EVCacheException {
         if (null == keys) throw new IllegalArgumentException();
         if (keys.isEmpty()) return Collections.<String, T> emptyMap();
+        if (touch || !_hotKeyCache.isEnabled()) return doGetBulk(keys, tc, touch, ttl);
+
+        final Map<String, T> hits = new HashMap<String, T>();
+        final List<String> misses = getFromHotKeyCache(keys, tc, hits);
+        if (misses.isEmpty()) return hits;
+        return promoteHotKeys(doGetBulk(misses, tc, false, ttl), tc, hits);
+    }
+
+    private <T> Map<String, T> doGetBulk(Collection<String> keys, Transcoder<T> tc, boolean touch, int ttl)
+            throws EVCacheException {
 
         final boolean throwExc = doThrowException();
         EVCacheClient client = _pool.getEVCacheClientForRead();
@@ -852,7 +1203,7 @@ final public class EVCacheImpl implements EVCache {
             final String canonicalK = getCanonicalizedKey(k);
             canonicalKeys.add(canonicalK);
         }
-        final EVCacheEvent event = createEVCacheEvent(Collections.singletonList(client), keys, Call.BULK);
+        final EVCacheEvent event = createEVCacheEvent(client, keys, Call.BULK);
         if (event != null) {
         	event.setCanonicalKeys(canonicalKeys);
             try {
@@ -875,7 +1226,7 @@ final public class EVCacheImpl implements EVCache {
         try {
             final boolean hasZF = hasZoneFallbackForBulk();
             boolean throwEx = hasZF ? false : throwExc;
-            increment(client.getServerGroupName(), _cacheName, "BULK_GET");
+            _bulkGetCounter.increment(client.getServerGroupName());
             Map<String, T> retMap = getBulkData(client, canonicalKeys, tc, throwEx, hasZF);
             List<EVCacheClient> fbClients = null;
             if (hasZF) {
@@ -919,7 +1270,10 @@ final public class EVCacheImpl implements EVCache {
                     }
 
                     fbClients = _pool.getEVCacheClientsForReadExcluding(client.getServerGroup());
-                    if (fbClients != null && !fbClients.isEmpty()) {
+                    if (fbClients != null && !fbClients.isEmpty() && _bulkPartialParallelFallbackFP.get()) {
+                        getBulkDataInParallel(client, fbClients, retryKeys, tc, retMap);
+                        if (retMap.size() > initRetMapSize) _bulkPartialRetryHitCounter.increment(client.getServerGroupName());
+                    } else if (fbClients != null && !fbClients.isEmpty()) {
                         for (int ind = 0; ind < fbClients.size(); ind++) {
                             final EVCacheClient fbClient = fbClients.get(ind);
                             if (event != null) {
@@ -971,36 +1325,38 @@ final public class EVCacheImpl implements EVCache {
                 }
                 stats.cacheMiss(Call.BULK);
                 /* If both Retry and first request fail Exit Immediately. */
-                increment(client.getServerGroupName(), _cacheName, "BULK_MISS");
+                _bulkMissCounter.increment(client.getServerGroupName());
                 if (event != null) endEvent(event);
                 return retMap;
             }
 
             /* Decanonicalize the keys */
             final Map<String, T> decanonicalR = new HashMap<String, T>((canonicalKeys.size() * 4) / 3 + 1);
+            final List<String> touchKeys = touch ? new ArrayList<String>(retMap.size()) : null;
             for (Iterator<String> itr = canonicalKeys.iterator(); itr.hasNext();) {
                 final String key = itr.next();
                 final String deCanKey = getKey(key);
                 final T value = retMap.get(key);
                 if (value != null) {
                     decanonicalR.put(deCanKey, value);
-                    if (touch) touchData(key, deCanKey, ttl);
+                    if (touch) touchKeys.add(key);
                 } else if (fbClients != null && fbClients.size() > 0) {
                     // this ensures the fallback was tried
                     decanonicalR.put(deCanKey, null);
                 }
             }
+            if (touch && !touchKeys.isEmpty()) touchBulkData(touchKeys, ttl);
             if (!decanonicalR.isEmpty()) {
                 if (decanonicalR.size() == keys.size()) {
                     stats.cacheHit(Call.BULK);
-                    increment(client.getServerGroupName(), _cacheName, "BULK_HIT");
+                    _bulkHitCounter.increment(client.getServerGroupName());
                     if (event != null) event.setAttribute("status", "BHIT");
                 } else {
                     if (event != null) {
                         event.setAttribute("status", "BHIT_PARTIAL");
                         event.setAttribute("BHIT_PARTIAL_KEYS", decanonicalR);
                     }
-                    increment(client.getServerGroupName(), _cacheName, "BULK_HIT_PARTIAL");
+                    _bulkHitPartialCounter.increment(client.getServerGroupName());
                     if (log.isInfoEnabled() && shouldLog()) log.info("BULK_HIT_PARTIAL for APP " + _appName + ", keys in cache [" + decanonicalR + "], all keys [" + keys + "]");
                 }
             }
@@ -1025,6 +1381,189 @@ final public class EVCacheImpl implements EVCache {
         }
     }
 
+    public <T> Single<Map<String, T>> getBulk(Collection<String> keys, Transcoder<T> tc, Scheduler scheduler) {
+        if (null == keys) return Single.error(new IllegalArgumentException());
+        if (keys.isEmpty()) return Single.just(Collections.<String, T> emptyMap());
+        if (!_hotKeyCache.isEnabled()) return doGetBulk(keys, tc, scheduler);
+
+        final Map<String, T> hits = new HashMap<String, T>();
+        final List<String> misses;
+        try {
+            misses = getFromHotKeyCache(keys, tc, hits);
+        } catch (Exception ex) {
+            return Single.error(ex);
+        }
+        if (misses.isEmpty()) return Single.just(hits);
+        return this.<T> doGetBulk(misses, tc, scheduler).map(loaded -> promoteHotKeys(loaded, tc, hits));
+    }
+
+    private <T> Single<Map<String, T>> doGetBulk(Collection<String> keys, Transcoder<T> tc, Scheduler scheduler) {
+
+        final boolean throwExc = doThrowException();
+        final EVCacheClient client = _pool.getEVCacheClientForRead();
+        if (client == null) {
+            increment("NULL_CLIENT");
+            if (throwExc) return Single.error(new EVCacheException("Could not find a client to get the data in bulk"));
+            return Single.just(Collections.<String, T> emptyMap());// Fast failure
+        }
+
+        final List<String> canonicalKeys = new ArrayList<String>(keys.size());
+        try {
+            for (String k : keys) {
+                canonicalKeys.add(getCanonicalizedKey(k));
+            }
+        } catch (Exception ex) {
+            return Single.error(ex);
+        }
+        final EVCacheEvent event = createEVCacheEvent(client, keys, Call.BULK);
+        if (event != null) {
+            event.setCanonicalKeys(canonicalKeys);
+            try {
+                if (shouldThrottle(event)) {
+                    increment("THROTTLED");
+                    if (throwExc) return Single.error(new EVCacheException("Request Throttled for app " + _appName + " & keys " + keys));
+                    return Single.just(Collections.<String, T> emptyMap());
+                }
+            } catch(EVCacheException ex) {
+                if (throwExc) return Single.error(ex);
+                increment("THROTTLED");
+                return Single.just(null);
+            }
+            startEvent(event);
+        }
+
+        final Operation op = EVCacheMetricsFactory.getOperation(_metricName, Call.BULK, stats, Operation.TYPE.MILLI);
+        final boolean hasZF = hasZoneFallbackForBulk();
+        final boolean throwEx = hasZF ? false : throwExc;
+        final List<EVCacheClient> fbClients = hasZF ? _pool.getEVCacheClientsForReadExcluding(client.getServerGroup()) : null;
+        final boolean hasFallback = fbClients != null && !fbClients.isEmpty();
+        _bulkGetCounter.increment(client.getServerGroupName());
+        return getBulkData(client, canonicalKeys, tc, throwEx, hasZF, scheduler).flatMap(retMap -> {
+            if (!hasFallback || (retMap != null && !retMap.isEmpty())) return Single.just(retMap);
+            final List<Observable<Map<String, T>>> fallbacks = new ArrayList<Observable<Map<String, T>>>(fbClients.size());
+            for (int i = 0; i < fbClients.size(); i++) {
+                final EVCacheClient fbClient = fbClients.get(i);
+                final boolean last = (i >= fbClients.size() - 1);
+                // deferred so the next server group is only asked once the previous one came back empty
+                fallbacks.add(Single.defer(() -> getBulkData(fbClient, canonicalKeys, tc, last ? throwExc : throwEx, !last, scheduler)).toObservable());
+            }
+            return Observable.concat(Observable.from(fallbacks))
+                    .takeUntil(fbRetMap -> fbRetMap != null && !fbRetMap.isEmpty())
+                    .lastOrDefault(null).toSingle()
+                    .doOnSuccess(fbRetMap -> increment(client.getServerGroupName(), _cacheName, "BULK_GET-FULL_RETRY-" + ((fbRetMap == null || fbRetMap.isEmpty()) ? "MISS" : "HIT")));
+        }).flatMap(retMap -> {
+            if (!hasFallback || retMap == null || keys.size() <= retMap.size() || !_bulkPartialZoneFallbackFP.get()) return Single.just(retMap);
+            final int initRetMapSize = retMap.size();
+            if (_bulkPartialParallelFallbackFP.get()) {
+                final Map<String, T> m = new HashMap<String, T>(retMap);
+                final List<String> retryKeys = new ArrayList<String>(canonicalKeys.size() - m.size());
+                for (String key : canonicalKeys) {
+                    if (!m.containsKey(key)) retryKeys.add(key);
+                }
+                final int size = Math.min(fbClients.size(), Math.max(1, _maxRetriesFP.get()));
+                final List<Observable<Map<String, T>>> fallbacks = new ArrayList<Observable<Map<String, T>>>(size);
+                for (int i = 0; i < size; i++) {
+                    fallbacks.add(getBulkData(fbClients.get(i), retryKeys, tc, false, hasZF, scheduler).toObservable());
+                }
+                return Observable.merge(fallbacks)
+                        .doOnNext(fbRetMap -> {
+                            if (fbRetMap == null) return;
+                            for (Map.Entry<String, T> entry : fbRetMap.entrySet()) {
+                                if (entry.getValue() != null) m.putIfAbsent(entry.getKey(), entry.getValue());
+                            }
+                        })
+                        .takeUntil(fbRetMap -> m.size() >= canonicalKeys.size())
+                        .lastOrDefault(null).toSingle()
+                        .map(fbRetMap -> {
+                            if (m.size() > initRetMapSize) _bulkPartialRetryHitCounter.increment(client.getServerGroupName());
+                            return m;
+                        });
+            }
+            Single<Map<String, T>> merged = Single.<Map<String, T>> just(new HashMap<String, T>(retMap));
+            for (EVCacheClient fbClient : fbClients) {
+                merged = merged.flatMap(m -> {
+                    final List<String> retryKeys = new ArrayList<String>(canonicalKeys.size() - m.size());
+                    for (String key : canonicalKeys) {
+                        if (!m.containsKey(key)) retryKeys.add(key);
+                    }
+                    if (retryKeys.isEmpty()) return Single.just(m);
+                    return getBulkData(fbClient, retryKeys, tc, false, hasZF, scheduler).map(fbRetMap -> {
+                        if (log.isDebugEnabled() && shouldLog()) log.debug("Fallback for APP " + _appName + ", key [" + retryKeys + "], Fallback Server Group : " + fbClient.getServerGroup().getName());
+                        if (fbRetMap != null) m.putAll(fbRetMap);
+                        return m;
+                    });
+                });
+            }
+            return merged.doOnSuccess(m -> {
+                if (m.size() > initRetMapSize) _bulkPartialRetryHitCounter.increment(client.getServerGroupName());
+            });
+        }).map(retMap -> {
+            if (retMap == null || retMap.isEmpty()) {
+                if (log.isInfoEnabled() && shouldLog()) log.info("BULK : APP " + _appName + " ; Full cache miss for keys : " + keys);
+                if (event != null) event.setAttribute("status", "BMISS_ALL");
+                final Map<String, T> missMap = new HashMap<String, T>();
+                if (retMap != null) {
+                    for (String k : keys) {
+                        missMap.put(k, null);
+                    }
+                }
+                stats.cacheMiss(Call.BULK);
+                _bulkMissCounter.increment(client.getServerGroupName());
+                if (event != null) endEvent(event);
+                return missMap;
+            }
+
+            /* Decanonicalize the keys */
+            final Map<String, T> decanonicalR = new HashMap<String, T>((canonicalKeys.size() * 4) / 3 + 1);
+            for (String key : canonicalKeys) {
+                final T value = retMap.get(key);
+                if (value != null) {
+                    decanonicalR.put(getKey(key), value);
+                } else if (hasFallback) {
+                    // this ensures the fallback was tried
+                    decanonicalR.put(getKey(key), null);
+                }
+            }
+            if (!decanonicalR.isEmpty()) {
+                if (decanonicalR.size() == keys.size()) {
+                    stats.cacheHit(Call.BULK);
+                    _bulkHitCounter.increment(client.getServerGroupName());
+                    if (event != null) event.setAttribute("status", "BHIT");
+                } else {
+                    if (event != null) {
+                        event.setAttribute("status", "BHIT_PARTIAL");
+                        event.setAttribute("BHIT_PARTIAL_KEYS", decanonicalR);
+                    }
+                    _bulkHitPartialCounter.increment(client.getServerGroupName());
+                    if (log.isInfoEnabled() && shouldLog()) log.info("BULK_HIT_PARTIAL for APP " + _appName + ", keys in cache [" + decanonicalR + "], all keys [" + keys + "]");
+                }
+            }
+            if (log.isDebugEnabled() && shouldLog()) log.debug("APP " + _appName + ", BULK : Data [" + decanonicalR + "]");
+            if (event != null) endEvent(event);
+            return decanonicalR;
+        }).onErrorReturn(ex -> {
+            if (event != null) eventError(event, ex);
+            if (!throwExc) return null;
+            if (ex instanceof net.spy.memcached.internal.CheckedOperationTimeoutException) {
+                throw sneakyThrow(new EVCacheException("CheckedOperationTimeoutException getting bulk data for APP " + _appName + ", keys = " + canonicalKeys
+                        + ".\nYou can set the following property to increase the timeout " + _appName + ".EVCacheClientPool.bulkReadTimeout=<timeout in milli-seconds>", ex));
+            }
+            throw sneakyThrow(new EVCacheException("Exception getting bulk data for APP " + _appName + ", keys = " + canonicalKeys, ex));
+        }).doAfterTerminate(() -> {
+            op.stop();
+            if (log.isDebugEnabled() && shouldLog()) log.debug("BULK : APP " + _appName + " Took " + op.getDuration() + " milliSec to get the value for key " + canonicalKeys);
+        });
+    }
+
+    private <T> Single<Map<String, T>> getBulkData(EVCacheClient client, Collection<String> canonicalKeys, Transcoder<T> tc, boolean throwException, boolean hasZF, Scheduler scheduler) {
+        if(tc == null && _transcoder != null) tc = (Transcoder<T>)_transcoder;
+        return client.getBulk(canonicalKeys, tc, throwException, hasZF, scheduler).onErrorReturn(ex -> {
+            if (log.isDebugEnabled() && shouldLog()) log.debug("Exception while getBulk data for APP " + _appName + ", key : " + canonicalKeys, ex);
+            if (!throwException || hasZF) return null;
+            throw sneakyThrow(ex);
+        });
+    }
+
     public <T> Map<String, T> getBulk(Collection<String> keys) throws EVCacheException {
         return (this.getBulk(keys, (Transcoder<T>) _transcoder));
     }
@@ -1080,7 +1619,7 @@ final public class EVCacheImpl implements EVCache {
             return new EVCacheLatchImpl(policy, 0, _appName); // Fast failure
         }
 
-        final EVCacheEvent event = createEVCacheEvent(Arrays.asList(clients), Collections.singletonList(key), Call.SET);
+        final EVCacheEvent event = createEVCacheEvent(clients, key, Call.SET);
         if (event != null) {
             try {
                 if (shouldThrottle(event)) {
@@ -1121,6 +1660,7 @@ final public class EVCacheImpl implements EVCache {
                 final Future<Boolean> future = client.set(canonicalKey, cd, timeToLive, latch);
                 if (log.isDebugEnabled() && shouldLog()) log.debug("SET : APP " + _appName + ", Future " + future + " for key : " + canonicalKey);
             }
+            writeThroughInMemoryCache(canonicalKey, value, cd, tc);
             if (event != null) {
                 event.setCanonicalKeys(Arrays.asList(canonicalKey));
                 event.setTTL(timeToLive);
@@ -1137,6 +1677,7 @@ final public class EVCacheImpl implements EVCache {
             return latch;
         } catch (Exception ex) {
             if (log.isDebugEnabled() && shouldLog()) log.debug("Exception setting the data for APP " + _appName + ", key : " + canonicalKey, ex);
+            invalidateInMemoryCache(canonicalKey);
             if (event != null) endEvent(event);
             if (!throwExc) return new EVCacheLatchImpl(policy, 0, _appName);
             throw new EVCacheException("Exception setting data for APP " + _appName + ", key : " + canonicalKey, ex);
@@ -1161,7 +1702,7 @@ final public class EVCacheImpl implements EVCache {
             return new EVCacheFuture[0]; // Fast failure
         }
 
-        final EVCacheEvent event = createEVCacheEvent(Arrays.asList(clients), Collections.singletonList(key), Call.APPEND);
+        final EVCacheEvent event = createEVCacheEvent(clients, key, Call.APPEND);
         if (event != null) {
             try {
                 if (shouldThrottle(event)) {
@@ -1214,6 +1755,7 @@ final public class EVCacheImpl implements EVCache {
             if (!throwExc) return new EVCacheFuture[0];
             throw new EVCacheException("Exception setting data for APP " + _appName + ", key : " + canonicalKey, ex);
         } finally {
+            invalidateInMemoryCache(canonicalKey);
             op.stop();
             if (log.isDebugEnabled() && shouldLog()) log.debug("APPEND : APP " + _appName + ", Took " + op.getDuration() + " milliSec for key : " + canonicalKey);
         }
@@ -1264,7 +1806,7 @@ final public class EVCacheImpl implements EVCache {
             return new EVCacheLatchImpl(policy, 0, _appName); // Fast failure
         }
 
-        final EVCacheEvent event = createEVCacheEvent(Arrays.asList(clients), Collections.singletonList(key), Call.DELETE);
+        final EVCacheEvent event = createEVCacheEvent(clients, key, Call.DELETE);
         if (event != null) {
             try {
                 if (shouldThrottle(event)) {
@@ -1308,6 +1850,7 @@ final public class EVCacheImpl implements EVCache {
             if (!throwExc) return new EVCacheLatchImpl(policy, 0, _appName);
             throw new EVCacheException("Exception while deleting the data for APP " + _appName + ", key : " + key, ex);
         } finally {
+            invalidateInMemoryCache(canonicalKey);
             op.stop();
             if (log.isDebugEnabled() && shouldLog()) log.debug("DELETE : APP " + _appName + " Took " + op.getDuration() + " milliSec for key : " + key);
         }
@@ -1315,97 +1858,172 @@ final public class EVCacheImpl implements EVCache {
 
 
 
-    public int getDefaultTTL() {
-        return _timeToLive;
+    public <T> EVCacheLatch setBulk(Map<String, T> data, int timeToLive, Policy policy) throws EVCacheException {
+        return setBulk(data, (Transcoder<T>) _transcoder, timeToLive, policy);
     }
 
-    public long incr(String key, long by, long defaultVal, int timeToLive) throws EVCacheException {
-        if ((null == key) || by < 0 || defaultVal < 0 || timeToLive < 0) throw new IllegalArgumentException();
+    public <T> EVCacheLatch setBulk(Map<String, T> data, Transcoder<T> tc, int timeToLive, Policy policy) throws EVCacheException {
+        if (null == data) throw new IllegalArgumentException();
+        return writeBulk(Call.SET_BULK, data.keySet(), data, tc, timeToLive, policy);
+    }
+
+    public EVCacheLatch deleteBulk(Collection<String> keys, Policy policy) throws EVCacheException {
+        if (null == keys) throw new IllegalArgumentException();
+        return writeBulk(Call.DELETE_BULK, keys, null, null, 0, policy);
+    }
+
+    public EVCacheLatch touchBulk(Collection<String> keys, int timeToLive, Policy policy) throws EVCacheException {
+        if (null == keys || timeToLive < 0) throw new IllegalArgumentException();
+        return writeBulk(Call.TOUCH_BULK, keys, null, null, timeToLive, policy);
+    }
+
+    private <T> EVCacheLatch writeBulk(Call call, Collection<String> keys, Map<String, T> data, Transcoder<T> tc, int timeToLive, Policy policy) throws EVCacheException {
+        final Policy latchPolicy = (policy == null) ? Policy.ALL_MINUS_1 : policy;
+        if (keys.isEmpty()) return new EVCacheLatchImpl(latchPolicy, 0, _appName);
 
         final boolean throwExc = doThrowException();
         final EVCacheClient[] clients = _pool.getEVCacheClientForWrite();
         if (clients.length == 0) {
             increment("NULL_CLIENT");
-            if (log.isDebugEnabled() && shouldLog()) log.debug("INCR : " + _metricName + ":NULL_CLIENT");
-            if (throwExc) throw new EVCacheException("Could not find a client to incr the data");
-            return -1;
+            if (throwExc) throw new EVCacheException("Could not find a client to perform " + call + " for APP " + _appName);
+            return new EVCacheLatchImpl(latchPolicy, 0, _appName); // Fast failure
         }
 
-        final String canonicalKey = getCanonicalizedKey(key);
-        final EVCacheEvent event = createEVCacheEvent(Arrays.asList(clients), Collections.singletonList(key),
-                Call.INCR);
+        final EVCacheEvent event = createEVCacheEvent(clients, keys, call);
         if (event != null) {
-        	event.setCanonicalKeys(Arrays.asList(canonicalKey));
             try {
                 if (shouldThrottle(event)) {
                     increment("THROTTLED");
-                    if (throwExc) throw new EVCacheException("Request Throttled for app " + _appName + " & key " + key);
-                    return -1;
+                    if (throwExc) throw new EVCacheException("Request Throttled for app " + _appName + " & keys " + keys);
+                    return new EVCacheLatchImpl(latchPolicy, 0, _appName);
                 }
             } catch(EVCacheException ex) {
                 if(throwExc) throw ex;
                 increment("THROTTLED");
-                return -1;
+                return new EVCacheLatchImpl(latchPolicy, 0, _appName);
             }
             startEvent(event);
         }
 
-        final Operation op = EVCacheMetricsFactory.getOperation(_metricName, Call.INCR, stats, Operation.TYPE.MILLI);
+        final Operation op = EVCacheMetricsFactory.getOperation(_metricName, call, stats, Operation.TYPE.MILLI);
+        final EVCacheLatchImpl latch = new EVCacheLatchImpl(latchPolicy, clients.length - _pool.getWriteOnlyEVCacheClients().length, _appName);
+        final List<String> canonicalKeys = new ArrayList<String>(keys.size());
         try {
-            final long[] vals = new long[clients.length];
-            int index = 0;
-            long currentValue = -1;
-            for (EVCacheClient client : clients) {
-                vals[index] = client.incr(canonicalKey, by, defaultVal, timeToLive);
-                if (vals[index] != -1 && currentValue < vals[index]) currentValue = vals[index];
-                index++;
-            }
-
-            if (currentValue != -1) {
-                if (log.isDebugEnabled()) log.debug("INCR : APP " + _appName + " current value = " + currentValue + " for key : " + key);
-                for (int i = 0; i < vals.length; i++) {
-                    if (vals[i] == -1 && currentValue > -1) {
-                        if (log.isDebugEnabled()) log.debug("INCR : APP " + _appName + "; Zone " + clients[i].getZone()
-                                + " had a value = -1 so setting it to current value = " + currentValue + " for key : " + key);
-                        clients[i].incr(canonicalKey, 0, currentValue, timeToLive);
-                    } else if (vals[i] != currentValue) {
-                        if (log.isDebugEnabled()) log.debug("INCR : APP " + _appName + "; Zone " + clients[i].getZone()
-                                + " had a value of " + vals[i] + " so setting it to current value = " + currentValue + " for key : " + key);
-                        clients[i].set(canonicalKey, String.valueOf(currentValue), timeToLive);
+            final Map<String, CachedData> cdMap = (data == null) ? null : new HashMap<String, CachedData>((int) (data.size() / 0.75f) + 1);
+            for (String key : keys) {
+                if (key == null) throw new IllegalArgumentException("Key cannot be null");
+                final String canonicalKey = getCanonicalizedKey(key);
+                canonicalKeys.add(canonicalKey);
+                if (cdMap != null) {
+                    final T value = data.get(key);
+                    if (value == null) throw new IllegalArgumentException("Value cannot be null for key " + key);
+                    final CachedData cd;
+                    if (tc != null) {
+                        cd = tc.encode(value);
+                    } else if ( _transcoder != null) {
+                        cd = ((Transcoder<Object>)_transcoder).encode(value);
+                    } else {
+                        cd = clients[0].getTranscoder().encode(value);
                     }
+                    if (setDataSizeSummary == null) this.setDataSizeSummary = EVCacheMetricsFactory.getDistributionSummary(_appName + "-SetData-Size", _appName, null);
+                    if (setDataSizeSummary != null) this.setDataSizeSummary.record(cd.getData().length);
+                    cdMap.put(canonicalKey, cd);
                 }
             }
-            if (event != null) endEvent(event);
-            return currentValue;
+
+            for (EVCacheClient client : clients) {
+                final Future<Boolean> future;
+                if (call == Call.SET_BULK) {
+                    future = client.setBulk(cdMap, timeToLive, latch);
+                } else if (call == Call.DELETE_BULK) {
+                    future = client.deleteBulk(canonicalKeys, latch);
+                } else {
+                    future = client.touchBulk(canonicalKeys, timeToLive, latch);
+                }
+                if (log.isDebugEnabled() && shouldLog()) log.debug(call + " : APP " + _appName + ", Future " + future + " for " + canonicalKeys.size() + " keys");
+            }
+            _bulkKeysCounters.get(call).increment(null, canonicalKeys.size());
+            if (call == Call.SET_BULK) {
+                int i = 0;
+                for (String key : keys) {
+                    final String canonicalKey = canonicalKeys.get(i++);
+                    writeThroughInMemoryCache(canonicalKey, data.get(key), cdMap.get(canonicalKey), tc);
+                }
+            } else if (call == Call.DELETE_BULK) {
+                for (String canonicalKey : canonicalKeys) {
+                    invalidateInMemoryCache(canonicalKey);
+                }
+            }
+
+            if (event != null) {
+                event.setCanonicalKeys(canonicalKeys);
+                event.setTTL(timeToLive);
+                if(_eventsUsingLatchFP.get()) {
+                    latch.setEVCacheEvent(event);
+                    latch.scheduledFutureValidation();
+                } else {
+                    endEvent(event);
+                }
+            }
+            return latch;
         } catch (Exception ex) {
-            if (log.isDebugEnabled() && shouldLog()) log.debug("Exception incrementing the value for APP " + _appName + ", key : " + key, ex);
+            if (log.isDebugEnabled() && shouldLog()) log.debug("Exception during " + call + " for APP " + _appName + ", keys : " + keys, ex);
+            if (call != Call.TOUCH_BULK) {
+                for (String canonicalKey : canonicalKeys) {
+                    invalidateInMemoryCache(canonicalKey);
+                }
+            }
             if (event != null) eventError(event, ex);
-            if (!throwExc) return -1;
-            throw new EVCacheException("Exception incrementing value for APP " + _appName + ", key : " + key, ex);
+            if (!throwExc) return new EVCacheLatchImpl(latchPolicy, 0, _appName);
+            throw new EVCacheException("Exception during " + call + " for APP " + _appName + ", keys : " + keys, ex);
         } finally {
             op.stop();
-            if (log.isDebugEnabled() && shouldLog()) log.debug("INCR : APP " + _appName + ", Took " + op.getDuration()
-            + " milliSec for key : " + key);
+            if (log.isDebugEnabled() && shouldLog()) log.debug(call + " : APP " + _appName + ", Took " + op.getDuration() + " milliSec for " + keys.size() + " keys");
         }
     }
 
+    public int getDefaultTTL() {
+        return _timeToLive;
+    }
+
+    public long incr(String key, long by, long defaultVal, int timeToLive) throws EVCacheException {
+        return mutate(Call.INCR, key, by, defaultVal, timeToLive);
+    }
+
     public long decr(String key, long by, long defaultVal, int timeToLive) throws EVCacheException {
+        return mutate(Call.DECR, key, by, defaultVal, timeToLive);
+    }
+
+    public Single<Long> incr(String key, long by, long defaultVal, int timeToLive, Scheduler scheduler) {
+        return mutate(Call.INCR, key, by, defaultVal, timeToLive, scheduler);
+    }
+
+    public Single<Long> decr(String key, long by, long defaultVal, int timeToLive, Scheduler scheduler) {
+        return mutate(Call.DECR, key, by, defaultVal, timeToLive, scheduler);
+    }
+
+    /**
+     * Sends the incr/decr to all the write replicas in parallel and waits
+     * till the number of replicas required by {@link #getCounterPolicy()}
+     * have replied. The replicas that end up with a different value are
+     * fixed up in the background once all of them have replied.
+     */
+    private long mutate(Call call, String key, long by, long defaultVal, int timeToLive) throws EVCacheException {
         if ((null == key) || by < 0 || defaultVal < 0 || timeToLive < 0) throw new IllegalArgumentException();
 
         final boolean throwExc = doThrowException();
         final EVCacheClient[] clients = _pool.getEVCacheClientForWrite();
         if (clients.length == 0) {
             increment("NULL_CLIENT");
-            if (log.isDebugEnabled() && shouldLog()) log.debug("DECR : " + _metricName + ":NULL_CLIENT");
-            if (throwExc) throw new EVCacheException("Could not find a client to decr the data");
+            if (log.isDebugEnabled() && shouldLog()) log.debug(call + " : " + _metricName + ":NULL_CLIENT");
+            if (throwExc) throw new EVCacheException("Could not find a client to " + call.name().toLowerCase() + " the data");
             return -1;
         }
 
         final String canonicalKey = getCanonicalizedKey(key);
-        final EVCacheEvent event = createEVCacheEvent(Arrays.asList(clients), Collections.singletonList(key),
-                Call.DECR);
+        final EVCacheEvent event = createEVCacheEvent(clients, key, call);
         if (event != null) {
-        	event.setCanonicalKeys(Arrays.asList(canonicalKey));
+            event.setCanonicalKeys(Arrays.asList(canonicalKey));
             try {
                 if (shouldThrottle(event)) {
                     increment("THROTTLED");
@@ -1420,45 +2038,198 @@ final public class EVCacheImpl implements EVCache {
             startEvent(event);
         }
 
-        final Operation op = EVCacheMetricsFactory.getOperation(_metricName, Call.DECR, stats, Operation.TYPE.MILLI);
+        final Operation op = EVCacheMetricsFactory.getOperation(_metricName, call, stats, Operation.TYPE.MILLI);
         try {
-            final long[] vals = new long[clients.length];
-            int index = 0;
-            long currentValue = -1;
-            for (EVCacheClient client : clients) {
-                vals[index] = client.decr(canonicalKey, by, defaultVal, timeToLive);
-                if (vals[index] != -1 && currentValue < vals[index]) currentValue = vals[index];
-                index++;
-            }
-
-            if (currentValue != -1) {
-                if (log.isDebugEnabled()) log.debug("DECR : APP " + _appName + " current value = " + currentValue
-                        + " for key : " + key);
-                for (int i = 0; i < vals.length; i++) {
-                    if (vals[i] == -1 && currentValue > -1) {
-                        if (log.isDebugEnabled()) log.debug("DECR : APP " + _appName + "; Zone " + clients[i].getZone()
-                                + " had a value = -1 so setting it to current value = "
-                                + currentValue + " for key : " + key);
-                        clients[i].decr(canonicalKey, 0, currentValue, timeToLive);
-                    } else if (vals[i] != currentValue) {
-                        if (log.isDebugEnabled()) log.debug("DECR : APP " + _appName + "; Zone " + clients[i].getZone()
-                                + " had a value of " + vals[i]
-                                        + " so setting it to current value = " + currentValue + " for key : " + key);
-                        clients[i].set(canonicalKey, String.valueOf(currentValue), timeToLive);
-                    }
-                }
+            final CountDownLatch latch = new CountDownLatch(getCounterQuorum(clients));
+            final AtomicReferenceArray<EVCacheOperationFuture<Long>> futures = new AtomicReferenceArray<EVCacheOperationFuture<Long>>(clients.length);
+            mutate(call, clients, canonicalKey, by, defaultVal, timeToLive, futures, f -> latch.countDown());
+            if (!latch.await(_pool.getOperationTimeout().get(), TimeUnit.MILLISECONDS)) {
+                _quorumTimeoutCounters.get(call).increment(null);
             }
-
+            final long currentValue = getCurrentValue(futures);
+            if (log.isDebugEnabled()) log.debug(call + " : APP " + _appName + " current value = " + currentValue + " for key : " + key);
             if (event != null) endEvent(event);
             return currentValue;
         } catch (Exception ex) {
-            if (log.isDebugEnabled() && shouldLog()) log.debug("Exception decrementing the value for APP " + _appName + ", key : " + key, ex);
+            if (log.isDebugEnabled() && shouldLog()) log.debug("Exception during " + call + " of the value for APP " + _appName + ", key : " + key, ex);
             if (event != null) eventError(event, ex);
             if (!throwExc) return -1;
-            throw new EVCacheException("Exception decrementing value for APP " + _appName + ", key : " + key, ex);
+            throw new EVCacheException("Exception during " + call + " of value for APP " + _appName + ", key : " + key, ex);
         } finally {
             op.stop();
-            if (log.isDebugEnabled() && shouldLog()) log.debug("DECR : APP " + _appName + ", Took " + op.getDuration() + " milliSec for key : " + key);
+            if (log.isDebugEnabled() && shouldLog()) log.debug(call + " : APP " + _appName + ", Took " + op.getDuration() + " milliSec for key : " + key);
+        }
+    }
+
+    private Single<Long> mutate(Call call, String key, long by, long defaultVal, int timeToLive, Scheduler scheduler) {
+        if ((null == key) || by < 0 || defaultVal < 0 || timeToLive < 0) return Single.error(new IllegalArgumentException());
+
+        final boolean throwExc = doThrowException();
+        final EVCacheClient[] clients = _pool.getEVCacheClientForWrite();
+        if (clients.length == 0) {
+            increment("NULL_CLIENT");
+            if (throwExc) return Single.error(new EVCacheException("Could not find a client to " + call.name().toLowerCase() + " the data"));
+            return Single.just(Long.valueOf(-1));
+        }
+
+        final String canonicalKey = getCanonicalizedKey(key);
+        final EVCacheEvent event = createEVCacheEvent(clients, key, call);
+        if (event != null) {
+            event.setCanonicalKeys(Arrays.asList(canonicalKey));
+            try {
+                if (shouldThrottle(event)) {
+                    increment("THROTTLED");
+                    if (throwExc) return Single.error(new EVCacheException("Request Throttled for app " + _appName + " & key " + key));
+                    return Single.just(Long.valueOf(-1));
+                }
+            } catch(EVCacheException ex) {
+                if (throwExc) return Single.error(ex);
+                increment("THROTTLED");
+                return Single.just(Long.valueOf(-1));
+            }
+            startEvent(event);
+        }
+
+        final Operation op = EVCacheMetricsFactory.getOperation(_metricName, call, stats, Operation.TYPE.MILLI);
+        final AtomicReferenceArray<EVCacheOperationFuture<Long>> futures = new AtomicReferenceArray<EVCacheOperationFuture<Long>>(clients.length);
+        return Single.<Long>create(subscriber -> {
+            final AtomicInteger pending = new AtomicInteger(getCounterQuorum(clients));
+            final AtomicBoolean emitted = new AtomicBoolean(false);
+            try {
+                mutate(call, clients, canonicalKey, by, defaultVal, timeToLive, futures, f -> {
+                    if (pending.decrementAndGet() == 0 && emitted.compareAndSet(false, true)) subscriber.onSuccess(Long.valueOf(getCurrentValue(futures)));
+                });
+                if (pending.get() <= 0 && emitted.compareAndSet(false, true)) subscriber.onSuccess(Long.valueOf(getCurrentValue(futures)));
+            } catch (Throwable e) {
+                if (emitted.compareAndSet(false, true)) subscriber.onError(e);
+            }
+        }).timeout(_pool.getOperationTimeout().get(), TimeUnit.MILLISECONDS, Single.fromCallable(() -> {
+            _quorumTimeoutCounters.get(call).increment(null);
+            return Long.valueOf(getCurrentValue(futures));
+        }), scheduler).map(currentValue -> {
+            if (event != null) endEvent(event);
+            return currentValue;
+        }).onErrorReturn(ex -> {
+            if (event != null) eventError(event, ex);
+            if (!throwExc) return Long.valueOf(-1);
+            throw sneakyThrow(new EVCacheException("Exception during " + call + " of value for APP " + _appName + ", key : " + key, ex));
+        }).doAfterTerminate(() -> {
+            op.stop();
+            if (log.isDebugEnabled() && shouldLog()) log.debug(call + " : APP " + _appName + ", Took " + op.getDuration() + " milliSec for key : " + key);
+        });
+    }
+
+    /**
+     * Sends the incr/decr to every client and fills in the given futures. The
+     * listeners are added only once all the futures are in place, so a
+     * listener that fires right away still sees every one of them.
+     */
+    private void mutate(Call call, EVCacheClient[] clients, String canonicalKey, long by, long defaultVal, int timeToLive,
+            AtomicReferenceArray<EVCacheOperationFuture<Long>> futures, EVCacheGetOperationListener<Long> quorumListener) throws EVCacheException {
+        for (int i = 0; i < clients.length; i++) {
+            final EVCacheClient client = clients[i];
+            futures.set(i, (call == Call.INCR) ? client.asyncIncr(canonicalKey, by, defaultVal, timeToLive) : client.asyncDecr(canonicalKey, by, defaultVal, timeToLive));
+        }
+        invalidateInMemoryCache(canonicalKey);
+        final AtomicInteger pending = new AtomicInteger(clients.length);
+        for (int i = 0; i < clients.length; i++) {
+            final EVCacheOperationFuture<Long> future = futures.get(i);
+            if (!clients[i].isInWriteOnly()) future.addListener(quorumListener);
+            if (clients.length > 1) future.addListener((EVCacheGetOperationListener<Long>) f -> {
+                if (pending.decrementAndGet() == 0) _poolManager.getEVCacheExecutor().execute(() -> reconcile(call, clients, futures, canonicalKey, timeToLive));
+            });
+        }
+    }
+
+    /**
+     * The policy that decides how many of the read replicas need to reply to
+     * an incr or decr before the value is returned. Defaults to ALL.
+     */
+    private Policy getCounterPolicy() {
+        try {
+            return Policy.valueOf(_counterPolicyFP.get());
+        } catch (IllegalArgumentException e) {
+            return Policy.ALL;
+        }
+    }
+
+    private int getCounterQuorum(EVCacheClient[] clients) {
+        final int count = clients.length - _pool.getWriteOnlyEVCacheClients().length;
+        switch (getCounterPolicy()) {
+        case NONE:
+            return 0;
+        case ONE:
+            return Math.min(1, count);
+        case QUORUM:
+            return (count <= 2) ? Math.min(1, count) : (count / 2) + 1;
+        case ALL_MINUS_1:
+            return (count <= 2) ? Math.min(1, count) : count - 1;
+        default:
+            return count;
+        }
+    }
+
+    private long getCurrentValue(AtomicReferenceArray<EVCacheOperationFuture<Long>> futures) {
+        long currentValue = -1;
+        for (int i = 0; i < futures.length(); i++) {
+            final long val = getValue(futures.get(i));
+            if (currentValue < val) currentValue = val;
+        }
+        return currentValue;
+    }
+
+    /**
+     * @return the value of a completed incr/decr, or -1 if it is still
+     *         pending or failed
+     */
+    private long getValue(EVCacheOperationFuture<Long> future) {
+        if (future == null || !future.isDone()) return -1;
+        try {
+            final Long val = future.get();
+            return (val == null) ? -1 : val.longValue();
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) log.debug("Exception reading the value of " + future.getKey() + " from " + future.getServerGroup(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Once all the replicas have replied bring the ones that are missing the
+     * counter or have a smaller value in line with the highest value. The
+     * listener of the last future to complete runs this on the EVCacheExecutor,
+     * as a fix up may block on a full write queue; every value is already there
+     * and the fix ups are sent without waiting for them.
+     */
+    private void reconcile(Call call, EVCacheClient[] clients, AtomicReferenceArray<EVCacheOperationFuture<Long>> futures, String canonicalKey, int timeToLive) {
+        final long[] vals = new long[futures.length()];
+        long currentValue = -1;
+        for (int i = 0; i < vals.length; i++) {
+            vals[i] = getValue(futures.get(i));
+            if (currentValue < vals[i]) currentValue = vals[i];
+        }
+        if (currentValue == -1) return;
+
+        for (int i = 0; i < vals.length; i++) {
+            if (vals[i] == currentValue) continue;
+            try {
+                if (vals[i] == -1) {
+                    if (log.isDebugEnabled()) log.debug(call + " : APP " + _appName + "; Zone " + clients[i].getZone()
+                            + " had a value = -1 so setting it to current value = " + currentValue + " for key : " + canonicalKey);
+                    if (call == Call.INCR) {
+                        clients[i].asyncIncr(canonicalKey, 0, currentValue, timeToLive);
+                    } else {
+                        clients[i].asyncDecr(canonicalKey, 0, currentValue, timeToLive);
+                    }
+                } else {
+                    if (log.isDebugEnabled()) log.debug(call + " : APP " + _appName + "; Zone " + clients[i].getZone()
+                            + " had a value of " + vals[i] + " so setting it to current value = " + currentValue + " for key : " + canonicalKey);
+                    clients[i].set(canonicalKey, String.valueOf(currentValue), timeToLive);
+                }
+                _fixupCounters.get(call).increment(clients[i].getServerGroupName());
+            } catch (Exception e) {
+                _fixupFailCounters.get(call).increment(clients[i].getServerGroupName());
+                if (log.isDebugEnabled()) log.debug(call + " : Fixup Error : APP " + _appName + ", key " + canonicalKey + "; ServerGroup : " + clients[i].getServerGroupName(), e);
+            }
         }
     }
 
@@ -1489,7 +2260,7 @@ final public class EVCacheImpl implements EVCache {
             return new EVCacheLatchImpl(policy, 0, _appName); // Fast failure
         }
 
-        final EVCacheEvent event = createEVCacheEvent(Arrays.asList(clients), Collections.singletonList(key),
+        final EVCacheEvent event = createEVCacheEvent(clients, key,
                 Call.REPLACE);
         if (event != null) {
             try {
@@ -1553,6 +2324,7 @@ final public class EVCacheImpl implements EVCache {
             if (!throwExc) return new EVCacheLatchImpl(policy, 0, _appName);
             throw new EVCacheException("Exception setting data for APP " + _appName + ", key : " + canonicalKey, ex);
         } finally {
+            invalidateInMemoryCache(canonicalKey);
             op.stop();
             if (log.isDebugEnabled() && shouldLog()) log.debug("REPLACE : APP " + _appName + ", Took " + op .getDuration() + " milliSec for key : " + canonicalKey);
         }
@@ -1582,7 +2354,7 @@ final public class EVCacheImpl implements EVCache {
             return new EVCacheLatchImpl(policy, 0, _appName); // Fast failure
         }
 
-        final EVCacheEvent event = createEVCacheEvent(Arrays.asList(clients), Collections.singletonList(key), Call.APPEND_OR_ADD);
+        final EVCacheEvent event = createEVCacheEvent(clients, key, Call.APPEND_OR_ADD);
         if (event != null) {
             try {
                 if (shouldThrottle(event)) {
@@ -1639,6 +2411,7 @@ final public class EVCacheImpl implements EVCache {
             if (!throwExc) return new EVCacheLatchImpl(policy, 0, _appName);
             throw new EVCacheException("Exception while appendOrAdd data for APP " + _appName + ", key : " + canonicalKey, ex);
         } finally {
+            invalidateInMemoryCache(canonicalKey);
             op.stop();
             if (log.isDebugEnabled() && shouldLog()) log.debug("APPEND_OR_ADD : APP " + _appName + ", Took " + op.getDuration() + " milliSec for key : " + canonicalKey);
         }
@@ -1656,7 +2429,7 @@ final public class EVCacheImpl implements EVCache {
             return new EVCacheFuture[0]; // Fast failure
         }
 
-        final EVCacheEvent event = createEVCacheEvent(Arrays.asList(clients), Collections.singletonList(key), Call.APPEND_OR_ADD);
+        final EVCacheEvent event = createEVCacheEvent(clients, key, Call.APPEND_OR_ADD);
         if (event != null) {
             try {
                 if (shouldThrottle(event)) {
@@ -1722,6 +2495,7 @@ final public class EVCacheImpl implements EVCache {
             if (!throwExc) return new EVCacheFuture[0];
             throw new EVCacheException("Exception setting data for APP " + _appName + ", key : " + canonicalKey, ex);
         } finally {
+            invalidateInMemoryCache(canonicalKey);
             op.stop();
             if (log.isDebugEnabled() && shouldLog()) log.debug("APPEND_OR_ADD : APP " + _appName + ", Took " + op.getDuration() + " milliSec for key : " + canonicalKey);
         }
@@ -1752,7 +2526,7 @@ final public class EVCacheImpl implements EVCache {
             return new EVCacheLatchImpl(policy, 0, _appName); // Fast failure
         }
 
-        final EVCacheEvent event = createEVCacheEvent(Arrays.asList(clients), Collections.singletonList(key), Call.ADD);
+        final EVCacheEvent event = createEVCacheEvent(clients, key, Call.ADD);
         if (event != null) {
             try {
                 if (shouldThrottle(event)) {
@@ -1806,6 +2580,7 @@ final public class EVCacheImpl implements EVCache {
             if (!throwExc) return new EVCacheLatchImpl(policy, 0, _appName); 
             throw new EVCacheException("Exception adding data for APP " + _appName + ", key : " + canonicalKey, ex);
         } finally {
+            invalidateInMemoryCache(canonicalKey);
             op.stop();
             if (log.isDebugEnabled() && shouldLog()) log.debug("ADD : APP " + _appName + ", Took " + op.getDuration() + " milliSec for key : " + canonicalKey);
         }
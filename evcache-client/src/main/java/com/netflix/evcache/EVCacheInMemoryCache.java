@@ -1,30 +1,26 @@
 package com.netflix.evcache;
 
-import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.CacheStats;
-import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.config.ChainedDynamicProperty;
+import com.netflix.config.DynamicBooleanProperty;
 import com.netflix.config.DynamicIntProperty;
+import com.netflix.config.DynamicLongProperty;
 import com.netflix.evcache.metrics.EVCacheMetricsFactory;
+import com.netflix.evcache.nearcache.NearCache;
+import com.netflix.evcache.nearcache.OffHeapStore;
 import com.netflix.evcache.util.EVCacheConfig;
 import com.netflix.servo.DefaultMonitorRegistry;
 import com.netflix.servo.MonitorRegistry;
@@ -32,9 +28,9 @@ import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.monitor.Monitor;
 import com.netflix.servo.monitor.MonitorConfig;
 import com.netflix.servo.monitor.MonitorConfig.Builder;
-import com.netflix.servo.monitor.StepCounter;
 import com.netflix.servo.tag.Tag;
 
+import net.spy.memcached.CachedData;
 import net.spy.memcached.transcoders.Transcoder;
 
 /**
@@ -42,6 +38,22 @@ import net.spy.memcached.transcoders.Transcoder;
  * helpful when the same key is repeatedly requested from EVCache within a short
  * duration. This can be turned on dynamically and can relive pressure on
  * EVCache Server instances.
+ *
+ * The entries are held in a {@link NearCache} which uses a frequency based
+ * admission policy so keys that are read often are not pushed out by a burst
+ * of keys that are read once. The cache is bounded by
+ * <app>.inmemory.cache.size entries or, when <app>.inmemory.cache.max.bytes is
+ * set, by the serialized size of the keys and values. Changes to the size,
+ * expiration and refresh properties are applied to the existing cache.
+ *
+ * When <app>.inmemory.offheap.max.bytes is set, loaded values are also kept
+ * in serialized form in an {@link OffHeapStore}. A key that falls out of the
+ * on heap cache is then decoded from there instead of being fetched from
+ * EVCache again.
+ *
+ * Writes made through {@link EVCacheImpl} keep the cache current. A set stores
+ * the written value (see <app>.inmemory.write.through) and every other write
+ * drops the key so the next read loads it from EVCache.
  */
 public class EVCacheInMemoryCache<T> {
 
@@ -49,11 +61,20 @@ public class EVCacheInMemoryCache<T> {
     private final ChainedDynamicProperty.IntProperty _cacheDuration; // The key will be cached for this long
     private final DynamicIntProperty _refreshDuration, _exireAfterAccessDuration;
     private final DynamicIntProperty _cacheSize; // This many items will be cached
+    private final DynamicLongProperty _cacheMaxBytes; // If set the cache is bounded by the serialized size of the items
+    private final DynamicLongProperty _offHeapMaxBytes; // If set the serialized values are also held off heap up to this many bytes
+    private final DynamicBooleanProperty _writeThrough; // If false a set drops the key instead of storing the value
     private final DynamicIntProperty _poolSize; // This many threads will be initialized to fetch data from evcache async
     private final String appName;
 
-    private LoadingCache<String, T> cache;
-    private ExecutorService pool = null;
+    private final NearCache<T> cache;
+    private final OffHeapStore offHeap;
+    private final ThreadPoolExecutor pool;
+    private final Map<String, CompletableFuture<T>> loading = new ConcurrentHashMap<String, CompletableFuture<T>>();
+
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadExceptionCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
 
     private final Transcoder<T> tc;
     private final EVCacheImpl impl;
@@ -63,48 +84,91 @@ public class EVCacheInMemoryCache<T> {
         this.tc = tc;
         this.impl = impl;
 
-        final Runnable setupCache = new Runnable() {
+        final Runnable updateExpiration = new Runnable() {
+            public void run() {
+                updateExpiration();
+            }
+        };
+        final Runnable updateMaximum = new Runnable() {
             public void run() {
-                setupCache();
+                updateMaximum();
             }
         };
 
-        this._cacheDuration = EVCacheConfig.getInstance().getChainedIntProperty(appName + ".inmemory.cache.duration.ms", appName + ".inmemory.expire.after.write.duration.ms", 0, setupCache);
+        this._cacheDuration = EVCacheConfig.getInstance().getChainedIntProperty(appName + ".inmemory.cache.duration.ms", appName + ".inmemory.expire.after.write.duration.ms", 0, updateExpiration);
 
         this._exireAfterAccessDuration = EVCacheConfig.getInstance().getDynamicIntProperty(appName + ".inmemory.expire.after.access.duration.ms", 0);
-        this._exireAfterAccessDuration.addCallback(setupCache);
+        this._exireAfterAccessDuration.addCallback(updateExpiration);
 
         this._refreshDuration = EVCacheConfig.getInstance().getDynamicIntProperty(appName + ".inmemory.refresh.after.write.duration.ms", 0);
-        this._refreshDuration.addCallback(setupCache);
+        this._refreshDuration.addCallback(updateExpiration);
 
         this._cacheSize = EVCacheConfig.getInstance().getDynamicIntProperty(appName + ".inmemory.cache.size", 100);
-        this._cacheSize.addCallback(setupCache);
+        this._cacheSize.addCallback(updateMaximum);
+
+        this._cacheMaxBytes = EVCacheConfig.getInstance().getDynamicLongProperty(appName + ".inmemory.cache.max.bytes", 0);
+        this._cacheMaxBytes.addCallback(updateMaximum);
+
+        this._offHeapMaxBytes = EVCacheConfig.getInstance().getDynamicLongProperty(appName + ".inmemory.offheap.max.bytes", 0);
+        this._offHeapMaxBytes.addCallback(updateMaximum);
+        final int slabSize = EVCacheConfig.getInstance().getDynamicIntProperty(appName + ".inmemory.offheap.slab.bytes", 4 * 1024 * 1024).get();
+
+        this._writeThrough = EVCacheConfig.getInstance().getDynamicBooleanProperty(appName + ".inmemory.write.through", true);
 
         this._poolSize = EVCacheConfig.getInstance().getDynamicIntProperty(appName + ".thread.pool.size", 5);
         this._poolSize.addCallback(new Runnable() {
             public void run() {
-                initRefreshPool();
+                resizeRefreshPool();
             }
         });
 
-        setupCache();
+        this.pool = new ThreadPoolExecutor(_poolSize.get(), _poolSize.get(), 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("EVCacheInMemoryCache-%d").build());
+        this.cache = (_cacheMaxBytes.get() > 0) ? new NearCache<T>(_cacheMaxBytes.get(), NearCache.BYTES_WEIGHER) : new NearCache<T>(_cacheSize.get(), NearCache.SINGLETON_WEIGHER);
+        this.offHeap = new OffHeapStore(Math.max(0, _offHeapMaxBytes.get()), slabSize);
+        updateExpiration();
         setupMonitoring(appName);
     }
 
-    private WriteLock writeLock = new ReentrantReadWriteLock().writeLock();
-    private void initRefreshPool() {
-        final ExecutorService oldPool = pool;
-        writeLock.lock();
-        try {
-            final ThreadFactory factory = new ThreadFactoryBuilder().setDaemon(true).setNameFormat(
-                    "EVCacheInMemoryCache-%d").build();
-            pool = Executors.newFixedThreadPool(_poolSize.get(), factory);
-            if(oldPool != null) oldPool.shutdown();
-        } finally {
-            writeLock.unlock();
+    private void resizeRefreshPool() {
+        final int size = _poolSize.get();
+        if (size <= 0) return;
+        if (size > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(size);
+            pool.setCorePoolSize(size);
+        } else {
+            pool.setCorePoolSize(size);
+            pool.setMaximumPoolSize(size);
         }
     }
 
+    private void updateMaximum() {
+        if (_cacheMaxBytes.get() > 0) {
+            cache.setMaximum(_cacheMaxBytes.get(), NearCache.BYTES_WEIGHER);
+        } else {
+            cache.setMaximum(_cacheSize.get() > 0 ? _cacheSize.get() : Long.MAX_VALUE, NearCache.SINGLETON_WEIGHER);
+        }
+        offHeap.setMaxBytes(Math.max(0, _offHeapMaxBytes.get()));
+    }
+
+    private void updateExpiration() {
+        if (_exireAfterAccessDuration.get() > 0) {
+            cache.setExpireAfterAccess(_exireAfterAccessDuration.get(), TimeUnit.MILLISECONDS);
+            cache.setExpireAfterWrite(0, TimeUnit.MILLISECONDS);
+            // reads from the off heap tier are not tracked, so an entry there lives for one access period after it was written
+            offHeap.setExpireAfterWrite(_exireAfterAccessDuration.get(), TimeUnit.MILLISECONDS);
+        } else {
+            cache.setExpireAfterAccess(0, TimeUnit.MILLISECONDS);
+            cache.setExpireAfterWrite(Math.max(0, _cacheDuration.get().intValue()), TimeUnit.MILLISECONDS);
+            offHeap.setExpireAfterWrite(Math.max(0, _cacheDuration.get().intValue()), TimeUnit.MILLISECONDS);
+        }
+        cache.setRefreshAfterWrite(Math.max(0, _refreshDuration.get()), TimeUnit.MILLISECONDS, new NearCache.Refresher<T>() {
+            public void refresh(String key, T prev) {
+                reload(key, prev);
+            }
+        });
+    }
+
     private void register(Monitor<?> monitor) {
         final MonitorRegistry registry = DefaultMonitorRegistry.getInstance();
         if (registry.isRegistered(monitor)) registry.unregister(monitor);
@@ -117,196 +181,103 @@ public class EVCacheInMemoryCache<T> {
         return builder.build();
     }
 
-    private void setupCache() {
+    private T load(String key) throws EVCacheException {
+        final long start = System.nanoTime();
         try {
-            CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
-            if(_cacheSize.get() > 0) {
-                builder = builder.maximumSize(_cacheSize.get());
-            }
-            if(_exireAfterAccessDuration.get() > 0) {
-                builder = builder.expireAfterAccess(_exireAfterAccessDuration.get(), TimeUnit.MILLISECONDS);
-            } else if(_cacheDuration.get().intValue() > 0) {
-                builder = builder.expireAfterWrite(_cacheDuration.get(), TimeUnit.MILLISECONDS);
-            }  
-
-            if(_refreshDuration.get() > 0) {
-                builder = builder.refreshAfterWrite(_refreshDuration.get(), TimeUnit.MILLISECONDS);
-            }
-            initRefreshPool();
-            final LoadingCache<String, T> newCache = builder.build(
-                    new CacheLoader<String, T>() {
-                        public T load(String key) throws EVCacheException { 
-                            try {
-                                final T t = impl.doGet(key, tc);
-                                if(t == null) throw new  DataNotFoundException("Data for key : " + key + " could not be loaded as it was not found in EVCache");
-                                return t;
-                            } catch (DataNotFoundException e) {
-                                throw e;
-                            } catch (EVCacheException e) {
-                                log.error("EVCacheException while loading key -> {}", key, e);
-                                throw e;
-                            } catch (Exception e) {
-                                log.error("Exception while loading key -> {}", key, e);
-                                throw new EVCacheException("key : " + key + " could not be loaded", e);
-                            }
-                        }
-
-                        public ListenableFuture<T> reload(final String key, T prev) {
-                            ListenableFutureTask<T> task = ListenableFutureTask.create(new Callable<T>() {
-                                public T call() {
-                                    try {
-                                        T t = load(key);
-                                        if(t == null) {
-                                            EVCacheMetricsFactory.increment(appName, null, null, "EVCacheInMemoryCache" + "-" + appName + "-Reload-NotFound");
-                                            return prev;
-                                        } else {
-                                            EVCacheMetricsFactory.increment(appName, null, null, "EVCacheInMemoryCache" + "-" + appName + "-Reload-Success");
-                                        }
-                                        return t;
-                                    } catch (EVCacheException e) {
-                                        log.error("EVCacheException while reloading key -> {}", key, e);
-                                        EVCacheMetricsFactory.increment(appName, null, null, "EVCacheInMemoryCache" + "-" + appName + "-Reload-Fail");
-                                        return prev;
-                                    }
-                                }
-                            });
-                            pool.execute(task);
-                            return task;
-                        }
-                    });
-            if(cache != null) newCache.putAll(cache.asMap());
-            final Cache<String, T> currentCache = this.cache;
-            this.cache = newCache;
-            if(currentCache != null) {
-                currentCache.invalidateAll();
-                currentCache.cleanUp();
-            }
+            final CachedData cd = impl.doGet(key, CachedDataTranscoder.INSTANCE);
+            if (cd == null) throw new DataNotFoundException("Data for key : " + key + " could not be loaded as it was not found in EVCache");
+            final T t = decode(cd);
+            if (t == null) throw new DataNotFoundException("Data for key : " + key + " could not be decoded");
+            cache.put(key, t, cd.getData().length);
+            if (isOffHeapEnabled()) offHeap.put(key, cd);
+            loadSuccessCount.increment();
+            return t;
+        } catch (DataNotFoundException e) {
+            loadExceptionCount.increment();
+            throw e;
+        } catch (EVCacheException e) {
+            loadExceptionCount.increment();
+            log.error("EVCacheException while loading key -> {}", key, e);
+            throw e;
         } catch (Exception e) {
-            log.error(e.getMessage(), e);
+            loadExceptionCount.increment();
+            log.error("Exception while loading key -> {}", key, e);
+            throw new EVCacheException("key : " + key + " could not be loaded", e);
+        } finally {
+            totalLoadTime.add(System.nanoTime() - start);
         }
     }
 
-    private LoadingCache<String, T> getCache() {
-        return cache;
+    @SuppressWarnings("unchecked")
+    private Transcoder<T> getTranscoder() {
+        return (tc != null) ? tc : (Transcoder<T>) impl.getDefaultTranscoder();
     }
 
-    private CacheStats getStats() {
-        return cache.stats();
+    private T decode(CachedData cd) {
+        final Transcoder<T> transcoder = getTranscoder();
+        if (transcoder == null) return null;
+        return transcoder.decode(cd);
     }
 
-    private void setupMonitoring(final String appName) {
-        final StepCounter sizeCounter = new StepCounter(getMonitorConfig(appName, "size", DataSourceType.GAUGE)) {
-            @Override
-            public Number getValue() {
-                if (getCache() == null) return Long.valueOf(0);
-                log.debug("Current size is : {}", getCache().size());
-                return Long.valueOf(getCache().size());
-            }
-
-            @Override
-            public Number getValue(int pollerIndex) {
-                return getValue();
-            }
-        };
-        register(sizeCounter);
-
-        register(new Monitor<Number>() {
-            final MonitorConfig config;
-
-            {
-                config = getMonitorConfig(appName, "requests", DataSourceType.COUNTER);
-            }
-
-            @Override
-            public Number getValue() {
-                if (getCache() == null) return Long.valueOf(0);
-                return Long.valueOf(getStats().requestCount());
-            }
-
-            @Override
-            public Number getValue(int pollerIndex) {
-                return getValue();
-            }
-
-            @Override
-            public MonitorConfig getConfig() {
-                return config;
-            }
-        });
-
-        final StepCounter hitrateCounter = new StepCounter(getMonitorConfig(appName, "hitrate", DataSourceType.GAUGE)) {
-            @Override
-            public Number getValue() {
-                if (getCache() == null) return Long.valueOf(0);
-                return Double.valueOf(getStats().hitRate());
-            }
-
-            @Override
-            public Number getValue(int pollerIndex) {
-                return getValue();
-            }
-        };
-        register(hitrateCounter);
-
-        register(new Monitor<Number>() {
-            final MonitorConfig config;
-
-            {
-                config = getMonitorConfig(appName, "hits", DataSourceType.COUNTER);
-            }
-
-            @Override
-            public Number getValue() {
-                if (getCache() == null) return Long.valueOf(0);
-                return Double.valueOf(getStats().hitCount());
-            }
+    private boolean isOffHeapEnabled() {
+        return _offHeapMaxBytes.get() > 0;
+    }
 
-            @Override
-            public Number getValue(int pollerIndex) {
-                return getValue();
-            }
+    /**
+     * Decodes the value from the off heap tier and offers it back to the on
+     * heap cache.
+     */
+    private T getFromOffHeap(String key) {
+        if (!isOffHeapEnabled()) return null;
+        final CachedData cd = offHeap.get(key);
+        if (cd == null) return null;
+        final T t = decode(cd);
+        if (t != null) cache.put(key, t, cd.getData().length);
+        return t;
+    }
 
-            @Override
-            public MonitorConfig getConfig() {
-                return config;
+    /**
+     * Refreshes the key in the background. The refresh is registered as the
+     * load of the key like a miss is, so a write while it is running drops
+     * what it brings back and a miss waits for it instead of loading again.
+     */
+    private void reload(final String key, final T prev) {
+        pool.execute(new Runnable() {
+            public void run() {
+                final CompletableFuture<T> future = new CompletableFuture<T>();
+                if (loading.putIfAbsent(key, future) != null) {
+                    // a miss is already loading the key
+                    cache.refreshDone(key);
+                    return;
+                }
+                try {
+                    future.complete(load(key));
+                    EVCacheMetricsFactory.increment(appName, null, null, "EVCacheInMemoryCache" + "-" + appName + "-Reload-Success");
+                } catch (DataNotFoundException e) {
+                    future.completeExceptionally(e);
+                    EVCacheMetricsFactory.increment(appName, null, null, "EVCacheInMemoryCache" + "-" + appName + "-Reload-NotFound");
+                } catch (EVCacheException e) {
+                    future.completeExceptionally(e);
+                    log.error("EVCacheException while reloading key -> {}", key, e);
+                    EVCacheMetricsFactory.increment(appName, null, null, "EVCacheInMemoryCache" + "-" + appName + "-Reload-Fail");
+                } finally {
+                    loading.remove(key, future);
+                    cache.refreshDone(key);
+                }
             }
         });
+    }
 
-        register(new Monitor<Number>() {
-            final MonitorConfig config;
-
-            {
-                config = getMonitorConfig(appName, "miss", DataSourceType.COUNTER);
-            }
-
-            @Override
-            public Number getValue() {
-                if (getCache() == null) return Long.valueOf(0);
-                return Double.valueOf(getStats().missCount());
-            }
-
-            @Override
-            public Number getValue(int pollerIndex) {
-                return getValue();
-            }
-
-            @Override
-            public MonitorConfig getConfig() {
-                return config;
-            }
-        });
+    private long getLoadCount() {
+        return loadSuccessCount.sum() + loadExceptionCount.sum();
+    }
 
+    private void registerMonitor(String metric, Tag tag, final Supplier<Number> value) {
+        final MonitorConfig config = getMonitorConfig(appName, metric, tag);
         register(new Monitor<Number>() {
-            final MonitorConfig config;
-
-            {
-                config = getMonitorConfig(appName, "evictions", DataSourceType.COUNTER);
-            }
-
             @Override
             public Number getValue() {
-                if (getCache() == null) return Long.valueOf(0);
-                return Double.valueOf(getStats().evictionCount());
+                return value.get();
             }
 
             @Override
@@ -319,153 +290,140 @@ public class EVCacheInMemoryCache<T> {
                 return config;
             }
         });
+    }
 
-        register(new Monitor<Number>() {
-            final MonitorConfig config;
-
-            {
-                config = getMonitorConfig(appName, "loadExceptionCount", DataSourceType.COUNTER);
-            }
-
-            @Override
-            public Number getValue() {
-                if (getCache() == null) return Long.valueOf(0);
-                return Double.valueOf(getStats().loadExceptionCount());
-            }
-
-            @Override
-            public Number getValue(int pollerIndex) {
-                return getValue();
-            }
-
-            @Override
-            public MonitorConfig getConfig() {
-                return config;
-            }
+    private void setupMonitoring(final String appName) {
+        registerMonitor("size", DataSourceType.GAUGE, () -> Long.valueOf(cache.size()));
+        registerMonitor("weightedSize", DataSourceType.GAUGE, () -> Long.valueOf(cache.weightedSize()));
+        registerMonitor("requests", DataSourceType.COUNTER, () -> Long.valueOf(cache.getHitCount() + cache.getMissCount()));
+        registerMonitor("hitrate", DataSourceType.GAUGE, () -> {
+            final long requests = cache.getHitCount() + cache.getMissCount();
+            return Double.valueOf(requests == 0 ? 1.0 : (double) cache.getHitCount() / requests);
         });
-
-        register(new Monitor<Number>() {
-            final MonitorConfig config;
-
-            {
-                config = getMonitorConfig(appName, "loadCount", DataSourceType.COUNTER);
-            }
-
-            @Override
-            public Number getValue() {
-                if (getCache() == null) return Long.valueOf(0);
-                return Double.valueOf(getStats().loadCount());
-            }
-
-            @Override
-            public Number getValue(int pollerIndex) {
-                return getValue();
-            }
-
-            @Override
-            public MonitorConfig getConfig() {
-                return config;
-            }
+        registerMonitor("hits", DataSourceType.COUNTER, () -> Double.valueOf(cache.getHitCount()));
+        registerMonitor("miss", DataSourceType.COUNTER, () -> Double.valueOf(cache.getMissCount()));
+        registerMonitor("evictions", DataSourceType.COUNTER, () -> Double.valueOf(cache.getEvictionCount()));
+        registerMonitor("expirations", DataSourceType.COUNTER, () -> Double.valueOf(cache.getExpirationCount()));
+        registerMonitor("admitted", DataSourceType.COUNTER, () -> Double.valueOf(cache.getAdmittedCount()));
+        registerMonitor("rejected", DataSourceType.COUNTER, () -> Double.valueOf(cache.getRejectedCount()));
+        registerMonitor("offheap-size", DataSourceType.GAUGE, () -> Long.valueOf(offHeap.size()));
+        registerMonitor("offheap-allocatedBytes", DataSourceType.GAUGE, () -> Long.valueOf(offHeap.allocatedBytes()));
+        registerMonitor("offheap-hits", DataSourceType.COUNTER, () -> Double.valueOf(offHeap.getHitCount()));
+        registerMonitor("offheap-miss", DataSourceType.COUNTER, () -> Double.valueOf(offHeap.getMissCount()));
+        registerMonitor("offheap-evictions", DataSourceType.COUNTER, () -> Double.valueOf(offHeap.getEvictionCount()));
+        registerMonitor("offheap-rejected", DataSourceType.COUNTER, () -> Double.valueOf(offHeap.getRejectedCount()));
+        registerMonitor("loadExceptionCount", DataSourceType.COUNTER, () -> Double.valueOf(loadExceptionCount.sum()));
+        registerMonitor("loadCount", DataSourceType.COUNTER, () -> Double.valueOf(getLoadCount()));
+        registerMonitor("loadSuccessCount", DataSourceType.COUNTER, () -> Double.valueOf(loadSuccessCount.sum()));
+        registerMonitor("totalLoadTime-ms", DataSourceType.COUNTER, () -> Double.valueOf(totalLoadTime.sum() / 1000000));
+        registerMonitor("loadExceptionRate", DataSourceType.GAUGE, () -> {
+            final long loads = getLoadCount();
+            return Double.valueOf(loads == 0 ? 0.0 : (double) loadExceptionCount.sum() / loads);
         });
-
-        register(new Monitor<Number>() {
-            final MonitorConfig config;
-
-            {
-                config = getMonitorConfig(appName, "loadSuccessCount", DataSourceType.COUNTER);
-            }
-
-            @Override
-            public Number getValue() {
-                if (getCache() == null) return Long.valueOf(0);
-                return Double.valueOf(getStats().loadSuccessCount());
-            }
-
-            @Override
-            public Number getValue(int pollerIndex) {
-                return getValue();
-            }
-
-            @Override
-            public MonitorConfig getConfig() {
-                return config;
-            }
+        registerMonitor("averageLoadTime-ms", DataSourceType.GAUGE, () -> {
+            final long loads = getLoadCount();
+            return Double.valueOf(loads == 0 ? 0.0 : (double) totalLoadTime.sum() / loads / 1000000);
         });
-
-        register(new Monitor<Number>() {
-            final MonitorConfig config;
-
-            {
-                config = getMonitorConfig(appName, "totalLoadTime-ms", DataSourceType.COUNTER);
-            }
-
-            @Override
-            public Number getValue() {
-                if (getCache() == null) return Long.valueOf(0);
-                return Double.valueOf(getStats().totalLoadTime()/1000000);
-            }
-
-            @Override
-            public Number getValue(int pollerIndex) {
-                return getValue();
-            }
-
-            @Override
-            public MonitorConfig getConfig() {
-                return config;
-            }
-        });        
-
-        final StepCounter loadExceptionRate = new StepCounter(getMonitorConfig(appName, "loadExceptionRate", DataSourceType.GAUGE)) {
-            @Override
-            public Number getValue() {
-                if (getCache() == null) return Long.valueOf(0);
-                return Double.valueOf(getStats().loadExceptionRate());
-            }
-
-            @Override
-            public Number getValue(int pollerIndex) {
-                return getValue();
-            }
-        };
-        register(loadExceptionRate);
-
-        final StepCounter averageLoadTime = new StepCounter(getMonitorConfig(appName, "averageLoadTime-ms", DataSourceType.GAUGE)) {
-            @Override
-            public Number getValue() {
-                if (getCache() == null) return Long.valueOf(0);
-                return Double.valueOf(getStats().averageLoadPenalty()/1000000);
-            }
-
-            @Override
-            public Number getValue(int pollerIndex) {
-                return getValue();
-            }
-        };
-        register(averageLoadTime);
     }
 
+    /**
+     * Returns the value from the in memory cache, loading it from EVCache if
+     * it is not present. Concurrent callers for the same key share one load.
+     *
+     * @throws ExecutionException
+     *             if the value could not be loaded. The cause is a
+     *             {@link DataNotFoundException} if the key does not exist.
+     */
     public T get(String key) throws ExecutionException {
-        if (cache == null) return null;
-        final T val = cache.get(key);
+        T val = cache.getIfPresent(key);
+        if (val == null) val = getFromOffHeap(key);
+        if (val == null) {
+            final CompletableFuture<T> future = new CompletableFuture<T>();
+            final CompletableFuture<T> inFlight = loading.putIfAbsent(key, future);
+            if (inFlight != null) {
+                try {
+                    val = inFlight.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ExecutionException(e);
+                }
+            } else {
+                try {
+                    val = load(key);
+                    future.complete(val);
+                } catch (EVCacheException e) {
+                    future.completeExceptionally(e);
+                    throw new ExecutionException(e);
+                } finally {
+                    loading.remove(key, future);
+                }
+            }
+        }
         if (log.isDebugEnabled()) log.debug("GET : appName : " + appName + "; Key : " + key + "; val : " + val);
         return val;
     }
 
+    /**
+     * Puts the value in the in memory cache. The value is encoded once to
+     * find its size when the cache is bounded by bytes and to store it off
+     * heap when that tier is enabled.
+     */
     public void put(String key, T value) {
-        if (cache == null) return;
-        cache.put(key, value);
+        int bytes = 0;
+        if (_cacheMaxBytes.get() > 0 || isOffHeapEnabled()) {
+            final Transcoder<T> transcoder = getTranscoder();
+            if (transcoder != null) {
+                final CachedData cd = transcoder.encode(value);
+                bytes = cd.getData().length;
+                if (isOffHeapEnabled()) offHeap.put(key, cd);
+            } else {
+                offHeap.remove(key);
+            }
+        }
+        cache.put(key, value, bytes);
+        if (log.isDebugEnabled()) log.debug("PUT : appName : " + appName + "; Key : " + key + "; val : " + value);
+    }
+
+    /**
+     * Stores a value that was just written to EVCache. The encoded data is
+     * reused for the size and the off heap tier so the value is not
+     * serialized again. If the value was encoded by a different kind of
+     * transcoder than the one this cache decodes with, or write through is
+     * turned off, the key is dropped instead.
+     */
+    public void put(String key, T value, CachedData cd, Transcoder<?> encodedWith) {
+        final Transcoder<T> transcoder = getTranscoder();
+        if (!_writeThrough.get() || cd == null || transcoder == null || encodedWith == null || transcoder.getClass() != encodedWith.getClass()) {
+            delete(key);
+            return;
+        }
+        cache.put(key, value, cd.getData().length);
+        if (isOffHeapEnabled()) offHeap.put(key, cd);
+        dropAfterLoad(key);
         if (log.isDebugEnabled()) log.debug("PUT : appName : " + appName + "; Key : " + key + "; val : " + value);
     }
 
     public void delete(String key) {
-        if (cache == null) return;
-        cache.invalidate(key);
+        cache.remove(key);
+        offHeap.remove(key);
+        dropAfterLoad(key);
         if (log.isDebugEnabled()) log.debug("DEL : appName : " + appName + "; Key : " + key);
     }
 
+    /**
+     * A load that started before a write may bring back the old value, so the
+     * key is dropped again once that load is done.
+     */
+    private void dropAfterLoad(String key) {
+        final CompletableFuture<T> inFlight = loading.get(key);
+        if (inFlight == null) return;
+        inFlight.whenComplete((t, e) -> {
+            cache.remove(key);
+            offHeap.remove(key);
+        });
+    }
+
     public Map<String, T> getAll() {
-        if (cache == null) return Collections.<String, T>emptyMap();
         return cache.asMap();
     }
 
@@ -476,4 +434,28 @@ public class EVCacheInMemoryCache<T> {
             super(message);
         }
     }
+
+    /**
+     * Hands back the raw {@link CachedData} so a loaded value can be weighed
+     * by its serialized size before it is decoded.
+     */
+    private static final class CachedDataTranscoder implements Transcoder<CachedData> {
+        private static final CachedDataTranscoder INSTANCE = new CachedDataTranscoder();
+
+        public boolean asyncDecode(CachedData d) {
+            return false;
+        }
+
+        public CachedData encode(CachedData o) {
+            return o;
+        }
+
+        public CachedData decode(CachedData d) {
+            return d;
+        }
+
+        public int getMaxSize() {
+            return Integer.MAX_VALUE;
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package com.netflix.evcache;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.config.DynamicBooleanProperty;
+import com.netflix.config.DynamicIntProperty;
+import com.netflix.evcache.pool.ServerGroup;
+import com.netflix.evcache.util.EVCacheConfig;
+
+/**
+ * Decides when a get that has not been answered by its server group should
+ * be sent to a second server group as well.
+ *
+ * The hedge is sent after <app>.hedge.delay.ms or, when <app>.hedge.percentile
+ * is set, after that percentile of the recent get latencies of the server
+ * group. The number of hedges is limited to <app>.hedge.budget.percent of the
+ * gets that could have been hedged.
+ */
+class HedgedReadPolicy {
+
+    private static final int SAMPLE_SIZE = 1024;
+    private static final int MIN_SAMPLES = 100;
+    private static final long RECOMPUTE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long CREDITS_PER_HEDGE = 100;
+    private static final long MAX_CREDITS = 10 * CREDITS_PER_HEDGE; // allows a burst of 10 hedges
+
+    private final DynamicBooleanProperty enabled;
+    private final DynamicIntProperty delayMillis;
+    private final DynamicIntProperty percentile;
+    private final DynamicIntProperty budgetPercent;
+
+    private final ConcurrentHashMap<ServerGroup, Latencies> latencies = new ConcurrentHashMap<ServerGroup, Latencies>();
+    private final AtomicLong credits = new AtomicLong(MAX_CREDITS);
+
+    HedgedReadPolicy(String appName) {
+        final EVCacheConfig config = EVCacheConfig.getInstance();
+        this.enabled = config.getDynamicBooleanProperty(appName + ".hedge.enabled", Boolean.FALSE);
+        this.delayMillis = config.getDynamicIntProperty(appName + ".hedge.delay.ms", 10);
+        this.percentile = config.getDynamicIntProperty(appName + ".hedge.percentile", 0);
+        this.budgetPercent = config.getDynamicIntProperty(appName + ".hedge.budget.percent", 5);
+    }
+
+    boolean isEnabled() {
+        return enabled.get();
+    }
+
+    /**
+     * @return how long to wait for the server group before sending a hedge
+     */
+    long getDelayNanos(ServerGroup serverGroup) {
+        final int p = percentile.get();
+        if (p > 0 && p < 100) {
+            final Latencies l = latencies.get(serverGroup);
+            if (l != null) {
+                final long delay = l.getPercentile(p);
+                if (delay > 0) return delay;
+            }
+        }
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis.get()));
+    }
+
+    /**
+     * Called for every get that could be hedged. Earns the credits that
+     * {@link #tryAcquire()} spends.
+     */
+    void onRequest() {
+        if (credits.get() < MAX_CREDITS) credits.addAndGet(budgetPercent.get());
+    }
+
+    /**
+     * @return true if a hedge can be sent without going over the budget
+     */
+    boolean tryAcquire() {
+        for (;;) {
+            final long current = credits.get();
+            if (current < CREDITS_PER_HEDGE) return false;
+            if (credits.compareAndSet(current, current - CREDITS_PER_HEDGE)) return true;
+        }
+    }
+
+    void recordLatency(ServerGroup serverGroup, long nanos) {
+        if (percentile.get() <= 0) return;
+        Latencies l = latencies.get(serverGroup);
+        if (l == null) {
+            final Latencies newLatencies = new Latencies();
+            l = latencies.putIfAbsent(serverGroup, newLatencies);
+            if (l == null) l = newLatencies;
+        }
+        l.record(nanos);
+    }
+
+    /**
+     * The latest {@link #SAMPLE_SIZE} latencies of a server group. The
+     * percentile is recomputed at most once a second.
+     */
+    private static final class Latencies {
+        private final long[] samples = new long[SAMPLE_SIZE];
+        // the ring index wraps around, so whether the ring was filled is kept apart from it
+        private final AtomicInteger next = new AtomicInteger();
+        private volatile boolean filled = false;
+        private volatile long computedAt = System.nanoTime() - RECOMPUTE_INTERVAL_NANOS;
+        private volatile int computedPercentile = 0;
+        private volatile long value = 0;
+
+        void record(long nanos) {
+            final int index = next.getAndIncrement();
+            samples[index & (SAMPLE_SIZE - 1)] = nanos;
+            if (!filled && index >= SAMPLE_SIZE - 1) filled = true;
+        }
+
+        long getPercentile(int p) {
+            final long now = System.nanoTime();
+            if (now - computedAt < RECOMPUTE_INTERVAL_NANOS && computedPercentile == p) return value;
+            final int n = filled ? SAMPLE_SIZE : Math.min(next.get(), SAMPLE_SIZE);
+            if (n < MIN_SAMPLES) return 0;
+            final long[] sorted = Arrays.copyOf(samples, n);
+            Arrays.sort(sorted);
+            value = sorted[Math.min(n - 1, (int) ((long) n * p / 100))];
+            computedPercentile = p;
+            computedAt = now;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.netflix.evcache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.netflix.config.DynamicBooleanProperty;
+import com.netflix.config.DynamicIntProperty;
+import com.netflix.evcache.event.hotkey.HotKeyDetector;
+import com.netflix.evcache.metrics.EVCacheMetricsFactory;
+import com.netflix.evcache.nearcache.NearCache;
+import com.netflix.evcache.pool.EVCacheClientPoolManager;
+import com.netflix.evcache.util.EVCacheConfig;
+import com.netflix.servo.DefaultMonitorRegistry;
+import com.netflix.servo.MonitorRegistry;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.monitor.Monitor;
+import com.netflix.servo.monitor.MonitorConfig;
+
+import net.spy.memcached.transcoders.Transcoder;
+
+/**
+ * A small local cache that only holds the hot keys of an app and cache, so a
+ * key that suddenly gets a lot of reads stops hammering the one node per
+ * server group that owns it.
+ *
+ * Every read is counted by the {@link HotKeyDetector} of the app and cache. A
+ * value read from EVCache is promoted into the cache when its key has had more
+ * than <code>&lt;app&gt;.hot.key.cache.min.requests</code> (default 100)
+ * requests in the current window of the detector. A cached key is demoted on
+ * the first read after its count dropped below that again. Entries expire
+ * <code>&lt;app&gt;.hot.key.cache.ttl.ms</code> (default 1000) after they were
+ * promoted, which bounds how stale a value can be when a write from another
+ * client changes it. At most <code>&lt;app&gt;.hot.key.cache.size</code>
+ * (default 100) keys are held.
+ *
+ * The cache is turned on with <code>&lt;app&gt;.hot.key.cache.enabled</code>.
+ */
+public class HotKeyCache {
+
+    private static final Logger log = LoggerFactory.getLogger(HotKeyCache.class);
+
+    private final String appName;
+    private final String cacheName;
+    private final EVCacheClientPoolManager poolManager;
+    private final DynamicBooleanProperty enabled;
+    private final DynamicIntProperty minRequests;
+    private final DynamicIntProperty ttlMillis;
+    private final DynamicIntProperty size;
+    private final LongAdder promotions = new LongAdder();
+    private final LongAdder demotions = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    private volatile NearCache<Entry> cache;
+    private volatile HotKeyDetector detector;
+
+    public HotKeyCache(String appName, String cacheName, EVCacheClientPoolManager poolManager) {
+        this.appName = appName;
+        this.cacheName = cacheName;
+        this.poolManager = poolManager;
+        final EVCacheConfig config = EVCacheConfig.getInstance();
+        this.enabled = config.getDynamicBooleanProperty(appName + ".hot.key.cache.enabled", Boolean.FALSE);
+        this.minRequests = config.getDynamicIntProperty(appName + ".hot.key.cache.min.requests", 100);
+        this.ttlMillis = config.getDynamicIntProperty(appName + ".hot.key.cache.ttl.ms", 1000);
+        this.ttlMillis.addCallback(new Runnable() {
+            public void run() {
+                final NearCache<Entry> current = cache;
+                if (current != null) current.setExpireAfterWrite(Math.max(1, ttlMillis.get()), TimeUnit.MILLISECONDS);
+            }
+        });
+        this.size = config.getDynamicIntProperty(appName + ".hot.key.cache.size", 100);
+        this.size.addCallback(new Runnable() {
+            public void run() {
+                final NearCache<Entry> current = cache;
+                if (current != null) current.setMaximum(Math.max(1, size.get()));
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled.get();
+    }
+
+    private NearCache<Entry> getCache() {
+        NearCache<Entry> current = cache;
+        if (current != null) return current;
+        synchronized (this) {
+            if (cache == null) {
+                current = new NearCache<Entry>(Math.max(1, size.get()), NearCache.SINGLETON_WEIGHER);
+                current.setExpireAfterWrite(Math.max(1, ttlMillis.get()), TimeUnit.MILLISECONDS);
+                detector = poolManager.getHotKeyDetector(appName, cacheName);
+                cache = current;
+                setupMonitoring();
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Counts a read of the given key.
+     *
+     * @return the cached value, or null if the key is not hot or was cached
+     *         with another transcoder
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String canonicalKey, Transcoder<T> tc) {
+        final NearCache<Entry> current = getCache();
+        final long count = detector.record(canonicalKey);
+        final Entry entry = current.getIfPresent(canonicalKey);
+        if (entry == null) return null;
+        if (count < minRequests.get()) {
+            current.remove(canonicalKey);
+            demotions.increment();
+            if (log.isDebugEnabled()) log.debug("Demoted key " + canonicalKey + " of " + appName + " with " + count + " requests");
+            return null;
+        }
+        if (entry.tc != tc) return null;
+        hits.increment();
+        return (T) entry.value;
+    }
+
+    /**
+     * Offers a value that was just read from EVCache. It is kept if its key is
+     * hot. The read must already have been counted with
+     * {@link #get(String, Transcoder)}.
+     */
+    public <T> void loaded(String canonicalKey, T value, Transcoder<T> tc) {
+        if (value == null) return;
+        final NearCache<Entry> current = getCache();
+        final long count = detector.estimate(canonicalKey);
+        if (count < minRequests.get()) return;
+        current.put(canonicalKey, new Entry(value, tc), 0);
+        promotions.increment();
+        if (log.isDebugEnabled()) log.debug("Promoted key " + canonicalKey + " of " + appName + " with " + count + " requests");
+    }
+
+    public void remove(String canonicalKey) {
+        final NearCache<Entry> current = cache;
+        if (current != null) current.remove(canonicalKey);
+    }
+
+    public long getPromotionCount() {
+        return promotions.sum();
+    }
+
+    public long getDemotionCount() {
+        return demotions.sum();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    private void registerMonitor(String metric, DataSourceType type, final Supplier<Number> value) {
+        final MonitorConfig config = MonitorConfig.builder("EVCacheHotKeyCache-" + appName + (cacheName == null ? "" : "-" + cacheName) + "-" + metric)
+                .withTag(type).withTag(EVCacheMetricsFactory.OWNER).build();
+        final MonitorRegistry registry = DefaultMonitorRegistry.getInstance();
+        final Monitor<Number> monitor = new Monitor<Number>() {
+            @Override
+            public Number getValue() {
+                return value.get();
+            }
+
+            @Override
+            public Number getValue(int pollerIndex) {
+                return getValue();
+            }
+
+            @Override
+            public MonitorConfig getConfig() {
+                return config;
+            }
+        };
+        if (registry.isRegistered(monitor)) registry.unregister(monitor);
+        registry.register(monitor);
+    }
+
+    private void setupMonitoring() {
+        registerMonitor("size", DataSourceType.GAUGE, () -> Long.valueOf(cache.size()));
+        registerMonitor("promotions", DataSourceType.COUNTER, () -> Long.valueOf(promotions.sum()));
+        registerMonitor("demotions", DataSourceType.COUNTER, () -> Long.valueOf(demotions.sum()));
+        registerMonitor("hits", DataSourceType.COUNTER, () -> Long.valueOf(hits.sum()));
+        registerMonitor("expirations", DataSourceType.COUNTER, () -> Long.valueOf(cache.getExpirationCount()));
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final Transcoder<?> tc;
+
+        Entry(Object value, Transcoder<?> tc) {
+            this.value = value;
+            this.tc = tc;
+        }
+    }
+}
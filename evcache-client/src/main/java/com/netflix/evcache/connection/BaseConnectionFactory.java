@@ -13,6 +13,7 @@ import java.util.concurrent.ExecutorService;
 import com.netflix.config.ChainedDynamicProperty;
 import com.netflix.config.DynamicIntProperty;
 import com.netflix.evcache.EVCacheTranscoder;
+import com.netflix.evcache.pool.EVCacheBoundedLoadNodeLocator;
 import com.netflix.evcache.pool.EVCacheClientPoolManager;
 import com.netflix.evcache.pool.EVCacheKetamaNodeLocatorConfiguration;
 import com.netflix.evcache.pool.EVCacheNodeLocator;
@@ -44,7 +45,8 @@ public class BaseConnectionFactory extends BinaryConnectionFactory {
     protected final long startTime;
     protected final EVCacheClientPoolManager poolManager;
     protected final ChainedDynamicProperty.StringProperty failureMode;
-    
+    protected final ChainedDynamicProperty.BooleanProperty boundedLoad;
+
     BaseConnectionFactory(String appName, int len, DynamicIntProperty _operationTimeout, long opMaxBlockTime, int id,
             ServerGroup serverGroup, EVCacheClientPoolManager poolManager) {
         super(len, BinaryConnectionFactory.DEFAULT_READ_BUFFER_SIZE, DefaultHashAlgorithm.KETAMA_HASH);
@@ -56,12 +58,18 @@ public class BaseConnectionFactory extends BinaryConnectionFactory {
         this.poolManager = poolManager;
         this.startTime = System.currentTimeMillis();
         this.failureMode = EVCacheConfig.getInstance().getChainedStringProperty(this.serverGroup.getName() + ".failure.mode", appName + ".failure.mode", "Retry", null);
+        this.boundedLoad = EVCacheConfig.getInstance().getChainedBooleanProperty("EVCacheNodeLocator." + appName + "." + serverGroup.getName() + ".bounded.load",
+                "EVCacheNodeLocator." + appName + ".bounded.load", Boolean.FALSE, null);
         this.name = appName + "-" + serverGroup.getName() + "-" + id;
     }
 
     public NodeLocator createLocator(List<MemcachedNode> list) {
-        this.locator = new EVCacheNodeLocator(appName, serverGroup, list, DefaultHashAlgorithm.KETAMA_HASH,
-                new EVCacheKetamaNodeLocatorConfiguration(appName, serverGroup, poolManager));
+        final EVCacheKetamaNodeLocatorConfiguration conf = new EVCacheKetamaNodeLocatorConfiguration(appName, serverGroup, poolManager);
+        if (boundedLoad.get()) {
+            this.locator = new EVCacheBoundedLoadNodeLocator(appName, serverGroup, list, DefaultHashAlgorithm.KETAMA_HASH, conf);
+        } else {
+            this.locator = new EVCacheNodeLocator(appName, serverGroup, list, DefaultHashAlgorithm.KETAMA_HASH, conf);
+        }
         return locator;
     }
 
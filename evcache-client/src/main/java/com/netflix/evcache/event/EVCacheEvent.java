@@ -26,6 +26,7 @@ public class EVCacheEvent {
     private CachedData cachedData = null;
 
     private Map<Object, Object> data;
+    private EVCacheEventListener[] listeners;
 
     public EVCacheEvent(Call call, String appName, String cacheName, EVCacheClientPool pool) {
         super();
@@ -91,6 +92,18 @@ public class EVCacheEvent {
         this.clients = clients;
     }
 
+    /**
+     * @return the listeners this event is dispatched to, or null if it was not
+     *         created by the client
+     */
+    public EVCacheEventListener[] getListeners() {
+        return listeners;
+    }
+
+    public void setListeners(EVCacheEventListener[] listeners) {
+        this.listeners = listeners;
+    }
+
     public void setAttribute(Object key, Object value) {
         if (data == null) data = new HashMap<Object, Object>();
         data.put(key, value);
@@ -2,6 +2,7 @@ package com.netflix.evcache.event;
 
 import java.util.EventListener;
 
+import com.netflix.evcache.EVCache.Call;
 import com.netflix.evcache.EVCacheException;
 
 public interface EVCacheEventListener extends EventListener {
@@ -13,4 +14,24 @@ public interface EVCacheEventListener extends EventListener {
     void onError(EVCacheEvent e, Throwable t);
 
     boolean onThrottle(EVCacheEvent e) throws EVCacheException;
-}
\ No newline at end of file
+
+    /**
+     * Tells if this listener wants the events of the given app and call. The
+     * answer is resolved once per app and call and cached, so a listener whose
+     * answer changes has to call
+     * {@link com.netflix.evcache.pool.EVCacheClientPoolManager#refreshEVCacheEventListeners()}.
+     * No event is created for a call that no listener wants.
+     */
+    default boolean isEnabled(String appName, Call call) {
+        return true;
+    }
+
+    /**
+     * Tells if this listener is fine with only seeing a sample of the events,
+     * as set by <code>&lt;appName&gt;.events.sample.percent</code>. A listener
+     * that throttles or counts every request must not be sampled.
+     */
+    default boolean canBeSampled() {
+        return false;
+    }
+}
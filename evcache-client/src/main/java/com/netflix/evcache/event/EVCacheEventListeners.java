@@ -0,0 +1,84 @@
+package com.netflix.evcache.event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.netflix.config.DynamicIntProperty;
+import com.netflix.evcache.EVCache.Call;
+import com.netflix.evcache.util.EVCacheConfig;
+
+/**
+ * The event listeners of an app, resolved by {@link Call} when it is created
+ * so that picking the listeners of an operation is an array lookup.
+ *
+ * Listeners that can be sampled only see
+ * <code>&lt;appName&gt;.events.sample.percent</code> (default 100) of the
+ * events. A call that no listener wants has no listeners, so no event is
+ * created for it.
+ *
+ * An instance is replaced when the listeners change; it is marked stale so
+ * that callers who hold on to it know to fetch the new one.
+ */
+public final class EVCacheEventListeners {
+
+    private static final EVCacheEventListener[] NONE = new EVCacheEventListener[0];
+
+    private final String appName;
+    /** all listeners by call, null if there are none */
+    private final EVCacheEventListener[][] all;
+    /** the listeners by call that can't be sampled, null if all can't */
+    private final EVCacheEventListener[][] unsampled;
+    private final DynamicIntProperty samplePercent;
+    private volatile boolean stale = false;
+
+    public EVCacheEventListeners(String appName, Collection<EVCacheEventListener> listeners) {
+        this.appName = appName;
+        this.samplePercent = EVCacheConfig.getInstance().getDynamicIntProperty(appName + ".events.sample.percent", 100);
+        final Call[] calls = Call.values();
+        this.all = new EVCacheEventListener[calls.length][];
+        final EVCacheEventListener[][] notSampled = new EVCacheEventListener[calls.length][];
+        boolean sampled = false;
+        for (Call call : calls) {
+            final List<EVCacheEventListener> enabled = new ArrayList<EVCacheEventListener>();
+            final List<EVCacheEventListener> enabledNotSampled = new ArrayList<EVCacheEventListener>();
+            for (EVCacheEventListener listener : listeners) {
+                if (!listener.isEnabled(appName, call)) continue;
+                enabled.add(listener);
+                if (listener.canBeSampled()) {
+                    sampled = true;
+                } else {
+                    enabledNotSampled.add(listener);
+                }
+            }
+            if (!enabled.isEmpty()) all[call.ordinal()] = enabled.toArray(NONE);
+            if (!enabledNotSampled.isEmpty()) notSampled[call.ordinal()] = enabledNotSampled.toArray(NONE);
+        }
+        this.unsampled = sampled ? notSampled : null;
+    }
+
+    /**
+     * @return the listeners for an operation of the given call, or null if
+     *         there are none or the operation is not sampled
+     */
+    public EVCacheEventListener[] select(Call call) {
+        final EVCacheEventListener[] listeners = all[call.ordinal()];
+        if (listeners == null || unsampled == null) return listeners;
+        final int percent = samplePercent.get();
+        if (percent >= 100 || ThreadLocalRandom.current().nextInt(100) < percent) return listeners;
+        return unsampled[call.ordinal()];
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void markStale() {
+        this.stale = true;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+}
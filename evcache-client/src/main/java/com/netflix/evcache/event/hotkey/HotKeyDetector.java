@@ -0,0 +1,254 @@
+package com.netflix.evcache.event.hotkey;
+
+import java.lang.management.ManagementFactory;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.netflix.config.DynamicIntProperty;
+import com.netflix.evcache.metrics.EVCacheMetricsFactory;
+import com.netflix.evcache.util.EVCacheConfig;
+import com.netflix.servo.tag.BasicTagList;
+import com.netflix.servo.tag.TagList;
+
+/**
+ * Finds the most requested keys of an app and cache in a stream of keys.
+ *
+ * <p>
+ * Every key is counted in a Count-Min Sketch, which never under counts a key
+ * and over counts it by a small fraction of the total. The keys with the
+ * highest estimates are tracked Space-Saving style: a key that is not tracked
+ * yet replaces the tracked key with the lowest estimate once its own estimate
+ * is higher. Counting a key is a few atomic increments; only a key that
+ * enters the top keys takes a lock.
+ * </p>
+ * <p>
+ * All counts are halved at the end of every window, so a key that stops being
+ * requested leaves the top keys after a few windows.
+ * </p>
+ * The following properties are read when the detector is created:
+ * <ul>
+ * <li><code>&lt;appName&gt;.hot.key.window.ms</code> - the length of a window (default 10000)</li>
+ * <li><code>&lt;appName&gt;.hot.key.top.size</code> - the number of top keys to track (default 20)</li>
+ * <li><code>&lt;appName&gt;.hot.key.sketch.width</code> - the counters per row of the sketch, rounded up to a power of 2 (default 1024)</li>
+ * </ul>
+ */
+public class HotKeyDetector implements HotKeyDetectorMBean {
+
+    private static final Logger log = LoggerFactory.getLogger(HotKeyDetector.class);
+    private static final int DEPTH = 4;
+
+    private final String appName;
+    private final String cacheName;
+    private final int width;
+    private final int mask;
+    private final AtomicLongArray counts;
+    private final DynamicIntProperty windowMillis;
+    private final DynamicIntProperty topSize;
+    private final AtomicLong windowEnd;
+    private final TagList tags;
+
+    /** the tracked keys; the counts are looked up in the sketch */
+    private final Map<String, Boolean> topKeys = new ConcurrentHashMap<String, Boolean>();
+    /** the lowest estimate of the tracked keys once all slots are taken */
+    private volatile long topMin = 0;
+
+    public HotKeyDetector(String appName, String cacheName) {
+        this.appName = appName;
+        this.cacheName = cacheName;
+        final EVCacheConfig config = EVCacheConfig.getInstance();
+        final int sketchWidth = Math.max(16, config.getDynamicIntProperty(appName + ".hot.key.sketch.width", 1024).get());
+        this.width = Integer.highestOneBit(sketchWidth - 1) << 1;
+        this.mask = width - 1;
+        this.counts = new AtomicLongArray(DEPTH * width);
+        this.windowMillis = config.getDynamicIntProperty(appName + ".hot.key.window.ms", 10000);
+        this.topSize = config.getDynamicIntProperty(appName + ".hot.key.top.size", 20);
+        this.windowEnd = new AtomicLong(System.currentTimeMillis() + windowMillis.get());
+        this.tags = BasicTagList.of("APP", appName, "CACHE", cacheName == null ? "NA" : cacheName);
+        setupMonitoring();
+    }
+
+    private void setupMonitoring() {
+        try {
+            final ObjectName mBeanName = ObjectName.getInstance("com.netflix.evcache:Group=" + appName
+                    + ",SubGroup=hotkeys" + (cacheName == null ? "" : ",Cache=" + ObjectName.quote(cacheName)));
+            final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (mbeanServer.isRegistered(mBeanName)) {
+                mbeanServer.unregisterMBean(mBeanName);
+            }
+            mbeanServer.registerMBean(this, mBeanName);
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) log.debug("Exception", e);
+        }
+    }
+
+    /**
+     * Counts one request for the given key.
+     *
+     * @return the estimated requests for the key in the current window
+     */
+    public long record(String key) {
+        rollWindow();
+        final int h1 = key.hashCode();
+        final int h2 = mix(h1);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            final long count = counts.incrementAndGet(row * width + ((h1 + row * h2) & mask));
+            if (count < estimate) estimate = count;
+        }
+        if (estimate > topMin && !topKeys.containsKey(key)) offer(key, estimate);
+        return estimate;
+    }
+
+    /**
+     * @return the estimated requests for the given key in the current window
+     */
+    public long estimate(String key) {
+        final int h1 = key.hashCode();
+        final int h2 = mix(h1);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            final long count = counts.get(row * width + ((h1 + row * h2) & mask));
+            if (count < estimate) estimate = count;
+        }
+        return estimate;
+    }
+
+    /**
+     * @return true if the key is one of the top keys
+     */
+    public boolean isTopKey(String key) {
+        return topKeys.containsKey(key);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+
+    private synchronized void offer(String key, long estimate) {
+        if (topKeys.containsKey(key)) return;
+        final int size = topSize.get();
+        if (topKeys.size() >= size) {
+            String minKey = null;
+            long min = Long.MAX_VALUE;
+            for (String topKey : topKeys.keySet()) {
+                final long count = estimate(topKey);
+                if (count < min) {
+                    min = count;
+                    minKey = topKey;
+                }
+            }
+            if (estimate <= min) {
+                topMin = min;
+                return;
+            }
+            topKeys.remove(minKey);
+        }
+        topKeys.put(key, Boolean.TRUE);
+        if (topKeys.size() >= size) updateTopMin();
+    }
+
+    private void updateTopMin() {
+        long min = Long.MAX_VALUE;
+        for (String topKey : topKeys.keySet()) {
+            min = Math.min(min, estimate(topKey));
+        }
+        topMin = (min == Long.MAX_VALUE) ? 0 : min;
+    }
+
+    private void rollWindow() {
+        final long end = windowEnd.get();
+        final long now = System.currentTimeMillis();
+        if (now < end || !windowEnd.compareAndSet(end, now + windowMillis.get())) return;
+        decay();
+    }
+
+    /*
+     * Keys that are counted while the counters are halved end up in either
+     * window, which is fine for an estimate.
+     */
+    private synchronized void decay() {
+        long max = 0;
+        for (String topKey : topKeys.keySet()) {
+            max = Math.max(max, estimate(topKey));
+        }
+        EVCacheMetricsFactory.getLongGauge("EVCacheHotKeys-TopCount", tags).set(Long.valueOf(max));
+
+        for (int i = 0; i < counts.length(); i++) {
+            long count;
+            do {
+                count = counts.get(i);
+            } while (count != 0 && !counts.compareAndSet(i, count, count >> 1));
+        }
+        for (String topKey : topKeys.keySet()) {
+            if (estimate(topKey) == 0) topKeys.remove(topKey);
+        }
+        if (topKeys.size() >= topSize.get()) {
+            updateTopMin();
+        } else {
+            topMin = 0;
+        }
+        if (log.isDebugEnabled()) log.debug("Hot keys of " + appName + (cacheName == null ? "" : ":" + cacheName) + " : " + getTopKeys());
+    }
+
+    /**
+     * @return the top keys and their estimated requests in the current window,
+     *         the most requested first
+     */
+    public Map<String, Long> getTopKeys() {
+        final List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(topKeys.size());
+        for (String topKey : topKeys.keySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<String, Long>(topKey, Long.valueOf(estimate(topKey))));
+        }
+        Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2) {
+                return e2.getValue().compareTo(e1.getValue());
+            }
+        });
+        final Map<String, Long> sorted = new LinkedHashMap<String, Long>();
+        for (Map.Entry<String, Long> entry : entries) {
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        return sorted;
+    }
+
+    public int getTopKeySize() {
+        return topKeys.size();
+    }
+
+    public long getWindowMillis() {
+        return windowMillis.get();
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    @Override
+    public String toString() {
+        return "HotKeyDetector [appName=" + appName + ", cacheName=" + cacheName + ", width=" + width + ", topKeys=" + topKeys.keySet() + "]";
+    }
+}
@@ -0,0 +1,12 @@
+package com.netflix.evcache.event.hotkey;
+
+import java.util.Map;
+
+public interface HotKeyDetectorMBean {
+
+    Map<String, Long> getTopKeys();
+
+    int getTopKeySize();
+
+    long getWindowMillis();
+}
@@ -2,18 +2,16 @@ package com.netflix.evcache.event.hotkey;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.netflix.config.DynamicBooleanProperty;
 import com.netflix.config.DynamicIntProperty;
 import com.netflix.config.DynamicStringSetProperty;
+import com.netflix.evcache.EVCache.Call;
 import com.netflix.evcache.event.EVCacheEvent;
 import com.netflix.evcache.event.EVCacheEventListener;
 import com.netflix.evcache.pool.EVCacheClientPoolManager;
@@ -34,9 +32,9 @@ import com.netflix.evcache.util.EVCacheConfig;
  *      This will throttle all operations for keys key1 and key2
  * 
  * </li><li>Another option is to dynamically figure based on metrics if a key is having a lot of operations. 
- *    At the start of every operation we add the key to an internal cache for a duration specified by <code>EVCacheThrottler.< evcache appName>.inmemory.expire.after.write.duration.ms</code> (default is 10 seconds).
- *    If a key appears again within this duration we increment the value and release the key for <code>EVCacheThrottler.< evcache appName>.inmemory.expire.after.access.duration.ms</code> (default is 10 seconds).
- *    Once the key count crosses <code>EVCacheThrottler.< evcache appName>.throttle.value</code> (default is 3) then the key will be throttled. YMMV so tune this based on your evcache app and client requests.
+ *    When <code>EVCacheThrottler.&lt;evcache appName&gt;.throttle.hot.keys</code> is true every key is counted by the {@link HotKeyDetector} of the app and cache.
+ *    Once the estimated requests for a key in the current window of the detector cross <code>EVCacheThrottler.&lt;evcache appName&gt;.throttle.hot.key.count</code> (default is 1000) then the key will be throttled.
+ *    YMMV so tune this based on your evcache app, client requests and <code>&lt;evcache appName&gt;.hot.key.window.ms</code>.
  *    </li>
  *
  * @author smadappa
@@ -47,19 +45,25 @@ public class HotKeyListener implements EVCacheEventListener {
 
     private static final Logger log = LoggerFactory.getLogger(HotKeyListener.class);
     private final Map<String, DynamicBooleanProperty> throttleMap;
-    private final Map<String, Cache<String, Integer>> cacheMap;
-    private final Integer START_VAL = Integer.valueOf(1);
     private final DynamicBooleanProperty enableThrottleHotKeys;
     private final EVCacheClientPoolManager poolManager;
     private final Map<String, DynamicStringSetProperty> throttleKeysMap;
+    private final Map<String, DynamicIntProperty> throttleCountMap;
+    /* resolves the listeners again when a property that decides if this listener takes part in the calls of an app changes */
+    private final Runnable refreshListeners = new Runnable() {
+        @Override
+        public void run() {
+            poolManager.refreshEVCacheEventListeners();
+        }
+    };
 
     @Inject 
     public HotKeyListener(EVCacheClientPoolManager poolManager) {
         this.poolManager = poolManager;
         this.throttleKeysMap = new ConcurrentHashMap<String, DynamicStringSetProperty>();
+        this.throttleCountMap = new ConcurrentHashMap<String, DynamicIntProperty>();
 
         this.throttleMap = new ConcurrentHashMap<String, DynamicBooleanProperty>();
-        cacheMap = new ConcurrentHashMap<String, Cache<String, Integer>>();
         enableThrottleHotKeys = EVCacheConfig.getInstance().getDynamicBooleanProperty("EVCacheThrottler.throttle.hot.keys", false);
         enableThrottleHotKeys.addCallback(new Runnable() {
             @Override
@@ -75,58 +79,51 @@ public class HotKeyListener implements EVCacheEventListener {
             poolManager.addEVCacheEventListener(this);
         } else {
             poolManager.removeEVCacheEventListener(this);
-            for(Cache<String, Integer> cache : cacheMap.values()) {
-                cache.invalidateAll();
-            }
         }
     }
 
-    private Cache<String, Integer> getCache(String appName) {
+    private DynamicBooleanProperty getThrottleFlag(String appName) {
+        return throttleMap.computeIfAbsent(appName, app -> {
+            final DynamicBooleanProperty throttleFlag = EVCacheConfig.getInstance().getDynamicBooleanProperty("EVCacheThrottler." + app + ".throttle.hot.keys", false);
+            throttleFlag.addCallback(refreshListeners);
+            return throttleFlag;
+        });
+    }
+
+    private DynamicStringSetProperty getThrottleKeys(String appName) {
+        return throttleKeysMap.computeIfAbsent(appName, app -> {
+            final DynamicStringSetProperty throttleKeysSet = new DynamicStringSetProperty(app + ".throttle.keys", ""); //keys without the cache prefix
+            throttleKeysSet.addCallback(refreshListeners);
+            return throttleKeysSet;
+        });
+    }
 
-        DynamicBooleanProperty throttleFlag = throttleMap.get(appName);
-        if(throttleFlag == null) {
-            throttleFlag = EVCacheConfig.getInstance().getDynamicBooleanProperty("EVCacheThrottler." + appName + ".throttle.hot.keys", false);
-            throttleMap.put(appName, throttleFlag);
-        }
+    @Override
+    public boolean isEnabled(String appName, Call call) {
+        return enableThrottleHotKeys.get() && (getThrottleFlag(appName).get() || getThrottleKeys(appName).get().size() > 0);
+    }
+
+    private HotKeyDetector getDetector(EVCacheEvent e) {
+        final String appName = e.getAppName();
+        final DynamicBooleanProperty throttleFlag = getThrottleFlag(appName);
         if(log.isDebugEnabled()) log.debug("Throttle hot keys : " + throttleFlag);
 
         if(!throttleFlag.get()) {
             return null;
         }
-
-        Cache<String, Integer> cache = cacheMap.get(appName);
-        if(cache != null) return cache; 
-
-        final DynamicIntProperty _cacheDuration = EVCacheConfig.getInstance().getDynamicIntProperty("EVCacheThrottler." + appName + ".inmemory.expire.after.write.duration.ms", 10000);
-        final DynamicIntProperty _exireAfterAccessDuration = EVCacheConfig.getInstance().getDynamicIntProperty("EVCacheThrottler." + appName + ".inmemory.expire.after.access.duration.ms", 10000);
-        final DynamicIntProperty _cacheSize = EVCacheConfig.getInstance().getDynamicIntProperty("EVCacheThrottler." + appName + ".inmemory.cache.size", 100);
-
-        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
-        if(_cacheSize.get() > 0) {
-            builder = builder.maximumSize(_cacheSize.get());
-        }
-        if(_exireAfterAccessDuration.get() > 0) {
-            builder = builder.expireAfterAccess(_exireAfterAccessDuration.get(), TimeUnit.MILLISECONDS);
-        } else if(_cacheDuration.get() > 0) {
-            builder = builder.expireAfterWrite(_cacheDuration.get(), TimeUnit.MILLISECONDS);
-        }  
-        cache = builder.build();
-        cacheMap.put(appName, cache);
-        return cache;
+        return poolManager.getHotKeyDetector(appName, e.getCacheName());
     }
 
     public void onStart(final EVCacheEvent e) {
         if(!enableThrottleHotKeys.get()) return;
 
-        final Cache<String, Integer> cache = getCache(e.getAppName());
-        if(cache == null) return;
+        final HotKeyDetector detector = getDetector(e);
+        if(detector == null) return;
+        // EVCacheImpl counts the gets when they are spread or go through the hot key cache
+        if(e.getCall() == Call.GET && e.getEVCacheClientPool().isHotKeySpreadEnabled()) return;
+        if((e.getCall() == Call.GET || e.getCall() == Call.BULK) && poolManager.getHotKeyCache(e.getAppName(), e.getCacheName()).isEnabled()) return;
         for(String key : e.getKeys()) {
-            Integer val = cache.getIfPresent(key);
-            if(val == null) {
-                cache.put(key, START_VAL);
-            } else {
-                cache.put(key, Integer.valueOf(val.intValue() + 1));
-            }
+            detector.record(key);
         }
     }
 
@@ -135,10 +132,7 @@ public class HotKeyListener implements EVCacheEventListener {
         if(!enableThrottleHotKeys.get()) return false;
 
         final String appName = e.getAppName();
-        DynamicStringSetProperty throttleKeysSet = throttleKeysMap.get(appName);
-        if(throttleKeysSet == null) {
-            throttleKeysSet = new DynamicStringSetProperty(appName + ".throttle.keys", ""); //keys without the cache prefix
-        }
+        final DynamicStringSetProperty throttleKeysSet = getThrottleKeys(appName);
         if(throttleKeysSet.get().size() > 0) {
             if(log.isDebugEnabled()) log.debug("Throttle : " + throttleKeysSet);
             for(String key : e.getKeys()) {
@@ -149,14 +143,18 @@ public class HotKeyListener implements EVCacheEventListener {
             }
         }
 
-        final Cache<String, Integer> cache = getCache(appName);
-        if(cache == null) return false;
+        final HotKeyDetector detector = getDetector(e);
+        if(detector == null) return false;
 
-        final DynamicIntProperty _throttleVal = EVCacheConfig.getInstance().getDynamicIntProperty("EVCacheThrottler." + appName + ".throttle.value", 3);
+        DynamicIntProperty _throttleCount = throttleCountMap.get(appName);
+        if(_throttleCount == null) {
+            _throttleCount = EVCacheConfig.getInstance().getDynamicIntProperty("EVCacheThrottler." + appName + ".throttle.hot.key.count", 1000);
+            throttleCountMap.put(appName, _throttleCount);
+        }
         for(String key : e.getKeys()) {
-            Integer val = cache.getIfPresent(key);
-            if(val.intValue() > _throttleVal.get()) {
-                if(log.isDebugEnabled()) log.debug("Key : " + key + " has exceeded " + _throttleVal.get() + ". Will throttle this request");
+            final long count = detector.estimate(key);
+            if(count > _throttleCount.get()) {
+                if(log.isDebugEnabled()) log.debug("Key : " + key + " has " + count + " requests, more than " + _throttleCount.get() + ". Will throttle this request");
                 return true;
             }
         }
@@ -164,38 +162,16 @@ public class HotKeyListener implements EVCacheEventListener {
     }
 
     public void onComplete(EVCacheEvent e) {
-        if(!enableThrottleHotKeys.get()) return;
-        final String appName = e.getAppName();
-        final Cache<String, Integer> cache = getCache(appName);
-        if(cache == null) return;
-
-        for(String key : e.getKeys()) {
-            Integer val = cache.getIfPresent(key);
-            if(val != null) {
-                cache.put(key, Integer.valueOf(val.intValue() - 1));
-            }
-        }
     }
 
     public void onError(EVCacheEvent e, Throwable t) {
-        if(!enableThrottleHotKeys.get()) return;
-        final String appName = e.getAppName();
-        final Cache<String, Integer> cache = getCache(appName);
-        if(cache == null) return;
-
-        for(String key : e.getKeys()) {
-            Integer val = cache.getIfPresent(key);
-            if(val != null) {
-                cache.put(key, Integer.valueOf(val.intValue() - 1));
-            }
-        }
     }
 
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((cacheMap == null) ? 0 : cacheMap.hashCode());
+        result = prime * result + ((throttleCountMap == null) ? 0 : throttleCountMap.hashCode());
         result = prime * result + ((throttleMap == null) ? 0 : throttleMap.hashCode());
         return result;
     }
@@ -209,10 +185,10 @@ public class HotKeyListener implements EVCacheEventListener {
         if (getClass() != obj.getClass())
             return false;
         HotKeyListener other = (HotKeyListener) obj;
-        if (cacheMap == null) {
-            if (other.cacheMap != null)
+        if (throttleCountMap == null) {
+            if (other.throttleCountMap != null)
                 return false;
-        } else if (!cacheMap.equals(other.cacheMap))
+        } else if (!throttleCountMap.equals(other.throttleCountMap))
             return false;
         if (throttleMap == null) {
             if (other.throttleMap != null)
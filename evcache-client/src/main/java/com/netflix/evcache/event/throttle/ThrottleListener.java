@@ -1,6 +1,7 @@
 package com.netflix.evcache.event.throttle;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
@@ -64,17 +65,34 @@ public class ThrottleListener implements EVCacheEventListener {
     public void onStart(final EVCacheEvent e) {
     }
 
+    /*
+     * The listener only takes part in the calls that are throttled, which are
+     * resolved again whenever the throttled calls of the app change.
+     */
+    private DynamicStringSetProperty getThrottleCalls(String appName) {
+        return _ignoreOperationsMap.computeIfAbsent(appName, app -> {
+            final DynamicStringSetProperty throttleCalls = new DynamicStringSetProperty(app + ".throttle.calls", "");
+            throttleCalls.addCallback(new Runnable() {
+                @Override
+                public void run() {
+                    poolManager.refreshEVCacheEventListeners();
+                }
+            });
+            return throttleCalls;
+        });
+    }
+
+    @Override
+    public boolean isEnabled(String appName, Call call) {
+        return enableThrottleOperations.get() && getThrottleCalls(appName).get().contains(call.name());
+    }
+
     @Override
     public boolean onThrottle(final EVCacheEvent e) {
         if(!enableThrottleOperations.get()) return false;
 
-        final String appName = e.getAppName();
-        DynamicStringSetProperty throttleCalls = _ignoreOperationsMap.get(appName);
-        if(throttleCalls == null) {
-            throttleCalls = new DynamicStringSetProperty(appName + ".throttle.calls", "");
-            _ignoreOperationsMap.put(appName, throttleCalls );
-        }
-        if(throttleCalls.get().size() > 0 && throttleCalls.get().contains(e.getCall().name())) {
+        final Set<String> throttleCalls = getThrottleCalls(e.getAppName()).get();
+        if(throttleCalls.size() > 0 && throttleCalls.contains(e.getCall().name())) {
             if(log.isDebugEnabled()) log.debug("Call : " + e.getCall() + " is throttled");
             return true;
         }
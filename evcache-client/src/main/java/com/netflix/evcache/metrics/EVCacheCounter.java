@@ -0,0 +1,54 @@
+package com.netflix.evcache.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.netflix.servo.monitor.AbstractMonitor;
+import com.netflix.servo.monitor.Counter;
+import com.netflix.servo.monitor.MonitorConfig;
+
+/**
+ * A counter that is backed by a {@link LongAdder} instead of a single atomic
+ * long, so threads that count the same metric at the same time don't contend
+ * on one cache line. Reading the value sums the cells, which only the
+ * pollers do.
+ */
+public final class EVCacheCounter extends AbstractMonitor<Number> implements Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    public EVCacheCounter(MonitorConfig config) {
+        super(config);
+    }
+
+    @Override
+    public void increment() {
+        count.increment();
+    }
+
+    @Override
+    public void increment(long amount) {
+        count.add(amount);
+    }
+
+    @Override
+    public Number getValue(int pollerIndex) {
+        return Long.valueOf(count.sum());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof EVCacheCounter)) return false;
+        return config.equals(((EVCacheCounter) obj).config);
+    }
+
+    @Override
+    public int hashCode() {
+        return config.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "EVCacheCounter [config=" + config + ", count=" + count.sum() + "]";
+    }
+}
@@ -0,0 +1,19 @@
+package com.netflix.evcache.metrics;
+
+import java.util.List;
+
+/**
+ * Receives the latencies of every app at the end of each interval. Exporters
+ * are added with {@link EVCacheLatencyMetrics#addExporter(EVCacheLatencyExporter)}
+ * and are called one after the other on a single thread, so an exporter that
+ * sends the snapshots somewhere should not block for long.
+ */
+public interface EVCacheLatencyExporter {
+
+    /**
+     * @param appName the app the latencies belong to
+     * @param snapshots the latencies of the interval that just ended, only for
+     *        the histograms that recorded something
+     */
+    void export(String appName, List<EVCacheLatencySnapshot> snapshots);
+}
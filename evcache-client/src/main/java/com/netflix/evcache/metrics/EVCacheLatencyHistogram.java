@@ -0,0 +1,123 @@
+package com.netflix.evcache.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.netflix.evcache.EVCache.Call;
+
+/**
+ * A histogram of latencies in microseconds with a bounded relative error, laid
+ * out like an HdrHistogram. Every latency below 64 microseconds has its own
+ * bucket; above that every power of two is split into 32 buckets, so a
+ * latency is counted within about 3% of its value. Latencies above
+ * {@link #MAX_MICROS} are counted in the last bucket.
+ *
+ * Recording increments one bucket and a sum without taking a lock. The counts
+ * only grow; {@link #snapshot()} returns what was recorded since the previous
+ * snapshot.
+ *
+ * A histogram belongs to an app, a server group and a node, either of which is
+ * null for the latencies of the app or of the server group as a whole.
+ */
+public final class EVCacheLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** about 67 seconds */
+    public static final long MAX_MICROS = (1L << 26) - 1;
+    static final int BUCKETS = index(MAX_MICROS) + 1;
+
+    private final String appName;
+    private final String serverGroup;
+    private final String node;
+    private final Call call;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+
+    /* the totals at the previous snapshot, guarded by this */
+    private long[] previousCounts = new long[BUCKETS];
+    private long previousSum = 0;
+    private long previousTime = System.currentTimeMillis();
+
+    public EVCacheLatencyHistogram(String appName, String serverGroup, String node, Call call) {
+        this.appName = appName;
+        this.serverGroup = serverGroup;
+        this.node = node;
+        this.call = call;
+    }
+
+    static int index(long micros) {
+        if (micros <= 0) return 0;
+        if (micros > MAX_MICROS) micros = MAX_MICROS;
+        final int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (micros >>> shift);
+    }
+
+    /**
+     * @return the lowest latency that is counted in the given bucket
+     */
+    static long lowestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) return index;
+        final int shift = (index >> SUB_BUCKET_BITS) - 1;
+        return (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+    }
+
+    /**
+     * @return the highest latency that is counted in the given bucket
+     */
+    static long highestValue(int index) {
+        return lowestValue(index + 1) - 1;
+    }
+
+    public void record(long micros) {
+        counts.incrementAndGet(index(micros));
+        sum.add(micros);
+    }
+
+    /**
+     * @return the latencies recorded since the previous snapshot
+     */
+    public synchronized EVCacheLatencySnapshot snapshot() {
+        final long now = System.currentTimeMillis();
+        final long[] current = new long[BUCKETS];
+        final long[] interval = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            current[i] = counts.get(i);
+            interval[i] = current[i] - previousCounts[i];
+        }
+        final long currentSum = sum.sum();
+        final EVCacheLatencySnapshot snapshot = new EVCacheLatencySnapshot(this, previousTime, now, interval, currentSum - previousSum);
+        previousCounts = current;
+        previousSum = currentSum;
+        previousTime = now;
+        return snapshot;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public String getServerGroup() {
+        return serverGroup;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public Call getCall() {
+        return call;
+    }
+
+    /**
+     * @return the server group, node and call separated by a /
+     */
+    public String getName() {
+        return (serverGroup == null ? "" : serverGroup + "/") + (node == null ? "" : node + "/") + call.name();
+    }
+
+    @Override
+    public String toString() {
+        return "EVCacheLatencyHistogram [appName=" + appName + ", name=" + getName() + "]";
+    }
+}
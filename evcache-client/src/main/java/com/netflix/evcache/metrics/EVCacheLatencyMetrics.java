@@ -0,0 +1,187 @@
+package com.netflix.evcache.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.config.ChainedDynamicProperty;
+import com.netflix.config.DynamicLongProperty;
+import com.netflix.evcache.util.EVCacheConfig;
+
+/**
+ * The latency histograms of an app by server group, node and call.
+ *
+ * <p>
+ * At the end of every interval the histograms of all apps are snapshot; the
+ * snapshots are kept for JMX (<code>com.netflix.evcache:Group=&lt;appName&gt;,SubGroup=latency</code>)
+ * and handed to every {@link EVCacheLatencyExporter}.
+ * </p>
+ * The following properties are used:
+ * <ul>
+ * <li><code>&lt;appName&gt;.latency.histograms.enabled</code>, falling back to
+ * <code>evcache.latency.histograms.enabled</code> - record latencies (default true)</li>
+ * <li><code>evcache.latency.interval.ms</code> - the length of an interval (default 60000)</li>
+ * </ul>
+ */
+public final class EVCacheLatencyMetrics implements EVCacheLatencyMetricsMBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EVCacheLatencyMetrics.class);
+
+    private static final Map<String, EVCacheLatencyMetrics> instances = new ConcurrentHashMap<String, EVCacheLatencyMetrics>();
+    private static final List<EVCacheLatencyExporter> exporters = new CopyOnWriteArrayList<EVCacheLatencyExporter>();
+    private static final DynamicLongProperty intervalMillis = EVCacheConfig.getInstance().getDynamicLongProperty("evcache.latency.interval.ms", 60000);
+    private static ScheduledExecutorService scheduler;
+
+    private final String appName;
+    private final ChainedDynamicProperty.BooleanProperty enabled;
+    private final Map<String, EVCacheLatencyRecorder> recorders = new ConcurrentHashMap<String, EVCacheLatencyRecorder>();
+    private volatile List<EVCacheLatencySnapshot> lastSnapshots = Collections.emptyList();
+
+    private EVCacheLatencyMetrics(String appName) {
+        this.appName = appName;
+        this.enabled = EVCacheConfig.getInstance().getChainedBooleanProperty(appName + ".latency.histograms.enabled", "evcache.latency.histograms.enabled", Boolean.TRUE, null);
+        setupMonitoring();
+    }
+
+    public static EVCacheLatencyMetrics getInstance(String appName) {
+        EVCacheLatencyMetrics metrics = instances.get(appName);
+        if (metrics != null) return metrics;
+        synchronized (instances) {
+            metrics = instances.computeIfAbsent(appName, EVCacheLatencyMetrics::new);
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("EVCacheLatencyMetrics-%d").build());
+                scheduleSnapshot();
+            }
+        }
+        return metrics;
+    }
+
+    private static void scheduleSnapshot() {
+        scheduler.schedule(() -> {
+            try {
+                snapshotAll();
+            } finally {
+                scheduleSnapshot();
+            }
+        }, Math.max(1000, intervalMillis.get()), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ends the current interval of every app and hands the snapshots to the
+     * exporters.
+     */
+    public static void snapshotAll() {
+        for (EVCacheLatencyMetrics metrics : instances.values()) {
+            final List<EVCacheLatencySnapshot> snapshots = metrics.snapshot();
+            for (EVCacheLatencyExporter exporter : exporters) {
+                try {
+                    exporter.export(metrics.appName, snapshots);
+                } catch (Exception e) {
+                    log.warn("Exception while exporting the latencies of " + metrics.appName + " to " + exporter, e);
+                }
+            }
+        }
+    }
+
+    public static void addExporter(EVCacheLatencyExporter exporter) {
+        if (exporter != null) exporters.add(exporter);
+    }
+
+    public static void removeExporter(EVCacheLatencyExporter exporter) {
+        exporters.remove(exporter);
+    }
+
+    private List<EVCacheLatencySnapshot> snapshot() {
+        final List<EVCacheLatencySnapshot> snapshots = new ArrayList<EVCacheLatencySnapshot>();
+        for (EVCacheLatencyRecorder recorder : recorders.values()) {
+            for (EVCacheLatencyHistogram histogram : recorder.getHistograms()) {
+                final EVCacheLatencySnapshot snapshot = histogram.snapshot();
+                if (snapshot.getCount() > 0) snapshots.add(snapshot);
+            }
+        }
+        lastSnapshots = Collections.unmodifiableList(snapshots);
+        return lastSnapshots;
+    }
+
+    /**
+     * @param serverGroup the server group, or null for the app
+     * @param node the node, or null for the server group or app
+     * @return the recorder of the given server group and node, shared by all
+     *         callers
+     */
+    public EVCacheLatencyRecorder getRecorder(String serverGroup, String node) {
+        final String key = (serverGroup == null ? "" : serverGroup) + "/" + (node == null ? "" : node);
+        return recorders.computeIfAbsent(key, k -> new EVCacheLatencyRecorder(this, serverGroup, node));
+    }
+
+    /**
+     * Stops reporting the latencies of the given server group and node, e.g.
+     * when the node is shut down.
+     */
+    public void removeRecorder(String serverGroup, String node) {
+        recorders.remove((serverGroup == null ? "" : serverGroup) + "/" + (node == null ? "" : node));
+    }
+
+    /**
+     * @return the snapshots of the previous interval
+     */
+    public List<EVCacheLatencySnapshot> getLastSnapshots() {
+        return lastSnapshots;
+    }
+
+    private void setupMonitoring() {
+        try {
+            final ObjectName mBeanName = ObjectName.getInstance("com.netflix.evcache:Group=" + appName + ",SubGroup=latency");
+            final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (mbeanServer.isRegistered(mBeanName)) {
+                mbeanServer.unregisterMBean(mBeanName);
+            }
+            mbeanServer.registerMBean(this, mBeanName);
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) log.debug("Exception", e);
+        }
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled.get();
+    }
+
+    @Override
+    public long getIntervalMillis() {
+        return intervalMillis.get();
+    }
+
+    @Override
+    public Map<String, String> getLatencies() {
+        final Map<String, String> latencies = new TreeMap<String, String>();
+        for (EVCacheLatencySnapshot snapshot : lastSnapshots) {
+            latencies.put(snapshot.getName(), snapshot.getSummary());
+        }
+        return latencies;
+    }
+
+    @Override
+    public String toString() {
+        return "EVCacheLatencyMetrics [appName=" + appName + ", recorders=" + recorders.keySet() + "]";
+    }
+}
@@ -0,0 +1,16 @@
+package com.netflix.evcache.metrics;
+
+import java.util.Map;
+
+public interface EVCacheLatencyMetricsMBean {
+
+    boolean isEnabled();
+
+    long getIntervalMillis();
+
+    /**
+     * @return the summary of the latencies in microseconds of the previous
+     *         interval by histogram name
+     */
+    Map<String, String> getLatencies();
+}
@@ -0,0 +1,69 @@
+package com.netflix.evcache.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.netflix.evcache.EVCache.Call;
+
+/**
+ * Records the latencies of an app, server group or node by {@link Call}. The
+ * histogram of a call is created the first time it records a latency.
+ */
+public final class EVCacheLatencyRecorder {
+
+    private final EVCacheLatencyMetrics metrics;
+    private final String serverGroup;
+    private final String node;
+    private final EVCacheLatencyHistogram[] histograms = new EVCacheLatencyHistogram[Call.values().length];
+
+    EVCacheLatencyRecorder(EVCacheLatencyMetrics metrics, String serverGroup, String node) {
+        this.metrics = metrics;
+        this.serverGroup = serverGroup;
+        this.node = node;
+    }
+
+    /**
+     * Records a latency in microseconds unless latency histograms are disabled
+     * for the app.
+     */
+    public void record(Call call, long micros) {
+        if (!metrics.isEnabled()) return;
+        getHistogram(call).record(micros);
+    }
+
+    public EVCacheLatencyHistogram getHistogram(Call call) {
+        EVCacheLatencyHistogram histogram = histograms[call.ordinal()];
+        if (histogram != null) return histogram;
+        synchronized (histograms) {
+            histogram = histograms[call.ordinal()];
+            if (histogram == null) {
+                histogram = new EVCacheLatencyHistogram(metrics.getAppName(), serverGroup, node, call);
+                histograms[call.ordinal()] = histogram;
+            }
+        }
+        return histogram;
+    }
+
+    List<EVCacheLatencyHistogram> getHistograms() {
+        final List<EVCacheLatencyHistogram> list = new ArrayList<EVCacheLatencyHistogram>();
+        synchronized (histograms) {
+            for (EVCacheLatencyHistogram histogram : histograms) {
+                if (histogram != null) list.add(histogram);
+            }
+        }
+        return list;
+    }
+
+    public String getServerGroup() {
+        return serverGroup;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    @Override
+    public String toString() {
+        return "EVCacheLatencyRecorder [appName=" + metrics.getAppName() + ", serverGroup=" + serverGroup + ", node=" + node + "]";
+    }
+}
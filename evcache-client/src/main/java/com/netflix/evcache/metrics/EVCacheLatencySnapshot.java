@@ -0,0 +1,124 @@
+package com.netflix.evcache.metrics;
+
+import com.netflix.evcache.EVCache.Call;
+
+/**
+ * The latencies in microseconds that a {@link EVCacheLatencyHistogram}
+ * recorded in an interval. Percentiles, the minimum and the maximum are the
+ * highest or lowest value of the bucket they fall in, so they are within
+ * about 3% of the recorded latency.
+ */
+public final class EVCacheLatencySnapshot {
+
+    private final EVCacheLatencyHistogram histogram;
+    private final long startTime;
+    private final long endTime;
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+
+    EVCacheLatencySnapshot(EVCacheLatencyHistogram histogram, long startTime, long endTime, long[] counts, long sum) {
+        this.histogram = histogram;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.counts = counts;
+        this.sum = sum;
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        this.count = total;
+    }
+
+    public String getAppName() {
+        return histogram.getAppName();
+    }
+
+    /**
+     * @return the server group, or null for the latencies of the app
+     */
+    public String getServerGroup() {
+        return histogram.getServerGroup();
+    }
+
+    /**
+     * @return the node, or null for the latencies of the server group or app
+     */
+    public String getNode() {
+        return histogram.getNode();
+    }
+
+    public Call getCall() {
+        return histogram.getCall();
+    }
+
+    public String getName() {
+        return histogram.getName();
+    }
+
+    /**
+     * @return the start of the interval in milliseconds since the epoch
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the end of the interval in milliseconds since the epoch
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    public long getMin() {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) return EVCacheLatencyHistogram.lowestValue(i);
+        }
+        return 0;
+    }
+
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) return EVCacheLatencyHistogram.highestValue(i);
+        }
+        return 0;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency that the given percentage of the calls did not
+     *         exceed, or 0 if there were no calls
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) return 0;
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return EVCacheLatencyHistogram.highestValue(i);
+        }
+        return getMax();
+    }
+
+    /**
+     * @return the count, mean, median, 90th, 99th and 99.9th percentile and
+     *         maximum in microseconds
+     */
+    public String getSummary() {
+        return "count=" + count + ", mean=" + Math.round(getMean()) + ", p50=" + getPercentile(50) + ", p90=" + getPercentile(90)
+                + ", p99=" + getPercentile(99) + ", p99.9=" + getPercentile(99.9) + ", max=" + getMax();
+    }
+
+    @Override
+    public String toString() {
+        return "EVCacheLatencySnapshot [appName=" + getAppName() + ", name=" + getName() + ", " + getSummary() + "]";
+    }
+}
@@ -20,10 +20,12 @@ public class EVCacheMetrics implements EVCacheMetricsMBean, Stats {
     private StepCounter getCallsCounter, bulkCallsCounter, bulkHitsCounter, getHitsCounter, setCallsCounter, addCallsCounter, replaceCallCounter, delCallsCounter, incrCounter, decrCounter;
     private StepCounter bulkMissCounter, getMissCounter;
     private StatsTimer getDuration, bulkDuration, appendOrAddDuration, appendDuration;
+    private final EVCacheLatencyRecorder latencyRecorder;
 
     EVCacheMetrics(final String appName, String _cacheName) {
         this.appName = appName;
         this.cacheName = (_cacheName == null) ? "" : _cacheName;
+        this.latencyRecorder = EVCacheLatencyMetrics.getInstance(appName).getRecorder(null, null);
 
         setupMonitoring(appName, cacheName);
     }
@@ -54,6 +56,10 @@ public class EVCacheMetrics implements EVCacheMetricsMBean, Stats {
         }
     }
 
+    public void operationLatency(Call op, long micros) {
+        latencyRecorder.record(op, micros);
+    }
+
     private void setupMonitoring(String _appName, String _cacheName) {
         try {
             String mBeanName = "com.netflix.evcache:Group=" + _appName + ",SubGroup=AtlasStats";
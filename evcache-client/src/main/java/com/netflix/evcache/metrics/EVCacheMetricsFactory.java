@@ -1,6 +1,5 @@
 package com.netflix.evcache.metrics;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -13,7 +12,6 @@ import com.netflix.evcache.pool.ServerGroup;
 import com.netflix.evcache.util.EVCacheConfig;
 import com.netflix.servo.DefaultMonitorRegistry;
 import com.netflix.servo.annotations.DataSourceType;
-import com.netflix.servo.monitor.BasicCounter;
 import com.netflix.servo.monitor.Counter;
 import com.netflix.servo.monitor.LongGauge;
 import com.netflix.servo.monitor.Monitor;
@@ -41,7 +39,7 @@ public final class EVCacheMetricsFactory {
     private static final Map<String, Monitor<?>> monitorMap = new ConcurrentHashMap<String, Monitor<?>>();
     private static final Map<String, DistributionSummary> distributionSummaryMap = new ConcurrentHashMap<String, DistributionSummary>();
     private static final Lock writeLock = (new ReentrantReadWriteLock()).writeLock();
-    private static final Map<String, Timer> timerMap = new HashMap<String, Timer>();
+    private static final Map<String, Timer> timerMap = new ConcurrentHashMap<String, Timer>();
     private static final DynamicIntProperty sampleSize = EVCacheConfig.getInstance().getDynamicIntProperty("EVCache.metrics.sample.size", 100);
     public static final Tag OWNER = Tags.newTag("owner", "evcache");
 
@@ -138,7 +136,7 @@ public final class EVCacheMetricsFactory {
                 if (monitorMap.containsKey(name)) {
                     counter = (Counter) monitorMap.get(name);
                 } else {
-                    counter = new BasicCounter(MonitorConfig.builder(cName).withTag(OWNER).withTag(tag).build());
+                    counter = new EVCacheCounter(MonitorConfig.builder(cName).withTag(OWNER).withTag(tag).build());
                     monitorMap.put(name, counter);
                     DefaultMonitorRegistry.getInstance().register(counter);
                 }
@@ -158,7 +156,7 @@ public final class EVCacheMetricsFactory {
                 if (monitorMap.containsKey(name)) {
                     counter = (Counter) monitorMap.get(name);
                 } else {
-                    counter = new BasicCounter(MonitorConfig.builder(cName).withTag(OWNER).withTags(tag).build());
+                    counter = new EVCacheCounter(MonitorConfig.builder(cName).withTag(OWNER).withTags(tag).build());
                     monitorMap.put(name, counter);
                     DefaultMonitorRegistry.getInstance().register(counter);
                 }
@@ -211,7 +209,7 @@ public final class EVCacheMetricsFactory {
                 if (monitorMap.containsKey(name)) {
                     counter = (Counter) monitorMap.get(name);
                 } else {
-                    counter = new BasicCounter(MonitorConfig.builder(metricName).withTag(OWNER).build().withAdditionalTags(tags));
+                    counter = new EVCacheCounter(MonitorConfig.builder(metricName).withTag(OWNER).build().withAdditionalTags(tags));
                     monitorMap.put(name, counter);
                     DefaultMonitorRegistry.getInstance().register(counter);
                 }
@@ -39,7 +39,10 @@ public class EVCacheOperation implements Operation {
 
     public void stop() {
         duration = System.nanoTime() - startTime;
-        if (op != null && stats != null) stats.operationCompleted(op, getDuration());
+        if (op != null && stats != null) {
+            stats.operationCompleted(op, getDuration());
+            stats.operationLatency(op, duration / 1000);
+        }
     }
 
     public long getDuration() {
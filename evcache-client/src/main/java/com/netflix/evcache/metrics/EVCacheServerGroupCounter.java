@@ -0,0 +1,73 @@
+package com.netflix.evcache.metrics;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.monitor.Counter;
+
+/**
+ * A handle on a counter of an app and cache that is tagged with the server
+ * group it is counted for. The counter of a server group is looked up in
+ * {@link EVCacheMetricsFactory} once and kept, so counting does not build a
+ * metric name or look it up on every call. An app has a few server groups, so
+ * the counters are kept in a small array that is copied when one is added.
+ */
+public final class EVCacheServerGroupCounter {
+
+    private final String appName;
+    private final String cacheName;
+    private final String metricName;
+    private volatile Entry[] entries = new Entry[0];
+
+    public EVCacheServerGroupCounter(String appName, String cacheName, String metricName) {
+        this.appName = appName;
+        this.cacheName = cacheName;
+        this.metricName = metricName;
+    }
+
+    public void increment(String serverGroupName) {
+        getCounter(serverGroupName).increment();
+    }
+
+    public void increment(String serverGroupName, long amount) {
+        getCounter(serverGroupName).increment(amount);
+    }
+
+    public Counter getCounter(String serverGroupName) {
+        final Counter counter = find(entries, serverGroupName);
+        return (counter != null) ? counter : addCounter(serverGroupName);
+    }
+
+    private static Counter find(Entry[] entries, String serverGroupName) {
+        for (Entry entry : entries) {
+            if (Objects.equals(entry.serverGroupName, serverGroupName)) return entry.counter;
+        }
+        return null;
+    }
+
+    private synchronized Counter addCounter(String serverGroupName) {
+        final Entry[] current = entries;
+        Counter counter = find(current, serverGroupName);
+        if (counter != null) return counter;
+        counter = EVCacheMetricsFactory.getCounter(appName, cacheName, serverGroupName, metricName, DataSourceType.COUNTER);
+        final Entry[] newEntries = Arrays.copyOf(current, current.length + 1);
+        newEntries[current.length] = new Entry(serverGroupName, counter);
+        entries = newEntries;
+        return counter;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+
+    private static final class Entry {
+        private final String serverGroupName;
+        private final Counter counter;
+
+        Entry(String serverGroupName, Counter counter) {
+            this.serverGroupName = serverGroupName;
+            this.counter = counter;
+        }
+    }
+}
@@ -23,4 +23,11 @@ public interface Stats {
      * A call to the counter indicating that there was cache Miss
      */
     void cacheMiss(Call call);
+
+    /**
+     * Records the latency of a call in microseconds, if the counter keeps
+     * latency histograms.
+     */
+    default void operationLatency(Call operation, long micros) {
+    }
 }
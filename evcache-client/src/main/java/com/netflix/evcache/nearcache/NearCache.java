@@ -0,0 +1,643 @@
+package com.netflix.evcache.nearcache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded in-memory cache with a W-TinyLFU eviction policy.
+ *
+ * New entries go into a small LRU window (1% of the capacity). Entries that
+ * fall out of the window compete with the eviction victim of the main space
+ * and are only admitted if the {@link FrequencySketch} has seen them more
+ * often. The main space is a segmented LRU where entries accessed again move
+ * from the probation to the protected segment. This keeps one-hit wonders and
+ * scans from flushing the keys that are read all the time.
+ *
+ * Reads never take a lock. A hit is recorded in a lossy striped buffer which is
+ * replayed against the policy when it fills up or on the next write. Writes and
+ * removals take the eviction lock.
+ *
+ * Every entry has a weight given on put. The capacity, the weight of an entry
+ * and the expiration can be changed at any time and apply to the existing
+ * entries.
+ */
+public class NearCache<V> {
+
+    /**
+     * Called when a read finds an entry that is older than the refresh
+     * interval. Implementations are expected to reload the value
+     * asynchronously and put it back.
+     */
+    public interface Refresher<V> {
+        /**
+         * The refresher must call {@link NearCache#refreshDone(String)} once
+         * the reload has finished, whether it succeeded or not.
+         */
+        void refresh(String key, V oldValue);
+    }
+
+    /**
+     * Computes the weight of an entry from the size given on put.
+     */
+    public interface Weigher {
+        int weigh(String key, int bytes);
+    }
+
+    public static final Weigher SINGLETON_WEIGHER = new Weigher() {
+        @Override
+        public int weigh(String key, int bytes) {
+            return 1;
+        }
+    };
+
+    public static final Weigher BYTES_WEIGHER = new Weigher() {
+        @Override
+        public int weigh(String key, int bytes) {
+            return key.length() + bytes;
+        }
+    };
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private static final int EXPIRATION_SWEEP = 64;
+
+    private final ConcurrentHashMap<String, Node<V>> data = new ConcurrentHashMap<String, Node<V>>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ReadBuffer<V> readBuffer = new ReadBuffer<V>();
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final AccessDeque<V> window = new AccessDeque<V>();
+    private final AccessDeque<V> probation = new AccessDeque<V>();
+    private final AccessDeque<V> protectedDeque = new AccessDeque<V>();
+
+    /* guarded by evictionLock */
+    private Weigher weigher;
+    private long maximum;
+    private long windowMaximum;
+    private long protectedMaximum;
+    private long windowWeightedSize = 0;
+    private long protectedWeightedSize = 0;
+    private volatile long weightedSize = 0;
+
+    private volatile long expireAfterWriteNanos = 0;
+    private volatile long expireAfterAccessNanos = 0;
+    private volatile long refreshAfterWriteNanos = 0;
+    private volatile Refresher<V> refresher = null;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public NearCache(long maximum, Weigher weigher) {
+        evictionLock.lock();
+        try {
+            this.weigher = weigher;
+            setMaximumInternal(maximum);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return the value for the key or null if it is not present or expired
+     */
+    public V getIfPresent(String key) {
+        final Node<V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        final long now = System.nanoTime();
+        if (hasExpired(node, now)) {
+            misses.increment();
+            expire(node);
+            return null;
+        }
+        if (expireAfterAccessNanos > 0) node.accessTime = now;
+        hits.increment();
+        afterRead(node, now);
+        return node.value;
+    }
+
+    /**
+     * Adds or replaces the value for the key.
+     *
+     * @param bytes
+     *            the serialized size of the value, passed to the
+     *            {@link Weigher}
+     */
+    public void put(String key, V value, int bytes) {
+        if (key == null || value == null) throw new NullPointerException();
+        final long now = System.nanoTime();
+        evictionLock.lock();
+        try {
+            final Node<V> node = new Node<V>(key, value, bytes, weigher.weigh(key, bytes), now);
+            final Node<V> old = data.put(key, node);
+            if (old != null) unlink(old);
+            node.queue = WINDOW;
+            window.addLast(node);
+            windowWeightedSize += node.weight;
+            weightedSize += node.weight;
+            sketch.increment(key);
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return the value that was removed or null
+     */
+    public V remove(String key) {
+        evictionLock.lock();
+        try {
+            final Node<V> node = data.remove(key);
+            if (node == null) return null;
+            unlink(node);
+            return node.value;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void clear() {
+        evictionLock.lock();
+        try {
+            readBuffer.drain(null);
+            for (AccessDeque<V> deque : Arrays.asList(window, probation, protectedDeque)) {
+                Node<V> node;
+                while ((node = deque.peekFirst()) != null) {
+                    data.remove(node.key, node);
+                    unlink(node);
+                }
+            }
+            data.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Replays the buffered reads and evicts expired entries. Callers don't need
+     * to call this, it is done as part of reads and writes, but it lets an idle
+     * cache shed expired entries.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * A copy of the live entries.
+     */
+    public Map<String, V> asMap() {
+        final long now = System.nanoTime();
+        final Map<String, V> map = new HashMap<String, V>(data.size() * 2);
+        for (Node<V> node : data.values()) {
+            if (!hasExpired(node, now)) map.put(node.key, node.value);
+        }
+        return map;
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    public long getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Changes the capacity. Entries are evicted right away if the cache is
+     * now over capacity.
+     */
+    public void setMaximum(long maximum) {
+        evictionLock.lock();
+        try {
+            setMaximumInternal(maximum);
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Changes the capacity and how entries are weighed, reweighing the
+     * existing entries in place.
+     */
+    public void setMaximum(long maximum, Weigher weigher) {
+        evictionLock.lock();
+        try {
+            if (this.weigher != weigher) {
+                this.weigher = weigher;
+                windowWeightedSize = reweigh(window);
+                protectedWeightedSize = reweigh(protectedDeque);
+                weightedSize = windowWeightedSize + protectedWeightedSize + reweigh(probation);
+            }
+            setMaximumInternal(maximum);
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private long reweigh(AccessDeque<V> deque) {
+        long total = 0;
+        for (Node<V> node = deque.first; node != null; node = node.next) {
+            node.weight = weigher.weigh(node.key, node.bytes);
+            total += node.weight;
+        }
+        return total;
+    }
+
+    private void setMaximumInternal(long maximum) {
+        this.maximum = Math.max(0, maximum);
+        this.windowMaximum = Math.max(1, this.maximum / 100);
+        this.protectedMaximum = (long) (0.8 * (this.maximum - windowMaximum));
+    }
+
+    /**
+     * @param duration
+     *            0 disables expiration after write
+     */
+    public void setExpireAfterWrite(long duration, TimeUnit unit) {
+        this.expireAfterWriteNanos = unit.toNanos(duration);
+    }
+
+    /**
+     * @param duration
+     *            0 disables expiration after access
+     */
+    public void setExpireAfterAccess(long duration, TimeUnit unit) {
+        this.expireAfterAccessNanos = unit.toNanos(duration);
+    }
+
+    /**
+     * @param duration
+     *            0 disables refreshing
+     */
+    public void setRefreshAfterWrite(long duration, TimeUnit unit, Refresher<V> refresher) {
+        this.refresher = refresher;
+        this.refreshAfterWriteNanos = unit.toNanos(duration);
+    }
+
+    /**
+     * Allows the entry for the key to be refreshed again. A successful
+     * refresh replaces the entry with {@link #put} which resets this anyway.
+     */
+    public void refreshDone(String key) {
+        final Node<V> node = data.get(key);
+        if (node != null) node.refreshing = 0;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private boolean hasExpired(Node<V> node, long now) {
+        final long afterWrite = expireAfterWriteNanos;
+        if (afterWrite > 0 && now - node.writeTime >= afterWrite) return true;
+        final long afterAccess = expireAfterAccessNanos;
+        return afterAccess > 0 && now - node.accessTime >= afterAccess;
+    }
+
+    private void expire(Node<V> node) {
+        evictionLock.lock();
+        try {
+            if (data.remove(node.key, node)) {
+                unlink(node);
+                expirations.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void afterRead(Node<V> node, long now) {
+        if (!readBuffer.offer(node) && evictionLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+
+        final long refreshAfter = refreshAfterWriteNanos;
+        final Refresher<V> r = refresher;
+        if (refreshAfter > 0 && r != null && now - node.writeTime >= refreshAfter && Node.REFRESHING.compareAndSet(node, 0, 1)) {
+            r.refresh(node.key, node.value);
+        }
+    }
+
+    /* guarded by evictionLock */
+    private void maintenance() {
+        readBuffer.drain(this);
+        if (data.size() > 0) sketch.ensureCapacity(data.size());
+        expireEntries();
+        evictEntries();
+    }
+
+    /* guarded by evictionLock */
+    void onAccess(Node<V> node) {
+        if (!node.alive) return;
+        sketch.increment(node.key);
+        switch (node.queue) {
+        case WINDOW:
+            window.moveToBack(node);
+            break;
+        case PROBATION:
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedDeque.addLast(node);
+            protectedWeightedSize += node.weight;
+            while (protectedWeightedSize > protectedMaximum) {
+                final Node<V> demoted = protectedDeque.pollFirst();
+                if (demoted == null) break;
+                protectedWeightedSize -= demoted.weight;
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+            }
+            break;
+        default:
+            protectedDeque.moveToBack(node);
+        }
+    }
+
+    private void expireEntries() {
+        if (expireAfterWriteNanos <= 0 && expireAfterAccessNanos <= 0) return;
+        final long now = System.nanoTime();
+        expireEntries(window, now);
+        expireEntries(probation, now);
+        expireEntries(protectedDeque, now);
+    }
+
+    /**
+     * The deques are in access order so this only looks at the least recently
+     * used entries of each. Entries missed here are expired when they are read
+     * or evicted when the space is needed.
+     */
+    private void expireEntries(AccessDeque<V> deque, long now) {
+        Node<V> node = deque.first;
+        for (int i = 0; node != null && i < EXPIRATION_SWEEP; i++) {
+            final Node<V> next = node.next;
+            if (hasExpired(node, now) && data.remove(node.key, node)) {
+                unlink(node);
+                expirations.increment();
+            }
+            node = next;
+        }
+    }
+
+    private void evictEntries() {
+        Node<V> candidate = null;
+        while (windowWeightedSize > windowMaximum) {
+            final Node<V> node = window.pollFirst();
+            if (node == null) break;
+            windowWeightedSize -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            if (candidate == null) candidate = node;
+        }
+
+        while (weightedSize > maximum) {
+            Node<V> victim = probation.peekFirst();
+            if (victim == null) victim = protectedDeque.peekFirst();
+            if (victim == null) victim = window.peekFirst();
+            if (victim == null) break;
+
+            if (candidate == null || victim == candidate || victim.queue != PROBATION) {
+                if (victim == candidate) candidate = candidate.next;
+                evict(victim);
+            } else if (admit(candidate.key, victim.key)) {
+                admitted.increment();
+                evict(victim);
+            } else {
+                rejected.increment();
+                final Node<V> next = candidate.next;
+                evict(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    private boolean admit(String candidateKey, String victimKey) {
+        final int candidateFrequency = sketch.frequency(candidateKey);
+        final int victimFrequency = sketch.frequency(victimKey);
+        if (candidateFrequency > victimFrequency) return true;
+        // Let a warm candidate in once in a while so an attacker can't pin
+        // victims by inflating their hash collisions
+        return candidateFrequency >= 6 && (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    private void evict(Node<V> node) {
+        data.remove(node.key, node);
+        unlink(node);
+        evictions.increment();
+    }
+
+    /* guarded by evictionLock */
+    private void unlink(Node<V> node) {
+        if (!node.alive) return;
+        node.alive = false;
+        switch (node.queue) {
+        case WINDOW:
+            window.remove(node);
+            windowWeightedSize -= node.weight;
+            break;
+        case PROBATION:
+            probation.remove(node);
+            break;
+        default:
+            protectedDeque.remove(node);
+            protectedWeightedSize -= node.weight;
+        }
+        weightedSize -= node.weight;
+    }
+
+    static final class Node<V> {
+        // the updater is made from the class literal, which has no type argument
+        @SuppressWarnings("rawtypes")
+        static final AtomicIntegerFieldUpdater<Node> REFRESHING = AtomicIntegerFieldUpdater.newUpdater(Node.class, "refreshing");
+
+        final String key;
+        final V value;
+        final int bytes;
+        final long writeTime;
+        volatile long accessTime;
+        volatile int refreshing = 0;
+
+        /* guarded by evictionLock */
+        int weight;
+        byte queue;
+        boolean alive = true;
+        Node<V> prev;
+        Node<V> next;
+
+        Node(String key, V value, int bytes, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.bytes = bytes;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /**
+     * An intrusive doubly linked list in access order, least recently used
+     * first.
+     */
+    static final class AccessDeque<V> {
+        Node<V> first;
+        Node<V> last;
+
+        Node<V> peekFirst() {
+            return first;
+        }
+
+        Node<V> pollFirst() {
+            final Node<V> node = first;
+            if (node != null) remove(node);
+            return node;
+        }
+
+        void addLast(Node<V> node) {
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+        }
+
+        void remove(Node<V> node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToBack(Node<V> node) {
+            if (last == node) return;
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    /**
+     * A lossy buffer of reads striped by thread. When a stripe is full the read
+     * is dropped, which only costs the policy a little accuracy.
+     */
+    static final class ReadBuffer<V> {
+        private static final int STRIPES = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+        private static final int STRIPE_MASK = STRIPES - 1;
+        private static final int BUFFER_SIZE = 32;
+        private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+        private final Stripe<V>[] stripes;
+
+        @SuppressWarnings("unchecked")
+        ReadBuffer() {
+            stripes = (Stripe<V>[]) new Stripe<?>[STRIPES];
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe<V>();
+            }
+        }
+
+        /**
+         * @return false if the stripe was full and should be drained
+         */
+        boolean offer(Node<V> node) {
+            final Stripe<V> stripe = stripes[probe() & STRIPE_MASK];
+            final long head = stripe.readCounter;
+            final long tail = stripe.writeCounter.get();
+            if (tail - head >= BUFFER_SIZE) return false;
+            if (stripe.writeCounter.compareAndSet(tail, tail + 1)) {
+                stripe.buffer.lazySet((int) (tail & BUFFER_MASK), node);
+            }
+            return true;
+        }
+
+        /* guarded by evictionLock */
+        void drain(NearCache<V> cache) {
+            for (Stripe<V> stripe : stripes) {
+                long head = stripe.readCounter;
+                final long tail = stripe.writeCounter.get();
+                for (; head < tail; head++) {
+                    final int index = (int) (head & BUFFER_MASK);
+                    final Node<V> node = stripe.buffer.get(index);
+                    if (node == null) break; // not published yet
+                    stripe.buffer.lazySet(index, null);
+                    if (cache != null) cache.onAccess(node);
+                }
+                stripe.readCounter = head;
+            }
+        }
+
+        private static int probe() {
+            final long id = Thread.currentThread().getId();
+            return (int) (id ^ (id >>> 32)) * 0x9E3779B9 >>> 16;
+        }
+
+        private static final class Stripe<V> {
+            final AtomicLong writeCounter = new AtomicLong();
+            final AtomicReferenceArray<Node<V>> buffer = new AtomicReferenceArray<Node<V>>(BUFFER_SIZE);
+            volatile long readCounter = 0;
+        }
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        return (x <= 1) ? 1 : 1 << (32 - Integer.numberOfLeadingZeros(x - 1));
+    }
+}
@@ -0,0 +1,245 @@
+package com.netflix.evcache.nearcache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+import net.spy.memcached.CachedData;
+
+/**
+ * Holds the raw bytes and flags of {@link CachedData} outside of the java heap
+ * so a near cache can keep hundreds of MB without growing the old gen.
+ *
+ * The memory is allocated lazily in slabs of direct {@link ByteBuffer}s up to
+ * a byte budget. Entries are appended to the current slab. When the budget is
+ * used up the oldest slab is recycled and every entry in it is dropped, so the
+ * store evicts in insertion order a slab at a time. Only the index, a small
+ * pointer per key, lives on the heap.
+ *
+ * Reads don't take a lock. They copy the bytes out of the slab and validate
+ * that the slab was not recycled while they were copying.
+ */
+public class OffHeapStore {
+
+    private static final int HEADER_LENGTH = 4; // flags
+
+    private final ConcurrentHashMap<String, Pointer> index = new ConcurrentHashMap<String, Pointer>();
+    private final int slabSize;
+
+    /* guarded by this */
+    private final ArrayDeque<Slab> slabs = new ArrayDeque<Slab>();
+    private int maxSlabs;
+    private Slab current = null;
+
+    private volatile long expireAfterWriteNanos = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param maxBytes
+     *            the most direct memory the store allocates
+     * @param slabSize
+     *            the size of one slab. Entries larger than this are not stored
+     */
+    public OffHeapStore(long maxBytes, int slabSize) {
+        if (slabSize <= HEADER_LENGTH) throw new IllegalArgumentException("Invalid slab size " + slabSize);
+        this.slabSize = slabSize;
+        this.maxSlabs = slabsFor(maxBytes);
+    }
+
+    private int slabsFor(long maxBytes) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, maxBytes / slabSize));
+    }
+
+    /**
+     * @return a copy of the stored data or null if the key is not present,
+     *         expired or was evicted while it was being read
+     */
+    public CachedData get(String key) {
+        final Pointer pointer = index.get(key);
+        if (pointer == null) {
+            misses.increment();
+            return null;
+        }
+        final long afterWrite = expireAfterWriteNanos;
+        if (afterWrite > 0 && System.nanoTime() - pointer.writeTime >= afterWrite) {
+            index.remove(key, pointer);
+            misses.increment();
+            return null;
+        }
+
+        final Slab slab = pointer.slab;
+        final long stamp = slab.lock.tryOptimisticRead();
+        final CachedData data;
+        if (stamp != 0 && slab.generation == pointer.generation) {
+            final ByteBuffer buffer = slab.buffer.duplicate();
+            buffer.position(pointer.offset);
+            final int flags = buffer.getInt();
+            final byte[] bytes = new byte[pointer.length];
+            buffer.get(bytes);
+            data = slab.lock.validate(stamp) ? new CachedData(flags, bytes, Integer.MAX_VALUE) : null;
+        } else {
+            data = null;
+        }
+        if (data == null) {
+            index.remove(key, pointer);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return data;
+    }
+
+    /**
+     * Stores a copy of the data, replacing any existing value for the key.
+     *
+     * @return false if the data is larger than a slab or the store has no
+     *         budget
+     */
+    public synchronized boolean put(String key, CachedData cd) {
+        final byte[] bytes = cd.getData();
+        final int length = HEADER_LENGTH + bytes.length;
+        if (length > slabSize || maxSlabs == 0) {
+            index.remove(key);
+            rejected.increment();
+            return false;
+        }
+        if (current == null || current.position + length > slabSize) nextSlab();
+
+        final int offset = current.position;
+        final ByteBuffer buffer = current.buffer.duplicate();
+        buffer.position(offset);
+        buffer.putInt(cd.getFlags());
+        buffer.put(bytes);
+        current.position += length;
+        current.keys.add(key);
+        index.put(key, new Pointer(current, current.generation, offset, bytes.length, System.nanoTime()));
+        return true;
+    }
+
+    public void remove(String key) {
+        index.remove(key);
+    }
+
+    public synchronized void clear() {
+        index.clear();
+        for (Slab slab : slabs) {
+            recycle(slab);
+        }
+    }
+
+    /**
+     * Changes the byte budget. When it shrinks the oldest slabs are released
+     * right away.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxSlabs = slabsFor(maxBytes);
+        while (slabs.size() > maxSlabs) {
+            final Slab slab = slabs.pollFirst();
+            recycle(slab);
+            if (slab == current) current = null;
+        }
+    }
+
+    /**
+     * @param duration
+     *            0 disables expiration after write
+     */
+    public void setExpireAfterWrite(long duration, TimeUnit unit) {
+        this.expireAfterWriteNanos = unit.toNanos(duration);
+    }
+
+    /* guarded by this */
+    private void nextSlab() {
+        final Slab slab;
+        if (slabs.size() < maxSlabs) {
+            slab = new Slab(ByteBuffer.allocateDirect(slabSize));
+        } else {
+            slab = slabs.pollFirst();
+            recycle(slab);
+        }
+        slabs.addLast(slab);
+        current = slab;
+    }
+
+    /* guarded by this */
+    private void recycle(Slab slab) {
+        final long stamp = slab.lock.writeLock();
+        try {
+            slab.generation++;
+            slab.position = 0;
+        } finally {
+            slab.lock.unlockWrite(stamp);
+        }
+        for (String key : slab.keys) {
+            final Pointer pointer = index.get(key);
+            if (pointer != null && pointer.slab == slab && index.remove(key, pointer)) evictions.increment();
+        }
+        slab.keys.clear();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return the direct memory allocated by the store
+     */
+    public synchronized long allocatedBytes() {
+        return (long) slabs.size() * slabSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private static final class Slab {
+        final ByteBuffer buffer;
+        final StampedLock lock = new StampedLock();
+        volatile int generation = 0;
+
+        /* guarded by the store */
+        int position = 0;
+        final List<String> keys = new ArrayList<String>();
+
+        Slab(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    private static final class Pointer {
+        final Slab slab;
+        final int generation;
+        final int offset;
+        final int length;
+        final long writeTime;
+
+        Pointer(Slab slab, int generation, int offset, int length, long writeTime) {
+            this.slab = slab;
+            this.generation = generation;
+            this.offset = offset;
+            this.length = length;
+            this.writeTime = writeTime;
+        }
+    }
+}
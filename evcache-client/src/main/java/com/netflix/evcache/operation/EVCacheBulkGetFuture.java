@@ -30,6 +30,7 @@ import com.netflix.evcache.metrics.EVCacheMetricsFactory;
 import com.netflix.evcache.pool.ServerGroup;
 import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.monitor.Stopwatch;
+import com.netflix.servo.monitor.Timer;
 import rx.Scheduler;
 import rx.Single;
 
@@ -48,23 +49,31 @@ public class EVCacheBulkGetFuture<T> extends BulkGetFuture<T> {
     private final CountDownLatch latch;
     private final String appName;
     private final ServerGroup serverGroup;
-    private final String metricName;
+    private final Timer timer;
 
     public EVCacheBulkGetFuture(String appName, Map<String, Future<T>> m, Collection<Operation> getOps, CountDownLatch l, ExecutorService service, ServerGroup serverGroup, String metricName) {
+        this(appName, m, getOps, l, service, serverGroup, EVCacheMetricsFactory.getStatsTimer(appName, serverGroup, metricName));
+    }
+
+    /**
+     * @param timer the timer of the server group that getSome records into, so
+     *        that it is not looked up on every call
+     */
+    public EVCacheBulkGetFuture(String appName, Map<String, Future<T>> m, Collection<Operation> getOps, CountDownLatch l, ExecutorService service, ServerGroup serverGroup, Timer timer) {
         super(m, getOps, l, service);
         this.appName = appName;
         rvMap = m;
         ops = getOps;
         latch = l;
         this.serverGroup = serverGroup;
-        this.metricName = metricName;
+        this.timer = timer;
     }
 
     public Map<String, T> getSome(long to, TimeUnit unit, boolean throwException, boolean hasZF)
             throws InterruptedException, ExecutionException {
         final Collection<Operation> timedoutOps = new HashSet<Operation>();
 
-        final Stopwatch operationDuration = EVCacheMetricsFactory.getStatsTimer(appName, serverGroup, metricName).start();
+        final Stopwatch operationDuration = timer.start();
         final long startTime = System.currentTimeMillis();
         boolean status = latch.await(to, unit);
 
@@ -154,7 +163,7 @@ public class EVCacheBulkGetFuture<T> extends BulkGetFuture<T> {
     }
 
     public Single<Map<String, T>> getSome(long to, TimeUnit units, boolean throwException, boolean hasZF, Scheduler scheduler) {
-        final Stopwatch operationDuration = EVCacheMetricsFactory.getStatsTimer(appName, serverGroup, metricName).start();
+        final Stopwatch operationDuration = timer.start();
         return observe().timeout(to, units, Single.create(subscriber -> {
             try {
                 final Collection<Operation> timedoutOps = new HashSet<Operation>();
@@ -1,6 +1,7 @@
 package com.netflix.evcache.operation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
@@ -18,6 +19,7 @@ import com.netflix.evcache.pool.EVCacheClient;
 import com.netflix.evcache.pool.EVCacheClientPool;
 import com.netflix.evcache.pool.ServerGroup;
 
+import net.spy.memcached.internal.AbstractListenableFuture;
 import net.spy.memcached.internal.ListenableFuture;
 import net.spy.memcached.internal.OperationCompletionListener;
 import net.spy.memcached.internal.OperationFuture;
@@ -75,7 +77,10 @@ public class EVCacheLatchImpl implements EVCacheLatch, Runnable {
      */
     public void addFuture(ListenableFuture<Boolean, OperationCompletionListener> future) {
         future.addListener(this);
-        if (future.isDone()) countDown();
+        // spymemcached futures notify a listener added after they completed and
+        // EVCacheFutures calls onComplete itself, counting them down here too
+        // would release the latch before the other futures are done
+        if (future.isDone() && !(future instanceof AbstractListenableFuture || future instanceof EVCacheFutures)) countDown();
         this.futures.add(future);
     }
 
@@ -190,6 +195,16 @@ public class EVCacheLatchImpl implements EVCacheLatch, Runnable {
         }
     }
     
+    /*
+     * The listeners the event was created for, so that a listener that
+     * started an event also sees it complete.
+     */
+    private List<EVCacheEventListener> getEVCacheEventListeners(EVCacheClient client) {
+        final EVCacheEventListener[] listeners = evcacheEvent.getListeners();
+        if (listeners != null) return Arrays.asList(listeners);
+        return client.getPool().getEVCacheClientPoolManager().getEVCacheEventListeners();
+    }
+
     public void setEVCacheEvent(EVCacheEvent e) {
         this.evcacheEvent = e;
     }
@@ -224,8 +239,7 @@ public class EVCacheLatchImpl implements EVCacheLatch, Runnable {
             if(!onCompleteDone && getCompletedCount() >= getExpectedSuccessCount()) {
                 if(evcacheEvent.getClients().size() > 0) {
                     for(EVCacheClient client : evcacheEvent.getClients()) {
-                        final List<EVCacheEventListener> evcacheEventListenerList = client.getPool().getEVCacheClientPoolManager().getEVCacheEventListeners();
-                        for (EVCacheEventListener evcacheEventListener : evcacheEventListenerList) {
+                        for (EVCacheEventListener evcacheEventListener : getEVCacheEventListeners(client)) {
                             evcacheEventListener.onComplete(evcacheEvent);
                         }
                         EVCacheMetricsFactory.increment(evcacheEvent.getAppName(), evcacheEvent.getCacheName(), "EVCacheLatchImpl-OnComplete-Done");
@@ -430,7 +444,7 @@ public class EVCacheLatchImpl implements EVCacheLatch, Runnable {
                 EVCacheMetricsFactory.increment(evcacheEvent.getAppName(), evcacheEvent.getCacheName(), "EVCacheLatchImpl-WriteFail");
                 if(evcacheEvent.getClients().size() > 0) {
                     for(EVCacheClient client : evcacheEvent.getClients()) {
-                        final List<EVCacheEventListener> evcacheEventListenerList = client.getPool().getEVCacheClientPoolManager().getEVCacheEventListeners();
+                        final List<EVCacheEventListener> evcacheEventListenerList = getEVCacheEventListeners(client);
                         if(log.isDebugEnabled()) log.debug("\nClient : " + client +"\nEvcacheEventListenerList : " + evcacheEventListenerList);
                         for (EVCacheEventListener evcacheEventListener : evcacheEventListenerList) {
                             evcacheEventListener.onError(evcacheEvent, null);
@@ -126,6 +126,16 @@ public class EVCacheOperationFuture<T> extends OperationFuture<T> {
      * @throws ExecutionException
      */
     public T get(long duration, TimeUnit units, boolean throwException, boolean hasZF) throws InterruptedException, TimeoutException, ExecutionException {
+        return get(duration, units, throwException, hasZF, true);
+    }
+
+    /**
+     * Same as {@link #get(long, TimeUnit, boolean, boolean)}, but when
+     * ownsOperation is false only this wait times out. The operation and the
+     * node's continuous timeout count are left to the caller that sent it, so
+     * callers sharing one operation (e.g. coalesced gets) count one timeout.
+     */
+    public T get(long duration, TimeUnit units, boolean throwException, boolean hasZF, boolean ownsOperation) throws InterruptedException, TimeoutException, ExecutionException {
         final long startTime = System.currentTimeMillis();
         boolean status = latch.await(duration, units);
         if (!status) {
@@ -174,14 +184,16 @@ public class EVCacheOperationFuture<T> extends OperationFuture<T> {
         }
 
         if (!status) {
-            // whenever timeout occurs, continuous timeout counter will increase by 1.
-            MemcachedConnection.opTimedOut(op);
-            if (op != null) op.timeOut();
+            if (ownsOperation) {
+                // whenever timeout occurs, continuous timeout counter will increase by 1.
+                MemcachedConnection.opTimedOut(op);
+                if (op != null) op.timeOut();
+            }
             if (!hasZF) EVCacheMetricsFactory.getCounter(appName, null, serverGroup.getName(), appName + "-get-CheckedOperationTimeout", DataSourceType.COUNTER).increment();
             if (throwException) {
                 throw new CheckedOperationTimeoutException("Timed out waiting for operation", op);
             }
-        } else {
+        } else if (ownsOperation) {
             // continuous timeout counter will be reset
             MemcachedConnection.opSucceeded(op);
         }
@@ -218,10 +230,20 @@ public class EVCacheOperationFuture<T> extends OperationFuture<T> {
     }
 
     public Single<T> get(long duration, TimeUnit units, boolean throwException, boolean hasZF, Scheduler scheduler) {
+        return get(duration, units, throwException, hasZF, true, scheduler);
+    }
+
+    /**
+     * Same as {@link #get(long, TimeUnit, boolean, boolean, Scheduler)}, but
+     * only the caller that owns the operation times it out.
+     */
+    public Single<T> get(long duration, TimeUnit units, boolean throwException, boolean hasZF, boolean ownsOperation, Scheduler scheduler) {
         return observe().timeout(duration, units, Single.create(subscriber -> {
-            // whenever timeout occurs, continuous timeout counter will increase by 1.
-            MemcachedConnection.opTimedOut(op);
-            if (op != null) op.timeOut();
+            if (ownsOperation) {
+                // whenever timeout occurs, continuous timeout counter will increase by 1.
+                MemcachedConnection.opTimedOut(op);
+                if (op != null) op.timeOut();
+            }
             if (!hasZF) EVCacheMetricsFactory.increment(appName + "-get-CheckedOperationTimeout");
             if (throwException) {
                 subscriber.onError(new CheckedOperationTimeoutException("Timed out waiting for operation", op));
@@ -0,0 +1,159 @@
+package com.netflix.evcache.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.spy.memcached.HashAlgorithm;
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.protocol.binary.EVCacheNodeImpl;
+import net.spy.memcached.util.KetamaNodeLocatorConfiguration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.netflix.config.ChainedDynamicProperty;
+import com.netflix.config.DynamicIntProperty;
+import com.netflix.evcache.metrics.EVCacheMetricsFactory;
+import com.netflix.evcache.util.EVCacheConfig;
+
+/**
+ * A ketama locator that bounds the load of every node. A node whose
+ * outstanding operations exceed (1 + epsilon) times the average of the server
+ * group is skipped and its keys go to the next point on the continuum that is
+ * owned by a node within the bound.
+ *
+ * The loads are sampled into a snapshot that is refreshed every
+ * <code>EVCacheNodeLocator.&lt;app&gt;.bounded.load.refresh.ms</code>
+ * (default 1000), so the same key maps to the same node for the same nodes
+ * and snapshot.
+ *
+ * Reads and writes of a key both go to the node of the current snapshot, so
+ * a value written while its owner is over the bound is read back from the
+ * node it was written to. A new snapshot that adds or removes an overloaded
+ * node moves keys just like a node joining or leaving the server group does:
+ * the moved keys miss until they are written again, and a node a key comes
+ * back to may still hold the value it had before the key moved, until that
+ * value expires. A refresh only changes the mapping if the set of overloaded
+ * nodes changed, and every such change is counted as
+ * <code>&lt;app&gt;-BOUNDED_LOAD_REMAP</code>. That costs some hits in
+ * exchange for not sizing the cluster for its busiest node.
+ */
+public class EVCacheBoundedLoadNodeLocator extends EVCacheNodeLocator {
+
+    private static Logger log = LoggerFactory.getLogger(EVCacheBoundedLoadNodeLocator.class);
+
+    private final String appName;
+    private final ServerGroup serverGroup;
+    private final ChainedDynamicProperty.IntProperty epsilonPercent;
+    private final DynamicIntProperty refreshMillis;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private volatile LoadSnapshot loadSnapshot = LoadSnapshot.EMPTY;
+
+    public EVCacheBoundedLoadNodeLocator(String appName, ServerGroup serverGroup, List<MemcachedNode> nodes, HashAlgorithm alg, KetamaNodeLocatorConfiguration conf) {
+        super(appName, serverGroup, nodes, alg, conf);
+        this.appName = appName;
+        this.serverGroup = serverGroup;
+        this.epsilonPercent = EVCacheConfig.getInstance().getChainedIntProperty("EVCacheNodeLocator." + appName + "." + serverGroup.getName() + ".bounded.load.epsilon.percent",
+                "EVCacheNodeLocator." + appName + ".bounded.load.epsilon.percent", 25, null);
+        this.refreshMillis = EVCacheConfig.getInstance().getDynamicIntProperty("EVCacheNodeLocator." + appName + ".bounded.load.refresh.ms", 1000);
+    }
+
+    @Override
+    public MemcachedNode getNodeForKey(long _hash) {
+        final Continuum continuum = getContinuum();
+        final int start = continuum.indexOf(_hash);
+        final MemcachedNode[] overloaded = getLoadSnapshot(continuum).overloaded;
+        if (overloaded.length == 0) return continuum.nodes[start];
+
+        final int points = continuum.nodes.length;
+        for (int i = 0, index = start; i < points; i++) {
+            final MemcachedNode node = continuum.nodes[index];
+            if (!contains(overloaded, node)) return node;
+            if (++index == points) index = 0;
+        }
+        return continuum.nodes[start];
+    }
+
+    private static boolean contains(MemcachedNode[] nodes, MemcachedNode node) {
+        for (MemcachedNode n : nodes) {
+            if (n == node) return true;
+        }
+        return false;
+    }
+
+    /*
+     * Only one thread takes a new snapshot, the others keep using the
+     * previous one meanwhile. A snapshot of an older continuum is still
+     * valid as it only names the nodes to skip.
+     */
+    private LoadSnapshot getLoadSnapshot(Continuum continuum) {
+        final LoadSnapshot snapshot = loadSnapshot;
+        final long now = System.currentTimeMillis();
+        if ((snapshot.continuum == continuum && now < snapshot.expiresAt) || !refreshing.compareAndSet(false, true)) {
+            return snapshot;
+        }
+        try {
+            final MemcachedNode[] overloaded = getOverloadedNodes(continuum);
+            final boolean remapped = !sameNodes(overloaded, snapshot.overloaded);
+            final LoadSnapshot newSnapshot = new LoadSnapshot(continuum, now + refreshMillis.get(), remapped ? overloaded : snapshot.overloaded);
+            if (remapped) {
+                EVCacheMetricsFactory.increment(appName, null, serverGroup.getName(), appName + "-BOUNDED_LOAD_REMAP");
+                if (log.isDebugEnabled()) log.debug("Overloaded nodes in " + serverGroup + " : " + overloaded.length);
+            }
+            loadSnapshot = newSnapshot;
+            return newSnapshot;
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private static boolean sameNodes(MemcachedNode[] a, MemcachedNode[] b) {
+        if (a.length != b.length) return false;
+        for (MemcachedNode node : a) {
+            if (!contains(b, node)) return false;
+        }
+        return true;
+    }
+
+    private MemcachedNode[] getOverloadedNodes(Continuum continuum) {
+        if (continuum.points == null || continuum.points.isEmpty()) return LoadSnapshot.EMPTY.overloaded;
+        final MemcachedNode[] nodes = continuum.points.keySet().toArray(new MemcachedNode[continuum.points.size()]);
+        final int[] loads = new int[nodes.length];
+        long total = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            loads[i] = getLoad(nodes[i]);
+            total += loads[i];
+        }
+        final long capacity = (long) Math.ceil(total * (100 + epsilonPercent.get()) / (100.0 * nodes.length));
+        final List<MemcachedNode> overloaded = new ArrayList<MemcachedNode>();
+        for (int i = 0; i < nodes.length; i++) {
+            if (loads[i] > capacity) overloaded.add(nodes[i]);
+        }
+        return overloaded.toArray(new MemcachedNode[overloaded.size()]);
+    }
+
+    /**
+     * @return the number of operations the given node has not completed yet
+     */
+    protected int getLoad(MemcachedNode node) {
+        if (node instanceof EVCacheNodeImpl) return ((EVCacheNodeImpl) node).getOutstandingOps();
+        return 0;
+    }
+
+    private static final class LoadSnapshot {
+        static final LoadSnapshot EMPTY = new LoadSnapshot(null, 0, new MemcachedNode[0]);
+
+        /** the continuum the loads were taken for */
+        final Continuum continuum;
+        final long expiresAt;
+        /** the nodes that are over the bound */
+        final MemcachedNode[] overloaded;
+
+        LoadSnapshot(Continuum continuum, long expiresAt, MemcachedNode[] overloaded) {
+            this.continuum = continuum;
+            this.expiresAt = expiresAt;
+            this.overloaded = overloaded;
+        }
+    }
+}
@@ -10,10 +10,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.CRC32;
 import java.util.zip.Checksum;
 
@@ -26,13 +28,17 @@ import com.netflix.config.DynamicIntProperty;
 import com.netflix.discovery.shared.Pair;
 import com.netflix.evcache.EVCacheConnectException;
 import com.netflix.evcache.EVCacheException;
+import com.netflix.evcache.EVCacheGetOperationListener;
 import com.netflix.evcache.EVCacheLatch;
 import com.netflix.evcache.EVCacheReadQueueException;
 import com.netflix.evcache.metrics.EVCacheMetricsFactory;
+import com.netflix.evcache.operation.EVCacheBulkGetFuture;
 import com.netflix.evcache.operation.EVCacheFutures;
 import com.netflix.evcache.operation.EVCacheLatchImpl;
+import com.netflix.evcache.operation.EVCacheOperationFuture;
 import com.netflix.evcache.pool.observer.EVCacheConnectionObserver;
 import com.netflix.evcache.util.EVCacheConfig;
+import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.monitor.Counter;
 import com.netflix.servo.monitor.Stopwatch;
 import com.netflix.servo.tag.BasicTagList;
@@ -48,6 +54,7 @@ import net.spy.memcached.NodeLocator;
 import net.spy.memcached.internal.ListenableFuture;
 import net.spy.memcached.internal.OperationCompletionListener;
 import net.spy.memcached.internal.OperationFuture;
+import net.spy.memcached.protocol.binary.EVCacheBulkWriteOperationImpl;
 import net.spy.memcached.protocol.binary.EVCacheNodeImpl;
 import net.spy.memcached.transcoders.SerializingTranscoder;
 import net.spy.memcached.transcoders.Transcoder;
@@ -68,6 +75,7 @@ public class EVCacheClient {
 
     private final int id;
     private final String appName;
+    private final String readQueueFullMetric, writeBlockMetric, inactiveNodeMetric;
     private final String zone;
     private final ServerGroup serverGroup;
     private final EVCacheServerGroupConfig config;
@@ -86,6 +94,11 @@ public class EVCacheClient {
     private final EVCacheClientPool pool;
     private Counter addCounter = null;
     private final ChainedDynamicProperty.BooleanProperty ignoreTouch;
+    private final ChainedDynamicProperty.BooleanProperty coalesceGets;
+    private final Map<InFlightGet, EVCacheOperationFuture<?>> inFlightGets = new ConcurrentHashMap<InFlightGet, EVCacheOperationFuture<?>>();
+    private Counter coalescedGetCounter = null;
+    private final AtomicInteger outstandingReads = new AtomicInteger(0);
+    private volatile long readLatencyEwma = 0;
     protected final TagList tags;
 
     EVCacheClient(String appName, String zone, int id, EVCacheServerGroupConfig config,
@@ -96,6 +109,9 @@ public class EVCacheClient {
         this.memcachedNodesInZone = memcachedNodesInZone;
         this.id = id;
         this.appName = appName;
+        this.readQueueFullMetric = appName + "-READ_QUEUE_FULL";
+        this.writeBlockMetric = "EVCacheClient-" + appName + "-WRITE_BLOCK";
+        this.inactiveNodeMetric = "EVCacheClient-" + appName + "-INACTIVE_NODE";
         this.zone = zone;
         this.config = config;
         this.serverGroup = config.getServerGroup();
@@ -112,6 +128,7 @@ public class EVCacheClient {
         this.maxWriteQueueSize = maxQueueSize;
         this.ignoreTouch = EVCacheConfig.getInstance().getChainedBooleanProperty(appName + "." + this.serverGroup.getName() + ".ignore.touch", appName + ".ignore.touch", false, null);
         this.ignoreInactiveNodes = EVCacheConfig.getInstance().getDynamicBooleanProperty(appName + ".ignore.inactive.nodes", false);
+        this.coalesceGets = EVCacheConfig.getInstance().getChainedBooleanProperty(appName + "." + this.serverGroup.getName() + ".get.coalesce", appName + ".get.coalesce", false, null);
 
         this.evcacheMemcachedClient = new EVCacheMemcachedClient(connectionFactory, memcachedNodesInZone, readTimeout, appName, zone, id, serverGroup, this);
         this.connectionObserver = new EVCacheConnectionObserver(appName, serverGroup, id);
@@ -139,7 +156,7 @@ public class EVCacheClient {
                 // Size - " + size + " for app " + appName + " & zone " + zone +
                 // " ; node " + node);
                 if (!canAddToOpQueue) {
-                    EVCacheMetricsFactory.getCounter(appName + "-READ_QUEUE_FULL", evcNode.getBaseTags()).increment();
+                    evcNode.getCounter(readQueueFullMetric).increment();
                     if (log.isDebugEnabled()) log.debug("Read Queue Full on Bulk Operation for app : " + appName
                             + "; zone : " + zone + "; Current Size : " + size + "; Max Size : " + maxReadQueueSize.get() * 2);
                 } else {
@@ -165,7 +182,7 @@ public class EVCacheClient {
                 if (log.isDebugEnabled()) log.debug("App : " + appName + "; zone : " + zone + "; key : " + key
                         + "; WriteQSize : " + size);
                 if (canAddToOpQueue) break;
-                EVCacheMetricsFactory.getCounter("EVCacheClient-" + appName + "-WRITE_BLOCK", evcNode.getBaseTags()).increment();
+                evcNode.getCounter(writeBlockMetric).increment();
                 try {
                     Thread.sleep(writeBlock.get());
                 } catch (InterruptedException e) {
@@ -173,7 +190,7 @@ public class EVCacheClient {
                 }
 
                 if(i++ > 3) {
-                    EVCacheMetricsFactory.getCounter("EVCacheClient-" + appName + "-INACTIVE_NODE", evcNode.getBaseTags()).increment();
+                    evcNode.getCounter(inactiveNodeMetric).increment();
                     if (log.isDebugEnabled()) log.debug("Node : " + evcNode + " for app : " + appName + "; zone : "
                             + zone + " is not active. Will Fail Fast and the write will be dropped for key : " + key);
                     evcNode.shutdown();
@@ -190,7 +207,7 @@ public class EVCacheClient {
         if (node instanceof EVCacheNodeImpl) {
             final EVCacheNodeImpl evcNode = (EVCacheNodeImpl) node;
             if (!evcNode.isAvailable()) {
-            	EVCacheMetricsFactory.getCounter("EVCacheClient-" + appName + "-INACTIVE_NODE", evcNode.getBaseTags()).increment();
+            	evcNode.getCounter(inactiveNodeMetric).increment();
                 if (log.isDebugEnabled()) log.debug("Node : " + node + " for app : " + appName + "; zone : " + zone
                         + " is not active. Will Fail Fast so that we can fallback to Other Zone if available.");
                 if (_throwException) throw new EVCacheConnectException("Connection for Node : " + node + " for app : " + appName
@@ -203,7 +220,7 @@ public class EVCacheClient {
             if (log.isDebugEnabled()) log.debug("Current Read Queue Size - " + size + " for app " + appName + " & zone "
                     + zone + " and node : " + evcNode);
             if (!canAddToOpQueue) {
-                EVCacheMetricsFactory.getCounter(appName + "-READ_QUEUE_FULL", evcNode.getBaseTags()).increment();
+                evcNode.getCounter(readQueueFullMetric).increment();
                 if (log.isDebugEnabled()) log.debug("Read Queue Full for Node : " + node + "; app : " + appName
                         + "; zone : " + zone + "; Current Size : " + size + "; Max Size : " + maxReadQueueSize.get());
                 if (_throwException) throw new EVCacheReadQueueException("Read Queue Full for Node : " + node + "; app : "
@@ -761,12 +778,82 @@ public class EVCacheClient {
         return evcacheMemcachedClient.decr(key, by, defaultVal, timeToLive);
     }
 
+    public EVCacheOperationFuture<Long> asyncIncr(String key, long by, long defaultVal, int timeToLive) throws EVCacheException {
+        return evcacheMemcachedClient.asyncIncr(key, by, defaultVal, timeToLive);
+    }
+
+    public EVCacheOperationFuture<Long> asyncDecr(String key, long by, long defaultVal, int timeToLive) throws EVCacheException {
+        return evcacheMemcachedClient.asyncDecr(key, by, defaultVal, timeToLive);
+    }
+
     public <T> T get(String key, Transcoder<T> tc, boolean _throwException, boolean hasZF, boolean chunked) throws Exception {
         if (chunked) {
             return assembleChunks(key, false, 0, tc, hasZF);
         } else {
-            return evcacheMemcachedClient.asyncGet(key, tc, null).get(readTimeout.get(),
-                    TimeUnit.MILLISECONDS, _throwException, hasZF);
+            final boolean[] sent = new boolean[1];
+            final EVCacheOperationFuture<T> future = asyncGetCoalesced(key, tc, sent);
+            try {
+                return future.get(readTimeout.get(), TimeUnit.MILLISECONDS, _throwException, hasZF, sent[0]);
+            } finally {
+                if (sent[0] && !future.isDone()) inFlightGets.remove(new InFlightGet(key, tc), future);
+            }
+        }
+    }
+
+    /**
+     * Returns the in-flight get for the same key and transcoder if there is
+     * one, else sends a new get. Only the caller that sends the get registers
+     * the listener that removes it from the in-flight map once it completes,
+     * and only that caller times out the operation; the others just stop
+     * waiting. If the sender times out it removes the get right away so that
+     * later callers don't join an operation that has already timed out.
+     * The listener may run after the get's callers have returned, so a get
+     * that is already done is replaced instead of joined; joining it could
+     * return a value read before a write the caller has since made.
+     *
+     * @param sent set to true if this call sent the get
+     */
+    private <T> EVCacheOperationFuture<T> asyncGetCoalesced(String key, Transcoder<T> tc, boolean[] sent) {
+        if (!coalesceGets.get()) {
+            sent[0] = true;
+            return evcacheMemcachedClient.asyncGet(key, tc, null);
+        }
+
+        final InFlightGet inFlightGet = new InFlightGet(key, tc);
+        final EVCacheOperationFuture<T> future = (EVCacheOperationFuture<T>) inFlightGets.compute(inFlightGet, (k, inFlight) -> {
+            if (inFlight != null && !inFlight.isDone()) return inFlight;
+            sent[0] = true;
+            return evcacheMemcachedClient.asyncGet(key, tc, null);
+        });
+        if (sent[0]) {
+            future.addListener((EVCacheGetOperationListener<T>) f -> inFlightGets.remove(inFlightGet, f));
+        } else {
+            if (coalescedGetCounter == null) coalescedGetCounter = EVCacheMetricsFactory.getCounter(appName, null, serverGroup.getName(), appName + "-GET-COALESCED", DataSourceType.COUNTER);
+            coalescedGetCounter.increment();
+        }
+        return future;
+    }
+
+    private static final class InFlightGet {
+        private final String key;
+        private final Transcoder<?> tc;
+
+        InFlightGet(String key, Transcoder<?> tc) {
+            this.key = key;
+            this.tc = tc;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + System.identityHashCode(tc);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof InFlightGet)) return false;
+            final InFlightGet other = (InFlightGet) obj;
+            return tc == other.tc && key.equals(other.key);
         }
     }
 
@@ -786,8 +873,12 @@ public class EVCacheClient {
         if (chunked) {
             return assembleChunks(key, _throwException, 0, tc, hasZF, scheduler);
         } else {
-            return evcacheMemcachedClient.asyncGet(key, tc, null)
-                .get(readTimeout.get(), TimeUnit.MILLISECONDS, _throwException, hasZF, scheduler);
+            final boolean[] sent = new boolean[1];
+            final EVCacheOperationFuture<T> future = asyncGetCoalesced(key, tc, sent);
+            return future.get(readTimeout.get(), TimeUnit.MILLISECONDS, _throwException, hasZF, sent[0], scheduler)
+                .doAfterTerminate(() -> {
+                    if (sent[0] && !future.isDone()) inFlightGets.remove(new InFlightGet(key, tc), future);
+                });
         }
     }
 
@@ -879,6 +970,18 @@ public class EVCacheClient {
         return returnVal;
     }
 
+    /**
+     * Sends a bulk get without waiting for it. Used for parallel fallbacks.
+     *
+     * @return the future or null if the data is chunked
+     */
+    public <T> EVCacheBulkGetFuture<T> asyncGetBulk(Collection<String> _canonicalKeys, Transcoder<T> tc) throws Exception {
+        if (enableChunking.get()) return null;
+        final Collection<String> canonicalKeys = validateReadQueueSize(_canonicalKeys);
+        if (tc == null) tc = (Transcoder<T>) getTranscoder();
+        return evcacheMemcachedClient.asyncGetBulk(canonicalKeys, tc, null, "BulkOperation");
+    }
+
     public <T> Single<Map<String, T>> getBulk(Collection<String> _canonicalKeys, Transcoder<T> tc, boolean _throwException,
             boolean hasZF, Scheduler scheduler) {
         try {
@@ -1100,6 +1203,20 @@ public class EVCacheClient {
         }
     }
 
+    /**
+     * Sends a get that is not shared with other callers of the same key, so
+     * it can be cancelled without affecting them. Used for hedged reads.
+     *
+     * @return the future or null if the data is chunked or the node for the
+     *         key is not active
+     */
+    public <T> EVCacheOperationFuture<T> asyncGetUnshared(String key, Transcoder<T> tc) throws Exception {
+        if (enableChunking.get()) return null;
+        if (!validateNode(key, false)) return null;
+        if (tc == null) tc = (Transcoder<T>) getTranscoder();
+        return evcacheMemcachedClient.asyncGet(key, tc, null);
+    }
+
     public <T> Future<T> asyncGet(String key, Transcoder<T> tc, boolean _throwException, boolean hasZF)
             throws Exception {
         if (enableChunking.get()) throw new EVCacheException(
@@ -1143,6 +1260,152 @@ public class EVCacheClient {
         }
     }
 
+    public Future<Boolean> setBulk(Map<String, CachedData> data, int timeToLive, EVCacheLatch latch) throws Exception {
+        if (enableChunking.get()) return writeEachKey(data.keySet(), latch, (key, futures) -> setChunked(key, data.get(key), timeToLive, futures));
+        return bulkWrite(EVCacheBulkWriteOperationImpl.SETQ, data.keySet(), data, timeToLive, latch);
+    }
+
+    public Future<Boolean> deleteBulk(Collection<String> keys, EVCacheLatch latch) throws Exception {
+        if (enableChunking.get()) return writeEachKey(keys, latch, (key, futures) -> deleteChunked(key, futures));
+        return bulkWrite(EVCacheBulkWriteOperationImpl.DELETEQ, keys, null, 0, latch);
+    }
+
+    public Future<Boolean> touchBulk(Collection<String> keys, int timeToLive, EVCacheLatch latch) throws Exception {
+        if (ignoreTouch.get()) {
+            final ListenableFuture<Boolean, OperationCompletionListener> sf = new SuccessFuture();
+            if (latch != null && latch instanceof EVCacheLatchImpl && !isInWriteOnly()) ((EVCacheLatchImpl) latch).addFuture(sf);
+            return sf;
+        }
+        if (enableChunking.get()) return writeEachKey(keys, latch, (key, futures) -> touchChunked(key, timeToLive, futures));
+        return bulkWrite(EVCacheBulkWriteOperationImpl.TOUCH, keys, null, timeToLive, latch);
+    }
+
+    /**
+     * Groups the keys by the node they map to and sends one pipelined
+     * operation per node. The returned future completes when all the nodes
+     * have replied and is registered with the latch as a single future so
+     * the whole batch counts as one write to this server group.
+     */
+    private Future<Boolean> bulkWrite(byte command, Collection<String> keys, Map<String, CachedData> data, int timeToLive, EVCacheLatch latch) throws Exception {
+        final Map<MemcachedNode, Collection<String>> keysByNode = new HashMap<MemcachedNode, Collection<String>>();
+        for (String key : keys) {
+            final MemcachedNode node = evcacheMemcachedClient.getEVCacheNode(key);
+            Collection<String> nodeKeys = keysByNode.get(node);
+            if (nodeKeys == null) {
+                nodeKeys = new ArrayList<String>();
+                keysByNode.put(node, nodeKeys);
+            }
+            nodeKeys.add(key);
+        }
+
+        final List<OperationFuture<Boolean>> futures = new ArrayList<OperationFuture<Boolean>>(keysByNode.size());
+        boolean dropped = false;
+        for (Map.Entry<MemcachedNode, Collection<String>> entry : keysByNode.entrySet()) {
+            final MemcachedNode node = entry.getKey();
+            final Collection<String> nodeKeys = entry.getValue();
+            if (!ensureWriteQueueSize(node, nodeKeys.iterator().next())) {
+                if (log.isInfoEnabled()) log.info("Node : " + node + " is not active. Failing fast and dropping the bulk write of " + nodeKeys.size() + " keys.");
+                dropped = true;
+                continue;
+            }
+            if (command == EVCacheBulkWriteOperationImpl.SETQ) {
+                futures.add(evcacheMemcachedClient.setBulk(node, nodeKeys, data, timeToLive));
+            } else if (command == EVCacheBulkWriteOperationImpl.DELETEQ) {
+                futures.add(evcacheMemcachedClient.deleteBulk(node, nodeKeys));
+            } else {
+                futures.add(evcacheMemcachedClient.touchBulk(node, nodeKeys, timeToLive));
+            }
+        }
+
+        if (futures.size() < keys.size()) {
+            final String operation = (command == EVCacheBulkWriteOperationImpl.SETQ) ? "SetBulk" : (command == EVCacheBulkWriteOperationImpl.DELETEQ) ? "DeleteBulk" : "TouchBulk";
+            EVCacheMetricsFactory.getCounter(appName, null, serverGroup.getName(), appName + "-" + operation + "-SavedOps", DataSourceType.COUNTER).increment(keys.size() - futures.size());
+        }
+
+        return bulkFuture(futures, dropped, keys.iterator().next(), latch);
+    }
+
+    /**
+     * @return a future that completes when all the given futures have, and is
+     *         registered with the latch as a single future. A batch that
+     *         dropped some of its writes fails as a whole.
+     */
+    private Future<Boolean> bulkFuture(List<OperationFuture<Boolean>> futures, boolean dropped, String key, EVCacheLatch latch) {
+        if (dropped) {
+            final ListenableFuture<Boolean, OperationCompletionListener> defaultFuture = (ListenableFuture<Boolean, OperationCompletionListener>) getDefaultFuture();
+            if (latch != null && latch instanceof EVCacheLatchImpl && !isInWriteOnly()) ((EVCacheLatchImpl) latch).addFuture(defaultFuture);
+            return defaultFuture;
+        }
+        return new EVCacheFutures(futures.toArray(new OperationFuture[futures.size()]), key, appName, serverGroup, isInWriteOnly() ? null : latch);
+    }
+
+    private interface KeyWrite {
+        void write(String key, List<OperationFuture<Boolean>> futures) throws Exception;
+    }
+
+    /**
+     * A chunked value is stored under keys of its own, so a client with
+     * chunking enabled cannot pipeline a bulk write. It writes every key on
+     * its own like set, delete and touch do and still completes the batch
+     * as a single future.
+     */
+    private Future<Boolean> writeEachKey(Collection<String> keys, EVCacheLatch latch, KeyWrite write) throws Exception {
+        final List<OperationFuture<Boolean>> futures = new ArrayList<OperationFuture<Boolean>>(keys.size());
+        boolean dropped = false;
+        for (String key : keys) {
+            if (!ensureWriteQueueSize(evcacheMemcachedClient.getEVCacheNode(key), key)) {
+                dropped = true;
+                continue;
+            }
+            write.write(key, futures);
+        }
+        return bulkFuture(futures, dropped, keys.iterator().next(), latch);
+    }
+
+    private void setChunked(String key, CachedData value, int timeToLive, List<OperationFuture<Boolean>> futures) throws Exception {
+        if (value.getData().length > chunkSize.get()) {
+            final CachedData[] cd = createChunks(value, key);
+            for (int i = 0; i < cd.length; i++) {
+                final String prefix = (i < 10) ? "0" : "";
+                futures.add(evcacheMemcachedClient.set(key + "_" + prefix + i, timeToLive, cd[i], null, null));
+            }
+            evcacheMemcachedClient.delete(key);
+        } else {
+            delete(key);
+            futures.add(evcacheMemcachedClient.set(key, timeToLive, value, null, null));
+        }
+    }
+
+    private void deleteChunked(String key, List<OperationFuture<Boolean>> futures) {
+        final ChunkDetails<?> cd = getChunkDetails(key);
+        if (cd == null) {
+            futures.add(evcacheMemcachedClient.delete(key + "_00", null));
+        } else if (!cd.isChunked()) {
+            futures.add(evcacheMemcachedClient.delete(key, null));
+        } else {
+            futures.add(evcacheMemcachedClient.delete(key + "_00", null));
+            for (String chunkKey : cd.getChunkKeys()) {
+                futures.add(evcacheMemcachedClient.delete(chunkKey, null));
+            }
+        }
+    }
+
+    private void touchChunked(String key, int timeToLive, List<OperationFuture<Boolean>> futures) {
+        final ChunkDetails<?> cd = getChunkDetails(key);
+        if (cd != null && cd.isChunked()) {
+            futures.add(evcacheMemcachedClient.touch(key + "_00", timeToLive, (EVCacheLatch) null));
+            for (String chunkKey : cd.getChunkKeys()) {
+                futures.add(evcacheMemcachedClient.touch(chunkKey, timeToLive, (EVCacheLatch) null));
+            }
+        } else {
+            futures.add(evcacheMemcachedClient.touch(key, timeToLive, (EVCacheLatch) null));
+        }
+    }
+
+    public boolean isChunkingEnabled() {
+        return enableChunking.get();
+    }
+
     public boolean removeConnectionObserver() {
         try {
             boolean removed = evcacheMemcachedClient.removeObserver(connectionObserver);
@@ -1481,6 +1744,40 @@ public class EVCacheClient {
         }
     }
 
+    /**
+     * Called by the memcached client when a get is sent.
+     */
+    public void onReadSent() {
+        outstandingReads.incrementAndGet();
+    }
+
+    /**
+     * Called by the memcached client when a get completes, times out or is
+     * cancelled. Updates the average get latency with a weight of 1/8 for the
+     * latest sample, same as the TCP round trip estimate. The average starts at
+     * 0 so a slow first get, while the connection warms up, does not make the
+     * client look degraded.
+     */
+    public void onReadCompleted(long latencyNanos) {
+        outstandingReads.decrementAndGet();
+        final long ewma = readLatencyEwma;
+        readLatencyEwma = ewma + ((latencyNanos - ewma) >> 3);
+    }
+
+    /**
+     * @return the number of gets sent by this client that have not completed
+     */
+    public int getOutstandingReads() {
+        return outstandingReads.get();
+    }
+
+    /**
+     * @return the moving average of the get latency in nanoseconds
+     */
+    public long getReadLatencyEwma() {
+        return readLatencyEwma;
+    }
+
     public int getWriteQueueLength() {
         final Collection<MemcachedNode> allNodes = evcacheMemcachedClient.getNodeLocator().getAll();
         int size = 0;
@@ -5,10 +5,10 @@ import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -16,6 +16,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -30,12 +31,13 @@ import com.netflix.config.ChainedDynamicProperty;
 import com.netflix.config.ChainedDynamicProperty.BooleanProperty;
 import com.netflix.config.DynamicBooleanProperty;
 import com.netflix.config.DynamicIntProperty;
+import com.netflix.config.DynamicStringProperty;
 import com.netflix.config.DynamicStringSetProperty;
+import com.netflix.evcache.event.hotkey.HotKeyDetector;
 import com.netflix.evcache.metrics.EVCacheMetricsFactory;
+import com.netflix.evcache.metrics.EVCacheServerGroupCounter;
 import com.netflix.evcache.pool.observer.EVCacheConnectionObserver;
-import com.netflix.evcache.util.CircularIterator;
 import com.netflix.evcache.util.EVCacheConfig;
-import com.netflix.evcache.util.ServerGroupCircularIterator;
 import com.netflix.servo.monitor.Monitors;
 import com.netflix.servo.monitor.Stopwatch;
 import com.netflix.servo.tag.TagList;
@@ -52,7 +54,6 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
     private final String _appName;
     private final String _zone;
     private final EVCacheClientPoolManager manager;
-    private ServerGroupCircularIterator localServerGroupIterator = null;
     private final DynamicIntProperty _poolSize; // Number of MemcachedClients to each cluster
     private final ChainedDynamicProperty.IntProperty _readTimeout; // Timeout for readOperation
     private final ChainedDynamicProperty.IntProperty _bulkReadTimeout; // Timeout for readOperation
@@ -79,6 +80,22 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
     private final ThreadPoolExecutor asyncRefreshExecutor;
     private final DynamicBooleanProperty _disableAsyncRefresh;
 
+    private final DynamicStringProperty _readSelectionStrategyName;
+    private final DynamicBooleanProperty _hotKeySpread;
+    private final DynamicStringSetProperty _hotKeys;
+    private final DynamicIntProperty _hotKeySpreadMinRequests;
+    private final DynamicIntProperty _hotKeySpreadBudgetPercent;
+    /*
+     * Earned by every read of a key and spent by every hot key read that is
+     * spread, like the hedge budget of HedgedReadPolicy. Reads only add to it
+     * while it is below the cap, so a full budget is just read.
+     */
+    private final AtomicLong hotKeySpreadCredits = new AtomicLong(MAX_SPREAD_CREDITS);
+    private final EVCacheServerGroupCounter hotKeySpreadCounter;
+    private static final long CREDITS_PER_SPREAD = 100;
+    private static final long MAX_SPREAD_CREDITS = 100 * CREDITS_PER_SPREAD;
+    private volatile ReadSelectionStrategy readSelectionStrategy;
+
     @SuppressWarnings("serial")
     private final Map<ServerGroup, BooleanProperty> writeOnlyFastPropertyMap = new ConcurrentHashMap<ServerGroup, BooleanProperty>() {
         @Override
@@ -95,7 +112,27 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
         };
     };
 
+    /*
+     * Each thread claims a block of MOD_OPS_BLOCK_SIZE consecutive values from
+     * numberOfModOps and hands them out itself, so the shared counter is only
+     * touched once per block. Every thread still walks the clients in order,
+     * which keeps the round robin even without every request thread
+     * contending on the same cache line. A block starts at a random offset,
+     * otherwise the first pick of every block would be the same client
+     * whenever the number of clients divides the block size.
+     */
+    private static final int MOD_OPS_BLOCK_SIZE = 64;
     private final AtomicLong numberOfModOps = new AtomicLong(0);
+    private final ThreadLocal<long[]> modOpsBlock = new ModOpsBlock();
+    private final AtomicLong numberOfServerGroupOps = new AtomicLong(0);
+    private final ThreadLocal<long[]> serverGroupOpsBlock = new ModOpsBlock();
+
+    private static final class ModOpsBlock extends ThreadLocal<long[]> {
+        @Override
+        protected long[] initialValue() {
+            return new long[2]; // next value, end of the block
+        }
+    }
 
     private boolean _shutdown = false;
     private Map<ServerGroup, List<EVCacheClient>> memcachedInstancesByServerGroup = new ConcurrentHashMap<ServerGroup, List<EVCacheClient>>();
@@ -103,9 +140,13 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
     //private Map<ServerGroup, List<EVCacheClient>> memcachedWriteInstancesByServerGroup = Collections.synchronizedSortedMap(new TreeMap<ServerGroup, List<EVCacheClient>>());
     private Map<ServerGroup, List<EVCacheClient>> memcachedWriteInstancesByServerGroup = new ConcurrentSkipListMap<ServerGroup, List<EVCacheClient>>();
     private final Map<InetSocketAddress, Long> evCacheDiscoveryConnectionLostSet = new ConcurrentHashMap<InetSocketAddress, Long>();
-    private Map<String, ServerGroupCircularIterator> readServerGroupByZone = new ConcurrentHashMap<String, ServerGroupCircularIterator>();
-    private ServerGroupCircularIterator memcachedFallbackReadInstances = new ServerGroupCircularIterator(Collections.<ServerGroup> emptySet());
-    private CircularIterator<EVCacheClient[]> allEVCacheWriteClients = new CircularIterator<EVCacheClient[]>(Collections.<EVCacheClient[]> emptyList());
+
+    /*
+     * The maps above are only changed while holding the lock of the pool. Once
+     * they are consistent a new topology is built from them and published here,
+     * which is all that the request path reads.
+     */
+    private volatile Topology topology = Topology.EMPTY;
     private final EVCacheNodeList provider;
 
     EVCacheClientPool(final String appName, final EVCacheNodeList provider, final ThreadPoolExecutor asyncRefreshExecutor, final EVCacheClientPoolManager manager) {
@@ -119,30 +160,44 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
         this._zone = (ec2Zone == null) ? "GLOBAL" : ec2Zone;
         final EVCacheConfig config = EVCacheConfig.getInstance();
 
-        final Runnable callback =new Runnable() {
+        // The timeouts are read by every operation, so changes to them apply to
+        // the existing clients. Only a change of the pool size touches the clients.
+        this._poolSize = config.getDynamicIntProperty(appName + ".EVCacheClientPool.poolSize", 1);
+        this._poolSize.addCallback(new Runnable() {
             public void run() {
-                clearState();
-                refreshPool(true, true);
+                asyncRefreshExecutor.submit(new Runnable() {
+                    public void run() {
+                        resizePool();
+                    }
+                });
             }
-        }; 
-        this._poolSize = config.getDynamicIntProperty(appName + ".EVCacheClientPool.poolSize", 1);
-        this._poolSize.addCallback(callback);
+        });
         this._readTimeout = new ChainedDynamicProperty.IntProperty(appName + ".EVCacheClientPool.readTimeout", EVCacheClientPoolManager.getDefaultReadTimeout());
-        this._readTimeout.addCallback(callback);
         this._bulkReadTimeout = new ChainedDynamicProperty.IntProperty(appName + ".EVCacheClientPool.bulkReadTimeout", _readTimeout);
-        this._bulkReadTimeout.addCallback(callback);
 
         this.refreshConnectionOnReadQueueFull = config.getChainedBooleanProperty(appName + ".EVCacheClientPool.refresh.connection.on.readQueueFull", "EVCacheClientPool.refresh.connection.on.readQueueFull", Boolean.FALSE, null);
         this.refreshConnectionOnReadQueueFullSize = config.getChainedIntProperty(appName + ".EVCacheClientPool.refresh.connection.on.readQueueFull.size", "EVCacheClientPool.refresh.connection.on.readQueueFull.size", 100, null);
         
+        // Nodes read the queue block time when they are created, so a change
+        // applies to the connections made after it.
         this._opQueueMaxBlockTime = config.getDynamicIntProperty(appName + ".operation.QueueMaxBlockTime", 10);
-        this._opQueueMaxBlockTime.addCallback(callback);
         this._operationTimeout = config.getDynamicIntProperty(appName + ".operation.timeout", 2500);
-        this._operationTimeout.addCallback(callback);
         this._maxReadQueueSize = config.getDynamicIntProperty(appName + ".max.read.queue.length", 5);
         this._retryAcrossAllReplicas = config.getDynamicBooleanProperty(_appName + ".retry.all.copies", Boolean.FALSE);
         this._disableAsyncRefresh = config.getDynamicBooleanProperty(_appName + ".disable.async.refresh", Boolean.FALSE);
         this._maxRetries = config.getDynamicIntProperty(_appName + ".max.retry.count", 1);
+        this._readSelectionStrategyName = config.getDynamicStringProperty(_appName + ".read.selection.strategy", "RoundRobin");
+        this._readSelectionStrategyName.addCallback(new Runnable() {
+            public void run() {
+                readSelectionStrategy = createReadSelectionStrategy(_readSelectionStrategyName.get());
+            }
+        });
+        this.readSelectionStrategy = createReadSelectionStrategy(_readSelectionStrategyName.get());
+        this._hotKeySpread = config.getDynamicBooleanProperty(_appName + ".hot.key.spread.enabled", Boolean.FALSE);
+        this._hotKeys = new DynamicStringSetProperty(_appName + ".hot.keys", "");
+        this._hotKeySpreadMinRequests = config.getDynamicIntProperty(_appName + ".hot.key.spread.min.requests", 100);
+        this._hotKeySpreadBudgetPercent = config.getDynamicIntProperty(_appName + ".hot.key.spread.budget.percent", 10);
+        this.hotKeySpreadCounter = new EVCacheServerGroupCounter(_appName, null, _appName + "-HOT_KEY_SPREAD");
 
         this.logOperations = config.getDynamicIntProperty(appName + ".log.operation", 0);
         this.logOperationCalls = new DynamicStringSetProperty(appName + ".log.operation.calls", "SET,DELETE,GMISS,TMISS,BMISS_ALL,TOUCH,REPLACE");
@@ -151,6 +206,7 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
         this.cloneWrite.addCallback(new Runnable() {
             public void run() {
             	setupClones();
+            	publishTopology();
             }
         });
 
@@ -163,42 +219,99 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
         if (log.isInfoEnabled()) log.info(toString());
     }
 
+    private ReadSelectionStrategy createReadSelectionStrategy(String name) {
+        if ("LeastLoaded".equalsIgnoreCase(name)) return new LeastLoadedReadSelectionStrategy(_appName);
+        if (!"RoundRobin".equalsIgnoreCase(name)) log.warn("Unknown read selection strategy {} for app {}; using RoundRobin", name, _appName);
+        return new RoundRobinReadSelectionStrategy();
+    }
+
+    /**
+     * Always reads from the local server group and spreads the reads evenly
+     * over its clients. This is the default strategy.
+     */
+    private final class RoundRobinReadSelectionStrategy implements ReadSelectionStrategy {
+
+        @Override
+        public List<EVCacheClient> selectServerGroup(List<EVCacheClient> local, Map<ServerGroup, List<EVCacheClient>> readInstances) {
+            return local;
+        }
+
+        @Override
+        public EVCacheClient selectClient(List<EVCacheClient> clients) {
+            final long currentVal = nextModOp();
+            // Get absolute value of current val to ensure correctness even at 9 quintillion+ requests
+            // make sure to truncate after the mod. This allows up to 2^31 clients.
+            final int index = Math.abs((int) (currentVal % clients.size()));
+            return clients.get(index);
+        }
+    }
+
+    /**
+     * Replaces the strategy picked by &lt;app&gt;.read.selection.strategy
+     * until that property changes again.
+     */
+    public void setReadSelectionStrategy(ReadSelectionStrategy readSelectionStrategy) {
+        if (readSelectionStrategy == null) throw new IllegalArgumentException("readSelectionStrategy is null");
+        this.readSelectionStrategy = readSelectionStrategy;
+    }
+
+    public ReadSelectionStrategy getReadSelectionStrategy() {
+        return readSelectionStrategy;
+    }
+
+    private long nextModOp() {
+        return next(numberOfModOps, modOpsBlock);
+    }
+
+    /*
+     * Server groups are picked with a counter of their own so that the server
+     * group and the client picked for a request are not correlated.
+     */
+    private int nextServerGroup(int size) {
+        return Math.abs((int) (next(numberOfServerGroupOps, serverGroupOpsBlock) % size));
+    }
+
+    private static long next(AtomicLong counter, ThreadLocal<long[]> blocks) {
+        final long[] block = blocks.get();
+        if (block[0] == block[1]) {
+            block[0] = counter.getAndAdd(MOD_OPS_BLOCK_SIZE) + ThreadLocalRandom.current().nextInt(MOD_OPS_BLOCK_SIZE);
+            block[1] = block[0] + MOD_OPS_BLOCK_SIZE;
+        }
+        return block[0]++;
+    }
+
+    /**
+     * Builds a topology from the current server group maps and makes it visible
+     * to requests. Called after every change to the maps.
+     */
+    private synchronized void publishTopology() {
+        this.topology = new Topology(_zone, memcachedReadInstancesByServerGroup, memcachedWriteInstancesByServerGroup, cloneWrite.get());
+    }
+
     private void setupClones() {
     	for(String cloneApp : cloneWrite.get()) {
     		manager.initEVCache(cloneApp);
     	}
     }
 
-    private void clearState() {
-        cleanupMemcachedInstances(true);
-        memcachedInstancesByServerGroup.clear();
-        memcachedReadInstancesByServerGroup.clear();
-        memcachedWriteInstancesByServerGroup.clear();
-        readServerGroupByZone.clear();
-        memcachedFallbackReadInstances = new ServerGroupCircularIterator(Collections.<ServerGroup> emptySet());
-    }
-
     public EVCacheClient getEVCacheClientForRead() {
-        if (memcachedReadInstancesByServerGroup == null || memcachedReadInstancesByServerGroup.isEmpty()) {
-            if (log.isDebugEnabled()) log.debug("memcachedReadInstancesByServerGroup : "
-                    + memcachedReadInstancesByServerGroup);
+        final Topology topology = this.topology;
+        if (topology.readServerGroups.length == 0) {
+            if (log.isDebugEnabled()) log.debug("No read server groups in : " + topology);
             if(asyncRefreshExecutor.getQueue().isEmpty()) refreshPool(true, true);
             return null;
         }
 
         try {
             List<EVCacheClient> clients = null;
-            if (localServerGroupIterator != null) {
-                clients = memcachedReadInstancesByServerGroup.get(localServerGroupIterator.next());
+            final int[] local = topology.localReadServerGroups;
+            if (local.length > 0) {
+                clients = topology.readClients[local.length == 1 ? local[0] : local[nextServerGroup(local.length)]];
             }
+            clients = readSelectionStrategy.selectServerGroup(clients, topology.readInstances);
 
             if (clients == null) {
-                final ServerGroup fallbackServerGroup = memcachedFallbackReadInstances.next();
-                if (fallbackServerGroup == null) {
-                    if (log.isDebugEnabled()) log.debug("fallbackServerGroup is null.");
-                    return null;
-                }
-                clients = memcachedReadInstancesByServerGroup.get(fallbackServerGroup);
+                clients = topology.readClients[nextServerGroup(topology.readClients.length)];
             }
             return selectClient(clients);
         } catch (Throwable t) {
@@ -207,6 +320,52 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
         }
     }
 
+    public boolean isHotKeySpreadEnabled() {
+        return _hotKeySpread.get();
+    }
+
+    /**
+     * Returns the client to read the given key from. When
+     * <code>&lt;app&gt;.hot.key.spread.enabled</code> is set, a hot key is
+     * read from a random read server group instead of the local one, so its
+     * reads are spread over every copy. A key is hot if it is listed in
+     * <code>&lt;app&gt;.hot.keys</code> (canonical keys, that is with the
+     * cache prefix) or if it is a top key of the detector with at least
+     * <code>&lt;app&gt;.hot.key.spread.min.requests</code> requests. At most
+     * <code>&lt;app&gt;.hot.key.spread.budget.percent</code> of the reads are
+     * spread, the others use the zone affinity of
+     * {@link #getEVCacheClientForRead()}.
+     *
+     * @param detector
+     *            the detector that counts the keys of the app and cache, may
+     *            be null
+     */
+    public EVCacheClient getEVCacheClientForRead(String canonicalKey, HotKeyDetector detector) {
+        if (!_hotKeySpread.get()) return getEVCacheClientForRead();
+        if (hotKeySpreadCredits.get() < MAX_SPREAD_CREDITS) hotKeySpreadCredits.addAndGet(_hotKeySpreadBudgetPercent.get());
+        if (!isHotKey(canonicalKey, detector)) return getEVCacheClientForRead();
+
+        final Topology topology = this.topology;
+        if (topology.readServerGroups.length < 2 || !tryAcquireSpreadCredits()) return getEVCacheClientForRead();
+        final EVCacheClient client = selectClient(topology.readClients[ThreadLocalRandom.current().nextInt(topology.readClients.length)]);
+        if (client != null) hotKeySpreadCounter.increment(client.getServerGroupName());
+        return client;
+    }
+
+    private boolean isHotKey(String canonicalKey, HotKeyDetector detector) {
+        final Set<String> hotKeys = _hotKeys.get();
+        if (!hotKeys.isEmpty() && hotKeys.contains(canonicalKey)) return true;
+        return detector != null && detector.isTopKey(canonicalKey) && detector.estimate(canonicalKey) >= _hotKeySpreadMinRequests.get();
+    }
+
+    private boolean tryAcquireSpreadCredits() {
+        for (;;) {
+            final long current = hotKeySpreadCredits.get();
+            if (current < CREDITS_PER_SPREAD) return false;
+            if (hotKeySpreadCredits.compareAndSet(current, current - CREDITS_PER_SPREAD)) return true;
+        }
+    }
+
     private EVCacheClient selectClient(List<EVCacheClient> clients) {
         if (clients == null) {
             if (log.isDebugEnabled()) log.debug("clients is null returning null!!!");
@@ -215,23 +374,30 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
         if (clients.size() == 1) {
             return clients.get(0); // Frequently used scenario
         }
+        return readSelectionStrategy.selectClient(clients);
+    }
 
-        final long currentVal = numberOfModOps.incrementAndGet();
-        // Get absolute value of current val to ensure correctness even at 9 quintillion+ requests
-        // make sure to truncate after the mod. This allows up to 2^31 clients.
-        final int index = Math.abs((int) (currentVal % clients.size()));
-        return clients.get(index);
+    /**
+     * @return the index of the next fallback server group that is not the
+     *         given one or -1 if there is none
+     */
+    private int nextFallbackServerGroup(Topology topology, ServerGroup serverGroupToExclude) {
+        final ServerGroup[] serverGroups = topology.readServerGroups;
+        if (serverGroups.length == 0) return -1;
+        int index = nextServerGroup(serverGroups.length);
+        if (serverGroups[index].equals(serverGroupToExclude)) {
+            index = (index + 1) % serverGroups.length;
+            if (serverGroups[index].equals(serverGroupToExclude)) return -1;
+        }
+        return index;
     }
 
     public EVCacheClient getEVCacheClientForReadExclude(ServerGroup rsetUsed) {
-        if (memcachedReadInstancesByServerGroup == null || memcachedReadInstancesByServerGroup.isEmpty()) return null;
+        final Topology topology = this.topology;
         try {
-            ServerGroup fallbackServerGroup = memcachedFallbackReadInstances.next(rsetUsed);
-            if (fallbackServerGroup == null || fallbackServerGroup.equals(rsetUsed)) {
-                return null;
-            }
-            final List<EVCacheClient> clients = memcachedReadInstancesByServerGroup.get(fallbackServerGroup);
-            return selectClient(clients);
+            final int index = nextFallbackServerGroup(topology, rsetUsed);
+            if (index < 0) return null;
+            return selectClient(topology.readClients[index]);
         } catch (Throwable t) {
             log.error("Exception trying to get an readable EVCache Instances for zone {}", rsetUsed, t);
             return null;
@@ -239,17 +405,13 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
     }
 
     public EVCacheClient getEVCacheClient(ServerGroup serverGroup) {
-        if (memcachedReadInstancesByServerGroup == null || memcachedReadInstancesByServerGroup.isEmpty()) return null;
+        final Topology topology = this.topology;
+        if (topology.readServerGroups.length == 0) return null;
 
         try {
-            List<EVCacheClient> clients = memcachedReadInstancesByServerGroup.get(serverGroup);
+            List<EVCacheClient> clients = topology.readInstances.get(serverGroup);
             if (clients == null) {
-                final ServerGroup fallbackServerGroup = memcachedFallbackReadInstances.next();
-                if (fallbackServerGroup == null) {
-                    if (log.isDebugEnabled()) log.debug("fallbackServerGroup is null.");
-                    return null;
-                }
-                clients = memcachedReadInstancesByServerGroup.get(fallbackServerGroup);
+                clients = topology.readClients[nextServerGroup(topology.readClients.length)];
             }
             return selectClient(clients);
         } catch (Throwable t) {
@@ -259,35 +421,35 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
     }
 
     public List<EVCacheClient> getEVCacheClientsForReadExcluding(ServerGroup serverGroupToExclude) {
-        if (memcachedReadInstancesByServerGroup == null || memcachedReadInstancesByServerGroup.isEmpty())
-            return Collections.<EVCacheClient> emptyList();
+        final Topology topology = this.topology;
+        if (topology.readServerGroups.length == 0) return Collections.<EVCacheClient> emptyList();
         try {
             if (_retryAcrossAllReplicas.get()) {
-                List<EVCacheClient> clients = new ArrayList<EVCacheClient>(memcachedReadInstancesByServerGroup.size() - 1);
-                for (Iterator<ServerGroup> itr = memcachedReadInstancesByServerGroup.keySet().iterator(); itr
-                        .hasNext();) {
-                    final ServerGroup serverGroup = itr.next();
-                    if (serverGroup.equals(serverGroupToExclude)) continue;
-
-                    final List<EVCacheClient> clientList = memcachedReadInstancesByServerGroup.get(serverGroup);
-                    final EVCacheClient client = selectClient(clientList);
+                final List<EVCacheClient> clients = new ArrayList<EVCacheClient>(topology.readServerGroups.length);
+                for (int i = 0; i < topology.readServerGroups.length; i++) {
+                    if (topology.readServerGroups[i].equals(serverGroupToExclude)) continue;
+
+                    final EVCacheClient client = selectClient(topology.readClients[i]);
                     if (client != null) clients.add(client);
                 }
                 return clients;
             } else {
-                if(_maxRetries.get() == 1) {
-                    final EVCacheClient client = getEVCacheClientForReadExclude(serverGroupToExclude);
-                    if (client != null) return Collections.singletonList(client);
+                final int maxRetries = _maxRetries.get();
+                if(maxRetries == 1) {
+                    final int index = nextFallbackServerGroup(topology, serverGroupToExclude);
+                    if (index >= 0) {
+                        final EVCacheClient client = selectClient(topology.readClients[index]);
+                        if (client != null) return Collections.singletonList(client);
+                    }
                 } else {
-                    final List<EVCacheClient> clients = new ArrayList<EVCacheClient>(_maxRetries.get());
-                    for(int i = 0; i < _maxRetries.get(); i++) {
-                        ServerGroup fallbackServerGroup = memcachedFallbackReadInstances.next(serverGroupToExclude);
-                        if (fallbackServerGroup == null ) {
+                    final List<EVCacheClient> clients = new ArrayList<EVCacheClient>(maxRetries);
+                    for(int i = 0; i < maxRetries; i++) {
+                        final int index = nextFallbackServerGroup(topology, serverGroupToExclude);
+                        if (index < 0) {
                             return clients;
                         }
 
-                        final List<EVCacheClient> clientList = memcachedReadInstancesByServerGroup.get(fallbackServerGroup);
-                        final EVCacheClient client = selectClient(clientList);
+                        final EVCacheClient client = selectClient(topology.readClients[index]);
                         if (client != null) clients.add(client);
                     }
                     return clients;
@@ -310,73 +472,37 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
     }
 
     public EVCacheClient[] getWriteOnlyEVCacheClients() {
-        try {
-            int size = memcachedWriteInstancesByServerGroup.size() - memcachedReadInstancesByServerGroup.size();
-            if (size == 0) return new EVCacheClient[0];
-            final EVCacheClient[] clientArr = new EVCacheClient[size];
-            for (ServerGroup serverGroup : memcachedWriteInstancesByServerGroup.keySet()) {
-                if (!memcachedReadInstancesByServerGroup.containsKey(serverGroup)) {
-                    final List<EVCacheClient> clients = memcachedWriteInstancesByServerGroup.get(serverGroup);
-                    if (clients.size() == 1) {
-                        clientArr[--size] = clients.get(0); // frequently used use case
-                    } else {
-                        final long currentVal = numberOfModOps.incrementAndGet();
-                        final int index = (int) (currentVal % clients.size());
-                        clientArr[--size] = (index < 0) ? clients.get(0) : clients.get(index);
-                    }
-                }
-            }
-            return clientArr;
-        } catch (Throwable t) {
-            log.error("Exception trying to get an array of writable EVCache Instances", t);
-            return new EVCacheClient[0];
-        }
+        final EVCacheClient[][] writeOnlyClients = topology.writeOnlyClients;
+        if (writeOnlyClients.length == 0) return new EVCacheClient[0];
+        if (writeOnlyClients.length == 1) return writeOnlyClients[0];
+        return writeOnlyClients[Math.abs((int) (nextModOp() % writeOnlyClients.length))];
     }
 
     EVCacheClient[] getAllWriteClients() {
-        try {
-            if(allEVCacheWriteClients != null) {
-                final EVCacheClient[] clientArray = allEVCacheWriteClients.next();
-                if(clientArray != null && clientArray.length > 0 ) return clientArray;
-            }
-            final EVCacheClient[] clientArr = new EVCacheClient[memcachedWriteInstancesByServerGroup.size()];
-            int i = 0;
-            for (ServerGroup serverGroup : memcachedWriteInstancesByServerGroup.keySet()) {
-                final List<EVCacheClient> clients = memcachedWriteInstancesByServerGroup.get(serverGroup);
-                if (clients.size() == 1) {
-                    clientArr[i++] = clients.get(0); // frequently used usecase
-                } else {
-                    final long currentVal = numberOfModOps.incrementAndGet();
-                    final int index = (int) (currentVal % clients.size());
-                    clientArr[i++] = (index < 0) ? clients.get(0) : clients.get(index);
-                }
-            }
-            return clientArr;
-        } catch (Throwable t) {
-            log.error("Exception trying to get an array of writable EVCache Instances", t);
-            return new EVCacheClient[0];
-        }
+        return getAllWriteClients(topology);
     }
 
+    private EVCacheClient[] getAllWriteClients(Topology topology) {
+        final EVCacheClient[][] writeClients = topology.writeClients;
+        if (writeClients.length == 0) return new EVCacheClient[0];
+        if (writeClients.length == 1) return writeClients[0]; // frequently used usecase
+        return writeClients[Math.abs((int) (nextModOp() % writeClients.length))];
+    }
 
     public EVCacheClient[] getEVCacheClientForWrite() {
         try {
-            if((cloneWrite.get().size() == 0)) {
-                return getAllWriteClients();
-            } else {
-                final List<EVCacheClient> evcacheClientList = new ArrayList<EVCacheClient>();
-                final EVCacheClient[] clientArr = getAllWriteClients();
-                for(EVCacheClient client : clientArr) {
-                    evcacheClientList.add(client);
-                }
-                for(String cloneApp : cloneWrite.get()) {
-                    final EVCacheClient[] cloneWriteArray = manager.getEVCacheClientPool(cloneApp).getAllWriteClients();
-                    for(int j = 0; j < cloneWriteArray.length; j++) {
-                        evcacheClientList.add(cloneWriteArray[j]);
-                    }
-                }
-                return evcacheClientList.toArray(new EVCacheClient[0]);
+            final Topology topology = this.topology;
+            final EVCacheClient[] clientArr = getAllWriteClients(topology);
+            if (topology.cloneApps.length == 0) return clientArr;
+
+            EVCacheClient[] allClients = clientArr;
+            for (String cloneApp : topology.cloneApps) {
+                final EVCacheClient[] cloneWriteArray = manager.getEVCacheClientPool(cloneApp).getAllWriteClients();
+                final EVCacheClient[] merged = Arrays.copyOf(allClients, allClients.length + cloneWriteArray.length);
+                System.arraycopy(cloneWriteArray, 0, merged, allClients.length, cloneWriteArray.length);
+                allClients = merged;
             }
+            return allClients;
         } catch (Throwable t) {
             log.error("Exception trying to get an array of writable EVCache Instances", t);
             return new EVCacheClient[0];
@@ -574,6 +700,83 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
         }
     }
 
+    private List<EVCacheClient> createClients(ServerGroup serverGroup, EVCacheServerGroupConfig config,
+            List<InetSocketAddress> memcachedSAInServerGroup, int fromId, int toId) {
+        final List<EVCacheClient> newClients = new ArrayList<EVCacheClient>(Math.max(0, toId - fromId));
+        for (int i = fromId; i < toId; i++) {
+            final int maxQueueSize = EVCacheConfig.getInstance().getDynamicIntProperty(_appName + ".max.queue.length", 16384).get();
+            EVCacheClient client;
+            try {
+                client = new EVCacheClient(_appName, serverGroup.getZone(), i, config, memcachedSAInServerGroup, maxQueueSize, 
+                		_maxReadQueueSize, _readTimeout, _bulkReadTimeout, _opQueueMaxBlockTime, _operationTimeout, this);
+                newClients.add(client);
+                final int id = client.getId();
+                if (log.isDebugEnabled()) log.debug("AppName :" + _appName + "; ServerGroup : " + serverGroup + "; intit : client.getId() : " + id);
+                lastReconcileTime = System.currentTimeMillis();
+            } catch (Exception e) {
+                EVCacheMetricsFactory.increment("EVCacheClientPool-" + _appName + "-" + serverGroup.getName() + "EVCacheClient-INIT_ERROR");
+                log.error("Unable to create EVCacheClient for app - {} and Server Group - {}",
+                          _appName, serverGroup.getName(), e);
+            }
+        }
+        return newClients;
+    }
+
+    /**
+     * Adds clients to or removes clients from every server group until it has
+     * &lt;app&gt;.EVCacheClientPool.poolSize of them. The other clients keep
+     * their connections.
+     */
+    synchronized void resizePool() {
+        final int poolSize = _poolSize.get();
+        if (poolSize <= 0) return;
+        for (Entry<ServerGroup, List<EVCacheClient>> entry : memcachedInstancesByServerGroup.entrySet()) {
+            final ServerGroup serverGroup = entry.getKey();
+            final List<EVCacheClient> currentClients = entry.getValue();
+            if (currentClients.isEmpty() || currentClients.size() == poolSize) continue;
+
+            final List<EVCacheClient> clients;
+            final List<EVCacheClient> removedClients;
+            if (currentClients.size() < poolSize) {
+                final EVCacheClient client = currentClients.get(0);
+                final List<EVCacheClient> addedClients = createClients(serverGroup, client.getEVCacheConfig(),
+                        client.getMemcachedNodesInZone(), currentClients.size(), poolSize);
+                clients = new ArrayList<EVCacheClient>(currentClients);
+                clients.addAll(addedClients);
+                removedClients = Collections.<EVCacheClient> emptyList();
+            } else {
+                clients = new ArrayList<EVCacheClient>(currentClients.subList(0, poolSize));
+                removedClients = new ArrayList<EVCacheClient>(currentClients.subList(poolSize, currentClients.size()));
+            }
+            if (log.isInfoEnabled()) log.info("Resizing the pool of AppName : " + _appName + "; ServerGroup : " + serverGroup
+                    + " from " + currentClients.size() + " to " + clients.size() + " clients");
+
+            entry.setValue(clients);
+            if (memcachedReadInstancesByServerGroup.containsKey(serverGroup)) memcachedReadInstancesByServerGroup.put(serverGroup, clients);
+            if (memcachedWriteInstancesByServerGroup.containsKey(serverGroup)) memcachedWriteInstancesByServerGroup.put(serverGroup, clients);
+            publishTopology();
+            drainClients(removedClients);
+        }
+    }
+
+    /*
+     * Requests that picked a client from the previous topology may still send
+     * operations to it, so removed clients are shut down once the operation
+     * timeout has passed. The shutdown then waits for their queues to drain.
+     */
+    private void drainClients(final List<EVCacheClient> clients) {
+        if (clients.isEmpty()) return;
+        manager.getEVCacheScheduledExecutor().schedule(new Runnable() {
+            public void run() {
+                asyncRefreshExecutor.submit(new Runnable() {
+                    public void run() {
+                        shutdownClientsInZone(clients);
+                    }
+                });
+            }
+        }, _operationTimeout.get(), TimeUnit.MILLISECONDS);
+    }
+
     private void setupNewClientsByServerGroup(ServerGroup serverGroup, List<EVCacheClient> newClients) {
         final List<EVCacheClient> currentClients = memcachedInstancesByServerGroup.put(serverGroup, newClients);
 
@@ -585,7 +788,7 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
             memcachedReadInstancesByServerGroup.put(serverGroup, newClients);
         }
         memcachedWriteInstancesByServerGroup.put(serverGroup, newClients);
-        setupAllEVCacheWriteClientsArray();
+        publishTopology();
 
         if (currentClients == null || currentClients.isEmpty()) return;
 
@@ -651,27 +854,7 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
             }
         }
 
-        if (memcachedReadInstancesByServerGroup.size() != memcachedFallbackReadInstances.getSize()) {
-            memcachedFallbackReadInstances = new ServerGroupCircularIterator(memcachedReadInstancesByServerGroup.keySet());
-
-            Map<String, Set<ServerGroup>> readServerGroupByZoneMap = new ConcurrentHashMap<String, Set<ServerGroup>>();
-            for (ServerGroup serverGroup : memcachedReadInstancesByServerGroup.keySet()) {
-                Set<ServerGroup> serverGroupList = readServerGroupByZoneMap.get(serverGroup.getZone());
-                if (serverGroupList == null) {
-                    serverGroupList = new HashSet<ServerGroup>();
-                    readServerGroupByZoneMap.put(serverGroup.getZone(), serverGroupList);
-                }
-                serverGroupList.add(serverGroup);
-            }
-
-            Map<String, ServerGroupCircularIterator> _readServerGroupByZone = new ConcurrentHashMap<String, ServerGroupCircularIterator>();
-            for (Entry<String, Set<ServerGroup>> readServerGroupByZoneEntry : readServerGroupByZoneMap.entrySet()) {
-                _readServerGroupByZone.put(readServerGroupByZoneEntry.getKey(), new ServerGroupCircularIterator(
-                        readServerGroupByZoneEntry.getValue()));
-            }
-            this.readServerGroupByZone = _readServerGroupByZone;
-            localServerGroupIterator = readServerGroupByZone.get(_zone);
-        }
+        publishTopology();
     }
 
     private void cleanupMemcachedInstances(boolean force) {
@@ -696,7 +879,6 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
                     client.getConnectionObserver().shutdown();
                 }
                 it.remove();
-                allEVCacheWriteClients = null;
             }
 
         }
@@ -715,7 +897,6 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
                 return;
             }
 
-            boolean updateAllEVCacheWriteClients = false;
             for (Entry<ServerGroup, EVCacheServerGroupConfig> serverGroupEntry : instances.entrySet()) {
                 final ServerGroup serverGroup = serverGroupEntry.getKey();
                 final EVCacheServerGroupConfig config = serverGroupEntry.getValue();
@@ -733,7 +914,7 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
                     final List<EVCacheClient> clients = memcachedInstancesByServerGroup.remove(serverGroup);
                     memcachedReadInstancesByServerGroup.remove(serverGroup);
                     memcachedWriteInstancesByServerGroup.remove(serverGroup);
-                    setupAllEVCacheWriteClientsArray();
+                    publishTopology();
                     for (EVCacheClient client : clients) {
                         if (log.isDebugEnabled()) log.debug("\n\tApp : " + _appName + "\n\tServerGroup : " + serverGroup
                                 + "\n\tClient : " + client + " will be shutdown in 30 seconds.");
@@ -768,34 +949,13 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
                     // now since there is a change with the instances in the
                     // zone. let us go ahead and create a new EVCacheClient with
                     // the new settings
-                    final int poolSize = _poolSize.get();
-                    final List<EVCacheClient> newClients = new ArrayList<EVCacheClient>(poolSize);
-                    for (int i = 0; i < poolSize; i++) {
-                        final int maxQueueSize = EVCacheConfig.getInstance().getDynamicIntProperty(_appName + ".max.queue.length", 16384).get();
-                        EVCacheClient client;
-                        try {
-                            client = new EVCacheClient(_appName, zone, i, config, memcachedSAInServerGroup, maxQueueSize, 
-                            		_maxReadQueueSize, _readTimeout, _bulkReadTimeout, _opQueueMaxBlockTime, _operationTimeout, this);
-                            newClients.add(client);
-                            final int id = client.getId();
-                            if (log.isDebugEnabled()) log.debug("AppName :" + _appName + "; ServerGroup : " + serverGroup + "; intit : client.getId() : " + id);
-                            lastReconcileTime = System.currentTimeMillis();
-                        } catch (Exception e) {
-                            EVCacheMetricsFactory.increment("EVCacheClientPool-" + _appName + "-" + serverGroup.getName() + "EVCacheClient-INIT_ERROR");
-                            log.error("Unable to create EVCacheClient for app - {} and Server Group - {}",
-                                      _appName, serverGroup.getName(), e);
-                        }
-                    }
+                    final List<EVCacheClient> newClients = createClients(serverGroup, config, memcachedSAInServerGroup, 0, _poolSize.get());
                     if (newClients.size() > 0) {
                         setupNewClientsByServerGroup(serverGroup, newClients);
-                        updateAllEVCacheWriteClients = true;
                     }
                 }
             }
-            
-            if(updateAllEVCacheWriteClients) {
-                setupAllEVCacheWriteClientsArray();
-            }
+
 
             // Check to see if a zone has been removed, if so remove them from
             // the active list
@@ -816,32 +976,6 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
         if (log.isDebugEnabled()) log.debug("refresh APP : " + _appName + "; DONE");
     }
     
-    private void setupAllEVCacheWriteClientsArray() {
-        final List<EVCacheClient[]> newClients = new ArrayList<EVCacheClient[]>(_poolSize.get());
-        try {
-            final int serverGroupSize = memcachedWriteInstancesByServerGroup.size();
-            for(int ind = 0; ind < _poolSize.get(); ind++) {
-                final EVCacheClient[] clientArr = new EVCacheClient[serverGroupSize];
-                int i = 0;
-                for (ServerGroup serverGroup : memcachedWriteInstancesByServerGroup.keySet()) {
-                    final List<EVCacheClient> clients = memcachedWriteInstancesByServerGroup.get(serverGroup);
-                    if(clients.size() > ind) {
-                    	clientArr[i++] = clients.get(ind); // frequently used usecase
-                    } else {
-                    	log.warn("Incorrect pool size detected for AppName : " + _appName + "; PoolSize " + _poolSize.get() + "; serverGroup : " + serverGroup + "; ind : " + ind + "; i : " + i);
-                    	if(clients.size() > 0) {
-                    		clientArr[i++] = clients.get(0);
-                    	}
-                    }
-                }
-                newClients.add(clientArr);
-            }
-            this.allEVCacheWriteClients = new CircularIterator<EVCacheClient[]>(newClients);
-        } catch (Throwable t) {
-            log.error("Exception trying to create an array of writable EVCache Instances for App : " + _appName, t);
-        }
-    }
-
     private void updateQueueStats() {
         for (ServerGroup serverGroup : memcachedInstancesByServerGroup.keySet()) {
             List<EVCacheClient> clients = memcachedInstancesByServerGroup.get(serverGroup);
@@ -883,14 +1017,14 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
         }
     }
 
-    public void serverGroupDisabled(final ServerGroup serverGroup) {
+    public synchronized void serverGroupDisabled(final ServerGroup serverGroup) {
         if (memcachedInstancesByServerGroup.containsKey(serverGroup)) {
             if (log.isDebugEnabled()) log.debug("\n\tApp : " + _appName + "\n\tServerGroup : " + serverGroup
                     + " has no active servers. Cleaning up this ServerGroup.");
             final List<EVCacheClient> clients = memcachedInstancesByServerGroup.remove(serverGroup);
             memcachedReadInstancesByServerGroup.remove(serverGroup);
             memcachedWriteInstancesByServerGroup.remove(serverGroup);
-            setupAllEVCacheWriteClientsArray();
+            publishTopology();
             for (EVCacheClient client : clients) {
                 if (log.isDebugEnabled()) log.debug("\n\tApp : " + _appName + "\n\tServerGroup : " + serverGroup
                         + "\n\tClient : " + client + " will be shutdown in 30 seconds.");
@@ -1022,9 +1156,18 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
     }
 
     public Map<String, String> getReadServerGroupByZone() {
+        final Map<String, List<ServerGroup>> serverGroupsByZone = new HashMap<String, List<ServerGroup>>();
+        for (ServerGroup serverGroup : topology.readServerGroups) {
+            List<ServerGroup> serverGroups = serverGroupsByZone.get(serverGroup.getZone());
+            if (serverGroups == null) {
+                serverGroups = new ArrayList<ServerGroup>();
+                serverGroupsByZone.put(serverGroup.getZone(), serverGroups);
+            }
+            serverGroups.add(serverGroup);
+        }
         final Map<String, String> instanceMap = new HashMap<String, String>();
-        for (String key : readServerGroupByZone.keySet()) {
-            instanceMap.put(key, readServerGroupByZone.get(key).toString());
+        for (Entry<String, List<ServerGroup>> entry : serverGroupsByZone.entrySet()) {
+            instanceMap.put(entry.getKey(), entry.getValue().toString());
         }
         return instanceMap;
     }
@@ -1056,11 +1199,11 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
     }
 
     public String getFallbackServerGroup() {
-        return memcachedFallbackReadInstances.toString();
+        return Arrays.toString(topology.readServerGroups);
     }
 
     public boolean supportsFallback() {
-        return memcachedFallbackReadInstances.getSize() > 1;
+        return topology.readServerGroups.length > 1;
     }
 
     public boolean isLogEventEnabled() {
@@ -1075,12 +1218,18 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
 
     @Override
     public String getLocalServerGroupCircularIterator() {
-        return (localServerGroupIterator == null) ? "NONE" : localServerGroupIterator.toString();
+        final Topology topology = this.topology;
+        if (topology.localReadServerGroups.length == 0) return "NONE";
+        final List<ServerGroup> local = new ArrayList<ServerGroup>(topology.localReadServerGroups.length);
+        for (int index : topology.localReadServerGroups) {
+            local.add(topology.readServerGroups[index]);
+        }
+        return local.toString();
     }
 
     @Override
     public String getEVCacheWriteClientsCircularIterator() {
-        return (allEVCacheWriteClients == null) ? "NONE" : allEVCacheWriteClients.toString();
+        return topology.toString();
     }
 
     public String getPoolDetails() {
@@ -1090,7 +1239,7 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
     @Override
     public String toString() {
         return "\nEVCacheClientPool [\n\t_appName=" + _appName + ",\n\t_zone=" + _zone
-                + ",\n\tlocalServerGroupIterator=" + localServerGroupIterator + ",\n\t_poolSize=" + _poolSize
+                + ",\n\t_poolSize=" + _poolSize
                 + ",\n\t_readTimeout=" + _readTimeout + ",\n\t_bulkReadTimeout=" + _bulkReadTimeout
                 + ",\n\tlogOperations=" + logOperations + ",\n\t_opQueueMaxBlockTime="
                 + _opQueueMaxBlockTime + ",\n\t_operationTimeout=" + _operationTimeout + ",\n\t_maxReadQueueSize="
@@ -1100,9 +1249,7 @@ public class EVCacheClientPool implements Runnable, EVCacheClientPoolMBean {
                 + ",\n\t_shutdown=" + _shutdown + ",\n\tmemcachedInstancesByServerGroup="
                 + memcachedInstancesByServerGroup + ",\n\tmemcachedReadInstancesByServerGroup="
                 + memcachedReadInstancesByServerGroup + ",\n\tmemcachedWriteInstancesByServerGroup="
-                + memcachedWriteInstancesByServerGroup + ",\n\treadServerGroupByZone="
-                + readServerGroupByZone + ",\n\tmemcachedFallbackReadInstances=" + memcachedFallbackReadInstances
-                + ", \n\tallEVCacheWriteClients=" + allEVCacheWriteClients
+                + memcachedWriteInstancesByServerGroup + ",\n\ttopology=" + topology
                 + "\n]";
     }
 
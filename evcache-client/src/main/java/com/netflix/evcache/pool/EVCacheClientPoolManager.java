@@ -1,12 +1,12 @@
 package com.netflix.evcache.pool;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -28,9 +28,12 @@ import com.netflix.discovery.DiscoveryClient;
 import com.netflix.discovery.DiscoveryManager;
 import com.netflix.evcache.EVCacheImpl;
 import com.netflix.evcache.EVCacheInMemoryCache;
+import com.netflix.evcache.HotKeyCache;
 import com.netflix.evcache.connection.DefaultFactoryProvider;
 import com.netflix.evcache.connection.IConnectionFactoryProvider;
 import com.netflix.evcache.event.EVCacheEventListener;
+import com.netflix.evcache.event.EVCacheEventListeners;
+import com.netflix.evcache.event.hotkey.HotKeyDetector;
 import com.netflix.evcache.util.EVCacheConfig;
 
 import net.spy.memcached.transcoders.Transcoder;
@@ -81,7 +84,8 @@ public class EVCacheClientPoolManager {
     private final EVCacheExecutor syncExecutor;
     private final DiscoveryClient discoveryClient;
     private final ApplicationInfoManager applicationInfoManager;
-    private final List<EVCacheEventListener> evcacheEventListenerList;
+    private final CopyOnWriteArrayList<EVCacheEventListener> evcacheEventListenerList;
+    private final Map<String, EVCacheEventListeners> eventListenersMap = new ConcurrentHashMap<String, EVCacheEventListeners>();
     private final Provider<IConnectionFactoryProvider> connectionFactoryprovider;
 
     @Inject
@@ -90,7 +94,7 @@ public class EVCacheClientPoolManager {
         this.applicationInfoManager = applicationInfoManager;
         this.discoveryClient = discoveryClient;
         this.connectionFactoryprovider = connectionFactoryprovider;
-        this.evcacheEventListenerList = new ArrayList<EVCacheEventListener>();
+        this.evcacheEventListenerList = new CopyOnWriteArrayList<EVCacheEventListener>();
         this.asyncExecutor = new EVCacheScheduledExecutor(Runtime.getRuntime().availableProcessors(),Runtime.getRuntime().availableProcessors(), 30, TimeUnit.SECONDS, new ThreadPoolExecutor.CallerRunsPolicy(), "scheduled");
         asyncExecutor.prestartAllCoreThreads();
         this.syncExecutor = new EVCacheExecutor(Runtime.getRuntime().availableProcessors(),Runtime.getRuntime().availableProcessors(), 30, TimeUnit.SECONDS, new ThreadPoolExecutor.CallerRunsPolicy(), "pool");
@@ -104,17 +108,43 @@ public class EVCacheClientPoolManager {
     }
 
     public void addEVCacheEventListener(EVCacheEventListener listener) {
-        this.evcacheEventListenerList.add(listener);
+        if (this.evcacheEventListenerList.addIfAbsent(listener)) refreshEVCacheEventListeners();
     }
 
     public void removeEVCacheEventListener(EVCacheEventListener listener) {
-        this.evcacheEventListenerList.remove(listener);
+        if (this.evcacheEventListenerList.remove(listener)) refreshEVCacheEventListeners();
     }
 
     public List<EVCacheEventListener> getEVCacheEventListeners() {
         return this.evcacheEventListenerList;
     }
 
+    /**
+     * @return the listeners of the given app resolved by call
+     */
+    public EVCacheEventListeners getEVCacheEventListeners(String appName) {
+        final EVCacheEventListeners listeners = eventListenersMap.get(appName);
+        if (listeners != null) return listeners;
+        synchronized (eventListenersMap) {
+            return eventListenersMap.computeIfAbsent(appName, app -> new EVCacheEventListeners(app, evcacheEventListenerList));
+        }
+    }
+
+    /**
+     * Resolves the listeners of every app again. Has to be called by a
+     * listener whose {@link EVCacheEventListener#isEnabled(String, com.netflix.evcache.EVCache.Call)}
+     * answer changed.
+     */
+    public void refreshEVCacheEventListeners() {
+        synchronized (eventListenersMap) {
+            for (EVCacheEventListeners listeners : eventListenersMap.values()) {
+                listeners.markStale();
+            }
+            eventListenersMap.clear();
+        }
+        if (log.isDebugEnabled()) log.debug("EVCache event listeners : " + evcacheEventListenerList);
+    }
+
     /**
      * @deprecated. Please use DependencyInjection (@Inject) to obtain
      * {@link EVCacheClientPoolManager}. The use of this can result in
@@ -266,4 +296,30 @@ public class EVCacheClientPoolManager {
         return (EVCacheInMemoryCache<T>) inMemoryMap.get(appName);
     }
 
+    private final Map<String, HotKeyDetector> hotKeyDetectorMap = new ConcurrentHashMap<String, HotKeyDetector>();
+
+    /**
+     * @return the hot key detector of the given app and cache, which is
+     *         created on first use
+     */
+    public HotKeyDetector getHotKeyDetector(String appName, String cacheName) {
+        final String key = (cacheName == null) ? appName : appName + ":" + cacheName;
+        HotKeyDetector detector = hotKeyDetectorMap.get(key);
+        if (detector != null) return detector;
+        return hotKeyDetectorMap.computeIfAbsent(key, k -> new HotKeyDetector(appName, cacheName));
+    }
+
+    private final Map<String, HotKeyCache> hotKeyCacheMap = new ConcurrentHashMap<String, HotKeyCache>();
+
+    /**
+     * @return the hot key cache of the given app and cache, which is shared
+     *         by all {@link EVCacheImpl}s of the app and cache
+     */
+    public HotKeyCache getHotKeyCache(String appName, String cacheName) {
+        final String key = (cacheName == null) ? appName : appName + ":" + cacheName;
+        HotKeyCache cache = hotKeyCacheMap.get(key);
+        if (cache != null) return cache;
+        return hotKeyCacheMap.computeIfAbsent(key, k -> new HotKeyCache(appName, cacheName, this));
+    }
+
 }
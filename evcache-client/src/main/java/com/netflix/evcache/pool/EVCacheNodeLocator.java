@@ -1,8 +1,10 @@
 package com.netflix.evcache.pool;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -24,7 +26,7 @@ import com.netflix.evcache.util.EVCacheConfig;
 public class EVCacheNodeLocator implements NodeLocator {
 
     private static Logger log = LoggerFactory.getLogger(EVCacheNodeLocator.class);
-    private TreeMap<Long, MemcachedNode> ketamaNodes;
+    private volatile Continuum continuum;
     private final String appName;
     private final ServerGroup serverGroup;
 
@@ -62,9 +64,9 @@ public class EVCacheNodeLocator implements NodeLocator {
         setKetamaNodes(nodes);
     }
 
-    private EVCacheNodeLocator(String appName, ServerGroup serverGroup, TreeMap<Long, MemcachedNode> smn, Collection<MemcachedNode> an, HashAlgorithm alg, KetamaNodeLocatorConfiguration conf) {
+    private EVCacheNodeLocator(String appName, ServerGroup serverGroup, Continuum continuum, Collection<MemcachedNode> an, HashAlgorithm alg, KetamaNodeLocatorConfiguration conf) {
         super();
-        this.ketamaNodes = smn;
+        this.continuum = continuum;
         this.allNodes = an;
         this.hashingAlgorithm = alg;
         this.config = conf;
@@ -93,65 +95,69 @@ public class EVCacheNodeLocator implements NodeLocator {
             }
         }
 
-        final long _hash = hashingAlgorithm.hash(k);
-        Long hash = Long.valueOf(_hash);
-        hash = ketamaNodes.ceilingKey(hash);
-        if (hash == null) {
-            hash = ketamaNodes.firstKey();
-        }
-        return ketamaNodes.get(hash);
+        return getNodeForKey(hashingAlgorithm.hash(k));
     }
 
     /*
      * @return Returns the max key in the hashing distribution
      */
     public long getMaxKey() {
-        return getKetamaNodes().lastKey().longValue();
+        final long[] hashes = continuum.hashes;
+        return hashes[hashes.length - 1];
     }
 
     public MemcachedNode getNodeForKey(long _hash) {
-        long start = (log.isDebugEnabled()) ? System.nanoTime() : 0;
-        try {
-            Long hash = Long.valueOf(_hash);
-            hash = ketamaNodes.ceilingKey(hash);
-            if (hash == null) {
-                hash = ketamaNodes.firstKey();
-            }
-            return ketamaNodes.get(hash);
-        } finally {
-            if (log.isDebugEnabled()) {
-                final long end = System.nanoTime();
-                log.debug("getNodeForKey : \t" + (end - start) / 1000);
-            }
-        }
+        return continuum.getNode(_hash);
+    }
+
+    /**
+     * @return the current continuum, for locators that walk the ring
+     */
+    final Continuum getContinuum() {
+        return continuum;
     }
 
     public Iterator<MemcachedNode> getSequence(String k) {
-        final List<MemcachedNode> allKetamaNodes = new ArrayList<MemcachedNode>(getKetamaNodes().values());
+        final List<MemcachedNode> allKetamaNodes = new ArrayList<MemcachedNode>(Arrays.asList(continuum.nodes));
         Collections.shuffle(allKetamaNodes);
         return allKetamaNodes.iterator();
     }
 
     public NodeLocator getReadonlyCopy() {
-        final TreeMap<Long, MemcachedNode> ketamaNaodes = new TreeMap<Long, MemcachedNode>(getKetamaNodes());
+        final Continuum current = continuum;
+        final Map<MemcachedNode, MemcachedNode> roNodes = new IdentityHashMap<MemcachedNode, MemcachedNode>();
+        final MemcachedNode[] nodes = new MemcachedNode[current.nodes.length];
         final Collection<MemcachedNode> aNodes = new ArrayList<MemcachedNode>(allNodes.size());
 
-        // Rewrite the values a copy of the map.
-        for (Map.Entry<Long, MemcachedNode> me : ketamaNaodes.entrySet()) {
-            me.setValue(new EVCacheMemcachedNodeROImpl(me.getValue()));
-        }
         // Copy the allNodes collection.
         for (MemcachedNode n : allNodes) {
-            aNodes.add(new EVCacheMemcachedNodeROImpl(n));
+            final MemcachedNode roNode = new EVCacheMemcachedNodeROImpl(n);
+            roNodes.put(n, roNode);
+            aNodes.add(roNode);
+        }
+        // Rewrite the values with the read only copy of the node.
+        for (int i = 0; i < nodes.length; i++) {
+            MemcachedNode roNode = roNodes.get(current.nodes[i]);
+            if (roNode == null) {
+                roNode = new EVCacheMemcachedNodeROImpl(current.nodes[i]);
+                roNodes.put(current.nodes[i], roNode);
+            }
+            nodes[i] = roNode;
         }
 
-        return new EVCacheNodeLocator(appName, serverGroup, ketamaNaodes, aNodes, hashingAlgorithm, config);
+        return new EVCacheNodeLocator(appName, serverGroup, new Continuum(current.hashes, nodes, null), aNodes, hashingAlgorithm, config);
     }
 
     /**
-     * @return the ketamaNodes
+     * @return a copy of the ketamaNodes as a sorted map. This is built on
+     *         every call and is meant for admin purposes
      */
     protected TreeMap<Long, MemcachedNode> getKetamaNodes() {
+        final Continuum current = continuum;
+        final TreeMap<Long, MemcachedNode> ketamaNodes = new TreeMap<Long, MemcachedNode>();
+        for (int i = 0; i < current.hashes.length; i++) {
+            ketamaNodes.put(Long.valueOf(current.hashes[i]), current.nodes[i]);
+        }
         return ketamaNodes;
     }
 
@@ -160,49 +166,148 @@ public class EVCacheNodeLocator implements NodeLocator {
      *         purposes
      */
     public Map<Long, MemcachedNode> getKetamaNodeMap() {
-        return Collections.<Long, MemcachedNode> unmodifiableMap(ketamaNodes);
+        return Collections.<Long, MemcachedNode> unmodifiableMap(getKetamaNodes());
     }
 
     /**
      * Setup the KetamaNodeLocator with the list of nodes it should use.
      *
+     * The points of every node are kept with the continuum, so only the nodes
+     * that were added since the last call are hashed. When no two nodes share
+     * a point the new continuum is merged from the old one and the points of
+     * the added nodes, otherwise it is rebuilt from the kept points.
+     *
      * @param nodes
      *            a List of MemcachedNodes for this KetamaNodeLocator to use in
      *            its continuum
      */
-    protected final void setKetamaNodes(List<MemcachedNode> nodes) {
-        TreeMap<Long, MemcachedNode> newNodeMap = new TreeMap<Long, MemcachedNode>();
-        final int numReps = config.getNodeRepetitions();
+    protected final synchronized void setKetamaNodes(List<MemcachedNode> nodes) {
+        final Continuum current = continuum;
+        final boolean incremental = current != null && current.points != null && current.complete;
+        final Map<MemcachedNode, long[]> points = new IdentityHashMap<MemcachedNode, long[]>(nodes.size() * 2);
+        final List<MemcachedNode> added = new ArrayList<MemcachedNode>();
         for (MemcachedNode node : nodes) {
-            // Ketama does some special work with md5 where it reuses chunks.
-            if (hashingAlgorithm == DefaultHashAlgorithm.KETAMA_HASH) {
-                for (int i = 0; i < numReps / 4; i++) {
-                	final String hashString = config.getKeyForNode(node, i);
-                    byte[] digest = DefaultHashAlgorithm.computeMd5(hashString);
-                    if (log.isDebugEnabled()) log.debug("digest : " + digest);
-                    for (int h = 0; h < 4; h++) {
-                        long k = ((long) (digest[3 + h * 4] & 0xFF) << 24)
-                                | ((long) (digest[2 + h * 4] & 0xFF) << 16)
-                                | ((long) (digest[1 + h * 4] & 0xFF) << 8)
-                                | (digest[h * 4] & 0xFF);
-                        newNodeMap.put(Long.valueOf(k), node);
-                        if (log.isDebugEnabled()) log.debug("Key : " + hashString + " ; hash : " + k + "; node " + node );
-                    }
-                }
-            } else {
-                for (int i = 0; i < numReps; i++) {
-                    final Long hashL = Long.valueOf(hashingAlgorithm.hash(config.getKeyForNode(node, i)));
-                    newNodeMap.put(hashL, node);
+            if (points.containsKey(node)) continue;
+            long[] nodePoints = (current == null || current.points == null) ? null : current.points.get(node);
+            if (nodePoints == null) {
+                nodePoints = getPoints(node);
+                added.add(node);
+            }
+            points.put(node, nodePoints);
+        }
+
+        if (incremental && added.isEmpty() && points.size() == current.points.size()) {
+            if (log.isDebugEnabled()) log.debug("Nodes unchanged; keeping the continuum of " + current.hashes.length + " points");
+            return;
+        }
+
+        final Continuum newContinuum;
+        if (incremental) {
+            newContinuum = merge(current, nodes, points, added);
+        } else {
+            final TreeMap<Long, MemcachedNode> newNodeMap = new TreeMap<Long, MemcachedNode>();
+            for (MemcachedNode node : nodes) {
+                for (long k : points.get(node)) {
+                    newNodeMap.put(Long.valueOf(k), node);
                 }
             }
+            final long[] hashes = new long[newNodeMap.size()];
+            final MemcachedNode[] ketamaNodes = new MemcachedNode[newNodeMap.size()];
+            int i = 0;
+            for (Map.Entry<Long, MemcachedNode> entry : newNodeMap.entrySet()) {
+                hashes[i] = entry.getKey().longValue();
+                ketamaNodes[i] = entry.getValue();
+                i++;
+            }
+            newContinuum = new Continuum(hashes, ketamaNodes, points);
         }
-        if (log.isDebugEnabled()) log.debug("NewNodeMapSize : " + newNodeMap.size() + "; MapSize : " + (numReps * nodes.size()));
+        if (log.isDebugEnabled()) log.debug("NewNodeMapSize : " + newContinuum.hashes.length + "; MapSize : " + (config.getNodeRepetitions() * nodes.size())
+                + "; added : " + added.size() + "; incremental : " + incremental);
         if (log.isTraceEnabled()) {
-            for (Long key : newNodeMap.keySet()) {
-                log.trace("Hash : " + key + "; Node : " + newNodeMap.get(key));
+            for (int i = 0; i < newContinuum.hashes.length; i++) {
+                log.trace("Hash : " + newContinuum.hashes[i] + "; Node : " + newContinuum.nodes[i]);
             }
         }
-        ketamaNodes = newNodeMap;
+        continuum = newContinuum;
+    }
+
+    /*
+     * Merges the points of the nodes that are kept with the points of the
+     * added nodes. Where two nodes share a point the node that comes later in
+     * the list wins, the same as a rebuild.
+     */
+    private Continuum merge(Continuum current, List<MemcachedNode> nodes, Map<MemcachedNode, long[]> points, List<MemcachedNode> added) {
+        final TreeMap<Long, MemcachedNode> addedNodeMap = new TreeMap<Long, MemcachedNode>();
+        for (MemcachedNode node : added) {
+            for (long k : points.get(node)) {
+                addedNodeMap.put(Long.valueOf(k), node);
+            }
+        }
+
+        final long[] hashes = new long[current.hashes.length + addedNodeMap.size()];
+        final MemcachedNode[] ketamaNodes = new MemcachedNode[hashes.length];
+        final Iterator<Map.Entry<Long, MemcachedNode>> addedEntries = addedNodeMap.entrySet().iterator();
+        Map.Entry<Long, MemcachedNode> nextAdded = addedEntries.hasNext() ? addedEntries.next() : null;
+        int n = 0;
+        for (int i = 0; i < current.hashes.length; i++) {
+            final MemcachedNode node = current.nodes[i];
+            if (!points.containsKey(node)) continue;
+            final long k = current.hashes[i];
+            while (nextAdded != null && nextAdded.getKey().longValue() < k) {
+                hashes[n] = nextAdded.getKey().longValue();
+                ketamaNodes[n++] = nextAdded.getValue();
+                nextAdded = addedEntries.hasNext() ? addedEntries.next() : null;
+            }
+            hashes[n] = k;
+            if (nextAdded != null && nextAdded.getKey().longValue() == k) {
+                ketamaNodes[n++] = nodes.indexOf(nextAdded.getValue()) > nodes.indexOf(node) ? nextAdded.getValue() : node;
+                nextAdded = addedEntries.hasNext() ? addedEntries.next() : null;
+            } else {
+                ketamaNodes[n++] = node;
+            }
+        }
+        while (nextAdded != null) {
+            hashes[n] = nextAdded.getKey().longValue();
+            ketamaNodes[n++] = nextAdded.getValue();
+            nextAdded = addedEntries.hasNext() ? addedEntries.next() : null;
+        }
+        if (n == hashes.length) return new Continuum(hashes, ketamaNodes, points);
+        return new Continuum(Arrays.copyOf(hashes, n), Arrays.copyOf(ketamaNodes, n), points);
+    }
+
+    /**
+     * @return the sorted, distinct points of the given node on the continuum
+     */
+    private long[] getPoints(MemcachedNode node) {
+        final int numReps = config.getNodeRepetitions();
+        final long[] points = new long[numReps];
+        int n = 0;
+        // Ketama does some special work with md5 where it reuses chunks.
+        if (hashingAlgorithm == DefaultHashAlgorithm.KETAMA_HASH) {
+            for (int i = 0; i < numReps / 4; i++) {
+                final String hashString = config.getKeyForNode(node, i);
+                byte[] digest = DefaultHashAlgorithm.computeMd5(hashString);
+                if (log.isDebugEnabled()) log.debug("digest : " + digest);
+                for (int h = 0; h < 4; h++) {
+                    long k = ((long) (digest[3 + h * 4] & 0xFF) << 24)
+                            | ((long) (digest[2 + h * 4] & 0xFF) << 16)
+                            | ((long) (digest[1 + h * 4] & 0xFF) << 8)
+                            | (digest[h * 4] & 0xFF);
+                    points[n++] = k;
+                    if (log.isDebugEnabled()) log.debug("Key : " + hashString + " ; hash : " + k + "; node " + node );
+                }
+            }
+        } else {
+            for (int i = 0; i < numReps; i++) {
+                points[n++] = hashingAlgorithm.hash(config.getKeyForNode(node, i));
+            }
+        }
+        Arrays.sort(points, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || points[distinct - 1] != points[i]) points[distinct++] = points[i];
+        }
+        return distinct == points.length ? points : Arrays.copyOf(points, distinct);
     }
 
     @Override
@@ -212,9 +317,59 @@ public class EVCacheNodeLocator implements NodeLocator {
 
 	@Override
 	public String toString() {
-		return "EVCacheNodeLocator [ketamaNodes=" + ketamaNodes + ", appName=" + appName + ", serverGroup="
+		return "EVCacheNodeLocator [ketamaNodes=" + getKetamaNodes() + ", appName=" + appName + ", serverGroup="
 				+ serverGroup + ", partialStringHash=" + partialStringHash + ", hashDelimiter=" + hashDelimiter
 				+ ", allNodes=" + allNodes + ", hashingAlgorithm=" + hashingAlgorithm + ", config=" + config + "]";
 	}
 
-}
\ No newline at end of file
+    /**
+     * The ketama continuum as a sorted array of hashes and a parallel array
+     * of the node that owns each hash. It is never modified once built, so
+     * a lookup works on a consistent snapshot even while the ring is being
+     * rebuilt. It also keeps the points of every node, which the next update
+     * reuses instead of hashing the node again.
+     */
+    static final class Continuum {
+        final long[] hashes;
+        final MemcachedNode[] nodes;
+        /** the points of each node, or null if they are not known */
+        final Map<MemcachedNode, long[]> points;
+        /** true if every point of every node is on the continuum */
+        private final boolean complete;
+
+        Continuum(long[] hashes, MemcachedNode[] nodes, Map<MemcachedNode, long[]> points) {
+            this.hashes = hashes;
+            this.nodes = nodes;
+            this.points = points;
+            int count = 0;
+            if (points != null) {
+                for (long[] nodePoints : points.values()) {
+                    count += nodePoints.length;
+                }
+            }
+            this.complete = points != null && count == hashes.length;
+        }
+
+        /**
+         * @return the index of the first hash that is greater than or equal
+         *         to the given hash, wrapping around to the first point
+         */
+        int indexOf(long hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                index = -index - 1;
+                if (index == hashes.length) index = 0;
+            }
+            return index;
+        }
+
+        /**
+         * @return the node owning the first hash that is greater than or
+         *         equal to the given hash, wrapping around to the first node
+         */
+        MemcachedNode getNode(long hash) {
+            return nodes[indexOf(hash)];
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.netflix.evcache.pool;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.config.DynamicIntProperty;
+import com.netflix.evcache.metrics.EVCacheMetricsFactory;
+import com.netflix.evcache.util.EVCacheConfig;
+
+/**
+ * Sends reads to the least loaded client, where the load of a client is its
+ * average get latency times the number of gets it has outstanding.
+ *
+ * Reads stay in the local zone while its server group answers within
+ * &lt;app&gt;.read.selection.degraded.latency.ms. Once it is slower than that
+ * and more than &lt;app&gt;.read.selection.degraded.ratio times as loaded as
+ * the best other server group the reads go to the other server group. One in
+ * {@link #PROBE_INTERVAL} of them still goes to the local server group so we
+ * notice when it recovers.
+ *
+ * Within a server group two random clients are compared and the less loaded
+ * one is picked.
+ */
+public class LeastLoadedReadSelectionStrategy implements ReadSelectionStrategy {
+
+    static final int PROBE_INTERVAL = 16;
+
+    private final String appName;
+    private final DynamicIntProperty degradedLatencyMillis;
+    private final DynamicIntProperty degradedRatio;
+    private final AtomicLong numberOfDegradedReads = new AtomicLong(0);
+
+    public LeastLoadedReadSelectionStrategy(String appName) {
+        this.appName = appName;
+        final EVCacheConfig config = EVCacheConfig.getInstance();
+        this.degradedLatencyMillis = config.getDynamicIntProperty(appName + ".read.selection.degraded.latency.ms", 5);
+        this.degradedRatio = config.getDynamicIntProperty(appName + ".read.selection.degraded.ratio", 3);
+    }
+
+    @Override
+    public List<EVCacheClient> selectServerGroup(List<EVCacheClient> local, Map<ServerGroup, List<EVCacheClient>> readInstances) {
+        if (local == null || readInstances.size() < 2) return local;
+
+        final long localLoad = load(local);
+        if (localLoad <= TimeUnit.MILLISECONDS.toNanos(degradedLatencyMillis.get())) return local;
+        if (numberOfDegradedReads.incrementAndGet() % PROBE_INTERVAL == 0) return local;
+
+        List<EVCacheClient> best = null;
+        long bestLoad = Long.MAX_VALUE;
+        for (List<EVCacheClient> clients : readInstances.values()) {
+            if (clients == local || clients.isEmpty()) continue;
+            final long load = load(clients);
+            if (load < bestLoad) {
+                best = clients;
+                bestLoad = load;
+            }
+        }
+        if (best == null || localLoad <= bestLoad * degradedRatio.get()) return local;
+
+        EVCacheMetricsFactory.increment(appName, null, local.get(0).getServerGroupName(), appName + "-READ_ROUTED_AWAY");
+        return best;
+    }
+
+    @Override
+    public EVCacheClient selectClient(List<EVCacheClient> clients) {
+        final int size = clients.size();
+        if (size == 1) return clients.get(0);
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) second++;
+        final EVCacheClient a = clients.get(first);
+        final EVCacheClient b = clients.get(second);
+        return load(b) < load(a) ? b : a;
+    }
+
+    /**
+     * @return the load of the least loaded client of a server group
+     */
+    private static long load(List<EVCacheClient> clients) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < clients.size(); i++) {
+            min = Math.min(min, load(clients.get(i)));
+        }
+        return min;
+    }
+
+    static long load(EVCacheClient client) {
+        return Math.max(1, client.getReadLatencyEwma()) * (client.getOutstandingReads() + 1);
+    }
+}
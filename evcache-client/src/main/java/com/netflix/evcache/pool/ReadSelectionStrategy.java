@@ -0,0 +1,37 @@
+package com.netflix.evcache.pool;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which server group and which {@link EVCacheClient} of a server group
+ * a read is sent to.
+ *
+ * The strategy used by an app is selected with
+ * &lt;app&gt;.read.selection.strategy or set with
+ * {@link EVCacheClientPool#setReadSelectionStrategy(ReadSelectionStrategy)}. The
+ * default, RoundRobin, always reads from the local zone and spreads the reads
+ * evenly over the clients of a server group.
+ */
+public interface ReadSelectionStrategy {
+
+    /**
+     * Picks the server group a read that prefers the local zone is sent to.
+     *
+     * @param local
+     *            the clients of the next server group in the local zone or
+     *            null if there is none
+     * @param readInstances
+     *            the clients of every server group that serves reads
+     * @return the clients to pick from or null to use the fallback server
+     *         groups
+     */
+    List<EVCacheClient> selectServerGroup(List<EVCacheClient> local, Map<ServerGroup, List<EVCacheClient>> readInstances);
+
+    /**
+     * @param clients
+     *            the clients of a server group, never empty
+     * @return the client a read is sent to
+     */
+    EVCacheClient selectClient(List<EVCacheClient> clients);
+}
@@ -0,0 +1,113 @@
+package com.netflix.evcache.pool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * An immutable view of the clients of an {@link EVCacheClientPool} that reads
+ * and writes are routed on.
+ *
+ * The pool builds a new topology whenever its server groups change and
+ * publishes it with a single volatile write, so a request never sees a pool
+ * that is half way through a refresh. Everything a request needs is
+ * precomputed into arrays that are indexed with a round robin counter.
+ */
+final class Topology {
+
+    static final Topology EMPTY = new Topology("NONE", Collections.<ServerGroup, List<EVCacheClient>> emptyMap(),
+            Collections.<ServerGroup, List<EVCacheClient>> emptyMap(), Collections.<String> emptySet());
+
+    /** the read server groups in fallback order */
+    final ServerGroup[] readServerGroups;
+    /** the clients of each read server group, same order as readServerGroups */
+    final List<EVCacheClient>[] readClients;
+    /** indexes into readServerGroups of the server groups in the local zone */
+    final int[] localReadServerGroups;
+    /** the clients of every read server group */
+    final Map<ServerGroup, List<EVCacheClient>> readInstances;
+    /** one array per client id with a client of every write server group */
+    final EVCacheClient[][] writeClients;
+    /** one array per client id with a client of every write only server group */
+    final EVCacheClient[][] writeOnlyClients;
+    /** the apps every write is cloned to */
+    final String[] cloneApps;
+
+    @SuppressWarnings("unchecked")
+    Topology(String zone, Map<ServerGroup, List<EVCacheClient>> readInstancesByServerGroup,
+            Map<ServerGroup, List<EVCacheClient>> writeInstancesByServerGroup, Collection<String> cloneApps) {
+        final Map<ServerGroup, List<EVCacheClient>> read = sorted(readInstancesByServerGroup);
+        final Map<ServerGroup, List<EVCacheClient>> write = sorted(writeInstancesByServerGroup);
+
+        this.readServerGroups = read.keySet().toArray(new ServerGroup[read.size()]);
+        this.readClients = (List<EVCacheClient>[]) new List<?>[readServerGroups.length];
+        final Map<ServerGroup, List<EVCacheClient>> readInstances = new HashMap<ServerGroup, List<EVCacheClient>>();
+        int locals = 0;
+        for (int i = 0; i < readServerGroups.length; i++) {
+            readClients[i] = read.get(readServerGroups[i]);
+            readInstances.put(readServerGroups[i], readClients[i]);
+            if (readServerGroups[i].getZone().equals(zone)) locals++;
+        }
+        this.readInstances = Collections.unmodifiableMap(readInstances);
+        this.localReadServerGroups = new int[locals];
+        for (int i = 0, j = 0; i < readServerGroups.length; i++) {
+            if (readServerGroups[i].getZone().equals(zone)) localReadServerGroups[j++] = i;
+        }
+
+        final Map<ServerGroup, List<EVCacheClient>> writeOnly = new TreeMap<ServerGroup, List<EVCacheClient>>(write);
+        writeOnly.keySet().removeAll(read.keySet());
+        this.writeClients = byClientId(write);
+        this.writeOnlyClients = byClientId(writeOnly);
+        this.cloneApps = cloneApps.toArray(new String[cloneApps.size()]);
+    }
+
+    private static Map<ServerGroup, List<EVCacheClient>> sorted(Map<ServerGroup, List<EVCacheClient>> instances) {
+        final Map<ServerGroup, List<EVCacheClient>> sorted = new TreeMap<ServerGroup, List<EVCacheClient>>();
+        for (Entry<ServerGroup, List<EVCacheClient>> entry : instances.entrySet()) {
+            final List<EVCacheClient> clients = entry.getValue();
+            if (clients == null || clients.isEmpty()) continue;
+            sorted.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<EVCacheClient>(clients)));
+        }
+        return sorted;
+    }
+
+    /*
+     * A server group with fewer clients than the others, which can happen while
+     * the pool size changes, fills its slots by wrapping around its clients.
+     */
+    private static EVCacheClient[][] byClientId(Map<ServerGroup, List<EVCacheClient>> instances) {
+        int poolSize = 0;
+        for (List<EVCacheClient> clients : instances.values()) {
+            poolSize = Math.max(poolSize, clients.size());
+        }
+        final EVCacheClient[][] byClientId = new EVCacheClient[poolSize][];
+        for (int ind = 0; ind < poolSize; ind++) {
+            final EVCacheClient[] clientArr = new EVCacheClient[instances.size()];
+            int i = 0;
+            for (List<EVCacheClient> clients : instances.values()) {
+                clientArr[i++] = clients.get(ind % clients.size());
+            }
+            byClientId[ind] = clientArr;
+        }
+        return byClientId;
+    }
+
+    @Override
+    public String toString() {
+        final List<String> writes = new ArrayList<String>(writeClients.length);
+        for (EVCacheClient[] clients : writeClients) {
+            writes.add(Arrays.toString(clients));
+        }
+        return "Topology [readServerGroups=" + Arrays.toString(readServerGroups)
+                + ", localReadServerGroups=" + Arrays.toString(localReadServerGroups)
+                + ", writeClients=" + writes
+                + ", writeOnlyServerGroups=" + (writeOnlyClients.length == 0 ? 0 : writeOnlyClients[0].length)
+                + ", cloneApps=" + Arrays.toString(cloneApps) + "]";
+    }
+}
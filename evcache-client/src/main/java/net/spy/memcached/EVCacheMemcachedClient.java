@@ -12,8 +12,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -21,8 +21,11 @@ import org.slf4j.LoggerFactory;
 
 import com.netflix.config.ChainedDynamicProperty;
 import com.netflix.config.DynamicLongProperty;
+import com.netflix.evcache.EVCache.Call;
 import com.netflix.evcache.EVCacheGetOperationListener;
 import com.netflix.evcache.EVCacheLatch;
+import com.netflix.evcache.metrics.EVCacheLatencyMetrics;
+import com.netflix.evcache.metrics.EVCacheLatencyRecorder;
 import com.netflix.evcache.metrics.EVCacheMetricsFactory;
 import com.netflix.evcache.operation.EVCacheBulkGetFuture;
 import com.netflix.evcache.operation.EVCacheLatchImpl;
@@ -50,6 +53,7 @@ import net.spy.memcached.ops.StatusCode;
 import net.spy.memcached.ops.StoreOperation;
 import net.spy.memcached.ops.StoreType;
 import net.spy.memcached.protocol.binary.BinaryOperationFactory;
+import net.spy.memcached.protocol.binary.EVCacheBulkWriteOperationImpl;
 import net.spy.memcached.protocol.binary.EVCacheNodeImpl;
 import net.spy.memcached.transcoders.Transcoder;
 import net.spy.memcached.util.StringUtils;
@@ -68,6 +72,7 @@ public class EVCacheMemcachedClient extends MemcachedClient {
     private final ConnectionFactory connectionFactory;
     private final Map<String, Counter> counterMap = new ConcurrentHashMap<String, Counter>();
     private final Map<String, Timer> timerMap = new ConcurrentHashMap<String, Timer>();
+    private final EVCacheLatencyRecorder serverGroupLatency;
 
     private DistributionSummary getDataSize, bulkDataSize, getAndTouchDataSize;
     private DynamicLongProperty mutateOperationTimeout;
@@ -83,6 +88,7 @@ public class EVCacheMemcachedClient extends MemcachedClient {
         this.readTimeout = readTimeout;
         this.serverGroup = serverGroup;
         this.client = client;
+        this.serverGroupLatency = EVCacheLatencyMetrics.getInstance(appName).getRecorder(serverGroup.getName(), null);
     }
 
     public NodeLocator getNodeLocator() {
@@ -101,11 +107,14 @@ public class EVCacheMemcachedClient extends MemcachedClient {
         final CountDownLatch latch = new CountDownLatch(1);
         final EVCacheOperationFuture<T> rv = new EVCacheOperationFuture<T>(key, latch, new AtomicReference<T>(null), readTimeout.get().intValue(), executorService, appName, serverGroup);
         final Stopwatch operationDuration = getTimer(GET_OPERATION_STRING).start();
+        final long sentAt = System.nanoTime();
+        final AtomicBoolean readCompleted = new AtomicBoolean(false);
         Operation op = opFact.get(key, new GetOperation.Callback() {
             private Future<T> val = null;
 
             public void receivedStatus(OperationStatus status) {
                 operationDuration .stop();
+                recordLatency(rv, Call.GET, operationDuration);
                 try {
                     if (val != null) {
                         rv.set(val.get(), status);
@@ -145,12 +154,15 @@ public class EVCacheMemcachedClient extends MemcachedClient {
             }
 
             public void complete() {
+                // a cancel after the get completed calls complete again
+                if (client != null && readCompleted.compareAndSet(false, true)) client.onReadCompleted(System.nanoTime() - sentAt);
                 latch.countDown();
                 rv.signalComplete();
             }
         });
         rv.setOperation(op);
         if (listener != null) rv.addListener(listener);
+        if (client != null) client.onReadSent();
         mconn.enqueueOperation(key, op);
         return rv;
     }
@@ -181,7 +193,7 @@ public class EVCacheMemcachedClient extends MemcachedClient {
         int initialLatchCount = chunks.isEmpty() ? 0 : 1;
         final CountDownLatch latch = new CountDownLatch(initialLatchCount);
         final Collection<Operation> ops = new ArrayList<Operation>(chunks.size());
-        final EVCacheBulkGetFuture<T> rv = new EVCacheBulkGetFuture<T>(appName, m, ops, latch, executorService, serverGroup, metricName);
+        final EVCacheBulkGetFuture<T> rv = new EVCacheBulkGetFuture<T>(appName, m, ops, latch, executorService, serverGroup, getTimer(metricName));
         final Stopwatch operationDuration = getTimer(BULK_OPERATION_STRING).start(); 
         GetOperation.Callback cb = new GetOperation.Callback() {
             @Override
@@ -203,6 +215,7 @@ public class EVCacheMemcachedClient extends MemcachedClient {
             @Override
             public void complete() {
                 if (pendingChunks.decrementAndGet() <= 0) {
+                    serverGroupLatency.record(Call.BULK, operationDuration.getDuration(TimeUnit.MICROSECONDS));
                     latch.countDown();
                     rv.signalComplete();
                 }
@@ -233,6 +246,7 @@ public class EVCacheMemcachedClient extends MemcachedClient {
 
             public void receivedStatus(OperationStatus status) {
                 operationDuration.stop();
+                recordLatency(rv, Call.GET_AND_TOUCH, operationDuration);
                 rv.set(val, status);
             }
 
@@ -282,12 +296,13 @@ public class EVCacheMemcachedClient extends MemcachedClient {
 
     public OperationFuture<Boolean> delete(String key, EVCacheLatch evcacheLatch) {
         final CountDownLatch latch = new CountDownLatch(1);
-        final OperationFuture<Boolean> rv = new OperationFuture<Boolean>(key, latch, connectionFactory.getOperationTimeout(), executorService);
+        final EVCacheOperationFuture<Boolean> rv = new EVCacheOperationFuture<Boolean>(key, latch, new AtomicReference<Boolean>(null), connectionFactory.getOperationTimeout(), executorService, appName, serverGroup);
         final Stopwatch operationDuration = getTimer(DELETE_STRING).start();
         final DeleteOperation.Callback callback = new DeleteOperation.Callback() {
             @Override
             public void receivedStatus(OperationStatus status) {
                 operationDuration.stop();
+                recordLatency(rv, Call.DELETE, operationDuration);
                 rv.set(Boolean.TRUE, status);
                 if (status.getStatusCode().equals(StatusCode.SUCCESS)) {
                     getCounter(DELETE_OPERATION_SUCCESS_STRING).increment();
@@ -317,12 +332,13 @@ public class EVCacheMemcachedClient extends MemcachedClient {
 
     public <T> OperationFuture<Boolean> touch(final String key, final int exp, EVCacheLatch evcacheLatch) {
         final CountDownLatch latch = new CountDownLatch(1);
-        final OperationFuture<Boolean> rv = new OperationFuture<Boolean>(key, latch, connectionFactory.getOperationTimeout(), executorService);
+        final EVCacheOperationFuture<Boolean> rv = new EVCacheOperationFuture<Boolean>(key, latch, new AtomicReference<Boolean>(null), connectionFactory.getOperationTimeout(), executorService, appName, serverGroup);
         final Stopwatch operationDuration = getTimer(TOUCH_OPERATION_STRING).start();
         Operation op = opFact.touch(key, exp, new OperationCallback() {
             @Override
             public void receivedStatus(OperationStatus status) {
                 operationDuration.stop();
+                recordLatency(rv, Call.TOUCH, operationDuration);
                 rv.set(status.isSuccess(), status);
 
                 if (status.getStatusCode().equals(StatusCode.SUCCESS)) {
@@ -347,7 +363,7 @@ public class EVCacheMemcachedClient extends MemcachedClient {
 
     public <T> OperationFuture<Boolean> asyncAppendOrAdd(final String key, int exp, CachedData co, EVCacheLatch evcacheLatch) {
         final CountDownLatch latch = new CountDownLatch(1);
-        final OperationFuture<Boolean> rv = new EVCacheOperationFuture<Boolean>(key, latch, new AtomicReference<Boolean>(null), connectionFactory.getOperationTimeout(), executorService, appName, serverGroup);
+        final EVCacheOperationFuture<Boolean> rv = new EVCacheOperationFuture<Boolean>(key, latch, new AtomicReference<Boolean>(null), connectionFactory.getOperationTimeout(), executorService, appName, serverGroup);
         final Stopwatch operationDuration = getTimer(AOA_STRING).start();
         Operation op = opFact.cat(ConcatenationType.append, 0, key, co.getData(),
                 new OperationCallback() {
@@ -370,6 +386,7 @@ public class EVCacheMemcachedClient extends MemcachedClient {
             public void complete() {
                 if(appendSuccess)  {
                     operationDuration.stop();
+                    recordLatency(rv, Call.APPEND_OR_ADD, operationDuration);
                     latch.countDown();
                     rv.signalComplete();
                 } else {
@@ -400,6 +417,7 @@ public class EVCacheMemcachedClient extends MemcachedClient {
                                     }
                                     public void complete() {
                                         operationDuration.stop();
+                                        recordLatency(rv, Call.APPEND_OR_ADD, operationDuration);
                                         latch.countDown();
                                         rv.signalComplete();
                                     }
@@ -418,6 +436,7 @@ public class EVCacheMemcachedClient extends MemcachedClient {
                         public void complete() {
                             if(appendSuccess) {
                                 operationDuration.stop();
+                                recordLatency(rv, Call.APPEND_OR_ADD, operationDuration);
                                 latch.countDown();
                                 rv.signalComplete();
                             }
@@ -443,6 +462,16 @@ public class EVCacheMemcachedClient extends MemcachedClient {
         return timer;
     }
 
+    /**
+     * Records the latency of the operation of the given future in the
+     * histograms of the node that handled it.
+     */
+    private void recordLatency(EVCacheOperationFuture<?> rv, Call call, Stopwatch operationDuration) {
+        final Operation op = rv.getOperation();
+        final MemcachedNode node = (op == null) ? null : op.getHandlingNode();
+        if (node instanceof EVCacheNodeImpl) ((EVCacheNodeImpl) node).recordLatency(call, operationDuration.getDuration(TimeUnit.MICROSECONDS));
+    }
+
     private Counter getCounter(String counterMetric) {
         Counter counter = counterMap.get(counterMetric);
         if(counter != null) return counter;
@@ -462,19 +491,23 @@ public class EVCacheMemcachedClient extends MemcachedClient {
         final CountDownLatch latch = new CountDownLatch(1);
         final String operationStr;
         final String operationSuccessStr;
+        final Call call;
         if (storeType == StoreType.set) {
             operationStr = SET_OPERATION_STRING;
             operationSuccessStr = SET_OPERATION_SUCCESS_STRING;
+            call = Call.SET;
         } else if (storeType == StoreType.add) {
             operationStr = ADD_OPERATION_STRING;
             operationSuccessStr = ADD_OPERATION_SUCCESS_STRING;
+            call = Call.ADD;
         } else {
             operationStr = REPLACE_OPERATION_STRING;
             operationSuccessStr = REPLACE_OPERATION_SUCCESS_STRING;
+            call = Call.REPLACE;
         }
 
         final Timer timer = getTimer(operationStr);
-        final OperationFuture<Boolean> rv = new EVCacheOperationFuture<Boolean>(key, latch, new AtomicReference<Boolean>(null), connectionFactory.getOperationTimeout(), executorService, appName, serverGroup);
+        final EVCacheOperationFuture<Boolean> rv = new EVCacheOperationFuture<Boolean>(key, latch, new AtomicReference<Boolean>(null), connectionFactory.getOperationTimeout(), executorService, appName, serverGroup);
         Operation op = opFact.store(storeType, key, co.getFlags(), exp, co.getData(), new StoreOperation.Callback() {
             
             final Stopwatch operationDuration = timer.start();
@@ -482,6 +515,7 @@ public class EVCacheMemcachedClient extends MemcachedClient {
             @Override
             public void receivedStatus(OperationStatus val) {
                 operationDuration.stop();
+                recordLatency(rv, call, operationDuration);
                 if (log.isDebugEnabled()) log.debug("Storing Key : " + key + "; Status : " + val.getStatusCode().name()
                         + "; Message : " + val.getMessage() + "; Elapsed Time - " + operationDuration.getDuration(TimeUnit.MILLISECONDS));
                 if (val.getStatusCode().equals(StatusCode.SUCCESS)) {
@@ -527,61 +561,125 @@ public class EVCacheMemcachedClient extends MemcachedClient {
         return asyncStore(StoreType.add, key, exp, o, t, latch);
     }
 
+    public EVCacheOperationFuture<Boolean> setBulk(MemcachedNode node, Collection<String> keys, Map<String, CachedData> data, int exp) {
+        return asyncBulkWrite(node, EVCacheBulkWriteOperationImpl.SETQ, keys, data, exp, SET_BULK_OPERATION_STRING, Call.SET_BULK);
+    }
+
+    public EVCacheOperationFuture<Boolean> deleteBulk(MemcachedNode node, Collection<String> keys) {
+        return asyncBulkWrite(node, EVCacheBulkWriteOperationImpl.DELETEQ, keys, null, 0, DELETE_BULK_OPERATION_STRING, Call.DELETE_BULK);
+    }
+
+    public EVCacheOperationFuture<Boolean> touchBulk(MemcachedNode node, Collection<String> keys, int exp) {
+        return asyncBulkWrite(node, EVCacheBulkWriteOperationImpl.TOUCH, keys, null, exp, TOUCH_BULK_OPERATION_STRING, Call.TOUCH_BULK);
+    }
+
+    /**
+     * Sends all the given keys to the node as a single pipelined operation.
+     * The keys must all map to the given node. The future is true only if
+     * every key was written successfully.
+     */
+    private EVCacheOperationFuture<Boolean> asyncBulkWrite(MemcachedNode node, byte command, final Collection<String> keys, Map<String, CachedData> data, int exp, final String operationStr, final Call call) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final String key = keys.iterator().next();
+        final EVCacheOperationFuture<Boolean> rv = new EVCacheOperationFuture<Boolean>(key, latch, new AtomicReference<Boolean>(null), connectionFactory.getOperationTimeout(), executorService, appName, serverGroup);
+        final Stopwatch operationDuration = getTimer(operationStr).start();
+        final Operation op = new EVCacheBulkWriteOperationImpl(command, keys, data, exp, new EVCacheBulkWriteOperationImpl.Callback() {
+            @Override
+            public void gotFailure(String k, OperationStatus status) {
+                getCounter(operationStr + "-" + status.getStatusCode().name()).increment();
+                if (log.isDebugEnabled()) log.debug(operationStr + " failed for Key : " + k + "; Status : " + status.getStatusCode().name() + "; Message : " + status.getMessage());
+            }
+
+            @Override
+            public void receivedStatus(OperationStatus val) {
+                operationDuration.stop();
+                recordLatency(rv, call, operationDuration);
+                if (val.isSuccess()) getCounter(operationStr + "-SUCCESS").increment();
+                if (log.isDebugEnabled()) log.debug(operationStr + " of " + keys.size() + " keys on node " + node + "; Status : " + val.getStatusCode().name()
+                        + "; Message : " + val.getMessage() + "; Elapsed Time - " + operationDuration.getDuration(TimeUnit.MILLISECONDS));
+                rv.set(val.isSuccess(), val);
+            }
+
+            @Override
+            public void complete() {
+                latch.countDown();
+                rv.signalComplete();
+            }
+        });
+        rv.setOperation(op);
+        mconn.checkState();
+        mconn.addOperation(node, op);
+        return rv;
+    }
+
     public long incr(String key, long by, long def, int exp) {
-        final Stopwatch operationDuration = getTimer(INCR_OPERATION_STRING).start();
-        long val = 0;
-        try {
-            val = mutate(Mutator.incr, key, by, def, exp);
-        } finally {
-            operationDuration.stop();
-            if (log.isDebugEnabled()) log.debug("Increment Key : " + key + "; by : " + by + "; default : " + def + "; exp : " + exp 
-                    + "; val : " + val + "; Elapsed Time - " + operationDuration.getDuration(TimeUnit.MILLISECONDS));
-        }
+        final long val = mutate(Mutator.incr, key, by, def, exp);
+        if (log.isDebugEnabled()) log.debug("Increment Key : " + key + "; by : " + by + "; default : " + def + "; exp : " + exp + "; val : " + val);
         return val;
     }
 
 
     public long decr(String key, long by, long def, int exp) {
-        final Stopwatch operationDuration = getTimer(DECR_OPERATION_STRING).start();
-        long val = 0;
-        try {
-            val = super.decr(key, by, def, exp);
-        } finally {
-            operationDuration.stop();
-            if (log.isDebugEnabled()) log.debug("decrement Key : " + key + "; by : " + by + "; default : " + def + "; exp : " + exp 
-                    + "; val : " + val + "; Elapsed Time - " + (operationDuration.getDuration(TimeUnit.MILLISECONDS)));
-        }
+        final long val = mutate(Mutator.decr, key, by, def, exp);
+        if (log.isDebugEnabled()) log.debug("decrement Key : " + key + "; by : " + by + "; default : " + def + "; exp : " + exp + "; val : " + val);
         return val;
     }
 
     public long mutate(Mutator m, String key, long by, long def, int exp) {
-        final AtomicLong rv = new AtomicLong();
+        try {
+            final Long val = asyncMutate(m, key, by, def, exp).get(getMutateOperationTimeout(), TimeUnit.MILLISECONDS, false, false);
+            getLogger().debug("Mutation returned " + val);
+            return (val == null) ? -1 : val.longValue();
+        } catch (InterruptedException e) {
+            log.error("InterruptedException", e);
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) log.debug("Exception mutating key : " + key, e);
+        }
+        return -1;
+    }
+
+    public EVCacheOperationFuture<Long> asyncIncr(String key, long by, long def, int exp) {
+        return asyncMutate(Mutator.incr, key, by, def, exp);
+    }
+
+    public EVCacheOperationFuture<Long> asyncDecr(String key, long by, long def, int exp) {
+        return asyncMutate(Mutator.decr, key, by, def, exp);
+    }
+
+    /**
+     * Enqueues the mutate operation and returns without waiting for the
+     * reply. The future holds the new value or -1 if the mutation failed.
+     */
+    public EVCacheOperationFuture<Long> asyncMutate(Mutator m, final String key, long by, long def, int exp) {
         final CountDownLatch latch = new CountDownLatch(1);
-        mconn.enqueueOperation(key, opFact.mutate(m, key, by, def, exp, new OperationCallback() {
+        final EVCacheOperationFuture<Long> rv = new EVCacheOperationFuture<Long>(key, latch, new AtomicReference<Long>(null), getMutateOperationTimeout(), executorService, appName, serverGroup);
+        final Stopwatch operationDuration = getTimer(m == Mutator.incr ? INCR_OPERATION_STRING : DECR_OPERATION_STRING).start();
+        final Operation op = opFact.mutate(m, key, by, def, exp, new OperationCallback() {
             @Override
             public void receivedStatus(OperationStatus s) {
-                rv.set(new Long(s.isSuccess() ? s.getMessage() : "-1"));
+                operationDuration.stop();
+                recordLatency(rv, m == Mutator.incr ? Call.INCR : Call.DECR, operationDuration);
+                rv.set(Long.valueOf(s.isSuccess() ? s.getMessage() : "-1"), s);
+                if (log.isDebugEnabled()) log.debug(m.name() + " Key : " + key + "; by : " + by + "; default : " + def + "; exp : " + exp
+                        + "; Status : " + s.getStatusCode().name() + "; Elapsed Time - " + operationDuration.getDuration(TimeUnit.MILLISECONDS));
             }
 
             @Override
             public void complete() {
                 latch.countDown();
+                rv.signalComplete();
             }
-        }));
-        try {
-            if(mutateOperationTimeout == null) {
-                mutateOperationTimeout = EVCacheConfig.getInstance().getDynamicLongProperty("evache.mutate.timeout", connectionFactory.getOperationTimeout());
-            }
-
-            if (!latch.await(mutateOperationTimeout.get(), TimeUnit.MILLISECONDS)) {
-                return rv.get();
-            }
-        } catch (InterruptedException e) {
-            log.error("InterruptedException", e);
+        });
+        rv.setOperation(op);
+        mconn.enqueueOperation(key, op);
+        return rv;
+    }
 
+    private long getMutateOperationTimeout() {
+        if(mutateOperationTimeout == null) {
+            mutateOperationTimeout = EVCacheConfig.getInstance().getDynamicLongProperty("evache.mutate.timeout", connectionFactory.getOperationTimeout());
         }
-        getLogger().debug("Mutation returned " + rv);
-        return rv.get();
+        return mutateOperationTimeout.get();
     }
 
     public void reconnectNode(EVCacheNodeImpl evcNode ) {
@@ -604,6 +702,9 @@ public class EVCacheMemcachedClient extends MemcachedClient {
     private final String ADD_OPERATION_STRING = "AddOperation";
     private final String REPLACE_OPERATION_STRING = "ReplaceOperation";
     private final String INCR_OPERATION_STRING = "IncrOperation";
+    private final String SET_BULK_OPERATION_STRING = "SetBulkOperation";
+    private final String DELETE_BULK_OPERATION_STRING = "DeleteBulkOperation";
+    private final String TOUCH_BULK_OPERATION_STRING = "TouchBulkOperation";
     private final String DECR_OPERATION_STRING = "DecrOperation";
     private final String DELETE_OPERATION_SUCCESS_STRING = "DeleteOperation-SUCCESS";
     private final String SET_OPERATION_SUCCESS_STRING = "SetOperation-SUCCESS";
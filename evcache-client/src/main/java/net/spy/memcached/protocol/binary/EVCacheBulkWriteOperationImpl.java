@@ -0,0 +1,173 @@
+package net.spy.memcached.protocol.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+
+/**
+ * Writes a batch of keys that belong to the same node as one pipelined
+ * buffer. Sets and deletes are sent as their quiet variants (SETQ/DELETEQ)
+ * so the server only replies for the keys that failed. Touch has no quiet
+ * variant so every key gets a reply. The batch is terminated by a NOOP and
+ * once its reply arrives every key that has not reported a failure is
+ * considered successful. A delete of a key that is not found is not a
+ * failure; a touch of one is, as with a single touch.
+ */
+public class EVCacheBulkWriteOperationImpl extends MultiKeyOperationImpl {
+
+    public static final byte SETQ = 0x11;
+    public static final byte DELETEQ = 0x14;
+    public static final byte TOUCH = 0x1c;
+    private static final byte NOOP = 0x0a;
+
+    public interface Callback extends OperationCallback {
+        /**
+         * Called for every key in the batch the server reported as failed.
+         */
+        void gotFailure(String key, OperationStatus status);
+    }
+
+    private final byte command;
+    private final Collection<String> keys;
+    private final Map<String, CachedData> data;
+    private final int exp;
+    private final int terminalOpaque = generateOpaque();
+    private final Map<Integer, String> keysByOpaque;
+    private OperationStatus lastFailure = null;
+    private int failureCount = 0;
+
+    /**
+     * @param command
+     *            one of {@link #SETQ}, {@link #DELETEQ} or {@link #TOUCH}
+     * @param keys
+     *            the keys to write. All of them must map to the same node
+     * @param data
+     *            the values to set, keyed by key. Only used for SETQ
+     * @param exp
+     *            the expiration to set. Not used for DELETEQ
+     */
+    public EVCacheBulkWriteOperationImpl(byte command, Collection<String> keys, Map<String, CachedData> data, int exp, Callback cb) {
+        super(DUMMY_OPCODE, -1, cb);
+        if (command != SETQ && command != DELETEQ && command != TOUCH) throw new IllegalArgumentException("Unsupported command " + command);
+        this.command = command;
+        this.keys = keys;
+        this.data = data;
+        this.exp = exp;
+        this.keysByOpaque = new HashMap<Integer, String>(keys.size() * 2);
+        for (String k : keys) {
+            vbmap.put(k, Short.valueOf((short) 0));
+        }
+    }
+
+    private int extraLength() {
+        switch (command) {
+        case SETQ:
+            return 8;
+        case TOUCH:
+            return 4;
+        default:
+            return 0;
+        }
+    }
+
+    @Override
+    public void initialize() {
+        final int extraLen = extraLength();
+        final byte[][] keyBytes = new byte[keys.size()][];
+        int byteCount = MIN_RECV_PACKET; // the terminating NOOP
+        int i = 0;
+        for (String k : keys) {
+            keyBytes[i] = KeyUtil.getKeyBytes(k);
+            byteCount += MIN_RECV_PACKET + extraLen + keyBytes[i].length;
+            if (command == SETQ) byteCount += data.get(k).getData().length;
+            i++;
+        }
+
+        final ByteBuffer bb = ByteBuffer.allocate(byteCount);
+        i = 0;
+        for (String k : keys) {
+            final int myOpaque = generateOpaque();
+            keysByOpaque.put(Integer.valueOf(myOpaque), k);
+            final CachedData cd = (command == SETQ) ? data.get(k) : null;
+            final int valueLen = (cd == null) ? 0 : cd.getData().length;
+
+            bb.put(REQ_MAGIC);
+            bb.put(command);
+            bb.putShort((short) keyBytes[i].length);
+            bb.put((byte) extraLen);
+            bb.put((byte) 0); // data type
+            bb.putShort(getVBucket(k));
+            bb.putInt(keyBytes[i].length + extraLen + valueLen);
+            bb.putInt(myOpaque);
+            bb.putLong(0); // cas
+            if (command == SETQ) {
+                bb.putInt(cd.getFlags());
+                bb.putInt(exp);
+            } else if (command == TOUCH) {
+                bb.putInt(exp);
+            }
+            bb.put(keyBytes[i]);
+            if (cd != null) bb.put(cd.getData());
+            i++;
+        }
+
+        bb.put(REQ_MAGIC);
+        bb.put(NOOP);
+        bb.putShort((short) 0);
+        bb.put((byte) 0); // extralen
+        bb.put((byte) 0); // data type
+        bb.putShort((short) 0); // reserved
+        bb.putInt(0);
+        bb.putInt(terminalOpaque);
+        bb.putLong(0); // cas
+        bb.flip();
+        setBuffer(bb);
+    }
+
+    @Override
+    protected void finishedPayload(byte[] pl) throws IOException {
+        if (responseOpaque == terminalOpaque) {
+            getCallback().receivedStatus(failureCount == 0 ? STATUS_OK : lastFailure);
+            transitionState(OperationState.COMPLETE);
+        } else {
+            final String key = keysByOpaque.remove(Integer.valueOf(responseOpaque));
+            if (key != null && errorCode != SUCCESS && !isMissingKeyDeleted()) {
+                failureCount++;
+                lastFailure = new OperationStatus(false, failureCount + " of " + keys.size() + " keys failed. Last failure : " + new String(pl), StatusCode.fromBinaryCode(errorCode));
+                ((Callback) getCallback()).gotFailure(key, new OperationStatus(false, new String(pl), StatusCode.fromBinaryCode(errorCode)));
+            }
+        }
+        resetInput();
+    }
+
+    /**
+     * Deleting a key that is not there leaves the node as intended, the same
+     * as a single delete.
+     */
+    private boolean isMissingKeyDeleted() {
+        return command == DELETEQ && errorCode == ERR_NOT_FOUND;
+    }
+
+    @Override
+    protected boolean opaqueIsValid() {
+        return responseOpaque == terminalOpaque || keysByOpaque.containsKey(Integer.valueOf(responseOpaque));
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    @Override
+    public String toString() {
+        return "Cmd: " + command + " Keys: " + keys.size() + " Exp: " + exp;
+    }
+}
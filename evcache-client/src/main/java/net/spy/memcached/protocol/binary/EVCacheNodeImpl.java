@@ -7,7 +7,9 @@ import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -18,12 +20,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.netflix.config.DynamicBooleanProperty;
+import com.netflix.evcache.EVCache.Call;
+import com.netflix.evcache.metrics.EVCacheLatencyMetrics;
+import com.netflix.evcache.metrics.EVCacheLatencyRecorder;
 import com.netflix.evcache.metrics.EVCacheMetricsFactory;
 import com.netflix.evcache.pool.ServerGroup;
 import com.netflix.evcache.util.EVCacheConfig;
 import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.monitor.BasicCounter;
 import com.netflix.servo.monitor.CompositeMonitor;
+import com.netflix.servo.monitor.Counter;
 import com.netflix.servo.monitor.LongGauge;
 import com.netflix.servo.monitor.Monitor;
 import com.netflix.servo.monitor.MonitorConfig;
@@ -57,6 +63,8 @@ public class EVCacheNodeImpl extends BinaryMemcachedNodeImpl implements EVCacheN
     protected final MonitorConfig baseConfig;
     protected final TagList baseTags;
 	protected final TagList tags;
+    private final Map<String, Counter> counterMap = new ConcurrentHashMap<String, Counter>();
+    private final EVCacheLatencyRecorder latencyRecorder;
 
     private long timeoutStartTime;
 
@@ -78,6 +86,7 @@ public class EVCacheNodeImpl extends BinaryMemcachedNodeImpl implements EVCacheN
         this.metricPrefix = "EVCacheNode";
         this.baseConfig = MonitorConfig.builder(metricPrefix).build();
         baseTags = BasicTagList.concat(tags, BasicTagList.of("HOST", hostName));
+        this.latencyRecorder = EVCacheLatencyMetrics.getInstance(appName).getRecorder(_serverGroup.getName(), hostName + "_" + id);
         setupMonitoring(appName, serverGroup);
     }
 
@@ -119,6 +128,13 @@ public class EVCacheNodeImpl extends BinaryMemcachedNodeImpl implements EVCacheN
         return inputQueue.size();
     }
 
+    /**
+     * @return the operations that are queued or waiting for a response
+     */
+    public int getOutstandingOps() {
+        return inputQueue.size() + writeQ.size() + readQ.size();
+    }
+
     public long incrOps() {
         return opCount.incrementAndGet();
     }
@@ -155,6 +171,7 @@ public class EVCacheNodeImpl extends BinaryMemcachedNodeImpl implements EVCacheN
 
     public void shutdown() {
         removeMonitoring();
+        EVCacheLatencyMetrics.getInstance(_appName).removeRecorder(_serverGroup.getName(), hostName + "_" + id);
         writeQ.clear();
         readQ.clear();
         inputQueue.clear();
@@ -254,7 +271,24 @@ public class EVCacheNodeImpl extends BinaryMemcachedNodeImpl implements EVCacheN
     public TagList getBaseTags() {
 		return baseTags;
 	}
+
+    /**
+     * @return the counter with the given name that is tagged with this node,
+     *         which is looked up once per node and name
+     */
+    public Counter getCounter(String name) {
+        final Counter counter = counterMap.get(name);
+        if (counter != null) return counter;
+        return counterMap.computeIfAbsent(name, n -> EVCacheMetricsFactory.getCounter(n, baseTags));
+    }
     
+    /**
+     * Records the latency in microseconds of an operation this node handled.
+     */
+    public void recordLatency(Call call, long micros) {
+        latencyRecorder.record(call, micros);
+    }
+
     public int getTotalReconnectCount() {
         return reconnectCount.get();
     }
@@ -0,0 +1,78 @@
+package com.netflix.evcache.event;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.evcache.EVCache.Call;
+
+public class EVCacheEventListenersTest {
+
+    private static class Listener implements EVCacheEventListener {
+        private final Call call;
+        private final boolean canBeSampled;
+
+        Listener(Call call, boolean canBeSampled) {
+            this.call = call;
+            this.canBeSampled = canBeSampled;
+        }
+
+        public void onStart(EVCacheEvent e) {
+        }
+
+        public void onComplete(EVCacheEvent e) {
+        }
+
+        public void onError(EVCacheEvent e, Throwable t) {
+        }
+
+        public boolean onThrottle(EVCacheEvent e) {
+            return false;
+        }
+
+        @Override
+        public boolean isEnabled(String appName, Call call) {
+            return "EVCACHE_EVENTS".equals(appName) && (this.call == null || this.call == call);
+        }
+
+        @Override
+        public boolean canBeSampled() {
+            return canBeSampled;
+        }
+    }
+
+    @Test
+    public void testSelect() {
+        final Listener getListener = new Listener(Call.GET, false);
+        final Listener sampledListener = new Listener(null, true);
+        final EVCacheEventListeners listeners = new EVCacheEventListeners("EVCACHE_EVENTS", Arrays.<EVCacheEventListener> asList(getListener, sampledListener));
+        assertEquals(listeners.select(Call.GET), new EVCacheEventListener[] { getListener, sampledListener });
+        assertEquals(listeners.select(Call.SET), new EVCacheEventListener[] { sampledListener });
+
+        final EVCacheEventListeners other = new EVCacheEventListeners("EVCACHE_OTHER", Arrays.<EVCacheEventListener> asList(getListener, sampledListener));
+        for (Call call : Call.values()) {
+            assertNull(other.select(call), call.name());
+        }
+    }
+
+    @Test
+    public void testSampling() {
+        final Properties props = new Properties();
+        props.setProperty("EVCACHE_EVENTS.events.sample.percent", "0");
+        ConfigurationManager.loadProperties(props);
+        try {
+            final Listener getListener = new Listener(Call.GET, false);
+            final Listener sampledListener = new Listener(null, true);
+            final EVCacheEventListeners listeners = new EVCacheEventListeners("EVCACHE_EVENTS", Arrays.<EVCacheEventListener> asList(getListener, sampledListener));
+            assertEquals(listeners.select(Call.GET), new EVCacheEventListener[] { getListener });
+            assertNull(listeners.select(Call.SET));
+        } finally {
+            ConfigurationManager.getConfigInstance().setProperty("EVCACHE_EVENTS.events.sample.percent", "100");
+        }
+    }
+}
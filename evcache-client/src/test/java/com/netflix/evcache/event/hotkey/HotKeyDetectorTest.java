@@ -0,0 +1,65 @@
+package com.netflix.evcache.event.hotkey;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.netflix.config.ConfigurationManager;
+
+public class HotKeyDetectorTest {
+
+    @Test
+    public void testTopKeys() {
+        final Properties props = new Properties();
+        props.setProperty("EVCACHE_HOT_KEYS.hot.key.top.size", "5");
+        ConfigurationManager.loadProperties(props);
+        final HotKeyDetector detector = new HotKeyDetector("EVCACHE_HOT_KEYS", null);
+
+        // 5 hot keys with 200 to 600 requests each among 20000 cold keys
+        for (int i = 0; i < 20000; i++) {
+            detector.record("cold_" + i);
+            if (i % 10 == 0) {
+                for (int hot = 0; hot < 5; hot++) {
+                    if (i % (50 * (hot + 1)) < 30) detector.record("hot_" + hot);
+                }
+            }
+        }
+        final Map<String, Long> topKeys = detector.getTopKeys();
+        assertEquals(topKeys.size(), 5);
+        final List<String> keys = new ArrayList<String>(topKeys.keySet());
+        for (int hot = 0; hot < 5; hot++) {
+            assertTrue(detector.isTopKey("hot_" + hot), "hot_" + hot + " not in " + topKeys);
+        }
+        assertEquals(keys.get(0), "hot_0");
+        assertTrue(detector.estimate("hot_0") >= 1200);
+        assertFalse(detector.isTopKey("cold_1"));
+    }
+
+    @Test
+    public void testDecay() throws InterruptedException {
+        final Properties props = new Properties();
+        props.setProperty("EVCACHE_HOT_KEYS_DECAY.hot.key.window.ms", "50");
+        ConfigurationManager.loadProperties(props);
+        final HotKeyDetector detector = new HotKeyDetector("EVCACHE_HOT_KEYS_DECAY", null);
+        for (int i = 0; i < 100; i++) {
+            detector.record("key");
+        }
+        assertEquals(detector.estimate("key"), 100);
+        Thread.sleep(60);
+        detector.record("other");
+        assertEquals(detector.estimate("key"), 50);
+        for (int i = 0; i < 7; i++) {
+            Thread.sleep(60);
+            detector.record("other");
+        }
+        assertEquals(detector.estimate("key"), 0);
+        assertFalse(detector.isTopKey("key"));
+    }
+}
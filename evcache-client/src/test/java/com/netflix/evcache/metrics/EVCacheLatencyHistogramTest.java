@@ -0,0 +1,87 @@
+package com.netflix.evcache.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.testng.annotations.Test;
+
+import com.netflix.evcache.EVCache;
+import com.netflix.evcache.EVCache.Call;
+import com.netflix.evcache.test.FakeDeployment;
+
+public class EVCacheLatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long micros = 1; micros < EVCacheLatencyHistogram.MAX_MICROS; micros += 1 + micros / 7) {
+            final int index = EVCacheLatencyHistogram.index(micros);
+            assertTrue(index < EVCacheLatencyHistogram.BUCKETS);
+            final long low = EVCacheLatencyHistogram.lowestValue(index);
+            final long high = EVCacheLatencyHistogram.highestValue(index);
+            assertTrue(low <= micros && micros <= high, micros + " not in [" + low + ", " + high + "]");
+            assertTrue(high - low <= micros / 32, micros + " in [" + low + ", " + high + "]");
+        }
+        assertEquals(EVCacheLatencyHistogram.index(0), 0);
+        assertEquals(EVCacheLatencyHistogram.index(Long.MAX_VALUE), EVCacheLatencyHistogram.BUCKETS - 1);
+    }
+
+    @Test
+    public void testSnapshot() {
+        final EVCacheLatencyHistogram histogram = new EVCacheLatencyHistogram("EVCACHE_LATENCY", "sg", "node", Call.GET);
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros);
+        }
+        EVCacheLatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(snapshot.getCount(), 1000);
+        assertEquals(snapshot.getMean(), 500.5, 0.001);
+        assertEquals(snapshot.getMin(), 1);
+        assertEquals(snapshot.getPercentile(50), 500, 500 / 32);
+        assertEquals(snapshot.getPercentile(99), 990, 990 / 32);
+        assertEquals(snapshot.getMax(), 1000, 1000 / 32);
+        assertEquals(snapshot.getName(), "sg/node/GET");
+
+        histogram.record(20000);
+        snapshot = histogram.snapshot();
+        assertEquals(snapshot.getCount(), 1);
+        assertEquals(snapshot.getPercentile(50), 20000, 20000 / 32);
+        assertEquals(histogram.snapshot().getCount(), 0);
+        assertEquals(histogram.snapshot().getPercentile(99), 0);
+    }
+
+    @Test
+    public void testNodeLatencies() throws Exception {
+        final String appName = "EVCACHE_LATENCY";
+        final Map<String, List<EVCacheLatencySnapshot>> exported = new ConcurrentHashMap<String, List<EVCacheLatencySnapshot>>();
+        final EVCacheLatencyExporter exporter = (app, snapshots) -> exported.put(app, snapshots);
+        EVCacheLatencyMetrics.addExporter(exporter);
+        try (FakeDeployment deployment = new FakeDeployment(appName, 1, new HashMap<String, String>())) {
+            final EVCache evCache = deployment.newBuilder().build();
+            EVCacheLatencyMetrics.snapshotAll();
+            for (int i = 0; i < 10; i++) {
+                evCache.set("key" + i, "value", 900)[0].get();
+                assertEquals(evCache.<String> get("key" + i), "value");
+            }
+            EVCacheLatencyMetrics.snapshotAll();
+        } finally {
+            EVCacheLatencyMetrics.removeExporter(exporter);
+        }
+
+        final Map<String, Long> counts = new HashMap<String, Long>();
+        for (EVCacheLatencySnapshot snapshot : exported.getOrDefault(appName, Collections.emptyList())) {
+            final String level = (snapshot.getServerGroup() == null ? "app" : snapshot.getNode() == null ? "serverGroup" : "node");
+            counts.merge(level + "/" + snapshot.getCall(), snapshot.getCount(), Long::sum);
+            assertTrue(snapshot.getMax() > 0, snapshot.toString());
+        }
+        assertEquals(counts.get("app/GET"), Long.valueOf(10), counts.toString());
+        assertEquals(counts.get("app/SET"), Long.valueOf(10), counts.toString());
+        assertEquals(counts.get("node/GET"), Long.valueOf(10), counts.toString());
+        assertEquals(counts.get("node/SET"), Long.valueOf(10), counts.toString());
+        assertTrue(EVCacheLatencyMetrics.getInstance(appName).getLatencies().containsKey("GET"));
+    }
+}
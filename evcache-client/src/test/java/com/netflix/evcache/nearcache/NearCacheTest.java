@@ -0,0 +1,99 @@
+package com.netflix.evcache.nearcache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+public class NearCacheTest {
+
+    @Test
+    public void testBoundedByCount() {
+        final NearCache<String> cache = new NearCache<String>(100, NearCache.SINGLETON_WEIGHER);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key_" + i, "val_" + i, 10);
+        }
+        cache.cleanUp();
+        assertTrue(cache.size() <= 100, "size " + cache.size());
+        assertEquals(cache.weightedSize(), cache.size());
+        assertTrue(cache.getEvictionCount() >= 900);
+    }
+
+    @Test
+    public void testBoundedByBytes() {
+        final NearCache<byte[]> cache = new NearCache<byte[]>(10000, NearCache.BYTES_WEIGHER);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key_" + i, new byte[995], 995);
+        }
+        cache.cleanUp();
+        assertTrue(cache.weightedSize() <= 10000, "weightedSize " + cache.weightedSize());
+        assertTrue(cache.size() <= 10, "size " + cache.size());
+    }
+
+    @Test
+    public void testFrequentKeysSurviveScan() {
+        final NearCache<String> cache = new NearCache<String>(100, NearCache.SINGLETON_WEIGHER);
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot_" + i, "val_" + i, 10);
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.getIfPresent("hot_" + i);
+            }
+            cache.cleanUp();
+        }
+        for (int i = 0; i < 10000; i++) {
+            cache.put("scan_" + i, "val_" + i, 10);
+        }
+        int present = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.getIfPresent("hot_" + i) != null) present++;
+        }
+        assertTrue(present >= 45, "only " + present + " hot keys survived the scan");
+        assertTrue(cache.getRejectedCount() > 0);
+    }
+
+    @Test
+    public void testResizeInPlace() {
+        final NearCache<String> cache = new NearCache<String>(100, NearCache.SINGLETON_WEIGHER);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key_" + i, "val_" + i, 1000);
+        }
+        cache.setMaximum(10);
+        assertTrue(cache.size() <= 10, "size " + cache.size());
+
+        cache.setMaximum(5000, NearCache.BYTES_WEIGHER);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key_" + i, "val_" + i, 1000);
+        }
+        cache.cleanUp();
+        assertTrue(cache.weightedSize() <= 5000, "weightedSize " + cache.weightedSize());
+    }
+
+    @Test
+    public void testExpireAfterWrite() throws Exception {
+        final NearCache<String> cache = new NearCache<String>(100, NearCache.SINGLETON_WEIGHER);
+        cache.setExpireAfterWrite(50, TimeUnit.MILLISECONDS);
+        cache.put("key", "val", 3);
+        assertEquals(cache.getIfPresent("key"), "val");
+        Thread.sleep(100);
+        assertNull(cache.getIfPresent("key"));
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getExpirationCount(), 1);
+    }
+
+    @Test
+    public void testReplaceAndRemove() {
+        final NearCache<String> cache = new NearCache<String>(100, NearCache.BYTES_WEIGHER);
+        cache.put("key", "val", 3);
+        cache.put("key", "value", 5);
+        assertEquals(cache.getIfPresent("key"), "value");
+        assertEquals(cache.weightedSize(), 8);
+        assertEquals(cache.remove("key"), "value");
+        assertEquals(cache.weightedSize(), 0);
+        assertNull(cache.getIfPresent("key"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.netflix.evcache.nearcache;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import net.spy.memcached.CachedData;
+
+public class OffHeapStoreTest {
+
+    private static CachedData data(int flags, int length, byte fill) {
+        final byte[] bytes = new byte[length];
+        Arrays.fill(bytes, fill);
+        return new CachedData(flags, bytes, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testPutAndGet() {
+        final OffHeapStore store = new OffHeapStore(4096, 1024);
+        assertTrue(store.put("key", data(7, 100, (byte) 1)));
+        final CachedData cd = store.get("key");
+        assertEquals(cd.getFlags(), 7);
+        assertEquals(cd.getData(), data(7, 100, (byte) 1).getData());
+
+        assertTrue(store.put("key", data(3, 10, (byte) 2)));
+        assertEquals(store.get("key").getData(), data(3, 10, (byte) 2).getData());
+        store.remove("key");
+        assertNull(store.get("key"));
+        assertEquals(store.getHitCount(), 2);
+        assertEquals(store.getMissCount(), 1);
+    }
+
+    @Test
+    public void testBoundedByBytes() {
+        final OffHeapStore store = new OffHeapStore(4096, 1024);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(store.put("key_" + i, data(0, 200, (byte) i)));
+        }
+        assertEquals(store.allocatedBytes(), 4096);
+        assertTrue(store.size() <= 4 * 5, "size " + store.size());
+        assertTrue(store.getEvictionCount() > 0);
+        assertNull(store.get("key_0"));
+        assertEquals(store.get("key_99").getData(), data(0, 200, (byte) 99).getData());
+
+        assertFalse(store.put("large", data(0, 2048, (byte) 0)));
+        assertEquals(store.getRejectedCount(), 1);
+    }
+
+    @Test
+    public void testShrink() {
+        final OffHeapStore store = new OffHeapStore(4096, 1024);
+        for (int i = 0; i < 20; i++) {
+            store.put("key_" + i, data(0, 200, (byte) i));
+        }
+        store.setMaxBytes(1024);
+        assertEquals(store.allocatedBytes(), 1024);
+        assertEquals(store.get("key_19").getData(), data(0, 200, (byte) 19).getData());
+
+        store.setMaxBytes(0);
+        assertEquals(store.allocatedBytes(), 0);
+        assertEquals(store.size(), 0);
+        assertFalse(store.put("key", data(0, 10, (byte) 0)));
+    }
+
+    @Test
+    public void testExpireAfterWrite() throws Exception {
+        final OffHeapStore store = new OffHeapStore(4096, 1024);
+        store.setExpireAfterWrite(50, TimeUnit.MILLISECONDS);
+        store.put("key", data(0, 10, (byte) 0));
+        assertTrue(store.get("key") != null);
+        Thread.sleep(100);
+        assertNull(store.get("key"));
+        assertEquals(store.size(), 0);
+    }
+}
@@ -0,0 +1,128 @@
+package com.netflix.evcache.pool;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.spy.memcached.DefaultHashAlgorithm;
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.util.DefaultKetamaNodeLocatorConfiguration;
+
+import org.testng.annotations.Test;
+
+import com.netflix.config.ConfigurationManager;
+
+public class EVCacheBoundedLoadNodeLocatorTest {
+
+    private static final String APP_NAME = "EVCACHE_BOUNDED_LOAD";
+
+    /** takes the load of every node from a map */
+    private static class FixedLoadLocator extends EVCacheBoundedLoadNodeLocator {
+        private final Map<MemcachedNode, Integer> loads = new IdentityHashMap<MemcachedNode, Integer>();
+
+        FixedLoadLocator(List<MemcachedNode> nodes) {
+            super(APP_NAME, new ServerGroup("zone-a", APP_NAME + "-a"), nodes, DefaultHashAlgorithm.KETAMA_HASH, new DefaultKetamaNodeLocatorConfiguration());
+        }
+
+        @Override
+        protected int getLoad(MemcachedNode node) {
+            final Integer load = loads.get(node);
+            return load == null ? 0 : load.intValue();
+        }
+    }
+
+    private static List<MemcachedNode> nodes(int count) {
+        final List<MemcachedNode> nodes = new ArrayList<MemcachedNode>();
+        for (int i = 0; i < count; i++) {
+            final MemcachedNode node = mock(MemcachedNode.class);
+            when(node.getSocketAddress()).thenReturn(InetSocketAddress.createUnresolved("10.0.0." + i, 11211));
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    @Test
+    public void testSpillOverloadedNode() {
+        ConfigurationManager.getConfigInstance().setProperty("EVCacheNodeLocator." + APP_NAME + ".bounded.load.refresh.ms", "0");
+        final List<MemcachedNode> nodes = nodes(5);
+        final FixedLoadLocator locator = new FixedLoadLocator(nodes);
+        final MemcachedNode[] primaries = new MemcachedNode[1000];
+        for (int i = 0; i < primaries.length; i++) {
+            primaries[i] = locator.getPrimary("key_" + i);
+        }
+
+        // 50 outstanding ops against an average of 14 puts node 0 over the bound
+        for (MemcachedNode node : nodes) {
+            locator.loads.put(node, Integer.valueOf(node == nodes.get(0) ? 50 : 5));
+        }
+        int moved = 0;
+        for (int i = 0; i < primaries.length; i++) {
+            final MemcachedNode node = locator.getPrimary("key_" + i);
+            assertEquals(locator.getPrimary("key_" + i), node);
+            if (primaries[i] == nodes.get(0)) {
+                assertNotSame(node, nodes.get(0));
+                moved++;
+            } else {
+                assertEquals(node, primaries[i], "key_" + i + " of a node within the bound moved");
+            }
+        }
+        assertTrue(moved > 0);
+
+        locator.loads.clear();
+        for (int i = 0; i < primaries.length; i++) {
+            assertEquals(locator.getPrimary("key_" + i), primaries[i]);
+        }
+    }
+
+    @Test
+    public void testReadBackWhileOverloaded() {
+        ConfigurationManager.getConfigInstance().setProperty("EVCacheNodeLocator." + APP_NAME + ".bounded.load.refresh.ms", "0");
+        final List<MemcachedNode> nodes = nodes(5);
+        final FixedLoadLocator locator = new FixedLoadLocator(nodes);
+        // what every node stores, written and read through the locator like the connection does
+        final Map<MemcachedNode, Map<String, String>> stored = new IdentityHashMap<MemcachedNode, Map<String, String>>();
+        for (MemcachedNode node : nodes) {
+            stored.put(node, new HashMap<String, String>());
+        }
+        final MemcachedNode[] owners = new MemcachedNode[1000];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = locator.getPrimary("key_" + i);
+        }
+
+        for (MemcachedNode node : nodes) {
+            locator.loads.put(node, Integer.valueOf(node == nodes.get(0) ? 50 : 5));
+        }
+        int spilled = 0;
+        for (int i = 0; i < 1000; i++) {
+            final String key = "key_" + i;
+            stored.get(locator.getPrimary(key)).put(key, "value_" + i);
+            if (owners[i] == nodes.get(0)) spilled++;
+        }
+        assertTrue(spilled > 0);
+        assertTrue(stored.get(nodes.get(0)).isEmpty());
+        for (int i = 0; i < 1000; i++) {
+            final String key = "key_" + i;
+            assertEquals(stored.get(locator.getPrimary(key)).get(key), "value_" + i, key + " written while its owner was over the bound");
+        }
+
+        // once the load evens out the spilled keys move back and miss, like after a membership change
+        locator.loads.clear();
+        int misses = 0;
+        for (int i = 0; i < 1000; i++) {
+            final String key = "key_" + i;
+            final String value = stored.get(locator.getPrimary(key)).get(key);
+            if (value == null) misses++;
+            else assertEquals(value, "value_" + i);
+        }
+        assertEquals(misses, spilled);
+    }
+}
@@ -16,11 +16,14 @@
 package com.netflix.evcache.pool;
 
 import static org.mockito.Mockito.mock;
-import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicLong;
@@ -57,12 +60,56 @@ public class EVCacheClientPoolTest {
         method.setAccessible(true);
 
         // Act
-        Object ret = method.invoke(evCacheClientPool, clientsList);
+        Map<EVCacheClient, Integer> counts = new IdentityHashMap<>();
+        for (int i = 0; i < 64; i++) {
+            Object ret = method.invoke(evCacheClientPool, clientsList);
+            counts.merge((EVCacheClient) ret, 1, Integer::sum);
+        }
 
         // Assert
         // The number set in numOfModOps should roll over to 0x1_0000_0000_0000_0000
-        // so we should get client1 back
-        EVCacheClient selected = (EVCacheClient) ret;
-        assertSame(selected, client1);
+        // within the first block, and the clients should still alternate
+        assertEquals(counts.get(client1), Integer.valueOf(32));
+        assertEquals(counts.get(client2), Integer.valueOf(32));
+    }
+
+    @Test
+    public void selectClient_manyThreads_firstPicksSpread() throws Exception {
+        EVCacheClientPool evCacheClientPool = new EVCacheClientPool("in a unit test", mock(EVCacheNodeList.class), (ThreadPoolExecutor)Executors.newFixedThreadPool(1), mock(EVCacheClientPoolManager.class));
+        Method method = evCacheClientPool.getClass().getDeclaredMethod("selectClient", List.class);
+        method.setAccessible(true);
+
+        // 4 divides the block size, so blocks starting at the same offset
+        // would hand every thread the same client first
+        List<EVCacheClient> clientsList = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            clientsList.add(mock(EVCacheClient.class));
+        }
+        Map<EVCacheClient, Integer> firstPicks = new IdentityHashMap<>();
+        Map<EVCacheClient, Integer> picks = new IdentityHashMap<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 64; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 64; i++) {
+                        EVCacheClient selected = (EVCacheClient) method.invoke(evCacheClientPool, clientsList);
+                        synchronized (picks) {
+                            if (i == 0) firstPicks.merge(selected, 1, Integer::sum);
+                            picks.merge(selected, 1, Integer::sum);
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(firstPicks.size(), 4, "first picks " + firstPicks.values());
+        for (EVCacheClient client : clientsList) {
+            assertEquals(picks.get(client), Integer.valueOf(64 * 64 / 4));
+            assertTrue(firstPicks.get(client) < 64 / 2, "first picks " + firstPicks.values());
+        }
     }
 }
@@ -0,0 +1,67 @@
+package com.netflix.evcache.pool;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.spy.memcached.DefaultHashAlgorithm;
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.util.DefaultKetamaNodeLocatorConfiguration;
+
+import org.testng.annotations.Test;
+
+public class EVCacheNodeLocatorTest {
+
+    private static final ServerGroup SERVER_GROUP = new ServerGroup("zone-a", "EVCACHE_LOCATOR-a");
+
+    /** counts how often a node is hashed onto the continuum */
+    private static class CountingConfiguration extends DefaultKetamaNodeLocatorConfiguration {
+        private int keys = 0;
+
+        @Override
+        public String getKeyForNode(MemcachedNode node, int repetition) {
+            keys++;
+            return super.getKeyForNode(node, repetition);
+        }
+    }
+
+    private static MemcachedNode node(int i) {
+        final MemcachedNode node = mock(MemcachedNode.class);
+        when(node.getSocketAddress()).thenReturn(InetSocketAddress.createUnresolved("10.0.0." + i, 11211));
+        return node;
+    }
+
+    private static EVCacheNodeLocator locator(List<MemcachedNode> nodes) {
+        return new EVCacheNodeLocator("EVCACHE_LOCATOR", SERVER_GROUP, nodes, DefaultHashAlgorithm.KETAMA_HASH, new DefaultKetamaNodeLocatorConfiguration());
+    }
+
+    @Test
+    public void testIncrementalUpdate() {
+        final List<MemcachedNode> nodes = new ArrayList<MemcachedNode>();
+        for (int i = 0; i < 10; i++) {
+            nodes.add(node(i));
+        }
+        final CountingConfiguration config = new CountingConfiguration();
+        final EVCacheNodeLocator locator = new EVCacheNodeLocator("EVCACHE_LOCATOR", SERVER_GROUP, nodes, DefaultHashAlgorithm.KETAMA_HASH, config);
+        final int keysPerNode = config.keys / nodes.size();
+
+        // replace one node, only the new node is hashed
+        config.keys = 0;
+        nodes.remove(3);
+        nodes.add(node(10));
+        locator.updateLocator(nodes);
+        assertEquals(config.keys, keysPerNode);
+        assertEquals(locator.getKetamaNodeMap(), locator(nodes).getKetamaNodeMap());
+
+        config.keys = 0;
+        nodes.remove(0);
+        locator.updateLocator(nodes);
+        assertEquals(config.keys, 0);
+        assertEquals(locator.getKetamaNodeMap(), locator(nodes).getKetamaNodeMap());
+        assertEquals(locator.getKetamaNodeMap().size(), nodes.size() * config.getNodeRepetitions());
+    }
+}
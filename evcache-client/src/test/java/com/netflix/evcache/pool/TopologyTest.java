@@ -0,0 +1,57 @@
+package com.netflix.evcache.pool;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+public class TopologyTest {
+
+    private static List<EVCacheClient> clients(int count) {
+        final EVCacheClient[] clients = new EVCacheClient[count];
+        for (int i = 0; i < count; i++) {
+            clients[i] = mock(EVCacheClient.class);
+        }
+        return Arrays.asList(clients);
+    }
+
+    @Test
+    public void testTopology() {
+        final ServerGroup a = new ServerGroup("zone-a", "app-a");
+        final ServerGroup b = new ServerGroup("zone-b", "app-b");
+        final ServerGroup c = new ServerGroup("zone-a", "app-c");
+        final List<EVCacheClient> aClients = clients(2);
+        final List<EVCacheClient> bClients = clients(2);
+        final List<EVCacheClient> cClients = clients(1);
+
+        final Map<ServerGroup, List<EVCacheClient>> read = new HashMap<ServerGroup, List<EVCacheClient>>();
+        read.put(b, bClients);
+        read.put(a, aClients);
+        final Map<ServerGroup, List<EVCacheClient>> write = new HashMap<ServerGroup, List<EVCacheClient>>(read);
+        write.put(c, cClients);
+
+        final Topology topology = new Topology("zone-a", read, write, Collections.singleton("clone"));
+        assertEquals(topology.readServerGroups, new ServerGroup[] { a, b });
+        assertEquals(topology.localReadServerGroups, new int[] { 0 });
+        assertEquals(topology.readClients[1], bClients);
+        assertEquals(topology.readInstances.get(a), aClients);
+        assertEquals(topology.cloneApps, new String[] { "clone" });
+
+        assertEquals(topology.writeClients.length, 2);
+        // server groups are ordered by zone and name
+        assertEquals(topology.writeClients[1], new EVCacheClient[] { aClients.get(1), cClients.get(0), bClients.get(1) });
+        assertEquals(topology.writeOnlyClients.length, 1);
+        assertSame(topology.writeOnlyClients[0][0], cClients.get(0));
+
+        // later changes to the maps of the pool are not visible
+        read.remove(a);
+        assertEquals(topology.readServerGroups.length, 2);
+    }
+}
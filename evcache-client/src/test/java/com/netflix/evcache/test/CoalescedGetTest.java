@@ -0,0 +1,149 @@
+package com.netflix.evcache.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.netflix.evcache.EVCache;
+import com.netflix.evcache.pool.EVCacheClient;
+
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+import net.spy.memcached.transcoders.Transcoder;
+
+/**
+ * Checks that concurrent gets of the same key on a client with
+ * <code>&lt;app&gt;.get.coalesce</code> set share one get against a
+ * {@link FakeMemcachedServer}.
+ */
+public class CoalescedGetTest {
+    private static final String APP_NAME = "EVCACHE_COALESCE";
+
+    private FakeDeployment deployment;
+    private EVCache evCache;
+    private EVCacheClient client;
+    private ExecutorService executor;
+
+    @BeforeClass
+    public void setup() throws Exception {
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put(APP_NAME + ".EVCacheClientPool.readTimeout", "100");
+        properties.put(APP_NAME + ".get.coalesce", "true");
+        deployment = new FakeDeployment(APP_NAME, 2, properties);
+        evCache = deployment.newBuilder().build();
+        client = deployment.getPoolManager().getEVCacheClientPool(APP_NAME).getEVCacheClientForRead();
+        executor = Executors.newFixedThreadPool(10);
+        for (Future<Boolean> future : evCache.set("coalesce_key", "value", 900)) {
+            assertTrue(future.get().booleanValue());
+        }
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        executor.shutdown();
+        deployment.close();
+    }
+
+    @AfterMethod
+    public void resetFaults() {
+        for (FakeMemcachedServer server : deployment.getServers()) {
+            server.reset();
+        }
+    }
+
+    private long totalGets() {
+        long gets = 0;
+        for (FakeMemcachedServer server : deployment.getServers()) {
+            gets += server.getCmdGet();
+        }
+        return gets;
+    }
+
+    /**
+     * Runs the gets at the same time and returns their results.
+     */
+    private List<Object> getAtOnce(List<Transcoder<Object>> transcoders) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (Transcoder<Object> tc : transcoders) {
+            futures.add(executor.submit((Callable<Object>) () -> {
+                start.await();
+                return client.get("coalesce_key", tc, false, false, false);
+            }));
+        }
+        start.countDown();
+        final List<Object> results = new ArrayList<Object>();
+        for (Future<Object> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    @Test
+    public void testCoalescedGets() throws Exception {
+        final Transcoder<Object> tc = new SerializingTranscoder();
+        for (FakeMemcachedServer server : deployment.getServers()) {
+            server.setLatency(50, 50, TimeUnit.MILLISECONDS);
+        }
+
+        // the same key and transcoder share one get
+        long gets = totalGets();
+        for (Object result : getAtOnce(Collections.nCopies(10, tc))) {
+            assertEquals(result, "value");
+        }
+        assertEquals(totalGets() - gets, 1);
+
+        // different transcoders don't
+        gets = totalGets();
+        for (Object result : getAtOnce(Arrays.asList(tc, new SerializingTranscoder()))) {
+            assertEquals(result, "value");
+        }
+        assertEquals(totalGets() - gets, 2);
+
+        // a completed get is not joined, even before its listener removed it
+        gets = totalGets();
+        assertEquals(client.get("coalesce_key", tc, false, false, false), "value");
+        assertEquals(totalGets() - gets, 1);
+    }
+
+    @Test(dependsOnMethods = "testCoalescedGets")
+    public void testCoalescedGetTimeout() throws Exception {
+        final Transcoder<Object> tc = new SerializingTranscoder();
+        final MemcachedNode node = client.getEVCacheMemcachedClient().getEVCacheNode("coalesce_key");
+        final int timeouts = node.getContinuousTimeout();
+        for (FakeMemcachedServer server : deployment.getServers()) {
+            server.stall(1, TimeUnit.SECONDS);
+        }
+
+        // only the caller that sent the get times it out
+        for (Object result : getAtOnce(Collections.nCopies(10, tc))) {
+            assertNull(result);
+        }
+        assertEquals(node.getContinuousTimeout(), timeouts + 1);
+
+        // the timed out get is removed, so the next one is sent again
+        resetFaults();
+        final long gets = totalGets();
+        assertEquals(client.get("coalesce_key", tc, false, false, false), "value");
+        assertTrue(totalGets() - gets >= 1);
+    }
+}
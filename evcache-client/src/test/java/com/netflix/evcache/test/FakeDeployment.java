@@ -0,0 +1,75 @@
+package com.netflix.evcache.test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.evcache.EVCache;
+import com.netflix.evcache.connection.DefaultFactoryProvider;
+import com.netflix.evcache.pool.EVCacheClientPoolManager;
+
+/**
+ * Starts one {@link FakeMemcachedServer} per server group and points an
+ * EVCache app at them through the simple node list provider, so tests and
+ * benchmarks can go through the full client stack without real memcached
+ * processes. The deployment has its own pool manager, which is injected into
+ * the builders it creates.
+ */
+public final class FakeDeployment implements Closeable {
+
+    private final String appName;
+    private final FakeMemcachedServer[] servers;
+    private final EVCacheClientPoolManager poolManager;
+    private final Injector injector;
+
+    /**
+     * @param appName
+     *            the EVCache app to configure
+     * @param serverGroups
+     *            the number of server groups (copies) to start
+     * @param properties
+     *            additional properties to set for the app before it is
+     *            initialized, for example chunking
+     */
+    public FakeDeployment(String appName, int serverGroups, Map<String, String> properties) throws IOException {
+        this.appName = appName;
+        this.servers = new FakeMemcachedServer[serverGroups];
+        final StringBuilder nodes = new StringBuilder();
+        for (int i = 0; i < serverGroups; i++) {
+            servers[i] = new FakeMemcachedServer();
+            if (i > 0) nodes.append(';');
+            nodes.append("zone").append(i).append(':').append(appName).append("-sg").append(i).append("=127.0.0.1:").append(servers[i].getPort());
+        }
+        final Properties props = new Properties();
+        props.setProperty(appName + ".use.simple.node.list.provider", "true");
+        props.setProperty(appName + "-NODES", nodes.toString());
+        if (properties != null) props.putAll(properties);
+        ConfigurationManager.loadProperties(props);
+        this.poolManager = new EVCacheClientPoolManager(null, null, new DefaultFactoryProvider());
+        this.injector = Guice.createInjector(binder -> binder.bind(EVCacheClientPoolManager.class).toInstance(poolManager));
+    }
+
+    public EVCache.Builder newBuilder() {
+        return injector.getInstance(EVCache.Builder.class).setAppName(appName);
+    }
+
+    public EVCacheClientPoolManager getPoolManager() {
+        return poolManager;
+    }
+
+    public FakeMemcachedServer[] getServers() {
+        return servers;
+    }
+
+    @Override
+    public void close() throws IOException {
+        poolManager.shutdown();
+        for (FakeMemcachedServer server : servers) {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,689 @@
+package com.netflix.evcache.test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-process memcached that speaks the binary protocol used by
+ * spymemcached. It supports get/getq/getk/getkq (and so multiget),
+ * set/add/replace, append/prepend, touch and gat, incr/decr, delete, flush,
+ * noop, version and stats, including the quiet variants. Items live in a map
+ * on the heap and all connections are served by a single selector thread.
+ *
+ * Faults can be injected at runtime:
+ * <ul>
+ * <li>{@link #setLatency} delays every reply by a random amount in the given
+ * range. Replies on a connection stay in order.</li>
+ * <li>{@link #setDropRate} closes the connection instead of answering the given
+ * fraction of requests, like a reset would. A single reply cannot be dropped
+ * because the client matches replies to requests in order.</li>
+ * <li>{@link #stall} stops the server from answering anything for the given
+ * duration. Requests sent in the meantime are answered once it is over.</li>
+ * </ul>
+ */
+public final class FakeMemcachedServer implements Runnable, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(FakeMemcachedServer.class);
+
+    private static final byte REQ_MAGIC = (byte) 0x80;
+    private static final byte RES_MAGIC = (byte) 0x81;
+    private static final int HEADER_LENGTH = 24;
+
+    private static final byte GET = 0x00;
+    private static final byte SET = 0x01;
+    private static final byte ADD = 0x02;
+    private static final byte REPLACE = 0x03;
+    private static final byte DELETE = 0x04;
+    private static final byte INCR = 0x05;
+    private static final byte DECR = 0x06;
+    private static final byte QUIT = 0x07;
+    private static final byte FLUSH = 0x08;
+    private static final byte GETQ = 0x09;
+    private static final byte NOOP = 0x0a;
+    private static final byte VERSION = 0x0b;
+    private static final byte GETK = 0x0c;
+    private static final byte GETKQ = 0x0d;
+    private static final byte APPEND = 0x0e;
+    private static final byte PREPEND = 0x0f;
+    private static final byte STAT = 0x10;
+    private static final byte SETQ = 0x11;
+    private static final byte ADDQ = 0x12;
+    private static final byte REPLACEQ = 0x13;
+    private static final byte DELETEQ = 0x14;
+    private static final byte INCRQ = 0x15;
+    private static final byte DECRQ = 0x16;
+    private static final byte QUITQ = 0x17;
+    private static final byte FLUSHQ = 0x18;
+    private static final byte APPENDQ = 0x19;
+    private static final byte PREPENDQ = 0x1a;
+    private static final byte TOUCH = 0x1c;
+    private static final byte GAT = 0x1d;
+    private static final byte GATQ = 0x1e;
+    private static final byte GATK = 0x23;
+    private static final byte GATKQ = 0x24;
+
+    private static final short SUCCESS = 0x00;
+    private static final short KEY_NOT_FOUND = 0x01;
+    private static final short KEY_EXISTS = 0x02;
+    private static final short NOT_STORED = 0x05;
+    private static final short NON_NUMERIC = 0x06;
+    private static final short UNKNOWN_COMMAND = 0x81;
+
+    private static final int MAX_RELATIVE_EXPIRATION = 60 * 60 * 24 * 30;
+
+    private final ConcurrentMap<String, Item> items = new ConcurrentHashMap<String, Item>();
+    private final AtomicLong casCounter = new AtomicLong();
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Thread thread;
+    private final long startTime = System.currentTimeMillis();
+    private volatile boolean running = true;
+
+    private volatile long minLatencyNanos = 0;
+    private volatile long maxLatencyNanos = 0;
+    private volatile double dropRate = 0;
+    private volatile long stalledUntilNanos = 0;
+
+    private final AtomicLong cmdGet = new AtomicLong();
+    private final AtomicLong getHits = new AtomicLong();
+    private final AtomicLong getMisses = new AtomicLong();
+    private final AtomicLong cmdSet = new AtomicLong();
+    private final AtomicLong cmdTouch = new AtomicLong();
+    private final AtomicLong currConnections = new AtomicLong();
+    private final AtomicLong totalConnections = new AtomicLong();
+    private final AtomicLong droppedRequests = new AtomicLong();
+
+    /**
+     * Starts a server on an ephemeral port of the loopback interface.
+     */
+    public FakeMemcachedServer() throws IOException {
+        this(0);
+    }
+
+    public FakeMemcachedServer(int port) throws IOException {
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.thread = new Thread(this, "FakeMemcachedServer-" + getPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public InetSocketAddress getAddress() {
+        return new InetSocketAddress("127.0.0.1", getPort());
+    }
+
+    /**
+     * Every reply is delayed by a random amount between min and max.
+     */
+    public void setLatency(long min, long max, TimeUnit unit) {
+        if (min < 0 || max < min) throw new IllegalArgumentException("Invalid latency range " + min + " - " + max);
+        this.minLatencyNanos = unit.toNanos(min);
+        this.maxLatencyNanos = unit.toNanos(max);
+        selector.wakeup();
+    }
+
+    /**
+     * The fraction of requests, between 0 and 1, for which the connection is
+     * closed instead of answered.
+     */
+    public void setDropRate(double dropRate) {
+        if (dropRate < 0 || dropRate > 1) throw new IllegalArgumentException("Invalid drop rate " + dropRate);
+        this.dropRate = dropRate;
+    }
+
+    /**
+     * Nothing is answered for the given duration.
+     */
+    public void stall(long duration, TimeUnit unit) {
+        this.stalledUntilNanos = System.nanoTime() + unit.toNanos(duration);
+        selector.wakeup();
+    }
+
+    /**
+     * Removes all injected faults.
+     */
+    public void reset() {
+        this.minLatencyNanos = 0;
+        this.maxLatencyNanos = 0;
+        this.dropRate = 0;
+        this.stalledUntilNanos = 0;
+        selector.wakeup();
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public void flush() {
+        items.clear();
+    }
+
+    /**
+     * @return the value stored for the key as a string, or null if there is
+     *         none
+     */
+    public String getValue(String key) {
+        final Item item = getItem(key);
+        return (item == null) ? null : new String(item.value, StandardCharsets.US_ASCII);
+    }
+
+    public long getGetHits() {
+        return getHits.get();
+    }
+
+    public long getGetMisses() {
+        return getMisses.get();
+    }
+
+    public long getCmdGet() {
+        return cmdGet.get();
+    }
+
+    public long getCmdSet() {
+        return cmdSet.get();
+    }
+
+    public long getDroppedRequests() {
+        return droppedRequests.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                final long now = System.nanoTime();
+                long nextDeadline = Long.MAX_VALUE;
+                for (SelectionKey sk : selector.keys()) {
+                    final Connection conn = (Connection) sk.attachment();
+                    if (conn == null || !sk.isValid()) continue;
+                    try {
+                        nextDeadline = Math.min(nextDeadline, conn.tick(now));
+                    } catch (IOException e) {
+                        conn.close(e);
+                    }
+                }
+
+                if (nextDeadline == Long.MAX_VALUE) {
+                    selector.select();
+                } else {
+                    final long waitMillis = TimeUnit.NANOSECONDS.toMillis(nextDeadline - System.nanoTime());
+                    if (waitMillis <= 0) {
+                        selector.selectNow();
+                    } else {
+                        selector.select(waitMillis);
+                    }
+                }
+
+                final Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    final SelectionKey sk = it.next();
+                    it.remove();
+                    if (!sk.isValid()) continue;
+                    if (sk.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    final Connection conn = (Connection) sk.attachment();
+                    try {
+                        if (sk.isReadable()) conn.read();
+                        if (sk.isValid() && sk.isWritable()) conn.write();
+                    } catch (IOException e) {
+                        conn.close(e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("FakeMemcachedServer on port " + getPort() + " stopped", e);
+        } finally {
+            for (SelectionKey sk : selector.keys()) {
+                try {
+                    sk.channel().close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        final SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        final SelectionKey sk = channel.register(selector, SelectionKey.OP_READ);
+        sk.attach(new Connection(channel, sk));
+        currConnections.incrementAndGet();
+        totalConnections.incrementAndGet();
+    }
+
+    private static final class Item {
+        private final int flags;
+        private final byte[] value;
+        private final long cas;
+        private volatile long expiresAt;
+
+        private Item(int flags, byte[] value, long cas, long expiresAt) {
+            this.flags = flags;
+            this.value = value;
+            this.cas = cas;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAt != 0 && expiresAt <= now;
+        }
+    }
+
+    private static final class Reply {
+        private final long due;
+        private final byte[] data;
+
+        private Reply(long due, byte[] data) {
+            this.due = due;
+            this.data = data;
+        }
+    }
+
+    private static long toExpiresAt(int exp) {
+        if (exp == 0) return 0;
+        if (exp <= MAX_RELATIVE_EXPIRATION) return System.currentTimeMillis() + exp * 1000L;
+        return (exp & 0xffffffffL) * 1000L;
+    }
+
+    private Item getItem(String key) {
+        final Item item = items.get(key);
+        if (item == null) return null;
+        if (item.isExpired(System.currentTimeMillis())) {
+            items.remove(key, item);
+            return null;
+        }
+        return item;
+    }
+
+    private Item newItem(int flags, byte[] value, int exp) {
+        return new Item(flags, value, casCounter.incrementAndGet(), toExpiresAt(exp));
+    }
+
+    private Map<String, String> stats() {
+        final Map<String, String> stats = new LinkedHashMap<String, String>();
+        stats.put("pid", "0");
+        stats.put("uptime", String.valueOf((System.currentTimeMillis() - startTime) / 1000));
+        stats.put("time", String.valueOf(System.currentTimeMillis() / 1000));
+        stats.put("version", "1.4.fake");
+        stats.put("curr_connections", String.valueOf(currConnections.get()));
+        stats.put("total_connections", String.valueOf(totalConnections.get()));
+        stats.put("cmd_get", String.valueOf(cmdGet.get()));
+        stats.put("cmd_set", String.valueOf(cmdSet.get()));
+        stats.put("cmd_touch", String.valueOf(cmdTouch.get()));
+        stats.put("get_hits", String.valueOf(getHits.get()));
+        stats.put("get_misses", String.valueOf(getMisses.get()));
+        stats.put("curr_items", String.valueOf(items.size()));
+        return stats;
+    }
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey selectionKey;
+        private final ArrayDeque<Reply> replies = new ArrayDeque<Reply>();
+        private ByteBuffer in = ByteBuffer.allocate(16 * 1024);
+        private ByteBuffer out = ByteBuffer.allocate(16 * 1024);
+        private long lastDue = 0;
+        private long now;
+
+        private Connection(SocketChannel channel, SelectionKey selectionKey) {
+            this.channel = channel;
+            this.selectionKey = selectionKey;
+        }
+
+        private void read() throws IOException {
+            if (!in.hasRemaining()) in = grow(in, in.capacity());
+            final int read = channel.read(in);
+            if (read < 0) throw new IOException("Connection closed by client");
+            tick(System.nanoTime());
+        }
+
+        /**
+         * Processes the buffered requests and sends the replies that are due
+         * unless the server is stalled.
+         *
+         * @return the time the next reply is due or Long.MAX_VALUE
+         */
+        private long tick(long now) throws IOException {
+            final long stalledUntil = stalledUntilNanos;
+            if (stalledUntil != 0 && stalledUntil - now > 0) return stalledUntil;
+            this.now = now;
+            if (in.position() > 0) {
+                in.flip();
+                while (in.remaining() >= HEADER_LENGTH) {
+                    final int start = in.position();
+                    final int bodyLength = in.getInt(start + 8);
+                    if (in.remaining() < HEADER_LENGTH + bodyLength) {
+                        if (in.capacity() < HEADER_LENGTH + bodyLength) {
+                            in.compact();
+                            in = grow(in, HEADER_LENGTH + bodyLength);
+                            in.flip();
+                        }
+                        break;
+                    }
+                    final double drop = dropRate;
+                    if (drop > 0 && ThreadLocalRandom.current().nextDouble() < drop) {
+                        droppedRequests.incrementAndGet();
+                        throw new IOException("Dropping request");
+                    }
+                    if (!process(start, bodyLength)) {
+                        close(null);
+                        return Long.MAX_VALUE;
+                    }
+                    in.position(start + HEADER_LENGTH + bodyLength);
+                }
+                in.compact();
+            }
+
+            while (!replies.isEmpty() && replies.peek().due - now <= 0) {
+                final byte[] data = replies.poll().data;
+                if (out.remaining() < data.length) out = grow(out, data.length);
+                out.put(data);
+            }
+            write();
+            return replies.isEmpty() ? Long.MAX_VALUE : replies.peek().due;
+        }
+
+        private void write() throws IOException {
+            if (out.position() > 0) {
+                out.flip();
+                channel.write(out);
+                out.compact();
+            }
+            final int ops = (out.position() > 0) ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+            if (selectionKey.interestOps() != ops) selectionKey.interestOps(ops);
+        }
+
+        private void close(IOException e) {
+            if (log.isDebugEnabled()) log.debug("Closing connection " + channel + (e == null ? "" : " : " + e.getMessage()));
+            selectionKey.cancel();
+            currConnections.decrementAndGet();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+
+        /**
+         * @return false if the client asked to close the connection
+         */
+        private boolean process(int start, int bodyLength) throws IOException {
+            if (in.get(start) != REQ_MAGIC) throw new IOException("Invalid magic " + in.get(start));
+            final byte opcode = in.get(start + 1);
+            final int keyLength = in.getShort(start + 2) & 0xffff;
+            final int extrasLength = in.get(start + 4) & 0xff;
+            final int opaque = in.getInt(start + 12);
+            final long cas = in.getLong(start + 16);
+            final int extrasStart = start + HEADER_LENGTH;
+            final String key = new String(slice(extrasStart + extrasLength, keyLength), StandardCharsets.US_ASCII);
+            final int valueStart = extrasStart + extrasLength + keyLength;
+            final int valueLength = bodyLength - extrasLength - keyLength;
+
+            switch (opcode) {
+            case GET:
+            case GETQ:
+            case GETK:
+            case GETKQ: {
+                final boolean quiet = (opcode == GETQ || opcode == GETKQ);
+                final boolean withKey = (opcode == GETK || opcode == GETKQ);
+                cmdGet.incrementAndGet();
+                final Item item = getItem(key);
+                if (item == null) {
+                    getMisses.incrementAndGet();
+                    if (!quiet) reply(opcode, KEY_NOT_FOUND, opaque, 0, withKey ? key : null, null, null);
+                } else {
+                    getHits.incrementAndGet();
+                    reply(opcode, SUCCESS, opaque, item.cas, withKey ? key : null, flags(item.flags), item.value);
+                }
+                return true;
+            }
+            case SET:
+            case SETQ:
+            case ADD:
+            case ADDQ:
+            case REPLACE:
+            case REPLACEQ: {
+                final boolean quiet = (opcode == SETQ || opcode == ADDQ || opcode == REPLACEQ);
+                cmdSet.incrementAndGet();
+                final int flags = in.getInt(extrasStart);
+                final int exp = in.getInt(extrasStart + 4);
+                final byte[] value = slice(valueStart, valueLength);
+                final Item existing = getItem(key);
+                final short status;
+                if ((opcode == ADD || opcode == ADDQ) && existing != null) {
+                    status = KEY_EXISTS;
+                } else if ((opcode == REPLACE || opcode == REPLACEQ) && existing == null) {
+                    status = KEY_NOT_FOUND;
+                } else if (cas != 0 && (existing == null || existing.cas != cas)) {
+                    status = (existing == null) ? KEY_NOT_FOUND : KEY_EXISTS;
+                } else {
+                    status = SUCCESS;
+                }
+                if (status == SUCCESS) {
+                    final Item item = newItem(flags, value, exp);
+                    items.put(key, item);
+                    if (!quiet) reply(opcode, SUCCESS, opaque, item.cas, null, null, null);
+                } else {
+                    reply(opcode, status, opaque, 0, null, null, null);
+                }
+                return true;
+            }
+            case APPEND:
+            case APPENDQ:
+            case PREPEND:
+            case PREPENDQ: {
+                final boolean quiet = (opcode == APPENDQ || opcode == PREPENDQ);
+                final boolean append = (opcode == APPEND || opcode == APPENDQ);
+                cmdSet.incrementAndGet();
+                final Item existing = getItem(key);
+                if (existing == null) {
+                    reply(opcode, NOT_STORED, opaque, 0, null, null, null);
+                } else if (cas != 0 && existing.cas != cas) {
+                    reply(opcode, KEY_EXISTS, opaque, 0, null, null, null);
+                } else {
+                    final byte[] value = slice(valueStart, valueLength);
+                    final byte[] combined = new byte[existing.value.length + value.length];
+                    System.arraycopy(append ? existing.value : value, 0, combined, 0, append ? existing.value.length : value.length);
+                    System.arraycopy(append ? value : existing.value, 0, combined, append ? existing.value.length : value.length, append ? value.length : existing.value.length);
+                    final Item item = new Item(existing.flags, combined, casCounter.incrementAndGet(), existing.expiresAt);
+                    items.put(key, item);
+                    if (!quiet) reply(opcode, SUCCESS, opaque, item.cas, null, null, null);
+                }
+                return true;
+            }
+            case INCR:
+            case INCRQ:
+            case DECR:
+            case DECRQ: {
+                final boolean quiet = (opcode == INCRQ || opcode == DECRQ);
+                final boolean incr = (opcode == INCR || opcode == INCRQ);
+                final long delta = in.getLong(extrasStart);
+                final long initial = in.getLong(extrasStart + 8);
+                final int exp = in.getInt(extrasStart + 16);
+                final Item existing = getItem(key);
+                final long value;
+                if (existing == null) {
+                    if (exp == -1) {
+                        reply(opcode, KEY_NOT_FOUND, opaque, 0, null, null, null);
+                        return true;
+                    }
+                    value = initial;
+                } else {
+                    final long current;
+                    try {
+                        current = Long.parseUnsignedLong(new String(existing.value, StandardCharsets.US_ASCII).trim());
+                    } catch (NumberFormatException e) {
+                        reply(opcode, NON_NUMERIC, opaque, 0, null, null, null);
+                        return true;
+                    }
+                    if (incr) {
+                        value = current + delta;
+                    } else {
+                        value = (Long.compareUnsigned(current, delta) < 0) ? 0 : current - delta;
+                    }
+                }
+                final Item item = new Item(existing == null ? 0 : existing.flags, Long.toUnsignedString(value).getBytes(StandardCharsets.US_ASCII),
+                        casCounter.incrementAndGet(), existing == null ? toExpiresAt(exp) : existing.expiresAt);
+                items.put(key, item);
+                if (!quiet) reply(opcode, SUCCESS, opaque, item.cas, null, null, ByteBuffer.allocate(8).putLong(value).array());
+                return true;
+            }
+            case DELETE:
+            case DELETEQ: {
+                final Item existing = getItem(key);
+                if (existing == null || (cas != 0 && existing.cas != cas) || !items.remove(key, existing)) {
+                    reply(opcode, existing == null ? KEY_NOT_FOUND : KEY_EXISTS, opaque, 0, null, null, null);
+                } else if (opcode == DELETE) {
+                    reply(opcode, SUCCESS, opaque, 0, null, null, null);
+                }
+                return true;
+            }
+            case TOUCH:
+            case GAT:
+            case GATQ:
+            case GATK:
+            case GATKQ: {
+                final boolean quiet = (opcode == GATQ || opcode == GATKQ);
+                final boolean withKey = (opcode == GATK || opcode == GATKQ);
+                cmdTouch.incrementAndGet();
+                final Item item = getItem(key);
+                if (item == null) {
+                    if (!quiet) reply(opcode, KEY_NOT_FOUND, opaque, 0, null, null, null);
+                } else {
+                    item.expiresAt = toExpiresAt(in.getInt(extrasStart));
+                    if (opcode == TOUCH) {
+                        reply(opcode, SUCCESS, opaque, item.cas, null, null, null);
+                    } else {
+                        reply(opcode, SUCCESS, opaque, item.cas, withKey ? key : null, flags(item.flags), item.value);
+                    }
+                }
+                return true;
+            }
+            case FLUSH:
+            case FLUSHQ:
+                items.clear();
+                if (opcode == FLUSH) reply(opcode, SUCCESS, opaque, 0, null, null, null);
+                return true;
+            case NOOP:
+                reply(opcode, SUCCESS, opaque, 0, null, null, null);
+                return true;
+            case VERSION:
+                reply(opcode, SUCCESS, opaque, 0, null, null, "1.4.fake".getBytes(StandardCharsets.US_ASCII));
+                return true;
+            case STAT:
+                for (Map.Entry<String, String> stat : stats().entrySet()) {
+                    reply(opcode, SUCCESS, opaque, 0, stat.getKey(), null, stat.getValue().getBytes(StandardCharsets.US_ASCII));
+                }
+                reply(opcode, SUCCESS, opaque, 0, null, null, null);
+                return true;
+            case QUIT:
+            case QUITQ:
+                return false;
+            default:
+                reply(opcode, UNKNOWN_COMMAND, opaque, 0, null, null, "Unknown command".getBytes(StandardCharsets.US_ASCII));
+                return true;
+            }
+        }
+
+        private byte[] slice(int position, int length) {
+            final byte[] b = new byte[length];
+            for (int i = 0; i < length; i++) {
+                b[i] = in.get(position + i);
+            }
+            return b;
+        }
+
+        private byte[] flags(int flags) {
+            return ByteBuffer.allocate(4).putInt(flags).array();
+        }
+
+        private void reply(byte opcode, short status, int opaque, long cas, String key, byte[] extras, byte[] value) {
+            final byte[] keyBytes = (key == null) ? null : key.getBytes(StandardCharsets.US_ASCII);
+            final int keyLength = (keyBytes == null) ? 0 : keyBytes.length;
+            final int extrasLength = (extras == null) ? 0 : extras.length;
+            final int valueLength = (value == null) ? 0 : value.length;
+            final ByteBuffer bb = ByteBuffer.allocate(HEADER_LENGTH + extrasLength + keyLength + valueLength);
+            bb.put(RES_MAGIC);
+            bb.put(opcode);
+            bb.putShort((short) keyLength);
+            bb.put((byte) extrasLength);
+            bb.put((byte) 0); // data type
+            bb.putShort(status);
+            bb.putInt(extrasLength + keyLength + valueLength);
+            bb.putInt(opaque);
+            bb.putLong(cas);
+            if (extras != null) bb.put(extras);
+            if (keyBytes != null) bb.put(keyBytes);
+            if (value != null) bb.put(value);
+
+            final long minLatency = minLatencyNanos;
+            final long maxLatency = maxLatencyNanos;
+            long due = now;
+            if (maxLatency > 0) {
+                due += (maxLatency > minLatency) ? minLatency + ThreadLocalRandom.current().nextLong(maxLatency - minLatency) : minLatency;
+            }
+            // replies on a connection must leave in order
+            if (!replies.isEmpty() && due - lastDue < 0) due = lastDue;
+            lastDue = due;
+            replies.add(new Reply(due, bb.array()));
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        final ByteBuffer b = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        buffer.flip();
+        b.put(buffer);
+        return b;
+    }
+}
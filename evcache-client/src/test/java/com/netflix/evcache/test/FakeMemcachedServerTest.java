@@ -0,0 +1,300 @@
+package com.netflix.evcache.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.evcache.EVCache;
+import com.netflix.evcache.EVCacheLatch;
+import com.netflix.evcache.EVCacheLatch.Policy;
+
+import rx.schedulers.Schedulers;
+
+/**
+ * Runs the client against two {@link FakeMemcachedServer} server groups and
+ * checks that reads fall back to the healthy copy when the other one is slow
+ * or stalled.
+ */
+public class FakeMemcachedServerTest {
+    private static final String APP_NAME = "EVCACHE_FAKE";
+
+    private FakeDeployment deployment;
+    private EVCache evCache;
+
+    @BeforeClass
+    public void setup() throws IOException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put(APP_NAME + ".EVCacheClientPool.readTimeout", "100");
+        deployment = new FakeDeployment(APP_NAME, 2, properties);
+        evCache = deployment.newBuilder().build();
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        deployment.close();
+    }
+
+    @AfterMethod
+    public void resetFaults() {
+        for (FakeMemcachedServer server : deployment.getServers()) {
+            server.reset();
+        }
+    }
+
+    private void await(Future<Boolean>[] futures) throws Exception {
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get().booleanValue());
+        }
+    }
+
+    @Test
+    public void testOperations() throws Exception {
+        await(evCache.set("op_key", "value", 900));
+        assertEquals(evCache.<String> get("op_key"), "value");
+
+        await(evCache.append("op_key", "_appended", 900));
+        assertEquals(evCache.<String> get("op_key"), "value_appended");
+
+        await(evCache.touch("op_key", 1800));
+        final Map<String, String> bulk = evCache.<String> getBulk("op_key", "missing_key");
+        assertEquals(bulk.get("op_key"), "value_appended");
+        assertNull(bulk.get("missing_key"));
+
+        assertEquals(evCache.incr("op_counter", 1, 10, 900), 10);
+        assertEquals(evCache.incr("op_counter", 5, 10, 900), 15);
+        assertEquals(evCache.decr("op_counter", 20, 10, 900), 0);
+
+        await(evCache.delete("op_key"));
+        assertNull(evCache.<String> get("op_key"));
+        for (FakeMemcachedServer server : deployment.getServers()) {
+            assertTrue(server.getCmdSet() > 0);
+        }
+    }
+
+    @Test(dependsOnMethods = "testOperations")
+    public void testCounters() throws Exception {
+        for (int i = 1; i <= 500; i++) {
+            assertEquals(evCache.incr("sync_counter", 1, 1, 900), i);
+        }
+        for (int i = 499; i >= 0; i--) {
+            assertEquals(evCache.decr("sync_counter", 1, 1, 900), i);
+        }
+        for (int i = 1; i <= 500; i++) {
+            assertEquals(evCache.incr("rx_counter", 1, 1, 900, Schedulers.computation()).toBlocking().value().longValue(), i);
+        }
+        for (int i = 499; i >= 0; i--) {
+            assertEquals(evCache.decr("rx_counter", 1, 1, 900, Schedulers.computation()).toBlocking().value().longValue(), i);
+        }
+    }
+
+    @Test(dependsOnMethods = "testCounters")
+    public void testCounterReconcile() throws Exception {
+        assertEquals(evCache.incr("reconcile_counter", 1, 10, 900), 10);
+        final FakeMemcachedServer[] servers = deployment.getServers();
+        servers[0].flush();
+        assertEquals(evCache.incr("reconcile_counter", 1, 1, 900), 11);
+        for (int i = 0; i < 100 && !"11".equals(servers[0].getValue("reconcile_counter")); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(servers[0].getValue("reconcile_counter"), "11");
+        assertEquals(servers[1].getValue("reconcile_counter"), "11");
+        assertEquals(evCache.incr("reconcile_counter", 1, 1, 900, Schedulers.computation()).toBlocking().value().longValue(), 12);
+    }
+
+    @Test(dependsOnMethods = "testCounterReconcile")
+    public void testBulkWrites() throws Exception {
+        final Map<String, String> data = new HashMap<String, String>();
+        for (int i = 0; i < 20; i++) {
+            data.put("bulk_" + i, "value_" + i);
+        }
+        EVCacheLatch latch = evCache.setBulk(data, 900, Policy.ALL);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(latch.getSuccessCount(), 2);
+        for (FakeMemcachedServer server : deployment.getServers()) {
+            for (int i = 0; i < 20; i++) {
+                assertEquals(server.getValue("bulk_" + i), "value_" + i);
+            }
+        }
+
+        latch = evCache.touchBulk(data.keySet(), 1800, Policy.ALL);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(latch.getSuccessCount(), 2);
+        assertEquals(latch.getFailureCount(), 0);
+
+        // like a single touch, touching a missing key fails
+        latch = evCache.touchBulk(Arrays.asList("bulk_0", "bulk_missing"), 1800, Policy.ALL);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(latch.getFailureCount(), 2);
+
+        // like a single delete, deleting a missing key succeeds
+        final List<String> keys = new ArrayList<String>(data.keySet());
+        keys.add("bulk_missing");
+        latch = evCache.deleteBulk(keys, Policy.ALL);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertEquals(latch.getSuccessCount(), 2);
+        assertEquals(latch.getFailureCount(), 0);
+        for (FakeMemcachedServer server : deployment.getServers()) {
+            for (int i = 0; i < 20; i++) {
+                assertNull(server.getValue("bulk_" + i));
+            }
+        }
+
+        // without a policy the latch defaults to ALL_MINUS_1, even when there is nothing to write
+        assertTrue(evCache.setBulk(Collections.<String, String> emptyMap(), 900, null).await(1, TimeUnit.SECONDS));
+    }
+
+    @Test(dependsOnMethods = "testBulkWrites")
+    public void testChunkedBulkWrites() throws Exception {
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        config.setProperty(APP_NAME + ".chunk.data", "true");
+        try {
+            // random enough not to compress below the chunk size
+            final char[] large = new char[5000];
+            final Random random = new Random(42);
+            for (int i = 0; i < large.length; i++) {
+                large[i] = (char) ('a' + random.nextInt(26));
+            }
+            final Map<String, String> data = new HashMap<String, String>();
+            data.put("chunked_small", "small");
+            data.put("chunked_large", new String(large));
+
+            // chunked clients write key by key instead of failing half way through the server groups
+            EVCacheLatch latch = evCache.setBulk(data, 900, Policy.ALL);
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertEquals(latch.getSuccessCount(), 2);
+            assertEquals(evCache.<String> get("chunked_small"), "small");
+            assertEquals(evCache.<String> get("chunked_large"), new String(large));
+            for (FakeMemcachedServer server : deployment.getServers()) {
+                assertTrue(server.getValue("chunked_large_00") != null);
+            }
+
+            latch = evCache.touchBulk(data.keySet(), 1800, Policy.ALL);
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertEquals(latch.getSuccessCount(), 2);
+
+            latch = evCache.deleteBulk(data.keySet(), Policy.ALL);
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertEquals(latch.getSuccessCount(), 2);
+            assertNull(evCache.<String> get("chunked_small"));
+            assertNull(evCache.<String> get("chunked_large"));
+        } finally {
+            config.setProperty(APP_NAME + ".chunk.data", "false");
+        }
+    }
+
+    @Test(dependsOnMethods = "testChunkedBulkWrites")
+    public void testZoneFallbackWhenStalled() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            await(evCache.set("stall_" + i, "value_" + i, 900));
+        }
+        deployment.getServers()[0].stall(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(evCache.<String> get("stall_" + i), "value_" + i);
+        }
+    }
+
+    @Test(dependsOnMethods = "testZoneFallbackWhenStalled")
+    public void testZoneFallbackWhenSlow() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            await(evCache.set("slow_" + i, "value_" + i, 900));
+        }
+        deployment.getServers()[1].setLatency(300, 500, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(evCache.<String> get("slow_" + i), "value_" + i);
+        }
+    }
+
+    @Test(dependsOnMethods = "testZoneFallbackWhenSlow")
+    public void testHedgedReads() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            await(evCache.set("hedge_" + i, "value_" + i, 900));
+        }
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        config.setProperty(APP_NAME + ".hedge.enabled", "true");
+        config.setProperty(APP_NAME + ".hedge.delay.ms", "5");
+        config.setProperty(APP_NAME + ".hedge.budget.percent", "100");
+        try {
+            deployment.getServers()[0].setLatency(60, 80, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 50; i++) {
+                final long start = System.nanoTime();
+                assertEquals(evCache.<String> get("hedge_" + i), "value_" + i);
+                final long took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                assertTrue(took < 50, "get of hedge_" + i + " took " + took + " ms");
+            }
+        } finally {
+            config.setProperty(APP_NAME + ".hedge.enabled", "false");
+        }
+    }
+
+    @Test(dependsOnMethods = "testHedgedReads")
+    public void testRxBulkFallback() throws Exception {
+        final List<String> before = new ArrayList<String>();
+        final List<String> after = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            before.add("rx_before_" + i);
+            await(evCache.set("rx_before_" + i, "value_" + i, 900));
+        }
+        deployment.getServers()[0].flush();
+        for (int i = 0; i < 10; i++) {
+            after.add("rx_after_" + i);
+            await(evCache.set("rx_after_" + i, "value_" + i, 900));
+        }
+        final List<String> all = new ArrayList<String>(before);
+        all.addAll(after);
+
+        // server group 0 only has the keys set after the flush, so depending on which server
+        // group is read first this needs no fallback, a full fallback or a partial fallback
+        for (int round = 0; round < 10; round++) {
+            final Map<String, String> beforeOnly = evCache.<String> getBulk(before, null, Schedulers.computation()).toBlocking().value();
+            final Map<String, String> mixed = evCache.<String> getBulk(all, null, Schedulers.computation()).toBlocking().value();
+            for (int i = 0; i < 10; i++) {
+                assertEquals(beforeOnly.get("rx_before_" + i), "value_" + i);
+                assertEquals(mixed.get("rx_before_" + i), "value_" + i);
+                assertEquals(mixed.get("rx_after_" + i), "value_" + i);
+            }
+        }
+    }
+
+    @Test(dependsOnMethods = "testRxBulkFallback")
+    public void testParallelPartialBulkFallback() throws Exception {
+        final List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            keys.add("rx_before_" + i);
+            keys.add("rx_after_" + i);
+        }
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        config.setProperty(APP_NAME + ".bulk.partial.fallback.parallel", "true");
+        try {
+            for (int round = 0; round < 10; round++) {
+                final Map<String, String> sync = evCache.<String> getBulk(keys);
+                final Map<String, String> rx = evCache.<String> getBulk(keys, null, Schedulers.computation()).toBlocking().value();
+                for (int i = 0; i < 10; i++) {
+                    assertEquals(sync.get("rx_before_" + i), "value_" + i);
+                    assertEquals(sync.get("rx_after_" + i), "value_" + i);
+                    assertEquals(rx.get("rx_before_" + i), "value_" + i);
+                    assertEquals(rx.get("rx_after_" + i), "value_" + i);
+                }
+            }
+        } finally {
+            config.setProperty(APP_NAME + ".bulk.partial.fallback.parallel", "false");
+        }
+    }
+}
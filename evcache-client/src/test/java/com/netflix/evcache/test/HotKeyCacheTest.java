@@ -0,0 +1,97 @@
+package com.netflix.evcache.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.evcache.EVCache;
+import com.netflix.evcache.HotKeyCache;
+import com.netflix.evcache.event.hotkey.HotKeyDetector;
+
+/**
+ * Checks that a key is served from the hot key cache once it is read often
+ * and that writes drop it from there.
+ */
+public class HotKeyCacheTest {
+    private static final String APP_NAME = "EVCACHE_HOT_KEY_CACHE";
+
+    private FakeDeployment deployment;
+    private EVCache evCache;
+    private HotKeyCache hotKeyCache;
+
+    @BeforeClass
+    public void setup() throws IOException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put(APP_NAME + ".hot.key.cache.enabled", "true");
+        properties.put(APP_NAME + ".hot.key.cache.min.requests", "5");
+        properties.put(APP_NAME + ".hot.key.cache.ttl.ms", "60000");
+        deployment = new FakeDeployment(APP_NAME, 1, properties);
+        evCache = deployment.newBuilder().build();
+        hotKeyCache = deployment.getPoolManager().getHotKeyCache(APP_NAME, null);
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        deployment.close();
+    }
+
+    private void set(String key, String value) throws Exception {
+        for (Future<Boolean> future : evCache.set(key, value, 900)) {
+            assertTrue(future.get().booleanValue());
+        }
+    }
+
+    @Test
+    public void testPromotion() throws Exception {
+        final FakeMemcachedServer server = deployment.getServers()[0];
+        set("hot", "value_1");
+        set("cold", "cold");
+
+        long gets = server.getCmdGet();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(evCache.<String> get("hot"), "value_1");
+        }
+        assertEquals(server.getCmdGet() - gets, 5);
+        assertEquals(hotKeyCache.getPromotionCount(), 1);
+
+        gets = server.getCmdGet();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(evCache.<String> get("hot"), "value_1");
+        }
+        final Map<String, String> values = evCache.<String> getBulk(Arrays.asList("hot", "cold"));
+        assertEquals(values.get("hot"), "value_1");
+        assertEquals(values.get("cold"), "cold");
+        // only the cold key went to the server
+        assertEquals(server.getCmdGet() - gets, 1);
+        assertEquals(hotKeyCache.getHitCount(), 11);
+
+        set("hot", "value_2");
+        assertEquals(evCache.<String> get("hot"), "value_2");
+        assertEquals(evCache.<String> get("hot"), "value_2");
+        assertEquals(hotKeyCache.getPromotionCount(), 2);
+    }
+
+    @Test
+    public void testInMemoryCacheCountsReads() throws Exception {
+        set("in_memory", "value");
+        final HotKeyDetector detector = deployment.getPoolManager().getHotKeyDetector(APP_NAME, null);
+        ConfigurationManager.getConfigInstance().setProperty(APP_NAME + ".use.inmemory.cache", "true");
+        try {
+            // the in-memory cache bypasses the hot key cache, the load from EVCache is still counted
+            assertEquals(evCache.<String> get("in_memory"), "value");
+            assertEquals(detector.estimate("in_memory"), 1);
+        } finally {
+            ConfigurationManager.getConfigInstance().setProperty(APP_NAME + ".use.inmemory.cache", "false");
+        }
+    }
+}
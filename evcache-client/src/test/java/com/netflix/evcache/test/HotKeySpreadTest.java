@@ -0,0 +1,88 @@
+package com.netflix.evcache.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.netflix.evcache.EVCache;
+
+/**
+ * Checks that the reads of a hot key are spread over every server group while
+ * the other keys are read from the local zone.
+ */
+public class HotKeySpreadTest {
+    private static final String APP_NAME = "EVCACHE_HOT_KEY_SPREAD";
+
+    private FakeDeployment deployment;
+    private EVCache evCache;
+
+    @BeforeClass
+    public void setup() throws IOException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put(APP_NAME + ".hot.key.spread.enabled", "true");
+        properties.put(APP_NAME + ".hot.key.spread.budget.percent", "100");
+        properties.put(APP_NAME + ".hot.keys", "configured_hot");
+        properties.put(APP_NAME + ".hot.key.spread.min.requests", "50");
+        deployment = new FakeDeployment(APP_NAME, 3, properties);
+        final String zone = System.getProperty("EC2_AVAILABILITY_ZONE");
+        System.setProperty("EC2_AVAILABILITY_ZONE", "zone0");
+        try {
+            evCache = deployment.newBuilder().build();
+        } finally {
+            if (zone == null) System.clearProperty("EC2_AVAILABILITY_ZONE");
+            else System.setProperty("EC2_AVAILABILITY_ZONE", zone);
+        }
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        deployment.close();
+    }
+
+    private long[] read(String key, int count) throws Exception {
+        final FakeMemcachedServer[] servers = deployment.getServers();
+        final long[] gets = new long[servers.length];
+        for (int i = 0; i < servers.length; i++) {
+            gets[i] = servers[i].getCmdGet();
+        }
+        for (int i = 0; i < count; i++) {
+            assertEquals(evCache.<String> get(key), "value");
+        }
+        for (int i = 0; i < servers.length; i++) {
+            gets[i] = servers[i].getCmdGet() - gets[i];
+        }
+        return gets;
+    }
+
+    @Test
+    public void testSpread() throws Exception {
+        for (String key : new String[] { "cold", "configured_hot", "detected_hot" }) {
+            for (Future<Boolean> future : evCache.set(key, "value", 900)) {
+                assertTrue(future.get().booleanValue());
+            }
+        }
+
+        long[] gets = read("cold", 30);
+        assertEquals(gets[0], 30);
+
+        gets = read("configured_hot", 300);
+        for (int i = 0; i < gets.length; i++) {
+            assertTrue(gets[i] > 30, "server group " + i + " got " + gets[i] + " of the reads");
+        }
+
+        // the first 50 reads make the key hot
+        read("detected_hot", 50);
+        gets = read("detected_hot", 300);
+        for (int i = 0; i < gets.length; i++) {
+            assertTrue(gets[i] > 30, "server group " + i + " got " + gets[i] + " of the reads");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.netflix.evcache.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.netflix.evcache.EVCache;
+import com.netflix.evcache.EVCacheLatch.Policy;
+
+/**
+ * Checks that writes made through the client keep the in memory cache in
+ * step with the server groups.
+ */
+public class InMemoryCacheTest {
+    private static final String APP_NAME = "EVCACHE_NEAR";
+
+    private FakeDeployment deployment;
+    private EVCache evCache;
+
+    @BeforeClass
+    public void setup() throws IOException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put(APP_NAME + ".use.inmemory.cache", "true");
+        properties.put(APP_NAME + ".inmemory.cache.duration.ms", "60000");
+        properties.put(APP_NAME + ".inmemory.offheap.max.bytes", String.valueOf(1024 * 1024));
+        properties.put(APP_NAME + ".inmemory.offheap.slab.bytes", String.valueOf(64 * 1024));
+        deployment = new FakeDeployment(APP_NAME, 2, properties);
+        evCache = deployment.newBuilder().build();
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        deployment.close();
+    }
+
+    private void await(Future<Boolean>[] futures) throws Exception {
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get().booleanValue());
+        }
+    }
+
+    private long getCmdGet() {
+        long gets = 0;
+        for (FakeMemcachedServer server : deployment.getServers()) {
+            gets += server.getCmdGet();
+        }
+        return gets;
+    }
+
+    @Test
+    public void testWriteThrough() throws Exception {
+        await(evCache.set("wt_key", "value", 900));
+        final long gets = getCmdGet();
+        assertEquals(evCache.<String> get("wt_key"), "value");
+        assertEquals(getCmdGet(), gets, "set value was not served from the in memory cache");
+
+        final Map<String, String> data = new HashMap<String, String>();
+        data.put("wt_bulk_1", "one");
+        data.put("wt_bulk_2", "two");
+        evCache.setBulk(data, 900, Policy.ALL).await(1, TimeUnit.SECONDS);
+        assertEquals(evCache.<String> get("wt_bulk_2"), "two");
+        assertEquals(getCmdGet(), gets);
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        await(evCache.set("inv_key", "value", 900));
+        assertEquals(evCache.<String> get("inv_key"), "value");
+
+        await(evCache.append("inv_key", "_appended", 900));
+        assertEquals(evCache.<String> get("inv_key"), "value_appended");
+
+        evCache.replace("inv_key", "replaced", null, 900, Policy.ALL).await(1, TimeUnit.SECONDS);
+        assertEquals(evCache.<String> get("inv_key"), "replaced");
+
+        await(evCache.delete("inv_key"));
+        assertNull(evCache.<String> get("inv_key"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.netflix.evcache.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.evcache.EVCache;
+import com.netflix.evcache.pool.EVCacheClient;
+import com.netflix.evcache.pool.EVCacheClientPool;
+import com.netflix.evcache.pool.ServerGroup;
+
+/**
+ * Checks that changing the timeouts or the pool size of an app keeps the
+ * existing clients and their connections.
+ */
+public class PoolResizeTest {
+    private static final String APP_NAME = "EVCACHE_RESIZE";
+
+    private FakeDeployment deployment;
+    private EVCache evCache;
+    private EVCacheClientPool pool;
+
+    @BeforeClass
+    public void setup() throws IOException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put(APP_NAME + ".EVCacheClientPool.poolSize", "2");
+        properties.put(APP_NAME + ".operation.timeout", "200");
+        deployment = new FakeDeployment(APP_NAME, 2, properties);
+        evCache = deployment.newBuilder().build();
+        pool = deployment.getPoolManager().getEVCacheClientPool(APP_NAME);
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        deployment.close();
+    }
+
+    private List<EVCacheClient> getClients() {
+        final List<EVCacheClient> clients = new ArrayList<EVCacheClient>();
+        for (List<EVCacheClient> serverGroupClients : pool.getAllInstancesByZone().values()) {
+            clients.addAll(serverGroupClients);
+        }
+        return clients;
+    }
+
+    private void awaitPoolSize(int poolSize) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            boolean resized = true;
+            for (List<EVCacheClient> clients : pool.getAllInstancesByZone().values()) {
+                resized &= clients.size() == poolSize;
+            }
+            if (resized) return;
+            Thread.sleep(50);
+        }
+        throw new AssertionError("pool was not resized to " + poolSize + " : " + pool.getAllInstancesByZone());
+    }
+
+    private void readAndWrite(String key) throws Exception {
+        for (Future<Boolean> future : evCache.set(key, "value", 900)) {
+            assertTrue(future.get().booleanValue());
+        }
+        assertEquals(evCache.<String> get(key), "value");
+    }
+
+    @Test
+    public void testResize() throws Exception {
+        final AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        readAndWrite("resize_0");
+        final List<EVCacheClient> before = getClients();
+        assertEquals(before.size(), 4);
+
+        config.setProperty(APP_NAME + ".EVCacheClientPool.readTimeout", "150");
+        config.setProperty(APP_NAME + ".operation.timeout", "150");
+        assertEquals(getClients(), before, "a timeout change replaced the clients");
+        assertEquals(before.get(0).getReadTimeout().get().intValue(), 150);
+
+        config.setProperty(APP_NAME + ".EVCacheClientPool.poolSize", "3");
+        awaitPoolSize(3);
+        for (Map.Entry<ServerGroup, List<EVCacheClient>> entry : pool.getAllInstancesByZone().entrySet()) {
+            final List<EVCacheClient> clients = entry.getValue();
+            assertTrue(before.contains(clients.get(0)) && before.contains(clients.get(1)), "clients of " + entry.getKey() + " were replaced");
+            assertEquals(clients.get(2).getId(), 2);
+        }
+        readAndWrite("resize_1");
+
+        config.setProperty(APP_NAME + ".EVCacheClientPool.poolSize", "1");
+        awaitPoolSize(1);
+        final List<EVCacheClient> removed = new ArrayList<EVCacheClient>(before);
+        for (EVCacheClient client : getClients()) {
+            assertTrue(before.contains(client), client + " was replaced");
+            assertFalse(client.isShutdown());
+            removed.remove(client);
+        }
+        readAndWrite("resize_2");
+
+        for (int i = 0; i < 100 && !removed.get(removed.size() - 1).isShutdown(); i++) {
+            Thread.sleep(50);
+        }
+        for (EVCacheClient client : removed) {
+            assertTrue(client.isShutdown(), client + " was not drained");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.netflix.evcache.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.netflix.evcache.EVCache;
+
+/**
+ * Checks that the least loaded read selection strategy keeps reads in the
+ * local zone while it is healthy, moves them to the other zone while it is
+ * slow and comes back once it recovers.
+ */
+public class ReadSelectionTest {
+    private static final String APP_NAME = "EVCACHE_READ_SELECTION";
+
+    private FakeDeployment deployment;
+    private EVCache evCache;
+
+    @BeforeClass
+    public void setup() throws IOException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put(APP_NAME + ".EVCacheClientPool.readTimeout", "200");
+        properties.put(APP_NAME + ".read.selection.strategy", "LeastLoaded");
+        deployment = new FakeDeployment(APP_NAME, 2, properties);
+        final String zone = System.getProperty("EC2_AVAILABILITY_ZONE");
+        System.setProperty("EC2_AVAILABILITY_ZONE", "zone0");
+        try {
+            evCache = deployment.newBuilder().build();
+        } finally {
+            if (zone == null) System.clearProperty("EC2_AVAILABILITY_ZONE");
+            else System.setProperty("EC2_AVAILABILITY_ZONE", zone);
+        }
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        deployment.close();
+    }
+
+    private long read(int count) throws Exception {
+        final FakeMemcachedServer remote = deployment.getServers()[1];
+        final long before = remote.getCmdGet();
+        for (int i = 0; i < count; i++) {
+            assertEquals(evCache.<String> get("rs_" + (i % 20)), "value_" + (i % 20));
+        }
+        return remote.getCmdGet() - before;
+    }
+
+    @Test
+    public void testRoutesAroundSlowZone() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            for (Future<Boolean> future : evCache.set("rs_" + i, "value_" + i, 900)) {
+                assertTrue(future.get().booleanValue());
+            }
+        }
+        assertEquals(read(100), 0, "healthy local zone was not preferred");
+
+        final FakeMemcachedServer local = deployment.getServers()[0];
+        local.setLatency(20, 30, TimeUnit.MILLISECONDS);
+        read(20);
+        final long remoteReads = read(100);
+        assertTrue(remoteReads > 80, "only " + remoteReads + " of 100 reads avoided the slow zone");
+
+        local.reset();
+        long recovered = -1;
+        for (int round = 0; round < 20 && recovered != 0; round++) {
+            recovered = read(100);
+        }
+        assertEquals(recovered, 0, "reads did not return to the local zone");
+    }
+}
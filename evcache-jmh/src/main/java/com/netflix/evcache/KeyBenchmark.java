@@ -0,0 +1,69 @@
+package com.netflix.evcache;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.evcache.test.FakeDeployment;
+
+/**
+ * Measures the key canonicalization done by {@link EVCacheImpl} on every
+ * call. Lives in the com.netflix.evcache package because both methods are
+ * package private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyBenchmark {
+
+    private FakeDeployment deployment;
+    private EVCacheImpl evcache;
+    private String[] keys;
+    private String[] canonicalKeys;
+    private int index = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        deployment = new FakeDeployment("EVCACHE_JMH_KEY", 1, null);
+        evcache = (EVCacheImpl) deployment.newBuilder().setCachePrefix("jmh").build();
+        keys = new String[1024];
+        canonicalKeys = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "movie:" + i + ":artwork";
+            canonicalKeys[i] = evcache.getCanonicalizedKey(keys[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        deployment.close();
+    }
+
+    private int next() {
+        return index++ & (keys.length - 1);
+    }
+
+    @Benchmark
+    public String getCanonicalizedKey() {
+        return evcache.getCanonicalizedKey(keys[next()]);
+    }
+
+    @Benchmark
+    public String getKey() {
+        return evcache.getKey(canonicalKeys[next()]);
+    }
+}
@@ -0,0 +1,83 @@
+package com.netflix.evcache.jmh;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.evcache.EVCache;
+import com.netflix.evcache.EVCacheException;
+import com.netflix.evcache.test.FakeDeployment;
+
+/**
+ * Writes and reads chunked values through the full client against a
+ * {@link FakeDeployment}. A set exercises EVCacheClient.createChunks and a get
+ * exercises the chunk assembly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkingBenchmark {
+
+    private static final String APP_NAME = "EVCACHE_JMH_CHUNK";
+
+    @Param({ "4096", "65536", "524288" })
+    public int valueSize;
+
+    private FakeDeployment deployment;
+    private EVCache evcache;
+    private byte[] value;
+
+    @Setup
+    public void setup() throws IOException, EVCacheException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put(APP_NAME + ".chunk.data", "true");
+        properties.put(APP_NAME + ".chunk.size", "1180");
+        deployment = new FakeDeployment(APP_NAME, 1, properties);
+        evcache = deployment.newBuilder().build();
+        value = new byte[valueSize];
+        new Random(42).nextBytes(value);
+        set();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        deployment.close();
+    }
+
+    @Benchmark
+    public boolean set() throws EVCacheException {
+        boolean status = true;
+        for (Future<Boolean> future : evcache.set("chunked", value, 900)) {
+            try {
+                status &= future.get().booleanValue();
+            } catch (Exception e) {
+                throw new EVCacheException(e.getMessage(), e);
+            }
+        }
+        return status;
+    }
+
+    @Benchmark
+    public byte[] get() throws EVCacheException {
+        return evcache.<byte[]> get("chunked");
+    }
+}
@@ -0,0 +1,89 @@
+package com.netflix.evcache.jmh;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.evcache.pool.EVCacheClient;
+import com.netflix.evcache.pool.EVCacheClientPool;
+import com.netflix.evcache.test.FakeDeployment;
+
+/**
+ * Picks the client for a read and the clients for a write from one pool on
+ * one thread and on as many threads as there are cores. With a shared
+ * counter the throughput per thread drops as threads are added; the numbers
+ * of the two runs show how selection scales with the core count. Use -t to
+ * try other thread counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientSelectionBenchmark {
+
+    private static final String APP_NAME = "EVCACHE_JMH_SELECT";
+
+    @Param({ "4" })
+    public int poolSize;
+
+    private FakeDeployment deployment;
+    private EVCacheClientPool pool;
+
+    @Setup
+    public void setup() throws IOException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        properties.put(APP_NAME + ".EVCacheClientPool.poolSize", String.valueOf(poolSize));
+        deployment = new FakeDeployment(APP_NAME, 3, properties);
+        // reads prefer the server group in the local zone
+        System.setProperty("EC2_AVAILABILITY_ZONE", "zone0");
+        deployment.newBuilder().build();
+        pool = deployment.getPoolManager().getEVCacheClientPool(APP_NAME);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.clearProperty("EC2_AVAILABILITY_ZONE");
+        deployment.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public EVCacheClient readSingleThread() {
+        return pool.getEVCacheClientForRead();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public EVCacheClient readAllThreads() {
+        return pool.getEVCacheClientForRead();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public EVCacheClient[] writeSingleThread() {
+        return pool.getEVCacheClientForWrite();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public EVCacheClient[] writeAllThreads() {
+        return pool.getEVCacheClientForWrite();
+    }
+}
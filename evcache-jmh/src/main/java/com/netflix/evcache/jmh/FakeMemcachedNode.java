@@ -0,0 +1,44 @@
+package com.netflix.evcache.jmh;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+
+import net.spy.memcached.MemcachedNode;
+
+/**
+ * A {@link MemcachedNode} that only knows its address. Enough for the node
+ * locator benchmarks which never perform any IO.
+ */
+final class FakeMemcachedNode implements InvocationHandler {
+
+    private final InetSocketAddress address;
+
+    private FakeMemcachedNode(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    static MemcachedNode create(String host, int port) {
+        final InetSocketAddress address = InetSocketAddress.createUnresolved(host, port);
+        return (MemcachedNode) Proxy.newProxyInstance(MemcachedNode.class.getClassLoader(), new Class<?>[] { MemcachedNode.class }, new FakeMemcachedNode(address));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+        case "getSocketAddress":
+            return address;
+        case "isActive":
+            return Boolean.TRUE;
+        case "toString":
+            return "FakeMemcachedNode[" + address + "]";
+        case "hashCode":
+            return Integer.valueOf(System.identityHashCode(proxy));
+        case "equals":
+            return Boolean.valueOf(proxy == args[0]);
+        default:
+            throw new UnsupportedOperationException(method.getName());
+        }
+    }
+}
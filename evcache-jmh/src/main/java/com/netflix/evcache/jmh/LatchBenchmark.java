@@ -0,0 +1,66 @@
+package com.netflix.evcache.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.evcache.EVCacheLatch.Policy;
+import com.netflix.evcache.operation.EVCacheLatchImpl;
+
+import net.spy.memcached.internal.OperationFuture;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+
+/**
+ * Creates an {@link EVCacheLatchImpl}, registers one completed future per copy
+ * and drives it to completion, which is what every write pays once all the
+ * copies have replied.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatchBenchmark {
+
+    @Param({ "ONE", "QUORUM", "ALL" })
+    public Policy policy;
+
+    @Param({ "3" })
+    public int copies;
+
+    private List<OperationFuture<Boolean>> futures;
+
+    @Setup
+    public void setup() {
+        futures = new ArrayList<OperationFuture<Boolean>>(copies);
+        for (int i = 0; i < copies; i++) {
+            final OperationFuture<Boolean> future = new OperationFuture<Boolean>("key", new CountDownLatch(0), 2500, null);
+            future.set(Boolean.TRUE, new OperationStatus(true, "OK", StatusCode.SUCCESS));
+            futures.add(future);
+        }
+    }
+
+    @Benchmark
+    public boolean complete() throws Exception {
+        final EVCacheLatchImpl latch = new EVCacheLatchImpl(policy, copies, "EVCACHE_JMH_LATCH");
+        for (int i = 0; i < futures.size(); i++) {
+            latch.onComplete(futures.get(i));
+        }
+        return latch.isDone();
+    }
+}
@@ -0,0 +1,98 @@
+package com.netflix.evcache.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.evcache.metrics.EVCacheCounter;
+import com.netflix.evcache.metrics.EVCacheMetricsFactory;
+import com.netflix.evcache.metrics.EVCacheServerGroupCounter;
+import com.netflix.evcache.pool.ServerGroup;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.monitor.BasicCounter;
+import com.netflix.servo.monitor.Counter;
+import com.netflix.servo.monitor.MonitorConfig;
+import com.netflix.servo.monitor.StatsTimer;
+
+/**
+ * Looks up counters and timers that already exist in
+ * {@link EVCacheMetricsFactory}, the way the client does on every call, and
+ * compares that with counting through a handle that was resolved up front.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MetricsBenchmark {
+
+    private static final String APP_NAME = "EVCACHE_JMH_METRICS";
+    private ServerGroup serverGroup;
+    private String serverGroupName;
+    private EVCacheServerGroupCounter serverGroupCounter;
+    private Counter basicCounter;
+    private Counter evcacheCounter;
+
+    @Setup
+    public void setup() {
+        serverGroup = new ServerGroup("us-east-1a", APP_NAME + "-a");
+        serverGroupName = serverGroup.getName();
+        serverGroupCounter = new EVCacheServerGroupCounter(APP_NAME, null, APP_NAME + "-BULK_HIT");
+        basicCounter = new BasicCounter(MonitorConfig.builder(APP_NAME + "-basic").build());
+        evcacheCounter = new EVCacheCounter(MonitorConfig.builder(APP_NAME + "-striped").build());
+        getCounter();
+        increment();
+        getStatsTimer();
+        incrementByName();
+        incrementHandle();
+    }
+
+    @Benchmark
+    public Counter getCounter() {
+        return EVCacheMetricsFactory.getCounter(APP_NAME, null, serverGroup.getName(), APP_NAME + "-GET-HIT", DataSourceType.COUNTER);
+    }
+
+    @Benchmark
+    public void increment() {
+        EVCacheMetricsFactory.increment(APP_NAME, null, "EVCacheLatchImpl-OnComplete");
+    }
+
+    /** counts the way EVCacheImpl used to count a hit of a bulk get */
+    @Benchmark
+    public void incrementByName() {
+        EVCacheMetricsFactory.increment(APP_NAME, null, serverGroupName, APP_NAME + "-" + "BULK_HIT");
+    }
+
+    /** counts the same metric through a handle resolved once per server group */
+    @Benchmark
+    public void incrementHandle() {
+        serverGroupCounter.increment(serverGroupName);
+    }
+
+    @Benchmark
+    public void incrementBasicCounter() {
+        basicCounter.increment();
+    }
+
+    @Benchmark
+    public void incrementEVCacheCounter() {
+        evcacheCounter.increment();
+    }
+
+    @Benchmark
+    public StatsTimer getStatsTimer() {
+        return EVCacheMetricsFactory.getStatsTimer(APP_NAME, serverGroup, "LatencyGet");
+    }
+}
@@ -0,0 +1,134 @@
+package com.netflix.evcache.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.evcache.pool.EVCacheNodeLocator;
+import com.netflix.evcache.pool.ServerGroup;
+
+import net.spy.memcached.DefaultHashAlgorithm;
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.util.DefaultKetamaNodeLocatorConfiguration;
+
+/**
+ * Compares key to node lookups on the array based ketama continuum used by
+ * {@link EVCacheNodeLocator} with the TreeMap based lookup it replaced, and
+ * the cost of updating the continuum when a single node is replaced with the
+ * cost of building it from scratch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeLocatorBenchmark {
+
+    @Param({ "3", "30", "150" })
+    public int nodeCount;
+
+    private EVCacheNodeLocator locator;
+    private List<MemcachedNode> nodes;
+    private List<MemcachedNode> replacedNodes;
+    private EVCacheNodeLocator updatedLocator;
+    private boolean replaced = false;
+    private TreeMap<Long, MemcachedNode> ketamaNodes;
+    private long[] hashes;
+    private String[] keys;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        nodes = new ArrayList<MemcachedNode>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            nodes.add(FakeMemcachedNode.create("10.0." + (i / 250) + "." + (i % 250), 11211));
+        }
+        locator = newLocator(nodes);
+        updatedLocator = newLocator(nodes);
+        replacedNodes = new ArrayList<MemcachedNode>(nodes);
+        replacedNodes.set(nodeCount / 2, FakeMemcachedNode.create("10.1.0.0", 11211));
+
+        ketamaNodes = new TreeMap<Long, MemcachedNode>();
+        for (Map.Entry<Long, MemcachedNode> entry : locator.getKetamaNodeMap().entrySet()) {
+            ketamaNodes.put(entry.getKey(), entry.getValue());
+        }
+
+        keys = new String[1024];
+        hashes = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "movie:" + i + ":artwork";
+            hashes[i] = DefaultHashAlgorithm.KETAMA_HASH.hash(keys[i]);
+        }
+    }
+
+    private static EVCacheNodeLocator newLocator(List<MemcachedNode> nodes) {
+        return new EVCacheNodeLocator("EVCACHE_JMH", new ServerGroup("us-east-1a", "EVCACHE_JMH-a"), nodes,
+                DefaultHashAlgorithm.KETAMA_HASH, new DefaultKetamaNodeLocatorConfiguration());
+    }
+
+    private int next() {
+        return index++ & (keys.length - 1);
+    }
+
+    @Benchmark
+    public MemcachedNode continuumGetNodeForKey() {
+        return locator.getNodeForKey(hashes[next()]);
+    }
+
+    @Benchmark
+    public MemcachedNode treeMapGetNodeForKey() {
+        Long hash = Long.valueOf(hashes[next()]);
+        hash = ketamaNodes.ceilingKey(hash);
+        if (hash == null) {
+            hash = ketamaNodes.firstKey();
+        }
+        return ketamaNodes.get(hash);
+    }
+
+    @Benchmark
+    public MemcachedNode continuumGetPrimary() {
+        return locator.getPrimary(keys[next()]);
+    }
+
+    @Benchmark
+    public MemcachedNode treeMapGetPrimary() {
+        Long hash = Long.valueOf(DefaultHashAlgorithm.KETAMA_HASH.hash(keys[next()]));
+        hash = ketamaNodes.ceilingKey(hash);
+        if (hash == null) {
+            hash = ketamaNodes.firstKey();
+        }
+        return ketamaNodes.get(hash);
+    }
+
+    /*
+     * Every call swaps one node in and the other one out, so each update
+     * hashes exactly one node.
+     */
+    @Benchmark
+    public EVCacheNodeLocator updateOneNode() {
+        replaced = !replaced;
+        updatedLocator.updateLocator(replaced ? replacedNodes : nodes);
+        return updatedLocator;
+    }
+
+    @Benchmark
+    public EVCacheNodeLocator rebuild() {
+        replaced = !replaced;
+        return newLocator(replaced ? replacedNodes : nodes);
+    }
+}
@@ -0,0 +1,67 @@
+package com.netflix.evcache.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.evcache.EVCacheTranscoder;
+
+import net.spy.memcached.CachedData;
+
+/**
+ * Encodes and decodes String values with {@link EVCacheTranscoder}, with
+ * compression either forced on every value or disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranscoderBenchmark {
+
+    private static final String[] WORDS = { "evcache", "memcached", "artwork", "movie", "profile", "title", "row", "ranking", "member", "device" };
+
+    @Param({ "100", "4096", "65536" })
+    public int valueSize;
+
+    @Param({ "true", "false" })
+    public boolean compress;
+
+    private EVCacheTranscoder transcoder;
+    private String value;
+    private CachedData encoded;
+
+    @Setup
+    public void setup() {
+        transcoder = new EVCacheTranscoder(Integer.MAX_VALUE, compress ? 0 : Integer.MAX_VALUE);
+        final Random random = new Random(42);
+        final StringBuilder sb = new StringBuilder(valueSize + 16);
+        while (sb.length() < valueSize) {
+            sb.append(WORDS[random.nextInt(WORDS.length)]).append(':').append(random.nextInt(1000)).append(' ');
+        }
+        value = sb.substring(0, valueSize);
+        encoded = transcoder.encode(value);
+    }
+
+    @Benchmark
+    public CachedData encode() {
+        return transcoder.encode(value);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return transcoder.decode(encoded);
+    }
+}